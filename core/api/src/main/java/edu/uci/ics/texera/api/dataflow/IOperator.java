@@ -1,5 +1,8 @@
 package edu.uci.ics.texera.api.dataflow;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import edu.uci.ics.texera.api.exception.TexeraException;
 import edu.uci.ics.texera.api.schema.Schema;
 import edu.uci.ics.texera.api.tuple.Tuple;
@@ -12,10 +15,32 @@ public interface IOperator {
     static final int CLOSED = -1;
     static final int OPENED = 0;
 
+    static final int DEFAULT_BATCH_SIZE = 1024;
+
     void open() throws TexeraException;
 
     Tuple getNextTuple() throws TexeraException;
 
+    /**
+     * Gets at most maxTuples next tuples in one call.
+     * 
+     * The default implementation is an adapter over getNextTuple(). 
+     * Operators that can produce tuples in bulk should override it to avoid 
+     *   paying the per-tuple overhead (cursor checks, exception wrapping, etc.).
+     * 
+     * @param maxTuples, the maximum number of tuples to return, must be positive
+     * @return a list of at most maxTuples tuples, an empty list if there are no more tuples
+     * @throws TexeraException
+     */
+    default List<Tuple> getNextBatch(int maxTuples) throws TexeraException {
+        List<Tuple> batch = new ArrayList<>(Math.min(maxTuples, DEFAULT_BATCH_SIZE));
+        Tuple tuple;
+        while (batch.size() < maxTuples && (tuple = getNextTuple()) != null) {
+            batch.add(tuple);
+        }
+        return batch;
+    }
+
     void close() throws TexeraException;
 
     Schema getOutputSchema();
@@ -22,8 +22,10 @@ public class DateField implements IField {
         this.localDate = date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
     }
 
+    /**
+     * Creates a field of a date value, the value can be null if it's missing.
+     */
     public DateField(LocalDate localDate) {
-        checkNotNull(localDate);
         this.localDate = localDate;
     }
 
@@ -31,13 +33,12 @@ public class DateField implements IField {
     public DateField(
             @JsonProperty(value = JsonConstants.FIELD_VALUE, required = true) 
             String localDateString) {
-        checkNotNull(localDateString);
-        this.localDate = LocalDate.parse(localDateString);
+        this.localDate = localDateString == null ? null : LocalDate.parse(localDateString);
     }
 
     @JsonProperty(value = JsonConstants.FIELD_VALUE)
     public String getDateString() {
-        return this.localDate.toString();
+        return this.localDate == null ? null : this.localDate.toString();
     }
 
     @JsonIgnore
@@ -73,7 +74,7 @@ public class DateField implements IField {
 
     @Override
     public String toString() {
-        return "DateField [value=" + localDate.toString() + "]";
+        return "DateField [value=" + localDate + "]";
     }
 
 }
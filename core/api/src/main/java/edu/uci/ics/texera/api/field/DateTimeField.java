@@ -1,7 +1,5 @@
 package edu.uci.ics.texera.api.field;
 
-import static com.google.common.base.Preconditions.checkNotNull;
-
 import java.time.LocalDateTime;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
@@ -14,8 +12,10 @@ public class DateTimeField implements IField {
     
     private LocalDateTime localDateTime;
 
+    /**
+     * Creates a field of a datetime value, the value can be null if it's missing.
+     */
     public DateTimeField(LocalDateTime localDateTime) {
-        checkNotNull(localDateTime);
         this.localDateTime = localDateTime;
     }
 
@@ -23,13 +23,12 @@ public class DateTimeField implements IField {
     public DateTimeField(
             @JsonProperty(value = JsonConstants.FIELD_VALUE, required = true) 
             String localDateTimeString) {
-        checkNotNull(localDateTimeString);
-        this.localDateTime = LocalDateTime.parse(localDateTimeString);
+        this.localDateTime = localDateTimeString == null ? null : LocalDateTime.parse(localDateTimeString);
     }
 
     @JsonProperty(value = JsonConstants.FIELD_VALUE)
     public String getDateTimeString() {
-        return this.localDateTime.toString();
+        return this.localDateTime == null ? null : this.localDateTime.toString();
     }
 
     @JsonIgnore
@@ -65,7 +64,7 @@ public class DateTimeField implements IField {
 
     @Override
     public String toString() {
-        return "DateTimeField [value=" + localDateTime.toString() + "]";
+        return "DateTimeField [value=" + localDateTime + "]";
     }
 
 }
@@ -10,11 +10,13 @@ import com.google.common.collect.ImmutableList;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import edu.uci.ics.texera.api.constants.JsonConstants;
+import edu.uci.ics.texera.api.span.CompactPayload;
+import edu.uci.ics.texera.api.span.LazyPayload;
 
 @JsonDeserialize(using = ListFieldJsonDeserializer.class)
 public class ListField<T> implements IField {
 
-    private ImmutableList<T> list;
+    private List<T> list;
 
     @JsonCreator
     public ListField(
@@ -22,7 +24,13 @@ public class ListField<T> implements IField {
             List<T> list) {
         checkNotNull(list);
         
-        this.list = ImmutableList.copyOf(list);
+        // a CompactPayload is immutable and creates its spans lazily, copying it would create all of them,
+        //   and copying a LazyPayload would compute it
+        if (list instanceof CompactPayload || list instanceof LazyPayload) {
+            this.list = list;
+        } else {
+            this.list = ImmutableList.copyOf(list);
+        }
     }
 
     @Override
@@ -0,0 +1,248 @@
+package edu.uci.ics.texera.api.span;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * CompactPayload is an immutable payload (the list of the spans of every token in a tuple)
+ *   that stores the tokens in parallel int arrays instead of one Span object per token.
+ *
+ * For each token, it stores the attribute it's in, its start and end offsets, its token position,
+ *   and the ID of its analyzed term in the dictionary of the distinct terms of the payload.
+ *   The original term of a token is not stored, it's the substring of the attribute value between its offsets.
+ *
+ * The Span objects are only created when they are accessed by get() or by iterating the list,
+ *   the token-based matchers should use getSpans() or the per-token getters, which don't create any span
+ *   for the tokens that don't match.
+ *
+ */
+public class CompactPayload extends AbstractList<Span> implements RandomAccess {
+
+    private final String[] attributeNames;
+    private final String[] attributeValues;
+    // the distinct analyzed terms of the payload in sorted order, a term ID is an index of this array
+    private final String[] terms;
+
+    private final int size;
+    private final int[] attributeIds;
+    private final int[] starts;
+    private final int[] ends;
+    private final int[] tokenOffsets;
+    private final int[] termIds;
+
+    private CompactPayload(String[] attributeNames, String[] attributeValues, String[] terms, int size,
+            int[] attributeIds, int[] starts, int[] ends, int[] tokenOffsets, int[] termIds) {
+        this.attributeNames = attributeNames;
+        this.attributeValues = attributeValues;
+        this.terms = terms;
+        this.size = size;
+        this.attributeIds = attributeIds;
+        this.starts = starts;
+        this.ends = ends;
+        this.tokenOffsets = tokenOffsets;
+        this.termIds = termIds;
+    }
+
+    @Override
+    public Span get(int index) {
+        checkIndex(index);
+        return new Span(attributeNames[attributeIds[index]], starts[index], ends[index], terms[termIds[index]],
+                getValue(index), tokenOffsets[index]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+    }
+
+    public String getAttributeName(int index) {
+        checkIndex(index);
+        return attributeNames[attributeIds[index]];
+    }
+
+    public int getStart(int index) {
+        checkIndex(index);
+        return starts[index];
+    }
+
+    public int getEnd(int index) {
+        checkIndex(index);
+        return ends[index];
+    }
+
+    public int getTokenOffset(int index) {
+        checkIndex(index);
+        return tokenOffsets[index];
+    }
+
+    /**
+     * Gets the analyzed term of a token, which is the key of its span.
+     */
+    public String getKey(int index) {
+        checkIndex(index);
+        return terms[termIds[index]];
+    }
+
+    /**
+     * Gets the original term of a token, which is the value of its span.
+     */
+    public String getValue(int index) {
+        checkIndex(index);
+        return attributeValues[attributeIds[index]].substring(starts[index], ends[index]);
+    }
+
+    public int getTermId(int index) {
+        checkIndex(index);
+        return termIds[index];
+    }
+
+    /**
+     * Gets the ID of an analyzed term, or -1 if the term is not in the payload.
+     */
+    public int getTermId(String term) {
+        int termId = Arrays.binarySearch(terms, term);
+        return termId < 0 ? -1 : termId;
+    }
+
+    /**
+     * Gets the analyzed term of a term ID.
+     */
+    public String getTerm(int termId) {
+        return terms[termId];
+    }
+
+    public int getNumTerms() {
+        return terms.length;
+    }
+
+    /**
+     * Gets the spans of the tokens whose analyzed term is one of the given terms, in the order of the payload.
+     * The terms are looked up once in the dictionary, then the tokens are matched by their term ID.
+     */
+    public List<Span> getSpans(Collection<String> keys) {
+        List<Span> spans = new ArrayList<>();
+        boolean[] isRelevantTerm = new boolean[terms.length];
+        boolean hasRelevantTerm = false;
+        for (String key : keys) {
+            int termId = getTermId(key);
+            if (termId >= 0) {
+                isRelevantTerm[termId] = true;
+                hasRelevantTerm = true;
+            }
+        }
+        if (! hasRelevantTerm) {
+            return spans;
+        }
+        for (int i = 0; i < size; i++) {
+            if (isRelevantTerm[termIds[i]]) {
+                spans.add(get(i));
+            }
+        }
+        return spans;
+    }
+
+    /**
+     * Builder builds a CompactPayload token by token.
+     */
+    public static class Builder {
+
+        private static final int INITIAL_CAPACITY = 64;
+
+        private final List<String> attributeNames = new ArrayList<>();
+        private final List<String> attributeValues = new ArrayList<>();
+        private final Map<String, Integer> termIdMap = new HashMap<>();
+        private final List<String> terms = new ArrayList<>();
+
+        private int size = 0;
+        private int[] attributeIds = new int[INITIAL_CAPACITY];
+        private int[] starts = new int[INITIAL_CAPACITY];
+        private int[] ends = new int[INITIAL_CAPACITY];
+        private int[] tokenOffsets = new int[INITIAL_CAPACITY];
+        private int[] termIds = new int[INITIAL_CAPACITY];
+
+        /**
+         * Adds a token of an attribute.
+         *
+         * @param attributeName, the attribute of the token
+         * @param attributeValue, the value of the attribute, the original term of the token is its substring
+         * @param start, the start offset of the token
+         * @param end, the end offset of the token
+         * @param key, the analyzed term of the token
+         * @param tokenOffset, the token position of the token
+         * @return this builder
+         */
+        public Builder add(String attributeName, String attributeValue, int start, int end, String key,
+                int tokenOffset) {
+            if (size == attributeIds.length) {
+                int capacity = size * 2;
+                attributeIds = Arrays.copyOf(attributeIds, capacity);
+                starts = Arrays.copyOf(starts, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+                tokenOffsets = Arrays.copyOf(tokenOffsets, capacity);
+                termIds = Arrays.copyOf(termIds, capacity);
+            }
+            attributeIds[size] = getAttributeId(attributeName, attributeValue);
+            starts[size] = start;
+            ends[size] = end;
+            tokenOffsets[size] = tokenOffset;
+            termIds[size] = termIdMap.computeIfAbsent(key, term -> {
+                terms.add(term);
+                return terms.size() - 1;
+            });
+            size++;
+            return this;
+        }
+
+        /*
+         * The tokens of an attribute are usually added together, so only the last attribute is checked first.
+         */
+        private int getAttributeId(String attributeName, String attributeValue) {
+            int lastAttributeId = attributeNames.size() - 1;
+            if (lastAttributeId >= 0 && attributeNames.get(lastAttributeId).equals(attributeName)) {
+                return lastAttributeId;
+            }
+            int attributeId = attributeNames.indexOf(attributeName);
+            if (attributeId >= 0) {
+                return attributeId;
+            }
+            attributeNames.add(attributeName);
+            attributeValues.add(attributeValue);
+            return attributeNames.size() - 1;
+        }
+
+        public CompactPayload build() {
+            // sort the dictionary so that the terms can be looked up by binary search, and map the term IDs
+            String[] sortedTerms = terms.toArray(new String[terms.size()]);
+            Arrays.sort(sortedTerms);
+            int[] sortedTermIds = new int[sortedTerms.length];
+            for (int i = 0; i < sortedTerms.length; i++) {
+                sortedTermIds[termIdMap.get(sortedTerms[i])] = i;
+            }
+            int[] payloadTermIds = new int[size];
+            for (int i = 0; i < size; i++) {
+                payloadTermIds[i] = sortedTermIds[termIds[i]];
+            }
+
+            return new CompactPayload(
+                    attributeNames.toArray(new String[attributeNames.size()]),
+                    attributeValues.toArray(new String[attributeValues.size()]),
+                    sortedTerms, size,
+                    Arrays.copyOf(attributeIds, size), Arrays.copyOf(starts, size), Arrays.copyOf(ends, size),
+                    Arrays.copyOf(tokenOffsets, size), payloadTermIds);
+        }
+
+    }
+
+}
@@ -0,0 +1,69 @@
+package edu.uci.ics.texera.api.span;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.Supplier;
+
+/**
+ * LazyPayload is a payload whose CompactPayload is only computed when it's first accessed,
+ *   and then cached, so the tokens of a tuple are computed at most once
+ *   and not at all if no operator reads them.
+ *
+ * A LazyPayload is a read-only view of the computed payload. The token-based matchers
+ *   should get the CompactPayload by unwrap() to use its per-token getters.
+ *
+ */
+public class LazyPayload extends AbstractList<Span> implements RandomAccess {
+
+    private volatile Supplier<CompactPayload> payloadSupplier;
+    private volatile CompactPayload payload;
+
+    public LazyPayload(Supplier<CompactPayload> payloadSupplier) {
+        this.payloadSupplier = payloadSupplier;
+    }
+
+    /**
+     * Gets the payload, computing it if it's not computed yet.
+     */
+    public CompactPayload getPayload() {
+        CompactPayload computedPayload = payload;
+        if (computedPayload == null) {
+            synchronized (this) {
+                computedPayload = payload;
+                if (computedPayload == null) {
+                    computedPayload = payloadSupplier.get();
+                    payload = computedPayload;
+                    // the supplier may hold the index reader and the document, they're not needed anymore
+                    payloadSupplier = null;
+                }
+            }
+        }
+        return computedPayload;
+    }
+
+    public boolean isComputed() {
+        return payload != null;
+    }
+
+    @Override
+    public Span get(int index) {
+        return getPayload().get(index);
+    }
+
+    @Override
+    public int size() {
+        return getPayload().size();
+    }
+
+    /**
+     * Gets the computed payload of a lazy payload, or the payload itself if it's not lazy.
+     */
+    public static List<Span> unwrap(List<Span> payload) {
+        if (payload instanceof LazyPayload) {
+            return ((LazyPayload) payload).getPayload();
+        }
+        return payload;
+    }
+
+}
@@ -0,0 +1,75 @@
+package edu.uci.ics.texera.api.span;
+
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import edu.uci.ics.texera.api.field.ListField;
+
+public class CompactPayloadTest {
+
+    private static final String DESCRIPTION = "The quick brown fox jumps over the lazy dog";
+    private static final String TITLE = "Lazy Fox";
+
+    private static CompactPayload buildPayload() {
+        return new CompactPayload.Builder()
+                .add("description", DESCRIPTION, 4, 9, "quick", 1)
+                .add("description", DESCRIPTION, 16, 19, "fox", 3)
+                .add("description", DESCRIPTION, 35, 39, "lazy", 7)
+                .add("title", TITLE, 0, 4, "lazy", 0)
+                .add("title", TITLE, 5, 8, "fox", 1)
+                .build();
+    }
+
+    @Test
+    public void testSpans() {
+        CompactPayload payload = buildPayload();
+        List<Span> expectedSpans = Arrays.asList(
+                new Span("description", 4, 9, "quick", "quick", 1),
+                new Span("description", 16, 19, "fox", "fox", 3),
+                new Span("description", 35, 39, "lazy", "lazy", 7),
+                new Span("title", 0, 4, "lazy", "Lazy", 0),
+                new Span("title", 5, 8, "fox", "Fox", 1));
+
+        Assert.assertEquals(expectedSpans.size(), payload.size());
+        Assert.assertEquals(expectedSpans, payload);
+        Assert.assertEquals("title", payload.getAttributeName(3));
+        Assert.assertEquals("lazy", payload.getKey(3));
+        Assert.assertEquals("Lazy", payload.getValue(3));
+    }
+
+    @Test
+    public void testTermDictionary() {
+        CompactPayload payload = buildPayload();
+        Assert.assertEquals(3, payload.getNumTerms());
+        Assert.assertEquals(-1, payload.getTermId("dog"));
+        Assert.assertEquals(payload.getTermId(1), payload.getTermId(4));
+        Assert.assertEquals(payload.getTermId("fox"), payload.getTermId(1));
+    }
+
+    @Test
+    public void testGetSpans() {
+        CompactPayload payload = buildPayload();
+        List<Span> expectedSpans = Arrays.asList(
+                new Span("description", 16, 19, "fox", "fox", 3),
+                new Span("title", 5, 8, "fox", "Fox", 1));
+        Assert.assertEquals(expectedSpans, payload.getSpans(Arrays.asList("fox", "dog")));
+        Assert.assertTrue(payload.getSpans(Arrays.asList("dog")).isEmpty());
+    }
+
+    @Test
+    public void testListFieldDoesNotCopy() {
+        CompactPayload payload = buildPayload();
+        ListField<Span> payloadField = new ListField<>(payload);
+        Assert.assertSame(payload, payloadField.getValue());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testImmutable() {
+        buildPayload().add(new Span("title", 0, 4, "lazy", "Lazy", 0));
+    }
+
+}
@@ -284,81 +284,76 @@ public class PublicRegexp extends Regexp {
         if (re.getOp() == op)
             return true;
         else {
-            if(re.getOp() == PublicOp.LITERAL || re.getOp() == PublicOp.CHAR_CLASS) return false;
+            // an empty-width assertion or any character has no subs
+            if(re.getSubs() == null) return false;
             for (PublicRegexp sub : re.getSubs()) {
                 if (hasOp(sub, op)) {
                     return true;
                 }
-                else return false;
             }
             return false;
         }
     }
 
+    /**
+     * This returns the reverse of a regex, which matches the reverse of every string that the regex matches. <br>
+     * Finding the reverse regex in the reversed text is the same as finding the regex in the text,
+     * which can be faster, for example if the regex starts with a repetition and ends with a literal. <br>
+     * <p>
+     * For example, <br>
+     * regex: "[a-z]+ing", reverse regex: "gni[a-z]+" <br>
+     * regex: "^(ab){2}", reverse regex: "(ba){2}\z" <br>
+     * </p>
+     * 
+     * @param sub, the regex to reverse
+     * @return the reverse regex, or null if the regex has a line anchor or a "$",
+     *          whose meaning depends on the line terminators around it
+     */
     public static String reverseDeepCopy(PublicRegexp sub){
-        //System.out.println("reverseDeepCopy " + sub.toString());
-        //PublicRegexp publicRegexp = new PublicRegexp(re);
-        //StringBuffer reverseSubStringBuffer = new StringBuffer();
-        String reverseSubString = "";
-        if (sub != null) {
-           // System.out.println("reverseOp " + sub.getOp().toString());
-            // map every Regexp sub-expression to a PublicRegexp sub-expression
-            //Stream<PublicRegexp> publicSubStream = Arrays.asList(sub).stream().map(sub -> PublicRegexp.deepCopy(sub));
-            // reverse sub.toString()
-            if(sub.getOp() == PublicOp.ALTERNATE) {
-
-                for (PublicRegexp sub1 : sub.getSubs()) {
-
-                   String subString = reverseDeepCopy(sub1);
-                   reverseSubString += subString;
-
-                   reverseSubString += "|";
-
-
-                }
-                reverseSubString = reverseSubString.substring(0, reverseSubString.length()-1);
-                reverseSubString = "(" + reverseSubString + ")";
-                //System.out.println("Copy " + reverseSubString);
-
-            }else if(sub.getOp() == PublicOp.CONCAT || sub.getOp() == PublicOp.CAPTURE || sub.getOp() == PublicOp.STAR
-                    || sub.getOp() == PublicOp.QUEST || sub.getOp() == PublicOp.PLUS){
-                for(int i = sub.publicSubs.length-1; i >= 0; i--){
-                    PublicRegexp sub2  = sub.publicSubs[i];
-                    //if()
-                     reverseSubString += reverseDeepCopy(sub2);
-
-                }
-                if(sub.getOp() == PublicOp.CAPTURE) {
-
-                    reverseSubString = "(" + reverseSubString + ")";
-                    //System.out.println("reverseString"+ reverseSubString);
-                }
-                else if(sub.getOp() == PublicOp.PLUS){
-                    reverseSubString = reverseSubString + "+";
-                }else if(sub.getOp() == PublicOp.STAR){
-                    reverseSubString = reverseSubString + "*";
-                }else if(sub.getOp() == PublicOp.QUEST){
-                    reverseSubString = reverseSubString + "?";
-                }
-            }else if (sub.getOp() == PublicOp.CHAR_CLASS){
-                reverseSubString = sub.toString();
-
-            } else if(sub.getOp() == PublicOp.LITERAL){
-                if(sub.toString().startsWith("\\"))
-                    reverseSubString = sub.toString();
-                else {
-                    String subString = sub.toString().replaceAll("\\\\.", ".");
-                    StringBuffer reversesub = new StringBuffer(subString);
-                    reversesub.reverse();
-
-                    //System.out.println("reversesub " + reversesub.toString());
-                    reverseSubString = reversesub.toString();
-                }
-            }else reverseSubString = sub.toString();
+        if (sub == null) {
+            return null;
+        }
+        Regexp reverse = reverse(sub);
+        return reverse == null ? null : reverse.toString();
+    }
 
-        }else
+    private static Regexp reverse(Regexp re) {
+        Regexp reverse = new Regexp(re);
+        switch (re.op) {
+        case LITERAL:
+            reverse.runes = new int[re.runes.length];
+            for (int i = 0; i < re.runes.length; i++) {
+                reverse.runes[i] = re.runes[re.runes.length - 1 - i];
+            }
+            break;
+        case BEGIN_TEXT:
+            reverse.op = Regexp.Op.END_TEXT;
+            reverse.flags &= ~RE2.WAS_DOLLAR;
+            break;
+        case END_TEXT:
+            if ((re.flags & RE2.WAS_DOLLAR) != 0) {
+                return null;
+            }
+            reverse.op = Regexp.Op.BEGIN_TEXT;
+            break;
+        case BEGIN_LINE:
+        case END_LINE:
             return null;
-        return reverseSubString;
+        default:
+            break;
+        }
+        if (re.subs != null && re.subs.length > 0) {
+            reverse.subs = new Regexp[re.subs.length];
+            for (int i = 0; i < re.subs.length; i++) {
+                Regexp reverseSub = reverse(re.subs[i]);
+                if (reverseSub == null) {
+                    return null;
+                }
+                // only a concatenation changes the order of its sub-expressions
+                reverse.subs[re.op == Regexp.Op.CONCAT ? re.subs.length - 1 - i : i] = reverseSub;
+            }
+        }
+        return reverse;
     }
 
     public static int computeMinLength(PublicRegexp re){
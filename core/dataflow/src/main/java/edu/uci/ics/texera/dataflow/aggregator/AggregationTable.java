@@ -0,0 +1,443 @@
+package edu.uci.ics.texera.dataflow.aggregator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.uci.ics.texera.api.exception.DataflowException;
+import edu.uci.ics.texera.api.field.DateField;
+import edu.uci.ics.texera.api.field.DateTimeField;
+import edu.uci.ics.texera.api.field.DoubleField;
+import edu.uci.ics.texera.api.field.IField;
+import edu.uci.ics.texera.api.field.IntegerField;
+import edu.uci.ics.texera.api.field.StringField;
+import edu.uci.ics.texera.api.field.TextField;
+import edu.uci.ics.texera.api.schema.AttributeType;
+import edu.uci.ics.texera.api.schema.Schema;
+import edu.uci.ics.texera.api.tuple.Tuple;
+
+/**
+ * AggregationTable is the hash table of the groups of Aggregator, keyed on the values of the group-by attributes.
+ * If there's no group-by attribute, all the input tuples belong to one group.
+ *
+ * The aggregation states of the groups are kept in primitive arrays indexed by the group number
+ *   (one array per aggregation), so adding an input tuple doesn't allocate any field:
+ *   COUNT and the SUM, MIN, MAX of integers are longs, the SUM, MIN, MAX of doubles and the sum of AVERAGE are doubles,
+ *   and only the MIN and MAX of the other types keep a reference to the current min or max field.
+ *
+ * The state of a group can also be written as a partial state tuple, and the partial states of the same group
+ *   computed on different parts of the input can be merged into the final state (partial/final aggregation).
+ *   Aggregator uses it to spill the groups to disk when they exceed the memory budget.
+ *
+ */
+class AggregationTable {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    // the key of the only group if there's no group-by attribute
+    private static final Object GLOBAL_GROUP_KEY = new Object();
+
+    static final String ROW_COUNT_ATTRIBUTE_NAME = "__aggregationRowCount";
+
+    private enum StateType {
+        LONG, DOUBLE, FIELD
+    }
+
+    private final List<AggregationAttributeAndResult> aggregationItems;
+    private final int[] groupByAttributeIndexes;
+    // the group-by fields are the first fields of a partial state tuple
+    private final int[] partialStateGroupByIndexes;
+    private final int[] aggregationAttributeIndexes;
+    private final AttributeType[] aggregationAttributeTypes;
+    private final StateType[] stateTypes;
+
+    private final Schema outputSchema;
+    private final Schema partialStateSchema;
+
+    private final Map<Object, Integer> groupNumbers = new HashMap<>();
+    private final List<List<IField>> groupByFields = new ArrayList<>();
+    private int numGroups = 0;
+    private long[] rowCounts;
+    private final long[][] longStates;
+    private final double[][] doubleStates;
+    private final IField[][] fieldStates;
+
+    private long estimatedSize = 0;
+
+    AggregationTable(Schema inputSchema, List<String> groupByAttributeNames,
+            List<AggregationAttributeAndResult> aggregationItems) {
+        this.aggregationItems = aggregationItems;
+
+        this.groupByAttributeIndexes = new int[groupByAttributeNames.size()];
+        for (int i = 0; i < groupByAttributeNames.size(); i++) {
+            groupByAttributeIndexes[i] = inputSchema.getIndex(groupByAttributeNames.get(i));
+        }
+        this.partialStateGroupByIndexes = new int[groupByAttributeNames.size()];
+        for (int i = 0; i < groupByAttributeNames.size(); i++) {
+            partialStateGroupByIndexes[i] = i;
+        }
+
+        int numItems = aggregationItems.size();
+        this.aggregationAttributeIndexes = new int[numItems];
+        this.aggregationAttributeTypes = new AttributeType[numItems];
+        this.stateTypes = new StateType[numItems];
+        this.longStates = new long[numItems][];
+        this.doubleStates = new double[numItems][];
+        this.fieldStates = new IField[numItems][];
+        for (int i = 0; i < numItems; i++) {
+            AggregationAttributeAndResult aggregationItem = aggregationItems.get(i);
+            aggregationAttributeIndexes[i] = inputSchema.getIndex(aggregationItem.getAttributeName());
+            aggregationAttributeTypes[i] = inputSchema.getAttribute(aggregationItem.getAttributeName()).getType();
+            stateTypes[i] = getStateType(aggregationItem.getAggregatorType(), aggregationAttributeTypes[i]);
+        }
+        allocateStates(INITIAL_CAPACITY);
+
+        Schema.Builder outputSchemaBuilder = new Schema.Builder();
+        Schema.Builder partialStateSchemaBuilder = new Schema.Builder();
+        for (int groupByAttributeIndex : groupByAttributeIndexes) {
+            outputSchemaBuilder.add(inputSchema.getAttributes().get(groupByAttributeIndex));
+            partialStateSchemaBuilder.add(inputSchema.getAttributes().get(groupByAttributeIndex));
+        }
+        partialStateSchemaBuilder.add(ROW_COUNT_ATTRIBUTE_NAME, AttributeType.INTEGER);
+        for (int i = 0; i < numItems; i++) {
+            String resultAttributeName = aggregationItems.get(i).getResultAttributeName();
+            outputSchemaBuilder.add(resultAttributeName, getResultType(i));
+            partialStateSchemaBuilder.add(resultAttributeName, getPartialStateType(i));
+        }
+        this.outputSchema = outputSchemaBuilder.build();
+        this.partialStateSchema = partialStateSchemaBuilder.build();
+    }
+
+    private static StateType getStateType(AggregationType aggregationType, AttributeType attributeType) {
+        switch (aggregationType) {
+        case COUNT:
+            return StateType.LONG;
+        case AVERAGE:
+            return StateType.DOUBLE;
+        default:
+            if (attributeType == AttributeType.INTEGER) {
+                return StateType.LONG;
+            } else if (attributeType == AttributeType.DOUBLE) {
+                return StateType.DOUBLE;
+            }
+            return StateType.FIELD;
+        }
+    }
+
+    /*
+     * COUNT is an integer, AVERAGE is a double, and the other aggregations have the type of their attribute.
+     */
+    private AttributeType getResultType(int item) {
+        switch (aggregationItems.get(item).getAggregatorType()) {
+        case COUNT:
+            return AttributeType.INTEGER;
+        case AVERAGE:
+            return AttributeType.DOUBLE;
+        default:
+            return aggregationAttributeTypes[item];
+        }
+    }
+
+    /*
+     * The partial state of AVERAGE is the sum of its attribute, it's divided by the row count of the group at the end.
+     */
+    private AttributeType getPartialStateType(int item) {
+        switch (stateTypes[item]) {
+        case LONG:
+            return AttributeType.INTEGER;
+        case DOUBLE:
+            return AttributeType.DOUBLE;
+        default:
+            return aggregationAttributeTypes[item];
+        }
+    }
+
+    private void allocateStates(int capacity) {
+        rowCounts = rowCounts == null ? new long[capacity] : Arrays.copyOf(rowCounts, capacity);
+        for (int i = 0; i < stateTypes.length; i++) {
+            switch (stateTypes[i]) {
+            case LONG:
+                longStates[i] = longStates[i] == null ? new long[capacity] : Arrays.copyOf(longStates[i], capacity);
+                break;
+            case DOUBLE:
+                doubleStates[i] = doubleStates[i] == null ?
+                        new double[capacity] : Arrays.copyOf(doubleStates[i], capacity);
+                break;
+            default:
+                fieldStates[i] = fieldStates[i] == null ?
+                        new IField[capacity] : Arrays.copyOf(fieldStates[i], capacity);
+            }
+        }
+    }
+
+    /**
+     * Adds an input tuple to its group.
+     */
+    void addTuple(Tuple tuple) {
+        List<IField> fields = tuple.getFields();
+        int group = getOrAddGroup(fields, groupByAttributeIndexes);
+        boolean isFirstRow = rowCounts[group] == 0;
+        rowCounts[group]++;
+
+        for (int i = 0; i < stateTypes.length; i++) {
+            AggregationType aggregationType = aggregationItems.get(i).getAggregatorType();
+            if (aggregationType == AggregationType.COUNT) {
+                longStates[i][group]++;
+                continue;
+            }
+            IField field = fields.get(aggregationAttributeIndexes[i]);
+            switch (stateTypes[i]) {
+            case LONG:
+                updateLongState(i, group, ((IntegerField) field).getValue(), aggregationType, isFirstRow);
+                break;
+            case DOUBLE:
+                // the AVERAGE of integers is also summed up as a double
+                updateDoubleState(i, group, ((Number) field.getValue()).doubleValue(), aggregationType, isFirstRow);
+                break;
+            default:
+                updateFieldState(i, group, field, aggregationType, isFirstRow);
+            }
+        }
+    }
+
+    /**
+     * Merges a partial state tuple (see getPartialStateTuples()) into the state of its group.
+     */
+    void mergePartialStateTuple(Tuple partialStateTuple) {
+        List<IField> fields = partialStateTuple.getFields();
+        int group = getOrAddGroup(fields, partialStateGroupByIndexes);
+        boolean isFirstRow = rowCounts[group] == 0;
+        rowCounts[group] += ((IntegerField) fields.get(groupByAttributeIndexes.length)).getValue();
+
+        for (int i = 0; i < stateTypes.length; i++) {
+            AggregationType aggregationType = aggregationItems.get(i).getAggregatorType();
+            IField field = fields.get(groupByAttributeIndexes.length + 1 + i);
+            // the partial counts and the partial sums are added up, the partial mins and maxes are compared
+            if (aggregationType == AggregationType.COUNT) {
+                aggregationType = AggregationType.SUM;
+            }
+            switch (stateTypes[i]) {
+            case LONG:
+                updateLongState(i, group, ((IntegerField) field).getValue(), aggregationType, isFirstRow);
+                break;
+            case DOUBLE:
+                updateDoubleState(i, group, ((DoubleField) field).getValue(), aggregationType, isFirstRow);
+                break;
+            default:
+                updateFieldState(i, group, field, aggregationType, isFirstRow);
+            }
+        }
+    }
+
+    private void updateLongState(int item, int group, long value, AggregationType aggregationType,
+            boolean isFirstRow) {
+        long[] states = longStates[item];
+        if (isFirstRow) {
+            states[group] = value;
+        } else if (aggregationType == AggregationType.MIN) {
+            states[group] = Math.min(states[group], value);
+        } else if (aggregationType == AggregationType.MAX) {
+            states[group] = Math.max(states[group], value);
+        } else {
+            states[group] += value;
+        }
+    }
+
+    private void updateDoubleState(int item, int group, double value, AggregationType aggregationType,
+            boolean isFirstRow) {
+        double[] states = doubleStates[item];
+        if (isFirstRow) {
+            states[group] = value;
+        } else if (aggregationType == AggregationType.MIN) {
+            states[group] = Math.min(states[group], value);
+        } else if (aggregationType == AggregationType.MAX) {
+            states[group] = Math.max(states[group], value);
+        } else {
+            states[group] += value;
+        }
+    }
+
+    private void updateFieldState(int item, int group, IField field, AggregationType aggregationType,
+            boolean isFirstRow) {
+        IField[] states = fieldStates[item];
+        if (isFirstRow) {
+            states[group] = field;
+            return;
+        }
+        int comparison = compare(field, states[group], aggregationAttributeTypes[item]);
+        if ((aggregationType == AggregationType.MIN && comparison < 0)
+                || (aggregationType == AggregationType.MAX && comparison > 0)) {
+            states[group] = field;
+        }
+    }
+
+    private static int compare(IField a, IField b, AttributeType attributeType) {
+        switch (attributeType) {
+        case TEXT:
+            return ((TextField) a).getValue().compareTo(((TextField) b).getValue());
+        case STRING:
+            return ((StringField) a).getValue().compareTo(((StringField) b).getValue());
+        case DATE:
+            return ((DateField) a).getValue().compareTo(((DateField) b).getValue());
+        case DATETIME:
+            return ((DateTimeField) a).getValue().compareTo(((DateTimeField) b).getValue());
+        default:
+            throw new DataflowException("attribute type " + attributeType + " can't be compared by aggregation");
+        }
+    }
+
+    private int getOrAddGroup(List<IField> fields, int[] groupByFieldIndexes) {
+        Object groupKey = getGroupKey(fields, groupByFieldIndexes);
+        Integer group = groupNumbers.get(groupKey);
+        if (group != null) {
+            return group;
+        }
+
+        if (numGroups == rowCounts.length) {
+            allocateStates(rowCounts.length * 2);
+        }
+        group = numGroups++;
+        groupNumbers.put(groupKey, group);
+        List<IField> groupFields = new ArrayList<>(groupByFieldIndexes.length);
+        for (int groupByFieldIndex : groupByFieldIndexes) {
+            groupFields.add(fields.get(groupByFieldIndex));
+        }
+        groupByFields.add(groupFields);
+        estimatedSize += estimateGroupSize(groupFields);
+        return group;
+    }
+
+    /*
+     * Gets the hash table key of a group from its group-by fields,
+     *   the key of a single group-by attribute is its value, so that no key is allocated in the common case.
+     */
+    private static Object getGroupKey(List<IField> fields, int[] groupByFieldIndexes) {
+        if (groupByFieldIndexes.length == 0) {
+            return GLOBAL_GROUP_KEY;
+        }
+        if (groupByFieldIndexes.length == 1) {
+            return fields.get(groupByFieldIndexes[0]).getValue();
+        }
+        Object[] groupKey = new Object[groupByFieldIndexes.length];
+        for (int i = 0; i < groupByFieldIndexes.length; i++) {
+            groupKey[i] = fields.get(groupByFieldIndexes[i]).getValue();
+        }
+        return Arrays.asList(groupKey);
+    }
+
+    /**
+     * Gets the hash table key of the group of a partial state tuple.
+     */
+    Object getPartialStateGroupKey(Tuple partialStateTuple) {
+        return getGroupKey(partialStateTuple.getFields(), partialStateGroupByIndexes);
+    }
+
+    /*
+     * Estimates the heap size of a new group in bytes: the hash table entry, its key, its group-by fields
+     *   and its slot in the state arrays (which are allocated twice as large as needed on average).
+     */
+    private long estimateGroupSize(List<IField> groupFields) {
+        long size = 64 + 2 * 8 * (stateTypes.length + 1);
+        for (IField field : groupFields) {
+            Object value = field.getValue();
+            size += 24 + (value instanceof String ? 40 + 2L * ((String) value).length() : 24);
+        }
+        return size;
+    }
+
+    /**
+     * Gets the result tuples of all the groups, in the order in which the groups are added.
+     */
+    List<Tuple> getResultTuples() {
+        List<Tuple> resultTuples = new ArrayList<>(numGroups);
+        for (int group = 0; group < numGroups; group++) {
+            List<IField> resultFields = new ArrayList<>(groupByFields.get(group));
+            for (int i = 0; i < stateTypes.length; i++) {
+                resultFields.add(getResultField(i, group));
+            }
+            resultTuples.add(new Tuple(outputSchema, resultFields));
+        }
+        return resultTuples;
+    }
+
+    private IField getResultField(int item, int group) {
+        switch (aggregationItems.get(item).getAggregatorType()) {
+        case COUNT:
+            return new IntegerField((int) longStates[item][group]);
+        case AVERAGE:
+            return new DoubleField(doubleStates[item][group] / rowCounts[group]);
+        default:
+            return getStateField(item, group);
+        }
+    }
+
+    private IField getStateField(int item, int group) {
+        switch (stateTypes[item]) {
+        case LONG:
+            return new IntegerField((int) longStates[item][group]);
+        case DOUBLE:
+            return new DoubleField(doubleStates[item][group]);
+        default:
+            return fieldStates[item][group];
+        }
+    }
+
+    /**
+     * Gets the partial state tuples of all the groups, which have the schema of getPartialStateSchema():
+     *   the group-by fields, the row count of the group and the state of each aggregation.
+     *
+     * The integer states are truncated to int like the results of COUNT and SUM,
+     *   which doesn't change the final results since the sums of the truncated states are truncated the same way.
+     */
+    List<Tuple> getPartialStateTuples() {
+        List<Tuple> partialStateTuples = new ArrayList<>(numGroups);
+        for (int group = 0; group < numGroups; group++) {
+            List<IField> partialStateFields = new ArrayList<>(groupByFields.get(group));
+            partialStateFields.add(new IntegerField((int) rowCounts[group]));
+            for (int i = 0; i < stateTypes.length; i++) {
+                partialStateFields.add(getStateField(i, group));
+            }
+            partialStateTuples.add(new Tuple(partialStateSchema, partialStateFields));
+        }
+        return partialStateTuples;
+    }
+
+    Schema getOutputSchema() {
+        return outputSchema;
+    }
+
+    Schema getPartialStateSchema() {
+        return partialStateSchema;
+    }
+
+    int getNumGroups() {
+        return numGroups;
+    }
+
+    /**
+     * Gets the estimated heap size of the groups in bytes, it's used to check the memory budget of Aggregator.
+     */
+    long getEstimatedSize() {
+        return estimatedSize;
+    }
+
+    /**
+     * Removes all the groups.
+     */
+    void clear() {
+        groupNumbers.clear();
+        groupByFields.clear();
+        numGroups = 0;
+        estimatedSize = 0;
+        rowCounts = null;
+        for (int i = 0; i < stateTypes.length; i++) {
+            longStates[i] = null;
+            doubleStates[i] = null;
+            fieldStates[i] = null;
+        }
+        allocateStates(INITIAL_CAPACITY);
+    }
+
+}
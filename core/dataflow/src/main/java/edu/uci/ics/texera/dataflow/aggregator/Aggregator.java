@@ -3,22 +3,24 @@
  */
 package edu.uci.ics.texera.dataflow.aggregator;
 
-import java.time.LocalDate;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-
+import java.util.Objects;
 
 import edu.uci.ics.texera.api.constants.ErrorMessages;
-import edu.uci.ics.texera.api.dataflow.IOperator;
+import edu.uci.ics.texera.api.exception.DataflowException;
 import edu.uci.ics.texera.api.exception.TexeraException;
-import edu.uci.ics.texera.api.field.*;
-import edu.uci.ics.texera.api.schema.Attribute;
 import edu.uci.ics.texera.api.schema.AttributeType;
 import edu.uci.ics.texera.api.schema.Schema;
-import edu.uci.ics.texera.api.schema.Schema.Builder;
 import edu.uci.ics.texera.api.tuple.Tuple;
 import edu.uci.ics.texera.dataflow.common.AbstractSingleInputOperator;
+import edu.uci.ics.texera.dataflow.utils.TupleSpillFile;
+import edu.uci.ics.texera.storage.utils.StorageUtils;
 
 /**
  * Aggregator operator is used to perform aggregation (like sum, count, min, max, average) operations on a column. The attribute types supported for
@@ -27,25 +29,36 @@ import edu.uci.ics.texera.dataflow.common.AbstractSingleInputOperator;
  * aggregations at a time i.e. MIN on a attribute A and SUM on attribute B. This is supported as AggregatorPredicate accepts a list of aggregations as
  * input.
  *
+ * If the predicate has group-by attributes, the aggregations are computed for each group of input tuples
+ * with the same values of the group-by attributes, and there is one output tuple per group, made of the group-by attributes
+ * followed by the results of the aggregations. The groups are kept in a hash table (see AggregationTable).
+ * If the groups exceed the memory budget of the predicate, the partial states of the groups are hash partitioned
+ * into NUM_SPILL_PARTITIONS spill files and the table is cleared, then each partition is merged into its final groups
+ * after the whole input is aggregated. In this case the groups are output partition by partition.
+ *
  * @author avinash
  */
 public class Aggregator extends AbstractSingleInputOperator {
+    public static final int DEFAULT_MEMORY_BUDGET = 256;
+
+    static final int NUM_SPILL_PARTITIONS = 16;
+
     private final AggregatorPredicate predicate;
 
     private Schema inputSchema;
 
-    private int rowsCount = 0;
+    private AggregationTable aggregationTable;
+    private boolean isInputAggregated = false;
 
-    public Aggregator(AggregatorPredicate predicate) {
-        this.predicate = predicate;
-    }
+    private Path spillDirectory;
+    private List<TupleSpillFile> spillPartitions;
+    private int currentSpillPartition = -1;
 
-    private int getRowsCount() {
-        return rowsCount;
-    }
+    private List<Tuple> currentResults = Collections.emptyList();
+    private int currentResultsCursor = 0;
 
-    private void incrementRowsProcessed() {
-        rowsCount++;
+    public Aggregator(AggregatorPredicate predicate) {
+        this.predicate = predicate;
     }
 
     /***
@@ -83,6 +96,7 @@ public class Aggregator extends AbstractSingleInputOperator {
     @Override
     protected void setUp() throws TexeraException {
         inputSchema = inputOperator.getOutputSchema();
+        Schema.checkAttributeExists(inputSchema, predicate.getGroupByAttributeNames());
         List<AggregationAttributeAndResult> aggregationItems = predicate.getAttributeAggregateResultList();
         for (AggregationAttributeAndResult aggregationItem : aggregationItems) {
             Schema.checkAttributeExists(inputSchema, aggregationItem.getAttributeName());
@@ -97,174 +111,119 @@ public class Aggregator extends AbstractSingleInputOperator {
             }
         }
 
-        outputSchema = transformToOutputSchema(inputSchema);
+        aggregationTable = new AggregationTable(inputSchema, predicate.getGroupByAttributeNames(), aggregationItems);
+        outputSchema = aggregationTable.getOutputSchema();
     }
 
+    /**
+     * The output schema is made of the group-by attributes followed by the result attributes of the aggregations.
+     * COUNT is an integer, AVERAGE is a double, and the other aggregations have the type of their attribute.
+     */
     public Schema transformToOutputSchema(Schema... inputSchema) {
         if (inputSchema.length != 1)
             throw new TexeraException(String.format(ErrorMessages.NUMBER_OF_ARGUMENTS_DOES_NOT_MATCH, 1, inputSchema.length));
 
-        List<AggregationAttributeAndResult> aggregationItems = predicate.getAttributeAggregateResultList();
-        Builder schemaBuilder = new Schema.Builder();
-        for (AggregationAttributeAndResult aggregationItem : aggregationItems) {
-            schemaBuilder = schemaBuilder.add(aggregationItem.getResultAttributeName(), inputSchema[0].getAttribute(aggregationItem.getAttributeName()).getType());
-        }
-
-        return schemaBuilder.build();
+        return new AggregationTable(inputSchema[0], predicate.getGroupByAttributeNames(),
+                predicate.getAttributeAggregateResultList()).getOutputSchema();
     }
 
     @Override
     protected Tuple computeNextMatchingTuple() throws TexeraException {
-        if (cursor == CLOSED || cursor >= 1) {
-            return null;
+        if (! isInputAggregated) {
+            aggregateAllTuples();
+            isInputAggregated = true;
+        }
+        while (currentResultsCursor >= currentResults.size()) {
+            if (! mergeNextSpillPartition()) {
+                return null;
+            }
         }
-        Tuple resultTuple = null;
-        List<IField> aggregatedResults = processAllTuples(inputOperator);
-        resultTuple = putResultsIntoTuple(aggregatedResults);
-        cursor++;
+        Tuple resultTuple = currentResults.get(currentResultsCursor);
+        currentResultsCursor++;
         return resultTuple;
     }
 
     /**
-     * Processes all the tuples from input operator and generates the aggregations requested by the user. The aggregations
-     * are put in a list. As the tuples from input operator are processed, the aggregations are updated in the list.
-     * @param inputOperator
-     * @return List<IField>
+     * Processes all the tuples from input operator in batches and adds them to their groups.
+     * If there's no input tuple, there's no group, and there's no output tuple.
      */
-    private List<IField> processAllTuples(IOperator inputOperator) {
-        Tuple inputTuple = inputOperator.getNextTuple();
-        List<IField> aggregatedResults = new ArrayList<IField>();
-        if (inputTuple != null) {
-            aggregatedResults = initializeResultFieldsList(inputTuple);
-            incrementRowsProcessed();
+    private void aggregateAllTuples() {
+        long memoryBudget = predicate.getMemoryBudget() * 1024L * 1024L;
+        boolean hasGroupByAttributes = ! predicate.getGroupByAttributeNames().isEmpty();
+        List<Tuple> inputTuples;
+        while (! (inputTuples = inputOperator.getNextBatch(DEFAULT_BATCH_SIZE)).isEmpty()) {
+            for (Tuple inputTuple : inputTuples) {
+                aggregationTable.addTuple(inputTuple);
+            }
+            // there's only one group without group-by attributes, so it never exceeds the budget
+            if (hasGroupByAttributes && aggregationTable.getEstimatedSize() > memoryBudget) {
+                spillGroups();
+            }
         }
 
-        List<AggregationAttributeAndResult> aggregationItems = predicate.getAttributeAggregateResultList();
-
-        while ((inputTuple = inputOperator.getNextTuple()) != null) {
-            incrementRowsProcessed();
-
-            for (int i = 0; i < aggregationItems.size(); i++) {
-                IField field = inputTuple.getField(aggregationItems.get(i).getAttributeName());
-                Attribute inputAttr = inputSchema.getAttribute(aggregationItems.get(i).getAttributeName());
-
-                switch (aggregationItems.get(i).getAggregatorType()) {
-                    case MIN: {
-                        if (compare(field, aggregatedResults.get(i), inputAttr.getType()) < 0) {
-                            aggregatedResults.set(i, field);
-                        }
-                        break;
-                    }
-                    case MAX: {
-                        if (compare(field, aggregatedResults.get(i), inputAttr.getType()) > 0) {
-                            aggregatedResults.set(i, field);
-                        }
-                        break;
-                    }
-                    case AVERAGE:
-                    case SUM: {
-                        //We calculate sum and then at last divide it by totalRowsCount
-                        switch (inputAttr.getType()) {
-                            case INTEGER:
-                                aggregatedResults.set(i, new IntegerField((int) aggregatedResults.get(i).getValue() + (int) field.getValue()));
-                                break;
-                            case DOUBLE:
-                                aggregatedResults.set(i, new DoubleField((double) aggregatedResults.get(i).getValue() + (double) field.getValue()));
-                                break;
-                        }
-                        break;
-                    }
-                    case COUNT:
-                        aggregatedResults.set(i, new IntegerField((int) aggregatedResults.get(i).getValue() + 1));
-                        break;
+        if (spillPartitions == null) {
+            currentResults = aggregationTable.getResultTuples();
+        } else {
+            spillGroups();
+            try {
+                for (TupleSpillFile spillPartition : spillPartitions) {
+                    spillPartition.finishWriting();
                 }
+            } catch (IOException e) {
+                throw new DataflowException(e.getMessage(), e);
             }
         }
-
-        return aggregatedResults;
+        currentResultsCursor = 0;
     }
 
-    /**
-     * Takes the aggregates generated after processing all the tuples and puts it into a Tuple which is sent to next operator.
-     * @param aggregatedResults
-     * @return Tuple
+    /*
+     * Writes the partial states of the groups to their spill partitions and clears the table.
      */
-    private Tuple putResultsIntoTuple(List<IField> aggregatedResults) {
-        Tuple.Builder tupleBuilder = new Tuple.Builder();
-
-        List<AggregationAttributeAndResult> aggregationItems = predicate.getAttributeAggregateResultList();
-        for (int i = 0; i < aggregationItems.size(); i++) {
-            Attribute inputAttr = inputSchema.getAttribute(aggregationItems.get(i).getAttributeName());
-            switch (aggregationItems.get(i).getAggregatorType()) {
-                case MIN:
-                case MAX:
-                case SUM: {
-                    tupleBuilder.add(aggregationItems.get(i).getResultAttributeName(), inputAttr.getType(), aggregatedResults.get(i));
-                    break;
-                }
-
-                case AVERAGE: {
-                    switch (inputAttr.getType()) {
-                        case INTEGER:
-                            tupleBuilder.add(aggregationItems.get(i).getResultAttributeName(), AttributeType.DOUBLE, new DoubleField(((int) aggregatedResults.get(i).getValue()) * 1.0 / getRowsCount() * 1.0));
-                            break;
-                        case DOUBLE:
-                            tupleBuilder.add(aggregationItems.get(i).getResultAttributeName(), AttributeType.DOUBLE, new DoubleField((double) aggregatedResults.get(i).getValue() / getRowsCount() * 1.0));
-                            break;
-                    }
-                    break;
-                }
-                case COUNT: {
-                    tupleBuilder.add(aggregationItems.get(i).getResultAttributeName(), AttributeType.INTEGER, aggregatedResults.get(i));
-                    break;
+    private void spillGroups() {
+        try {
+            if (spillPartitions == null) {
+                spillDirectory = Files.createTempDirectory("texera-aggregation-spill");
+                spillPartitions = new ArrayList<>();
+                for (int i = 0; i < NUM_SPILL_PARTITIONS; i++) {
+                    spillPartitions.add(new TupleSpillFile(spillDirectory, aggregationTable.getPartialStateSchema()));
                 }
             }
+            for (Tuple partialStateTuple : aggregationTable.getPartialStateTuples()) {
+                spillPartitions.get(getSpillPartition(partialStateTuple)).write(partialStateTuple);
+            }
+        } catch (IOException e) {
+            throw new DataflowException(e.getMessage(), e);
         }
-
-        return tupleBuilder.build();
+        aggregationTable.clear();
     }
 
-    private int compare(IField a, IField b, AttributeType attrType) {
-        int retVal = 0;
-        switch (attrType) {
-            case INTEGER:
-                retVal = ((IntegerField) a).getValue().compareTo(((IntegerField) b).getValue());
-                break;
-            case DOUBLE:
-                retVal = ((DoubleField) a).getValue().compareTo(((DoubleField) b).getValue());
-                break;
-            case TEXT:
-                retVal = ((TextField) a).getValue().compareTo(((TextField) b).getValue());
-                break;
-            case STRING:
-                retVal = ((StringField) a).getValue().compareTo(((StringField) b).getValue());
-                break;
-            case DATE:
-                retVal = ((DateField) a).getValue().compareTo(((DateField) b).getValue());
-                break;
-            case DATETIME:
-                retVal = ((DateTimeField) a).getValue().compareTo(((DateTimeField) b).getValue());
-                break;
-        }
-
-        return retVal;
+    private int getSpillPartition(Tuple partialStateTuple) {
+        // mix the bits of the hash code, so that the partitions don't depend on its low bits only
+        int hashCode = Objects.hashCode(aggregationTable.getPartialStateGroupKey(partialStateTuple));
+        return Math.floorMod((hashCode ^ (hashCode >>> 16)) * 0x45d9f3b, NUM_SPILL_PARTITIONS);
     }
 
-    private List<IField> initializeResultFieldsList(Tuple firstTuple) {
-        List<IField> aggregatedResults = new ArrayList<IField>();
-
-        List<AggregationAttributeAndResult> aggregationItems = predicate.getAttributeAggregateResultList();
-
-        for (AggregationAttributeAndResult aggregationItem : aggregationItems) {
-            if (aggregationItem.getAggregatorType() == AggregationType.COUNT) {
-                aggregatedResults.add(new IntegerField(1));
-            } else {
-                IField fieldEntry = firstTuple.getField(aggregationItem.getAttributeName());
-                aggregatedResults.add(fieldEntry);
+    /*
+     * Merges the partial states of the next spill partition into its groups, which become the current results.
+     * Returns false if there's no more spill partition.
+     */
+    private boolean mergeNextSpillPartition() {
+        if (spillPartitions == null || currentSpillPartition + 1 >= spillPartitions.size()) {
+            return false;
+        }
+        currentSpillPartition++;
+        aggregationTable.clear();
+        try (TupleSpillFile.Reader reader = spillPartitions.get(currentSpillPartition).openReader()) {
+            Tuple partialStateTuple;
+            while ((partialStateTuple = reader.next()) != null) {
+                aggregationTable.mergePartialStateTuple(partialStateTuple);
             }
+        } catch (IOException e) {
+            throw new DataflowException(e.getMessage(), e);
         }
-
-        return aggregatedResults;
+        currentResults = aggregationTable.getResultTuples();
+        currentResultsCursor = 0;
+        return true;
     }
 
     @Override
@@ -274,6 +233,23 @@ public class Aggregator extends AbstractSingleInputOperator {
 
     @Override
     protected void cleanUp() throws TexeraException {
+        aggregationTable = null;
+        isInputAggregated = false;
+        currentResults = Collections.emptyList();
+        currentResultsCursor = 0;
+        spillPartitions = null;
+        currentSpillPartition = -1;
+        if (spillDirectory != null) {
+            StorageUtils.deleteDirectory(spillDirectory.toString());
+            spillDirectory = null;
+        }
+    }
+
+    /**
+     * Returns true if the groups have been spilled to disk because they exceeded the memory budget.
+     */
+    public boolean isSpilled() {
+        return spillPartitions != null;
     }
 
     public AggregatorPredicate getPredicate() {
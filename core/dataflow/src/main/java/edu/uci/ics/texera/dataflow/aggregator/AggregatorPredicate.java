@@ -3,6 +3,8 @@
  */
 package edu.uci.ics.texera.dataflow.aggregator;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -11,6 +13,8 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 
 import com.google.common.collect.ImmutableMap;
 import edu.uci.ics.texera.api.dataflow.IOperator;
+import edu.uci.ics.texera.api.exception.TexeraException;
+import edu.uci.ics.texera.dataflow.annotation.AdvancedOption;
 import edu.uci.ics.texera.dataflow.common.PredicateBase;
 import edu.uci.ics.texera.dataflow.common.PropertyNameConstants;
 import edu.uci.ics.texera.dataflow.comparablematcher.ComparableMatcher;
@@ -22,6 +26,10 @@ import edu.uci.ics.texera.dataflow.common.OperatorGroupConstants;
  * AggregatorPredicate is the predicate for the Aggregator Operator. It accepts a list of aggregation and attribute.
  * eg: If input table contains three attributes A, B and C, the users can use aggregator operator to do MAX(A),
  * MIN(B), SUM(C).
+ * 
+ * <p>
+ * It optionally accepts a list of group-by attributes. If it's not empty, the aggregations are computed
+ * for each distinct combination of values of the group-by attributes, eg: COUNT(A) for each value of B.
  *
  * @author avinash
  */
@@ -29,13 +37,48 @@ import edu.uci.ics.texera.dataflow.common.OperatorGroupConstants;
 public class AggregatorPredicate extends PredicateBase {
 
     private final List<AggregationAttributeAndResult> attributeAggregateResultList;
+    private final List<String> groupByAttributeNames;
+    private final Integer memoryBudget;
+
+    public AggregatorPredicate(List<AggregationAttributeAndResult> attributeAggResultList) {
+        this(attributeAggResultList, null, null);
+    }
+
+    public AggregatorPredicate(List<AggregationAttributeAndResult> attributeAggResultList,
+            List<String> groupByAttributeNames) {
+        this(attributeAggResultList, groupByAttributeNames, null);
+    }
 
+    /**
+     * @param attributeAggResultList, the aggregations to compute
+     * @param groupByAttributeNames, optional, the attributes to group the input tuples by,
+     *   the aggregations are computed over all the input tuples if it's empty
+     * @param memoryBudget, optional, the memory budget (in MB) of the groups,
+     *   the groups are spilled to disk if it's exceeded, default 256
+     */
     @JsonCreator
     public AggregatorPredicate(
             @JsonProperty(value = PropertyNameConstants.ATTRIBUTE_AGGREGATOR_RESULT_LIST, required = true)
-                    List<AggregationAttributeAndResult> attributeAggResultList
+                    List<AggregationAttributeAndResult> attributeAggResultList,
+            @JsonProperty(value = PropertyNameConstants.AGGREGATOR_GROUP_BY_ATTRIBUTES, required = false)
+                    List<String> groupByAttributeNames,
+            @AdvancedOption
+            @JsonProperty(value = PropertyNameConstants.AGGREGATOR_MEMORY_BUDGET, required = false,
+                    defaultValue = "256")
+                    Integer memoryBudget
     ) {
         this.attributeAggregateResultList = attributeAggResultList;
+        if (groupByAttributeNames == null) {
+            this.groupByAttributeNames = Collections.emptyList();
+        } else {
+            this.groupByAttributeNames = Collections.unmodifiableList(new ArrayList<>(groupByAttributeNames));
+        }
+        if (memoryBudget == null) {
+            memoryBudget = Aggregator.DEFAULT_MEMORY_BUDGET;
+        } else if (memoryBudget <= 0) {
+            throw new TexeraException(PropertyNameConstants.INVALID_AGGREGATOR_MEMORY_BUDGET_EXCEPTION);
+        }
+        this.memoryBudget = memoryBudget;
     }
 
     @JsonProperty(value = PropertyNameConstants.ATTRIBUTE_AGGREGATOR_RESULT_LIST)
@@ -43,6 +86,16 @@ public class AggregatorPredicate extends PredicateBase {
         return attributeAggregateResultList;
     }
 
+    @JsonProperty(value = PropertyNameConstants.AGGREGATOR_GROUP_BY_ATTRIBUTES)
+    public List<String> getGroupByAttributeNames() {
+        return groupByAttributeNames;
+    }
+
+    @JsonProperty(value = PropertyNameConstants.AGGREGATOR_MEMORY_BUDGET)
+    public Integer getMemoryBudget() {
+        return memoryBudget;
+    }
+
     @Override
     public IOperator newOperator() {
         return new Aggregator(this);
@@ -51,7 +104,7 @@ public class AggregatorPredicate extends PredicateBase {
     public static Map<String, Object> getOperatorMetadata() {
         return ImmutableMap.<String, Object>builder()
                 .put(PropertyNameConstants.USER_FRIENDLY_NAME, "Aggregation")
-                .put(PropertyNameConstants.OPERATOR_DESCRIPTION, "Aggregate one or more columns to find min, max, sum, average, count of the column")
+                .put(PropertyNameConstants.OPERATOR_DESCRIPTION, "Aggregate one or more columns to find min, max, sum, average, count of the column, optionally grouped by other columns")
                 .put(PropertyNameConstants.OPERATOR_GROUP_NAME, OperatorGroupConstants.UTILITY_GROUP)
                 .build();
     }
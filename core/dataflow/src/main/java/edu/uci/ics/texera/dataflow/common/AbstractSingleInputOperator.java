@@ -1,5 +1,8 @@
 package edu.uci.ics.texera.dataflow.common;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import edu.uci.ics.texera.api.constants.ErrorMessages;
 import edu.uci.ics.texera.api.dataflow.IOperator;
 import edu.uci.ics.texera.api.exception.DataflowException;
@@ -18,6 +21,9 @@ import edu.uci.ics.texera.api.tuple.Tuple;
  *          It returns the next available matching tuple, null if there's no more match.
  * cleanUp(). It is called in close(). 
  *          Its purpose is to deallocates resources.
+ * 
+ * An operator can optionally override computeNextMatchingBatch(), which is called in getNextBatch(),
+ *   to process its input in batches instead of one tuple at a time.
 
  * @author Zuozhi Wang (zuozhiw)
  *
@@ -96,6 +102,81 @@ public abstract class AbstractSingleInputOperator implements IOperator {
      */
     protected abstract Tuple computeNextMatchingTuple() throws TexeraException;
 
+    @Override
+    public List<Tuple> getNextBatch(int maxTuples) throws TexeraException {
+        if (cursor == CLOSED) {
+            throw new DataflowException(ErrorMessages.OPERATOR_NOT_OPENED);
+        }
+        List<Tuple> resultTuples = new ArrayList<>();
+        try {
+            while (cursor < (long) limit + offset && resultTuples.size() < maxTuples) {
+                // never ask for more tuples than the limit allows, so that no matching tuple is dropped
+                int batchSize = (int) Math.min(maxTuples - resultTuples.size(), (long) limit + offset - cursor);
+                List<Tuple> matchingTuples = computeNextMatchingBatch(batchSize);
+                if (matchingTuples.isEmpty()) {
+                    break;
+                }
+                for (Tuple tuple : matchingTuples) {
+                    cursor++;
+                    if (cursor > offset) {
+                        resultTuples.add(tuple);
+                    }
+                }
+            }
+            return resultTuples;
+        } catch (Exception e) {
+            throw new DataflowException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Gives the input tuples, compute at most maxTuples next matching tuples.
+     * Returns an empty list if there's no more matching tuple.
+     *
+     * The default implementation calls computeNextMatchingTuple() repeatedly.
+     * Operators that process input tuples independently of each other should override it
+     *   to pull a whole batch from the input operator at once.
+     *
+     * @param maxTuples
+     * @return at most maxTuples matching tuples, an empty list if there's no more matching tuple.
+     * @throws TexeraException
+     */
+    protected List<Tuple> computeNextMatchingBatch(int maxTuples) throws TexeraException {
+        List<Tuple> resultTuples = new ArrayList<>();
+        Tuple resultTuple;
+        while (resultTuples.size() < maxTuples && (resultTuple = computeNextMatchingTuple()) != null) {
+            resultTuples.add(resultTuple);
+        }
+        return resultTuples;
+    }
+
+    /**
+     * Pulls batches from the input operator and applies processOneInputTuple() to every tuple,
+     *   until at least one matching tuple is found or the input is exhausted.
+     *
+     * This is a helper for operators overriding computeNextMatchingBatch().
+     *
+     * @param maxTuples
+     * @return at most maxTuples matching tuples, an empty list if the input is exhausted.
+     * @throws TexeraException
+     */
+    protected List<Tuple> processNextInputBatch(int maxTuples) throws TexeraException {
+        List<Tuple> resultTuples = new ArrayList<>();
+        while (resultTuples.isEmpty()) {
+            List<Tuple> inputTuples = inputOperator.getNextBatch(maxTuples);
+            if (inputTuples.isEmpty()) {
+                break;
+            }
+            for (Tuple inputTuple : inputTuples) {
+                Tuple resultTuple = processOneInputTuple(inputTuple);
+                if (resultTuple != null) {
+                    resultTuples.add(resultTuple);
+                }
+            }
+        }
+        return resultTuples;
+    }
+
     public abstract Tuple processOneInputTuple(Tuple inputTuple) throws TexeraException;
 
     @Override
@@ -42,6 +42,8 @@ public class PropertyNameConstants {
     // related to aggregator operator
     public static final String AGGREGATOR_TYPE = "aggregator";
     public static final String ATTRIBUTE_AGGREGATOR_RESULT_LIST = "listOfAggregations";
+    public static final String AGGREGATOR_GROUP_BY_ATTRIBUTES = "groupByAttributes";
+    public static final String AGGREGATOR_MEMORY_BUDGET = "memoryBudgetMB";
     
     // related to keyword matcher
     public static final String KEYWORD_QUERY = "query";
@@ -55,6 +57,8 @@ public class PropertyNameConstants {
     public static final String REGEX = "regex";
     public static final String REGEX_IGNORE_CASE = "regexIgnoreCase";
     public static final String REGEX_USE_INDEX = "regexUseIndex";
+    public static final String REGEX_ENGINE = "regexEngine";
+    public static final String REGEX_TIME_BUDGET = "regexTimeBudgetMS";
     
     // related to fuzzy token matcher
     public static final String FUZZY_TOKEN_QUERY = "query";
@@ -92,6 +96,7 @@ public class PropertyNameConstants {
     public static final String OUTER_ATTRIBUTE_NAME = "outerAttribute";
     public static final String SPAN_DISTANCE = "spanDistance";
     public static final String JOIN_SIMILARITY_THRESHOLD = "similarityThreshold";
+    public static final String JOIN_INNER_MEMORY_BUDGET = "innerMemoryBudgetMB";
     
     // related to asterix connector
     public static final String ASTERIX_HOST = "host";
@@ -134,4 +139,7 @@ public class PropertyNameConstants {
     public static final String INVALID_SAMPLE_SIZE_EXCEPTION = "Sample size should be greater than 0.";
     public static final String INVALID_LIMIT_EXCEPTION = "limit must be greater than or equal to 0";
     public static final String INVALID_OFFSET_EXCEPTION = "offset must be greater than or equal to 0";
+    public static final String INVALID_JOIN_INNER_MEMORY_BUDGET_EXCEPTION = "inner memory budget must be greater than 0";
+    public static final String INVALID_AGGREGATOR_MEMORY_BUDGET_EXCEPTION = "aggregation memory budget must be greater than 0";
+    public static final String INVALID_REGEX_TIME_BUDGET_EXCEPTION = "regex time budget must not be negative";
 }
@@ -3,6 +3,7 @@ package edu.uci.ics.texera.dataflow.comparablematcher;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeParseException;
+import java.util.List;
 
 import edu.uci.ics.texera.api.constants.ErrorMessages;
 import edu.uci.ics.texera.api.exception.DataflowException;
@@ -55,6 +56,11 @@ public class ComparableMatcher extends AbstractSingleInputOperator {
         return null;
     }
 
+    @Override
+    protected List<Tuple> computeNextMatchingBatch(int maxTuples) throws TexeraException {
+        return processNextInputBatch(maxTuples);
+    }
+
     @Override
     public Tuple processOneInputTuple(Tuple inputTuple) throws TexeraException {
         boolean conditionSatisfied = false;
@@ -214,6 +220,10 @@ public class ComparableMatcher extends AbstractSingleInputOperator {
     protected void cleanUp() throws DataflowException {
     }
 
+    public ComparablePredicate getPredicate() {
+        return this.predicate;
+    }
+
     public Schema transformToOutputSchema(Schema... inputSchema) throws DataflowException {
         if (inputSchema.length != 1)
             throw new TexeraException(String.format(ErrorMessages.NUMBER_OF_ARGUMENTS_DOES_NOT_MATCH, 1, inputSchema.length));
@@ -0,0 +1,236 @@
+package edu.uci.ics.texera.dataflow.comparablematcher;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.NumericRangeQuery;
+import org.apache.lucene.search.Query;
+
+import edu.uci.ics.texera.api.exception.StorageException;
+import edu.uci.ics.texera.api.schema.AttributeType;
+import edu.uci.ics.texera.storage.RelationManager;
+import edu.uci.ics.texera.storage.utils.StorageUtils;
+
+/**
+ * ComparableToRangeQueryTranslator translates the comparison of a ComparablePredicate
+ *   into a Lucene query on the range index of the attribute (see StorageUtils.getLuceneFields()),
+ *   which matches exactly the tuples ComparableMatcher would output.
+ *
+ * Only comparisons on INTEGER, DOUBLE, DATE and DATETIME attributes can be translated,
+ *   with the compare-to value interpreted the same way as ComparableMatcher does.
+ *   If a comparison can't be translated, null is returned, and it's left to ComparableMatcher.
+ *
+ */
+public class ComparableToRangeQueryTranslator {
+
+    /**
+     * Translates the comparison of a predicate on a table into a range query,
+     *   if the attribute is range-indexed in the table.
+     *
+     * @param predicate
+     * @param tableName
+     * @return the range query, or null if the comparison can't be looked up in the index
+     */
+    public static Query translate(ComparablePredicate predicate, String tableName) {
+        try {
+            RelationManager relationManager = RelationManager.getInstance();
+            if (! relationManager.isRangeIndexed(tableName, predicate.getAttributeName())) {
+                return null;
+            }
+            AttributeType attributeType = relationManager.getTableSchema(tableName)
+                    .getAttribute(predicate.getAttributeName()).getType();
+            return translate(predicate, attributeType);
+        } catch (StorageException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Translates the comparison of a predicate on a range-indexed attribute into a range query.
+     *
+     * @param predicate
+     * @param attributeType, the type of the attribute
+     * @return the range query, or null if the comparison can't be translated
+     */
+    public static Query translate(ComparablePredicate predicate, AttributeType attributeType) {
+        String attributeName = predicate.getAttributeName();
+        ComparisonType comparisonType = predicate.getComparisonType();
+        Object compareToObject = predicate.getCompareToValue();
+        if (compareToObject == null || comparisonType == null) {
+            return null;
+        }
+        switch (attributeType) {
+        case INTEGER:
+            Double intCompareToValue = parseNumber(compareToObject);
+            if (intCompareToValue == null || intCompareToValue.isNaN()) {
+                return null;
+            }
+            return translateInt(attributeName, intCompareToValue, comparisonType);
+        case DOUBLE:
+            Double doubleCompareToValue = parseNumber(compareToObject);
+            if (doubleCompareToValue == null) {
+                return null;
+            }
+            // Double.compareTo() orders NaN after positive infinity, but an open bound of Lucene stops at infinity
+            return translateRange(comparisonType, doubleCompareToValue, doubleCompareToValue,
+                    (min, max, minInclusive, maxInclusive) -> NumericRangeQuery.newDoubleRange(attributeName,
+                            min == null ? Double.NEGATIVE_INFINITY : min, max == null ? Double.NaN : max,
+                            minInclusive, maxInclusive));
+        case DATE:
+            return translateDate(attributeName, compareToObject.toString(), comparisonType);
+        case DATETIME:
+            return translateDateTime(attributeName, compareToObject.toString(), comparisonType);
+        default:
+            return null;
+        }
+    }
+
+    /*
+     * Parses the compare-to value of a number comparison, the same way as ComparableMatcher.
+     */
+    private static Double parseNumber(Object compareToObject) {
+        if (compareToObject instanceof Integer) {
+            return (double) (int) compareToObject;
+        } else if (compareToObject instanceof Double) {
+            return (Double) compareToObject;
+        } else if (compareToObject instanceof String) {
+            try {
+                return Double.parseDouble((String) compareToObject);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /*
+     * An integer v is compared with a (non NaN) double c, so the comparison is turned into
+     *   an inclusive range of integers:
+     *   v > c iff v >= floor(c) + 1, v >= c iff v >= ceil(c), v < c iff v <= ceil(c) - 1, v <= c iff v <= floor(c),
+     *   and v = c iff c is an integer and v = c.
+     */
+    private static Query translateInt(String attributeName, double compareToValue, ComparisonType comparisonType) {
+        double floor = Math.floor(compareToValue);
+        double ceil = Math.ceil(compareToValue);
+        boolean isInteger = floor == compareToValue;
+        switch (comparisonType) {
+        case EQUAL_TO:
+            return isInteger ? intRange(attributeName, compareToValue, compareToValue) : new MatchNoDocsQuery();
+        case NOT_EQUAL_TO:
+            return isInteger ? not(intRange(attributeName, compareToValue, compareToValue)) : new MatchAllDocsQuery();
+        case GREATER_THAN:
+            return intRange(attributeName, floor + 1, Double.POSITIVE_INFINITY);
+        case GREATER_THAN_OR_EQUAL_TO:
+            return intRange(attributeName, ceil, Double.POSITIVE_INFINITY);
+        case LESS_THAN:
+            return intRange(attributeName, Double.NEGATIVE_INFINITY, ceil - 1);
+        case LESS_THAN_OR_EQUAL_TO:
+            return intRange(attributeName, Double.NEGATIVE_INFINITY, floor);
+        default:
+            return null;
+        }
+    }
+
+    /*
+     * Gets the query of an inclusive range of integers, whose bounds can be out of the range of int.
+     */
+    private static Query intRange(String attributeName, double min, double max) {
+        if (min > max || min > Integer.MAX_VALUE || max < Integer.MIN_VALUE) {
+            return new MatchNoDocsQuery();
+        }
+        return NumericRangeQuery.newIntRange(attributeName,
+                (int) Math.max(min, Integer.MIN_VALUE), (int) Math.min(max, Integer.MAX_VALUE), true, true);
+    }
+
+    /*
+     * A DATE value is compared with a date, or the date of a date time, the same way as ComparableMatcher.
+     */
+    private static Query translateDate(String attributeName, String compareToString, ComparisonType comparisonType) {
+        LocalDate compareToDate;
+        try {
+            compareToDate = LocalDate.parse(compareToString);
+        } catch (DateTimeParseException e) {
+            try {
+                compareToDate = LocalDateTime.parse(compareToString).toLocalDate();
+            } catch (DateTimeParseException e2) {
+                // ComparableMatcher reports the invalid value
+                return null;
+            }
+        }
+        long value = StorageUtils.dateToIndexValue(compareToDate);
+        return translateRange(comparisonType, value, value, (min, max, minInclusive, maxInclusive) ->
+                NumericRangeQuery.newLongRange(attributeName, min, max, minInclusive, maxInclusive));
+    }
+
+    /*
+     * A DATETIME value is compared with a date time, or its date is compared with a date.
+     *   Comparing the date with a date d is comparing the date time with the range [d 00:00, d+1 00:00).
+     */
+    private static Query translateDateTime(String attributeName, String compareToString,
+            ComparisonType comparisonType) {
+        RangeQueryBuilder<Long> rangeQueryBuilder = (min, max, minInclusive, maxInclusive) ->
+                NumericRangeQuery.newLongRange(attributeName, min, max, minInclusive, maxInclusive);
+        long minValue;
+        long maxValue;
+        try {
+            minValue = StorageUtils.dateTimeToIndexValue(LocalDateTime.parse(compareToString));
+            maxValue = minValue;
+        } catch (DateTimeParseException e) {
+            try {
+                LocalDate compareToDate = LocalDate.parse(compareToString);
+                minValue = StorageUtils.dateTimeToIndexValue(compareToDate.atStartOfDay());
+                maxValue = StorageUtils.dateTimeToIndexValue(compareToDate.plusDays(1).atStartOfDay()) - 1;
+            } catch (DateTimeParseException e2) {
+                // ComparableMatcher reports the invalid value
+                return null;
+            }
+        }
+        // the clamped date times are only ordered correctly against the date times in between
+        if (minValue == Long.MIN_VALUE || maxValue >= Long.MAX_VALUE - 1) {
+            return null;
+        }
+        return translateRange(comparisonType, minValue, maxValue, rangeQueryBuilder);
+    }
+
+    /*
+     * Translates a comparison with a value which is indexed as the inclusive range [minValue, maxValue]
+     *   (minValue and maxValue are the same unless a date time is compared with a date).
+     */
+    private static <T extends Number> Query translateRange(ComparisonType comparisonType, T minValue, T maxValue,
+            RangeQueryBuilder<T> rangeQueryBuilder) {
+        switch (comparisonType) {
+        case EQUAL_TO:
+            return rangeQueryBuilder.build(minValue, maxValue, true, true);
+        case NOT_EQUAL_TO:
+            return not(rangeQueryBuilder.build(minValue, maxValue, true, true));
+        case GREATER_THAN:
+            return rangeQueryBuilder.build(maxValue, null, false, true);
+        case GREATER_THAN_OR_EQUAL_TO:
+            return rangeQueryBuilder.build(minValue, null, true, true);
+        case LESS_THAN:
+            return rangeQueryBuilder.build(null, minValue, true, false);
+        case LESS_THAN_OR_EQUAL_TO:
+            return rangeQueryBuilder.build(null, maxValue, true, true);
+        default:
+            return null;
+        }
+    }
+
+    private static Query not(Query query) {
+        return new BooleanQuery.Builder()
+                .add(new MatchAllDocsQuery(), Occur.FILTER)
+                .add(query, Occur.MUST_NOT)
+                .build();
+    }
+
+    @FunctionalInterface
+    private interface RangeQueryBuilder<T extends Number> {
+        Query build(T min, T max, boolean minInclusive, boolean maxInclusive);
+    }
+
+}
@@ -11,26 +11,59 @@ import java.util.*;
  * for all dictionary entries with a prefix trie and failure transactions.
  * Wiki page link: https://github.com/Texera/texera/wiki/Aho-Corasick-String-Matching-Algorithm
  * Created by Chang on 8/29/17.
+ *
+ * The automaton is compiled into primitive arrays when constructFailureTransactions() is called:
+ *   - the characters of the keywords are mapped to a compact alphabet of codes 1..n (0 means the character is in no keyword),
+ *   - the prefix trie is stored as a double-array trie: the child of state s with code c is t = base[s] + c if check[t] == s,
+ *   - the failure transaction of each state is stored in failure[],
+ *   - the keywords are stored as int IDs: outputHead[] and outputNext[] chain the keywords that end at a state,
+ *     and outputLink[] points to the nearest state in the failure chain that has keywords,
+ *     so the keywords of a failure state are never copied into the states that fail to it.
+ * parseText() walks the text over these arrays and reports each match to a MatchHandler without allocating.
  */
 public class ACTrie {
-    private final TrieNode rootNode;
+
+    private static final int ROOT = 0;
+    private static final int FREE = -1;
+
     private boolean caseInsensitive = false;
 
+    // the keywords added before the automaton is compiled, and their (lower-cased) keys
+    private List<String> pendingKeywords = new ArrayList<>();
+    private List<String> pendingKeys = new ArrayList<>();
+    private boolean compiled = false;
+
+    private String[] keywords = new String[0];
+    private char[] charCodes = new char[Character.MAX_VALUE + 1];
+
+    private int[] base = new int[] { 0 };
+    private int[] check = new int[] { ROOT };
+    private int[] failure = new int[] { ROOT };
+    private int[] outputHead = new int[] { -1 };
+    private int[] outputLink = new int[] { -1 };
+    private int[] outputNext = new int[0];
+
+    /**
+     * MatchHandler receives the matches of parseText().
+     */
+    @FunctionalInterface
+    public interface MatchHandler {
+        /**
+         * @param start, the start offset of the match in the text
+         * @param end, the end offset of the match in the text
+         * @param keyword, the matched keyword as it was added
+         */
+        void onMatch(int start, int end, String keyword);
+    }
+
     public ACTrie() {
-        this.rootNode = TrieNode.newRootNode();
     }
 
     private void addKeyword(String keyword) {
         if (keyword == null || keyword.length() == 0) return;
-        String originalWord = keyword;
-        if (caseInsensitive) {
-            keyword = keyword.toLowerCase();
-        }
-        TrieNode currentNode = this.rootNode;
-        for (Character character : keyword.toCharArray()) {
-            currentNode = currentNode.addTrieNode(character);
-        }
-        currentNode.addEmit(originalWord);
+        pendingKeywords.add(keyword);
+        pendingKeys.add(caseInsensitive ? keyword.toLowerCase() : keyword);
+        compiled = false;
     }
 
     public void addKeywords(List<String> keywordList) {
@@ -43,31 +76,193 @@ public class ACTrie {
     }
 
     /**
-     * Run a BFS on the constructed prefix trie to setup links between
+     * Compile the prefix trie of all the keywords into the double array, then run a BFS on it to setup links between
      * failed matching node to its longest common suffix on other branches.
      */
     public void constructFailureTransactions() {
-        Deque<TrieNode> queue = new ArrayDeque<>();
-        for (TrieNode node : this.rootNode.getChildrenNodes()) {
-            node.setFailure(this.rootNode);
-            queue.add(node);
-        }
-        while (!queue.isEmpty()) {
-            TrieNode currentNode = queue.poll();
-            for (Character character : currentNode.getTransactions()) {
-                TrieNode nextNode = currentNode.getNextTrieNode(character);
-                if (nextNode != null) {
-                    queue.add(nextNode);
-                    TrieNode failureNode = currentNode.getFailure();
-                    while (failureNode.getNextTrieNode(character) == null) {
-                        failureNode = failureNode.getFailure();
+        // the keywords added after a previous compilation are added to the ones already compiled
+        for (int i = keywords.length - 1; i >= 0; i--) {
+            pendingKeywords.add(0, keywords[i]);
+            pendingKeys.add(0, caseInsensitive ? keywords[i].toLowerCase() : keywords[i]);
+        }
+
+        // a keyword has only one ID even if it's added more than once
+        Map<String, Integer> keywordIds = new HashMap<>();
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < pendingKeywords.size(); i++) {
+            if (! keywordIds.containsKey(pendingKeywords.get(i))) {
+                keywordIds.put(pendingKeywords.get(i), keywordIds.size());
+                keys.add(pendingKeys.get(i));
+            }
+        }
+        keywords = new String[keywordIds.size()];
+        for (Map.Entry<String, Integer> entry : keywordIds.entrySet()) {
+            keywords[entry.getValue()] = entry.getKey();
+        }
+        pendingKeywords = new ArrayList<>();
+        pendingKeys = new ArrayList<>();
+
+        buildAlphabet(keys);
+        buildDoubleArray(keys);
+        compiled = true;
+    }
+
+    /*
+     * Maps the characters of the keys to the codes 1..n in the order of the characters,
+     *   so that the order of the codes in a key is the order of its characters.
+     */
+    private void buildAlphabet(List<String> keys) {
+        charCodes = new char[Character.MAX_VALUE + 1];
+        boolean[] isUsed = new boolean[Character.MAX_VALUE + 1];
+        for (String key : keys) {
+            for (int i = 0; i < key.length(); i++) {
+                isUsed[key.charAt(i)] = true;
+            }
+        }
+        char code = 0;
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            if (isUsed[c]) {
+                charCodes[c] = ++code;
+            }
+        }
+    }
+
+    /*
+     * Builds the trie level by level over the keys in sorted order: the keys in the range of a state share its prefix,
+     *   the ones as long as the prefix end at the state, and the others are grouped into its children by their next character.
+     *   Because the states are created in BFS order, the failure transactions are computed in the same order afterwards.
+     */
+    private void buildDoubleArray(List<String> keys) {
+        Integer[] sortedKeyIds = new Integer[keys.size()];
+        for (int i = 0; i < sortedKeyIds.length; i++) {
+            sortedKeyIds[i] = i;
+        }
+        Arrays.sort(sortedKeyIds, (id1, id2) -> keys.get(id1).compareTo(keys.get(id2)));
+
+        int capacity = Math.max(1024, keys.size() * 2);
+        base = new int[capacity];
+        check = new int[capacity];
+        Arrays.fill(check, FREE);
+        check[ROOT] = ROOT;
+        outputHead = new int[capacity];
+        Arrays.fill(outputHead, -1);
+        outputNext = new int[keywords.length];
+        Arrays.fill(outputNext, -1);
+
+        // the states in BFS order, and the range of sorted keys and the depth of each state in the queue
+        int[] bfsOrder = new int[capacity];
+        int numStates = 0;
+        bfsOrder[numStates++] = ROOT;
+        ArrayDeque<int[]> queue = new ArrayDeque<>();
+        queue.add(new int[] { ROOT, 0, sortedKeyIds.length, 0 });
+
+        int nextCheckPos = 1;
+        int[] childCodes = new int[64];
+        int[] childStarts = new int[65];
+        while (! queue.isEmpty()) {
+            int[] item = queue.poll();
+            int state = item[0], lo = item[1], hi = item[2], depth = item[3];
+
+            // the keys that end at this state
+            while (lo < hi && keys.get(sortedKeyIds[lo]).length() == depth) {
+                outputNext[sortedKeyIds[lo]] = outputHead[state];
+                outputHead[state] = sortedKeyIds[lo];
+                lo++;
+            }
+            if (lo == hi) {
+                continue;
+            }
+
+            // group the other keys by their next character
+            int numChildren = 0;
+            for (int i = lo; i < hi; i++) {
+                int code = charCodes[keys.get(sortedKeyIds[i]).charAt(depth)];
+                if (numChildren == 0 || childCodes[numChildren - 1] != code) {
+                    if (numChildren == childCodes.length) {
+                        childCodes = Arrays.copyOf(childCodes, numChildren * 2);
+                        childStarts = Arrays.copyOf(childStarts, numChildren * 2 + 1);
                     }
-                    TrieNode newFailureNode = failureNode.getNextTrieNode(character);
-                    nextNode.setFailure(newFailureNode);
-                    nextNode.addEmits(newFailureNode.getEmits());
+                    childCodes[numChildren] = code;
+                    childStarts[numChildren] = i;
+                    numChildren++;
                 }
             }
+            childStarts[numChildren] = hi;
+
+            // find a base where all the children are free, skipping the dense beginning of the array
+            int pos = Math.max(childCodes[0] + 1, nextCheckPos) - 1;
+            int numOccupied = 0;
+            boolean isFirstFree = true;
+            int stateBase;
+            while (true) {
+                pos++;
+                ensureCapacity(pos + 1);
+                if (check[pos] != FREE) {
+                    numOccupied++;
+                    continue;
+                } else if (isFirstFree) {
+                    nextCheckPos = pos;
+                    isFirstFree = false;
+                }
+                stateBase = pos - childCodes[0];
+                ensureCapacity(stateBase + childCodes[numChildren - 1] + 1);
+                boolean isAllFree = true;
+                for (int i = 1; i < numChildren; i++) {
+                    if (check[stateBase + childCodes[i]] != FREE) {
+                        isAllFree = false;
+                        break;
+                    }
+                }
+                if (isAllFree) {
+                    break;
+                }
+            }
+            if ((double) numOccupied / (pos - nextCheckPos + 1) >= 0.95) {
+                nextCheckPos = pos;
+            }
+
+            base[state] = stateBase;
+            for (int i = 0; i < numChildren; i++) {
+                check[stateBase + childCodes[i]] = state;
+            }
+            for (int i = 0; i < numChildren; i++) {
+                int child = stateBase + childCodes[i];
+                if (numStates == bfsOrder.length) {
+                    bfsOrder = Arrays.copyOf(bfsOrder, numStates * 2);
+                }
+                bfsOrder[numStates++] = child;
+                queue.add(new int[] { child, childStarts[i], childStarts[i + 1], depth + 1 });
+            }
+        }
+
+        // the failure transactions and the output links, in BFS order so that the failure of the parent is known
+        failure = new int[check.length];
+        outputLink = new int[check.length];
+        Arrays.fill(outputLink, -1);
+        for (int i = 1; i < numStates; i++) {
+            int state = bfsOrder[i];
+            int parent = check[state];
+            int code = state - base[parent];
+            int failureState = ROOT;
+            if (parent != ROOT) {
+                failureState = getNextTransition(code, failure[parent]);
+            }
+            failure[state] = failureState;
+            outputLink[state] = outputHead[failureState] != -1 ? failureState : outputLink[failureState];
+        }
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= check.length) {
+            return;
         }
+        int capacity = Math.max(size, check.length * 2);
+        int oldCapacity = check.length;
+        base = Arrays.copyOf(base, capacity);
+        check = Arrays.copyOf(check, capacity);
+        Arrays.fill(check, oldCapacity, capacity, FREE);
+        outputHead = Arrays.copyOf(outputHead, capacity);
+        Arrays.fill(outputHead, oldCapacity, capacity, -1);
     }
 
     /**
@@ -80,38 +275,50 @@ public class ACTrie {
      */
     public List<Emit> parseText(String text) {
         List<Emit> resultList = new ArrayList<>();
-        if (text == null || text.isEmpty()) return resultList;
+        parseText(text, (start, end, keyword) -> resultList.add(new Emit(start, end, keyword)));
+        return resultList;
+    }
+
+    /**
+     * Same as parseText(text), but reports each match to the handler instead of collecting them.
+     *
+     * @param text
+     * @param handler
+     */
+    public void parseText(String text, MatchHandler handler) {
+        if (text == null || text.isEmpty()) return;
+        if (! compiled) {
+            constructFailureTransactions();
+        }
 
         if (caseInsensitive) {
             text = text.toLowerCase();
         }
-        TrieNode currentNode = this.rootNode;
-        char[] textArray = text.toCharArray();
-        for (int i = 0; i < textArray.length; i++) {
-            Character character = textArray[i];
-            currentNode = getNextTransition(character, currentNode);
-            if (!currentNode.getEmits().isEmpty()) {
-                resultList.addAll(storeEmits(currentNode, i));
+        int currentState = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            int code = charCodes[text.charAt(i)];
+            currentState = code == 0 ? ROOT : getNextTransition(code, currentState);
+            for (int state = outputHead[currentState] != -1 ? currentState : outputLink[currentState];
+                    state != -1; state = outputLink[state]) {
+                for (int keywordId = outputHead[state]; keywordId != -1; keywordId = outputNext[keywordId]) {
+                    String matchedKeyword = keywords[keywordId];
+                    handler.onMatch(i - matchedKeyword.length() + 1, i + 1, matchedKeyword);
+                }
             }
         }
-        return resultList;
     }
 
-    private TrieNode getNextTransition(Character c, TrieNode node) {
-        TrieNode nextNode = node.getNextTrieNode(c);
-        while (nextNode == null) {
-            node = node.getFailure();
-            nextNode = node.getNextTrieNode(c);
-        }
-        return nextNode;
-    }
-
-    private List<Emit> storeEmits(TrieNode node, int position) {
-        List<Emit> resultList = new ArrayList<>();
-        for (String matchedKeyword : node.getEmits()) {
-            resultList.add(new Emit(position - matchedKeyword.length() + 1, position + 1, matchedKeyword));
+    private int getNextTransition(int code, int state) {
+        while (true) {
+            int nextState = base[state] + code;
+            if (nextState < check.length && check[nextState] == state && nextState != ROOT) {
+                return nextState;
+            }
+            if (state == ROOT) {
+                return ROOT;
+            }
+            state = failure[state];
         }
-        return resultList;
     }
 
     public void setCaseInsensitive(boolean caseInsensitive) {
@@ -143,4 +350,3 @@ public class ACTrie {
         }
     }
 }
-
@@ -12,11 +12,11 @@ import edu.uci.ics.texera.api.span.Span;
 import edu.uci.ics.texera.api.tuple.Tuple;
 import edu.uci.ics.texera.dataflow.common.AbstractSingleInputOperator;
 import edu.uci.ics.texera.dataflow.keywordmatcher.KeywordMatchingType;
+import edu.uci.ics.texera.dataflow.regexmatcher.MultiRegexMatcher;
 import edu.uci.ics.texera.dataflow.utils.DataflowUtils;
+import edu.uci.ics.texera.dataflow.utils.PayloadTokenIndex;
 
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 
@@ -36,6 +36,14 @@ public class DictionaryMatcher extends AbstractSingleInputOperator {
 
     private Schema inputSchema;
     private ACTrie dictionaryTrie;
+    private MultiRegexMatcher dictionaryRegexMatcher;
+
+    // for the index based matching types: the spans of the dictionary tokens in the payload of the current tuple,
+    //   the token IDs of each dictionary entry, and the entries of each token ID
+    private PayloadTokenIndex payloadTokenIndex;
+    private int[][] entryTokenIds;
+    private int[][] tokenEntryIds;
+    private final BitSet candidateEntries = new BitSet();
 
     @Override
     protected void setUp() throws TexeraException {
@@ -59,16 +67,48 @@ public class DictionaryMatcher extends AbstractSingleInputOperator {
 
         if (predicate.getKeywordMatchingType() == KeywordMatchingType.CONJUNCTION_INDEXBASED) {
             predicate.getDictionary().setDictionaryTokenSetList(predicate.getAnalyzerString());
+            preprocessDictionaryTokens();
         } else if (predicate.getKeywordMatchingType() == KeywordMatchingType.PHRASE_INDEXBASED) {
             predicate.getDictionary().setDictionaryTokenListWithStopwords(predicate.getAnalyzerString());
             predicate.getDictionary().setDictionaryTokenSetList(predicate.getAnalyzerString());
+            preprocessDictionaryTokens();
         } else if (predicate.getKeywordMatchingType() == KeywordMatchingType.REGEX) {
             predicate.getDictionary().setPatternList();
+            dictionaryRegexMatcher = new MultiRegexMatcher(predicate.getDictionary().getPatternList());
         } else {
             preprocessDictionaryTrie();
         }
     }
 
+    /*
+     * Maps the tokens of the dictionary entries to IDs once, so that each tuple is matched
+     *   with a single pass over its payload.
+     */
+    private void preprocessDictionaryTokens() {
+        ArrayList<Set<String>> tokenSets = predicate.getDictionary().getTokenSetsNoStopwords();
+        List<String> tokens = tokenSets.stream().flatMap(tokenSet -> tokenSet.stream()).collect(Collectors.toList());
+        payloadTokenIndex = new PayloadTokenIndex(predicate.getAttributeNames(), tokens);
+
+        entryTokenIds = new int[tokenSets.size()][];
+        int[] numTokenEntries = new int[payloadTokenIndex.getNumTerms()];
+        for (int i = 0; i < tokenSets.size(); i++) {
+            entryTokenIds[i] = tokenSets.get(i).stream().mapToInt(payloadTokenIndex::getTermId).toArray();
+            for (int tokenId : entryTokenIds[i]) {
+                numTokenEntries[tokenId]++;
+            }
+        }
+        tokenEntryIds = new int[payloadTokenIndex.getNumTerms()][];
+        for (int tokenId = 0; tokenId < tokenEntryIds.length; tokenId++) {
+            tokenEntryIds[tokenId] = new int[numTokenEntries[tokenId]];
+            numTokenEntries[tokenId] = 0;
+        }
+        for (int i = 0; i < entryTokenIds.length; i++) {
+            for (int tokenId : entryTokenIds[i]) {
+                tokenEntryIds[tokenId][numTokenEntries[tokenId]++] = i;
+            }
+        }
+    }
+
     private void  preprocessDictionaryTrie(){
         dictionaryTrie = new ACTrie();
         dictionaryTrie.setCaseInsensitive(true);
@@ -105,22 +145,26 @@ public class DictionaryMatcher extends AbstractSingleInputOperator {
             inputTuple = tupleBuilderPayload.build();
         }
 
+        // index the spans of the dictionary tokens in one pass over the payload
+        if (payloadTokenIndex != null) {
+            ListField<Span> payloadField = inputTuple.getField(SchemaConstants.PAYLOAD);
+            payloadTokenIndex.index(payloadField.getValue());
+        }
+
         List<Span> matchingResults = null;
         if (predicate.getKeywordMatchingType() == KeywordMatchingType.CONJUNCTION_INDEXBASED) {
 
             ArrayList<String> dictionaryEntries = predicate.getDictionary().getDictionaryEntries();
-            ArrayList<Set<String>> tokenSetsNoStopwords = predicate.getDictionary().getTokenSetsNoStopwords();
 
-            matchingResults = appendConjunctionMatchingSpans4Dictionary(inputTuple, predicate.getAttributeNames(), tokenSetsNoStopwords, dictionaryEntries);
+            matchingResults = appendConjunctionMatchingSpans4Dictionary(inputTuple, predicate.getAttributeNames(), dictionaryEntries);
 
         } else if (predicate.getKeywordMatchingType() == KeywordMatchingType.PHRASE_INDEXBASED) {
 
             ArrayList<String> dictionaryEntries = predicate.getDictionary().getDictionaryEntries();
             ArrayList<List<String>> tokenListsNoStopwords = predicate.getDictionary().getTokenListsNoStopwords();
             ArrayList<List<String>> tokenListsWithStopwords = predicate.getDictionary().getTokenListsWithStopwords();
-            ArrayList<Set<String>> tokenSetsNoStopwords = predicate.getDictionary().getTokenSetsNoStopwords();
 
-            matchingResults = appendPhraseMatchingSpans4Dictionary(inputTuple, predicate.getAttributeNames(), tokenListsNoStopwords, tokenSetsNoStopwords, tokenListsWithStopwords, dictionaryEntries);
+            matchingResults = appendPhraseMatchingSpans4Dictionary(inputTuple, predicate.getAttributeNames(), tokenListsNoStopwords, tokenListsWithStopwords, dictionaryEntries);
 
         } else if (predicate.getKeywordMatchingType() == KeywordMatchingType.SUBSTRING_SCANBASED) {
             matchingResults = new ArrayList<Span>();
@@ -132,39 +176,36 @@ public class DictionaryMatcher extends AbstractSingleInputOperator {
                 if (attributeType != AttributeType.STRING && attributeType != AttributeType.TEXT) {
                     throw new DataflowException("KeywordMatcher: Fields other than STRING and TEXT are not supported yet");
                 }
-                List<ACTrie.Emit> matchingEmits = dictionaryTrie.parseText(fieldValue);
-
-                if (!matchingEmits.isEmpty()) {
-                    for(ACTrie.Emit emit : matchingEmits){
-                        matchingResults.add(new Span(attributeName, emit.getStart(), emit.getEnd(), emit.getKeyword(), fieldValue.substring(emit.getStart(), emit.getEnd())));
-                    }
-                }
+                List<Span> attributeResults = matchingResults;
+                dictionaryTrie.parseText(fieldValue, (start, end, keyword) ->
+                        attributeResults.add(new Span(attributeName, start, end, keyword, fieldValue.substring(start, end))));
             }
 
         } else if (predicate.getKeywordMatchingType() == KeywordMatchingType.REGEX) {
 
-            ArrayList<Pattern> patternList = predicate.getDictionary().getPatternList();
             ArrayList<String> dictionaryEntries = predicate.getDictionary().getDictionaryEntries();
             matchingResults = new ArrayList<>();
+            List<Integer> spanEntryIndexes = new ArrayList<>();
 
-            for (int i = 0; i < dictionaryEntries.size(); i++) {
-                for (String attributeName : predicate.getAttributeNames()) {
-                    AttributeType attributeType = inputTuple.getSchema().getAttribute(attributeName).getType();
-                    String fieldValue = inputTuple.getField(attributeName).getValue().toString();
-
-                    // types other than TEXT and STRING: throw Exception for now
-                    if (attributeType != AttributeType.STRING && attributeType != AttributeType.TEXT) {
-                        throw new DataflowException("KeywordMatcher: Fields other than STRING and TEXT are not supported yet");
-                    }
+            for (String attributeName : predicate.getAttributeNames()) {
+                AttributeType attributeType = inputTuple.getSchema().getAttribute(attributeName).getType();
+                String fieldValue = inputTuple.getField(attributeName).getValue().toString();
 
-                    Matcher javaMatcher = patternList.get(i).matcher(fieldValue);
-                    while (javaMatcher.find()) {
-                        int start = javaMatcher.start();
-                        int end = javaMatcher.end();
-                        matchingResults.add(
-                                new Span(attributeName, start, end, dictionaryEntries.get(i), fieldValue.substring(start, end)));
-                    }
+                // types other than TEXT and STRING: throw Exception for now
+                if (attributeType != AttributeType.STRING && attributeType != AttributeType.TEXT) {
+                    throw new DataflowException("KeywordMatcher: Fields other than STRING and TEXT are not supported yet");
                 }
+
+                // all the entries are matched in one scan of the field value
+                List<Span> attributeResults = matchingResults;
+                dictionaryRegexMatcher.match(fieldValue, (entryIndex, start, end) -> {
+                    attributeResults.add(new Span(attributeName, start, end, dictionaryEntries.get(entryIndex), fieldValue.substring(start, end)));
+                    spanEntryIndexes.add(entryIndex);
+                });
+            }
+
+            if (predicate.getAttributeNames().size() > 1) {
+                matchingResults = sortByEntry(matchingResults, spanEntryIndexes);
             }
 
         }
@@ -181,11 +222,8 @@ public class DictionaryMatcher extends AbstractSingleInputOperator {
         return tupleBuilder.build();
     }
 
-    private List<Span> appendConjunctionMatchingSpans4Dictionary(Tuple inputTuple, List<String> attributeNames, List<Set<String>> queryTokenSetList, List<String> queryList) throws DataflowException {
+    private List<Span> appendConjunctionMatchingSpans4Dictionary(Tuple inputTuple, List<String> attributeNames, List<String> queryList) throws DataflowException {
         List<Span> matchingResults = new ArrayList<>();
-        ListField<Span> payloadField = inputTuple.getField(SchemaConstants.PAYLOAD);
-        List<Span> payload = payloadField.getValue();
-        Map<Integer, List<Span>> relevantSpansMap = filterRelevantSpans(payload, queryTokenSetList);
         for (String attributeName : attributeNames) {
             AttributeType attributeType = inputTuple.getSchema().getAttribute(attributeName).getType();
             String fieldValue = inputTuple.getField(attributeName).getValue().toString();
@@ -205,11 +243,11 @@ public class DictionaryMatcher extends AbstractSingleInputOperator {
 
             // for TEXT type, every token in the query should be present in span
             if (attributeType == AttributeType.TEXT) {
-                for (int index : relevantSpansMap.keySet()) {
-                    List<Span> fieldSpanList = relevantSpansMap.get(index).stream().filter(span -> span.getAttributeName().equals(attributeName))
-                            .collect(Collectors.toList());
-                    if (DataflowUtils.isAllQueryTokensPresent(fieldSpanList, queryTokenSetList.get(index))) {
-                        matchingResults.addAll(fieldSpanList);
+                int attributeIndex = payloadTokenIndex.getAttributeIndex(attributeName);
+                computeCandidateEntries(attributeIndex);
+                for (int index = candidateEntries.nextSetBit(0); index >= 0; index = candidateEntries.nextSetBit(index + 1)) {
+                    if (payloadTokenIndex.containsAllTerms(attributeIndex, entryTokenIds[index])) {
+                        matchingResults.addAll(payloadTokenIndex.getSpans(attributeIndex, entryTokenIds[index]));
                     }
                 }
             }
@@ -217,11 +255,8 @@ public class DictionaryMatcher extends AbstractSingleInputOperator {
         return matchingResults;
     }
 
-    public List<Span> appendPhraseMatchingSpans4Dictionary(Tuple inputTuple, List<String> attributeNames, List<List<String>> queryTokenList, List<Set<String>> queryTokenSetList, List<List<String>> queryTokenListWithStopwords, List<String> queryList) throws DataflowException {
+    public List<Span> appendPhraseMatchingSpans4Dictionary(Tuple inputTuple, List<String> attributeNames, List<List<String>> queryTokenList, List<List<String>> queryTokenListWithStopwords, List<String> queryList) throws DataflowException {
         List<Span> matchingResults = new ArrayList<>();
-        ListField<Span> payloadField = inputTuple.getField(SchemaConstants.PAYLOAD);
-        List<Span> payload = payloadField.getValue();
-        Map<Integer, List<Span>> relevantSpansMap = filterRelevantSpans(payload, queryTokenSetList);
         for (String attributeName : attributeNames) {
             AttributeType attributeType = inputTuple.getSchema().getAttribute(attributeName).getType();
             String fieldValue = inputTuple.getField(attributeName).getValue().toString();
@@ -241,12 +276,13 @@ public class DictionaryMatcher extends AbstractSingleInputOperator {
 
             // for TEXT type, spans need to be reconstructed according to the phrase query.
             if (attributeType == AttributeType.TEXT) {
-                for (int index : relevantSpansMap.keySet()) {
-                    List<Span> fieldSpanList = relevantSpansMap.get(index).stream().filter(span -> span.getAttributeName().equals(attributeName))
-                            .collect(Collectors.toList());
-                    if (fieldSpanList.isEmpty() || !DataflowUtils.isAllQueryTokensPresent(fieldSpanList, queryTokenSetList.get(index))) {
+                int attributeIndex = payloadTokenIndex.getAttributeIndex(attributeName);
+                computeCandidateEntries(attributeIndex);
+                for (int index = candidateEntries.nextSetBit(0); index >= 0; index = candidateEntries.nextSetBit(index + 1)) {
+                    if (! payloadTokenIndex.containsAllTerms(attributeIndex, entryTokenIds[index])) {
                         continue;
                     }
+                    List<Span> fieldSpanList = payloadTokenIndex.getSpans(attributeIndex, entryTokenIds[index]);
                     matchingResults.addAll(DataflowUtils.constructPhraseMatchingSpans(attributeName, fieldValue, queryList.get(index), fieldSpanList, queryTokenListWithStopwords.get(index), queryTokenList.get(index)));
                 }
             }
@@ -254,32 +290,34 @@ public class DictionaryMatcher extends AbstractSingleInputOperator {
         return matchingResults;
     }
 
-    private Map<Integer, List<Span>> filterRelevantSpans(List<Span> spanList, List<Set<String>> queryTokenSet) {
-        Map<Integer, List<Span>> resultMap = new HashMap<>();
-        Map<String, List<Integer>> tokenMap = new HashMap<>();
-        for (int i = 0; i < queryTokenSet.size(); i++) {
-            for (String s : queryTokenSet.get(i)) {
-                if (!tokenMap.containsKey(s)) {
-                    tokenMap.put(s, new ArrayList<>());
-                }
-                tokenMap.get(s).add(i);
-            }
+    /*
+     * Orders the spans of the regex entries by entry, then by attribute, as if each entry were matched
+     *   on all the attributes in turn. The spans of each attribute are already in the order of the entries.
+     */
+    private static List<Span> sortByEntry(List<Span> spans, List<Integer> spanEntryIndexes) {
+        Integer[] spanOrder = new Integer[spans.size()];
+        for (int i = 0; i < spanOrder.length; i++) {
+            spanOrder[i] = i;
         }
-        Iterator<Span> iterator = spanList.iterator();
-        while (iterator.hasNext()) {
-            Span span = iterator.next();
-            if (tokenMap.keySet().contains(span.getKey())) {
-                List<Integer> tokensetIndex = tokenMap.get(span.getKey());
-                for (Integer index : tokensetIndex) {
-                    if (!resultMap.containsKey(index)) {
-                        resultMap.put(index, new ArrayList<>());
-                    }
-                    resultMap.get(index).add(span);
-                }
+        // the sort is stable, so the spans of an entry stay in the order of the attributes
+        Arrays.sort(spanOrder, Comparator.comparingInt(spanEntryIndexes::get));
+        List<Span> sortedSpans = new ArrayList<>(spans.size());
+        for (int i : spanOrder) {
+            sortedSpans.add(spans.get(i));
+        }
+        return sortedSpans;
+    }
 
+    /*
+     * Finds the dictionary entries that have at least one token in an attribute of the current tuple.
+     */
+    private void computeCandidateEntries(int attributeIndex) {
+        candidateEntries.clear();
+        for (int i = 0; i < payloadTokenIndex.getNumPresentTerms(attributeIndex); i++) {
+            for (int index : tokenEntryIds[payloadTokenIndex.getPresentTermId(attributeIndex, i)]) {
+                candidateEntries.set(index);
             }
         }
-        return resultMap;
     }
 
     @Override
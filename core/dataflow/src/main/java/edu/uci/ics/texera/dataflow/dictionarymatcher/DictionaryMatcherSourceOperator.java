@@ -1,28 +1,26 @@
-
 package edu.uci.ics.texera.dataflow.dictionarymatcher;
 
 
-import java.util.List;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queries.TermsQuery;
+import org.apache.lucene.search.Query;
 
 import edu.uci.ics.texera.api.constants.ErrorMessages;
-import edu.uci.ics.texera.api.constants.SchemaConstants;
+import edu.uci.ics.texera.api.dataflow.IOperator;
 import edu.uci.ics.texera.api.dataflow.ISourceOperator;
 import edu.uci.ics.texera.api.exception.DataflowException;
 import edu.uci.ics.texera.api.exception.TexeraException;
-import edu.uci.ics.texera.api.field.ListField;
 import edu.uci.ics.texera.api.schema.AttributeType;
 import edu.uci.ics.texera.api.schema.Schema;
-import edu.uci.ics.texera.api.span.Span;
 import edu.uci.ics.texera.api.tuple.Tuple;
-import edu.uci.ics.texera.dataflow.keywordmatcher.KeywordSourcePredicate;
 import edu.uci.ics.texera.dataflow.source.scan.ScanBasedSourceOperator;
 import edu.uci.ics.texera.dataflow.source.scan.ScanSourcePredicate;
-import edu.uci.ics.texera.dataflow.keywordmatcher.KeywordMatcherSourceOperator;
 import edu.uci.ics.texera.dataflow.keywordmatcher.KeywordMatchingType;
+import edu.uci.ics.texera.storage.DataReader;
+import edu.uci.ics.texera.storage.RelationManager;
 
 
 /**
@@ -33,27 +31,18 @@ import edu.uci.ics.texera.dataflow.keywordmatcher.KeywordMatchingType;
  */
 public class DictionaryMatcherSourceOperator implements ISourceOperator {
 
-    private ISourceOperator indexSource;
+    private IOperator indexSource;
     
-    private KeywordMatcherSourceOperator keywordSource;
     private DictionaryMatcher dictionaryMatcher;
 
     private Schema outputSchema;
 
-    private String currentDictionaryEntry;
-
     private final DictionarySourcePredicate predicate;
 
     private int limit;
     private int offset;
 
-    private HashMap<String, Tuple> tupleIDMap; // map of tuple's ID to the tuple itself
-    private Map<String, List<Span>> tupleResultMap; // map of tuple's ID to the tuples's results (for Conjunction and Phrase)
-    private boolean resultMapPopulated = false;
-    
-    private Iterator<String> resultIterator;
-
-    private int cursor = CLOSED;  //Flag for computing matching results for CONJUNCTION and PHRASE.
+    private int cursor = CLOSED;
 
     /**
      * Constructs a DictionaryMatcher with a dictionary predicate.
@@ -67,10 +56,10 @@ public class DictionaryMatcherSourceOperator implements ISourceOperator {
      * DictionaryMatcher. <br>
      *
      * DictionaryOperatorType.PHRASE_INDEX, CONJUNCTION_INDEX: <br>
-     * Loop through the dictionary entries.
-     * For each entry, use an index-based KeywordMatcher to get the matching results.
-     * Maintain a HashMap </Tuple_ID, Tuple> to add all the matching results
-     * into the spanlist of each input tuple.
+     * Run one query on the index for the documents that contain any token of any dictionary entry,
+     * followed by a Dictionary Matcher. <br>
+     * For each candidate document, the Dictionary Matcher only verifies the entries
+     * whose tokens are all in the document, instead of querying the index once for each entry. <br>
      *
      * CONJUNCTION_INDEX corresponds to KeywordOperatorType.BASIC, which
      * performs keyword search on the document. The input query is
@@ -88,9 +77,6 @@ public class DictionaryMatcherSourceOperator implements ISourceOperator {
         this.limit = Integer.MAX_VALUE;
         this.offset = 0;
         this.predicate = predicate;
-        
-        this.tupleIDMap = new HashMap<>();
-        this.tupleResultMap = new HashMap<>();
     }
 
     @Override
@@ -99,86 +85,85 @@ public class DictionaryMatcherSourceOperator implements ISourceOperator {
             return;
         }
 
-        currentDictionaryEntry = predicate.getDictionary().getNextEntry();
-
         if (predicate.getKeywordMatchingType() == KeywordMatchingType.SUBSTRING_SCANBASED
                 || predicate.getKeywordMatchingType() == KeywordMatchingType.REGEX) {
 
             // For Substring matching and Regex matching, create a scan source operator followed by a dictionary matcher.
             indexSource = new ScanBasedSourceOperator(new ScanSourcePredicate(predicate.getTableName()));
 
-            dictionaryMatcher = new DictionaryMatcher(new DictionaryPredicate(predicate.getDictionary(), predicate.getAttributeNames(),
-                    predicate.getAnalyzerString(), predicate.getKeywordMatchingType(), predicate.getSpanListName()));
-
-            dictionaryMatcher.setInputOperator(indexSource);
-            dictionaryMatcher.open();
-            outputSchema = dictionaryMatcher.getOutputSchema();
-
         } else {
             // For other keyword matching types (CONJUNCTION and PHRASE),
-            // create an index-based keyword source operator.
-            keywordSource = new KeywordMatcherSourceOperator(new KeywordSourcePredicate(
-                    currentDictionaryEntry,
-                    predicate.getAttributeNames(),
-                    predicate.getAnalyzerString(),
-                    predicate.getKeywordMatchingType(),
-                    predicate.getTableName(),
-                    predicate.getSpanListName()));
-
-            keywordSource.open();
-
-            // Other keyword matching types uses a KeywordMatcher, so the
-            // output schema is the same as keywordMatcher's schema.
-            outputSchema = keywordSource.getOutputSchema();
+            // create an index-based source operator of the candidate documents followed by a dictionary matcher.
+            DataReader dataReader = RelationManager.getInstance().getTableDataReader(
+                    predicate.getTableName(), createCandidateQuery());
+            dataReader.setPayloadAdded(true);
+            dataReader.setStreaming(true);
+            indexSource = dataReader;
         }
+
+        dictionaryMatcher = new DictionaryMatcher(new DictionaryPredicate(predicate.getDictionary(), predicate.getAttributeNames(),
+                predicate.getAnalyzerString(), predicate.getKeywordMatchingType(), predicate.getSpanListName()));
+
+        dictionaryMatcher.setInputOperator(indexSource);
+        dictionaryMatcher.open();
+        outputSchema = dictionaryMatcher.getOutputSchema();
+
         cursor = OPENED;
     }
 
-    @Override
-    public Tuple getNextTuple() throws TexeraException {
-        if (cursor >= limit + offset) {
-            return null;
-        }
-        
-        if (predicate.getKeywordMatchingType() == KeywordMatchingType.PHRASE_INDEXBASED
-                || predicate.getKeywordMatchingType() == KeywordMatchingType.CONJUNCTION_INDEXBASED) {
-            // For each dictionary entry, get all results from KeywordMatcher.
-            if(! resultMapPopulated){
-                computeMatchingResults();
-                resultIterator = tupleIDMap.keySet().iterator();
-                
-                resultMapPopulated = true;
+    /*
+     * Creates a query of the documents that contain any token of any dictionary entry in a TEXT attribute,
+     *   or any dictionary entry as the value of a STRING attribute.
+     * The documents that match an entry are a subset of them, no matter how many tokens the entry has.
+     * A TermsQuery is used instead of a BooleanQuery so that the number of terms is not limited.
+     */
+    private Query createCandidateQuery() throws DataflowException {
+        Schema inputSchema = RelationManager.getInstance().getTableDataStore(predicate.getTableName()).getSchema();
+        Dictionary dictionary = predicate.getDictionary();
+        dictionary.setDictionaryTokenSetList(predicate.getAnalyzerString());
+
+        Set<Term> terms = new HashSet<>();
+        for (String attributeName : predicate.getAttributeNames()) {
+            AttributeType attributeType = inputSchema.getAttribute(attributeName).getType();
+
+            // types other than TEXT and STRING: throw Exception for now
+            if (attributeType != AttributeType.STRING && attributeType != AttributeType.TEXT) {
+                throw new DataflowException(
+                        "KeywordPredicate: Fields other than STRING and TEXT are not supported yet");
+            }
+
+            if (attributeType == AttributeType.STRING) {
+                for (String entry : dictionary.getDictionaryEntries()) {
+                    terms.add(new Term(attributeName, entry));
+                }
             }
-            while (true) {
-                if (resultIterator.hasNext()) {
-                    cursor++;
-                    String tupleID = resultIterator.next();
-                    Tuple resultTuple = new Tuple.Builder(tupleIDMap.get(tupleID))
-                        .add(predicate.getSpanListName(), AttributeType.LIST, 
-                                new ListField<Span>(tupleResultMap.get(tupleID))).build();
-                    if (cursor > offset) {
-                        return resultTuple;
+            if (attributeType == AttributeType.TEXT) {
+                for (Set<String> tokenSet : dictionary.getTokenSetsNoStopwords()) {
+                    for (String token : tokenSet) {
+                        terms.add(new Term(attributeName, token.toLowerCase()));
                     }
-                    continue;
-                } else {
-                    return null;
                 }
             }
         }
+        return new TermsQuery(terms.toArray(new Term[terms.size()]));
+    }
 
-        // Substring matching or regex matching (scan based)
-        else {
-            while(true) {
-                Tuple inputTuple;
-                if ((inputTuple = dictionaryMatcher.getNextTuple()) != null) {
-                    cursor++;
-                    if(cursor > offset) {
-                        return inputTuple;
-                    }
-                    continue;
-                } else {
-                    return null;
+    @Override
+    public Tuple getNextTuple() throws TexeraException {
+        if (cursor >= limit + offset) {
+            return null;
+        }
+        
+        while(true) {
+            Tuple inputTuple;
+            if ((inputTuple = dictionaryMatcher.getNextTuple()) != null) {
+                cursor++;
+                if(cursor > offset) {
+                    return inputTuple;
                 }
+                continue;
+            } else {
+                return null;
             }
         }
     }
@@ -200,56 +185,12 @@ public class DictionaryMatcherSourceOperator implements ISourceOperator {
         return this.offset;
     }
 
-    /***
-     *  Maintain a HashMap </Tuple_ID, Tuple> to compute all the keyword
-     *  matching results for each tuple.
-     *
-     */
-
-    @SuppressWarnings("unchecked")
-	private void computeMatchingResults(){
-        Tuple inputTuple;
-        
-        while(true) {
-            while((inputTuple = keywordSource.getNextTuple()) != null){
-                String tupleID = inputTuple.getField(SchemaConstants._ID).getValue().toString();
-                ListField<Span> keywordResultsField = inputTuple.getField(predicate.getSpanListName(), ListField.class);
-                List<Span> keywordResults = keywordResultsField.getValue();
-                
-                if (tupleResultMap.containsKey(tupleID)) {
-                    tupleResultMap.get(tupleID).addAll(keywordResults);
-                } else {
-                    tupleIDMap.put(tupleID, new Tuple.Builder(inputTuple).remove(predicate.getSpanListName()).build());
-                    tupleResultMap.put(tupleID, new ArrayList<>(keywordResults));
-                }
-            }
-
-            if ((currentDictionaryEntry = predicate.getDictionary().getNextEntry()) == null) {
-                 return;
-            }
-
-            keywordSource.close();
-
-            KeywordSourcePredicate keywordSourcePredicate = new KeywordSourcePredicate(currentDictionaryEntry,
-                    predicate.getAttributeNames(),
-                    predicate.getAnalyzerString(), predicate.getKeywordMatchingType(),
-                    predicate.getTableName(),
-                    predicate.getSpanListName());
-
-            keywordSource = new KeywordMatcherSourceOperator(keywordSourcePredicate);
-            keywordSource.open();
-        }
-    }
-
     /**
      * @about Closes the operator
      */
     @Override
     public void close() throws DataflowException {
         try {
-            if (keywordSource != null) {
-                keywordSource.close();
-            }
             if (indexSource != null) {
                 indexSource.close();
             }
@@ -1,9 +1,7 @@
 package edu.uci.ics.texera.dataflow.fuzzytokenmatcher;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import edu.uci.ics.texera.api.constants.ErrorMessages;
 import edu.uci.ics.texera.api.constants.SchemaConstants;
@@ -16,6 +14,7 @@ import edu.uci.ics.texera.api.span.Span;
 import edu.uci.ics.texera.api.tuple.Tuple;
 import edu.uci.ics.texera.dataflow.common.AbstractSingleInputOperator;
 import edu.uci.ics.texera.dataflow.utils.DataflowUtils;
+import edu.uci.ics.texera.dataflow.utils.PayloadTokenIndex;
 
 /**
  *  @author Zuozhi Wang (zuozhiw)
@@ -29,6 +28,8 @@ public class FuzzyTokenMatcher extends AbstractSingleInputOperator {
     private final FuzzyTokenPredicate predicate;
     
     private Schema inputSchema;
+    // the spans of the query tokens in the payload of the current tuple
+    private PayloadTokenIndex payloadTokenIndex;
     
     private boolean addPayload = false;
     private boolean addResultAttribute = false;
@@ -50,6 +51,7 @@ public class FuzzyTokenMatcher extends AbstractSingleInputOperator {
         }
 
         outputSchema = transformToOutputSchema(inputOperator.getOutputSchema());
+        payloadTokenIndex = new PayloadTokenIndex(predicate.getAttributeNames(), predicate.getQueryTokens());
     }
 
     @Override
@@ -77,7 +79,7 @@ public class FuzzyTokenMatcher extends AbstractSingleInputOperator {
         }
         
         ListField<Span> payloadField = inputTuple.getField(SchemaConstants.PAYLOAD);
-        List<Span> relevantSpans = filterRelevantSpans(payloadField.getValue());
+        payloadTokenIndex.index(payloadField.getValue());
         List<Span> matchingResults = new ArrayList<>();
 
         /*
@@ -94,11 +96,7 @@ public class FuzzyTokenMatcher extends AbstractSingleInputOperator {
                 throw new DataflowException("FuzzyTokenMatcher: Fields other than TEXT or STRING are not supported");
             }
             
-            List<Span> fieldSpans = 
-                    relevantSpans.stream()
-                    .filter(span -> span.getAttributeName().equals(attributeName))
-                    .filter(span -> predicate.getQueryTokens().contains(span.getKey()))
-                    .collect(Collectors.toList());
+            List<Span> fieldSpans = payloadTokenIndex.getSpans(payloadTokenIndex.getAttributeIndex(attributeName));
             
             if (fieldSpans.size() >= predicate.getThreshold()) {
                 matchingResults.addAll(fieldSpans);
@@ -116,18 +114,6 @@ public class FuzzyTokenMatcher extends AbstractSingleInputOperator {
 
         return tupleBuilder.build();
     }
-    
-    private List<Span> filterRelevantSpans(List<Span> spanList) {
-        List<Span> relevantSpans = new ArrayList<>();
-        Iterator<Span> iterator = spanList.iterator();
-        while (iterator.hasNext()) {
-            Span span = iterator.next();
-            if (predicate.getQueryTokens().contains(span.getKey())) {
-                relevantSpans.add(span);
-            }
-        }
-        return relevantSpans;
-    }
 
     public Schema transformToOutputSchema(Schema... inputSchema) {
         if (inputSchema.length != 1)
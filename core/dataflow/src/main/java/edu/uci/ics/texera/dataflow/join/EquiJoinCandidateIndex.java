@@ -0,0 +1,66 @@
+package edu.uci.ics.texera.dataflow.join;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.uci.ics.texera.api.field.IField;
+import edu.uci.ics.texera.api.tuple.Tuple;
+
+/**
+ * EquiJoinCandidateIndex is a hash table of the inner tuples keyed on the values of the equi-join attributes
+ *   (see IJoinPredicate.getEquiJoinAttributeNames()).
+ * The candidates of an outer tuple are the inner tuples in the bucket of its key.
+ *
+ */
+class EquiJoinCandidateIndex implements IJoinCandidateIndex {
+
+    private final List<String> equiJoinAttributeNames;
+    private final Map<List<Object>, List<Tuple>> innerTupleHashTable = new HashMap<>();
+
+    EquiJoinCandidateIndex(List<String> equiJoinAttributeNames) {
+        this.equiJoinAttributeNames = equiJoinAttributeNames;
+    }
+
+    @Override
+    public void addInnerTuple(Tuple innerTuple) {
+        List<Object> equiJoinKey = getEquiJoinKey(innerTuple, equiJoinAttributeNames);
+        if (equiJoinKey != null) {
+            innerTupleHashTable.computeIfAbsent(equiJoinKey, key -> new ArrayList<>()).add(innerTuple);
+        }
+    }
+
+    @Override
+    public List<Tuple> getCandidates(Tuple outerTuple) {
+        List<Object> equiJoinKey = getEquiJoinKey(outerTuple, equiJoinAttributeNames);
+        List<Tuple> innerBucket = equiJoinKey == null ? null : innerTupleHashTable.get(equiJoinKey);
+        return innerBucket == null ? Collections.emptyList() : innerBucket;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return innerTupleHashTable.isEmpty();
+    }
+
+    /*
+     * Gets the values of the equi-join attributes of a tuple,
+     *   or null if the tuple doesn't have one of the attributes, in which case it can't be joined.
+     */
+    static List<Object> getEquiJoinKey(Tuple tuple, List<String> equiJoinAttributeNames) {
+        List<Object> equiJoinKey = new ArrayList<>(equiJoinAttributeNames.size());
+        for (String attributeName : equiJoinAttributeNames) {
+            if (! tuple.getSchema().containsAttribute(attributeName)) {
+                return null;
+            }
+            IField field = tuple.getField(attributeName);
+            if (field == null || field.getValue() == null) {
+                return null;
+            }
+            equiJoinKey.add(field.getValue());
+        }
+        return equiJoinKey;
+    }
+
+}
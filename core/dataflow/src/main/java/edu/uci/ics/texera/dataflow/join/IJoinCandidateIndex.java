@@ -0,0 +1,41 @@
+package edu.uci.ics.texera.dataflow.join;
+
+import java.util.List;
+
+import edu.uci.ics.texera.api.tuple.Tuple;
+
+/**
+ * IJoinCandidateIndex is an index over the inner tuples of a Join,
+ *   which is used to find the inner tuples that may be joined with an outer tuple.
+ *
+ * Join adds all the inner tuples to the index first, then probes the index with each outer tuple,
+ *   and only calls IJoinPredicate.joinTuples() on the candidate pairs.
+ * The candidates of an outer tuple must include every inner tuple that joinTuples() could join it with.
+ *
+ * An index is created by IJoinPredicate.createCandidateIndex() every time Join is opened.
+ *
+ */
+public interface IJoinCandidateIndex {
+
+    /**
+     * Adds an inner tuple to the index.
+     *
+     * @param innerTuple
+     */
+    void addInnerTuple(Tuple innerTuple);
+
+    /**
+     * Gets the inner tuples that may be joined with the outer tuple,
+     *   in the order they are added to the index.
+     *
+     * @param outerTuple
+     * @return the candidate inner tuples
+     */
+    List<Tuple> getCandidates(Tuple outerTuple);
+
+    /**
+     * Returns true if no inner tuple can be a candidate of any outer tuple.
+     */
+    boolean isEmpty();
+
+}
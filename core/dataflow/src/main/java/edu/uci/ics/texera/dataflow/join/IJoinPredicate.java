@@ -1,5 +1,10 @@
 package edu.uci.ics.texera.dataflow.join;
 
+import java.util.Collections;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import edu.uci.ics.texera.api.dataflow.IPredicate;
 import edu.uci.ics.texera.api.exception.DataflowException;
 import edu.uci.ics.texera.api.schema.Schema;
@@ -21,4 +26,43 @@ public interface IJoinPredicate extends IPredicate {
 	String getInnerAttributeName();
 	
 	String getOuterAttributeName();
-}
\ No newline at end of file
+	
+	/**
+	 * Gets the memory budget (in MB) of the inner tuples of Join.
+	 * If the inner tuples exceed the budget, Join spills both inputs to disk (see SpilledJoin).
+	 * 
+	 * @return the memory budget in MB
+	 */
+	Integer getInnerMemoryBudget();
+	
+	/**
+	 * Gets the names of the attributes whose values must be equal in the inner tuple and the outer tuple
+	 *   for joinTuples() to return a result, or an empty list if the predicate doesn't have such attributes.
+	 * 
+	 * If the list is not empty, Join builds a hash table of the inner tuples on these attributes,
+	 *   and only calls joinTuples() on the pairs of tuples with equal values.
+	 * 
+	 * @return the names of the equi-join attributes
+	 */
+	@JsonIgnore
+	default List<String> getEquiJoinAttributeNames() {
+	    return Collections.emptyList();
+	}
+	
+	/**
+	 * Creates an index of the inner tuples that Join uses to find the candidate inner tuples of each outer tuple,
+	 *   or returns null if every outer tuple has to be joined with every inner tuple.
+	 * 
+	 * By default, it's a hash table on the equi-join attributes if the predicate has them.
+	 * 
+	 * @return a new candidate index, or null
+	 */
+	@JsonIgnore
+	default IJoinCandidateIndex createCandidateIndex() {
+	    List<String> equiJoinAttributeNames = getEquiJoinAttributeNames();
+	    if (equiJoinAttributeNames.isEmpty()) {
+	        return null;
+	    }
+	    return new EquiJoinCandidateIndex(equiJoinAttributeNames);
+	}
+}
\ No newline at end of file
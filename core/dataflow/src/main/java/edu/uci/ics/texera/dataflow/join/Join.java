@@ -1,6 +1,8 @@
 package edu.uci.ics.texera.dataflow.join;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import edu.uci.ics.texera.api.constants.ErrorMessages;
@@ -37,11 +39,23 @@ import edu.uci.ics.texera.api.tuple.Tuple;
  * join attribute, the tuple is discarded. If the attribute is not join attribute,
  * then one of the values will be chosen to become the output value.
  * 
+ * If the predicate creates a candidate index (see IJoinPredicate.createCandidateIndex()),
+ * for example a hash table of the inner tuples keyed on the values of the equi-join attributes,
+ * Join adds all the inner tuples to the index, and each outer tuple is only joined with its candidates.
+ * Otherwise, each outer tuple is joined with every inner tuple.
+ * 
+ * If the inner tuples exceed the memory budget of the predicate (see IJoinPredicate.getInnerMemoryBudget()),
+ * the inner and outer tuples are spilled to disk and joined partition by partition by SpilledJoin,
+ * in which case the result tuples are not in the order of the outer tuples.
+ * 
  * @author Sripad Kowshik Subramanyam (sripadks)
  * @author Zuozhi Wang
  *
  */
 public class Join implements IOperator {
+    
+    // the default memory budget (in MB) of the inner tuples
+    public static final int DEFAULT_INNER_MEMORY_BUDGET = 256;
 
     private IOperator innerOperator;
     private IOperator outerOperator;
@@ -52,6 +66,17 @@ public class Join implements IOperator {
     private Integer innerTupleListCursor = 0;
     private Tuple currentOuterTuple;
     private Schema outputSchema;
+    
+    // the index of inner tuples, null if the predicate doesn't create one
+    private IJoinCandidateIndex candidateIndex;
+    private boolean isInnerLoaded = false;
+    // the candidate inner tuples of the current outer tuple
+    private List<Tuple> currentCandidates = Collections.emptyList();
+    private int currentCandidatesCursor = 0;
+    
+    // the memory budget of the inner tuples in bytes, and the spilled inputs if the budget is exceeded
+    private long innerMemoryBudget;
+    private SpilledJoin spilledJoin;
 
     private int cursor = CLOSED;
     
@@ -90,6 +115,10 @@ public class Join implements IOperator {
         Schema outerOperatorSchema = outerOperator.getOutputSchema();
         
         this.outputSchema = joinPredicate.generateOutputSchema(innerOperatorSchema, outerOperatorSchema);
+        this.candidateIndex = joinPredicate.createCandidateIndex();
+        this.isInnerLoaded = false;
+        
+        this.innerMemoryBudget = joinPredicate.getInnerMemoryBudget() * 1024L * 1024L;
 
         cursor = OPENED;
     }
@@ -106,14 +135,12 @@ public class Join implements IOperator {
     	if (cursor == CLOSED) {
             throw new DataflowException(ErrorMessages.OPERATOR_NOT_OPENED);
         }
-    	
-        // load all tuples from inner operator into memory in the first time
-    	if (innerTupleList == null) {
-    	    innerTupleList = new ArrayList<>();
-    	    Tuple tuple;
-            while ((tuple = innerOperator.getNextTuple()) != null) {
-                innerTupleList.add(tuple);
-            }
+    	// load all tuples from inner operator in the first time
+    	if (! isInnerLoaded) {
+    	    loadInnerTuples();
+    	}
+    	if (spilledJoin != null || candidateIndex != null) {
+    	    return getNextIndexJoinTuple();
     	}
     	
     	// load the first outer tuple
@@ -181,23 +208,165 @@ public class Join implements IOperator {
     	return nextTuple;
     }
 
+    /*
+     * Loads all the inner tuples into the candidate index if the predicate creates one,
+     *   otherwise into the inner tuple list.
+     * If the inner tuples exceed the memory budget, both inputs are spilled to disk instead.
+     */
+    private void loadInnerTuples() throws TexeraException {
+        List<Tuple> loadedTuples = new ArrayList<>();
+        long loadedSize = 0;
+        List<Tuple> innerTuples;
+        while (! (innerTuples = innerOperator.getNextBatch(DEFAULT_BATCH_SIZE)).isEmpty()) {
+            for (int i = 0; i < innerTuples.size(); i++) {
+                loadedTuples.add(innerTuples.get(i));
+                loadedSize += SpilledJoin.estimateTupleSize(innerTuples.get(i));
+                if (loadedSize > innerMemoryBudget) {
+                    spillInputs(loadedTuples, innerTuples.subList(i + 1, innerTuples.size()));
+                    isInnerLoaded = true;
+                    return;
+                }
+            }
+        }
+        if (candidateIndex != null) {
+            for (Tuple innerTuple : loadedTuples) {
+                candidateIndex.addInnerTuple(innerTuple);
+            }
+        } else {
+            innerTupleList = loadedTuples;
+        }
+        isInnerLoaded = true;
+    }
+    
+    /*
+     * Spills the inner tuples loaded so far, the rest of the inner tuples, and all the outer tuples to disk.
+     */
+    private void spillInputs(List<Tuple> loadedInnerTuples, List<Tuple> remainingInnerBatch) throws TexeraException {
+        try {
+            spilledJoin = new SpilledJoin(joinPredicate, innerOperator.getOutputSchema(),
+                    outerOperator.getOutputSchema(), outputSchema, innerMemoryBudget);
+            for (Tuple innerTuple : loadedInnerTuples) {
+                spilledJoin.addInnerTuple(innerTuple);
+            }
+            loadedInnerTuples.clear();
+            for (Tuple innerTuple : remainingInnerBatch) {
+                spilledJoin.addInnerTuple(innerTuple);
+            }
+            List<Tuple> tuples;
+            while (! (tuples = innerOperator.getNextBatch(DEFAULT_BATCH_SIZE)).isEmpty()) {
+                for (Tuple innerTuple : tuples) {
+                    spilledJoin.addInnerTuple(innerTuple);
+                }
+            }
+            while (! (tuples = outerOperator.getNextBatch(DEFAULT_BATCH_SIZE)).isEmpty()) {
+                for (Tuple outerTuple : tuples) {
+                    spilledJoin.addOuterTuple(outerTuple);
+                }
+            }
+            spilledJoin.finishSpilling();
+        } catch (IOException e) {
+            throw new DataflowException(e.getMessage(), e);
+        }
+    }
+
+    /*
+     * Gets the next result tuple using the candidate index of inner tuples, or the spilled inputs.
+     */
+    private Tuple getNextIndexJoinTuple() throws TexeraException {
+        if (spilledJoin == null && candidateIndex.isEmpty()) {
+            return null;
+        }
+        if (resultCursor >= limit + offset - 1 || limit == 0) {
+            return null;
+        }
+        
+        try {
+            Tuple resultTuple = null;
+            while (true) {
+                resultTuple = computeNextIndexJoinTuple();
+                if (resultTuple == null) {
+                    break;
+                }
+                resultCursor++;
+                if (resultCursor >= offset) {
+                    break;
+                }
+            }
+            return resultTuple;
+        } catch (Exception e) {
+            throw new DataflowException(e.getMessage(), e);
+        }
+    }
+    
+    /*
+     * Probes the index with the outer tuples, and joins the outer tuple with its candidate inner tuples,
+     *   until a pair of tuples is joined. 
+     * 
+     * It returns null if there's no more tuples.
+     */
+    private Tuple computeNextIndexJoinTuple() throws Exception {
+        if (spilledJoin != null) {
+            return spilledJoin.computeNextTuple();
+        }
+        while (true) {
+            while (currentCandidatesCursor < currentCandidates.size()) {
+                Tuple nextTuple = joinPredicate.joinTuples(
+                        currentCandidates.get(currentCandidatesCursor), currentOuterTuple, outputSchema);
+                currentCandidatesCursor++;
+                if (nextTuple != null) {
+                    return nextTuple;
+                }
+            }
+            // get next outer tuple and its candidates
+            currentOuterTuple = outerOperator.getNextTuple();
+            if (currentOuterTuple == null) {
+                return null;
+            }
+            currentCandidates = candidateIndex.getCandidates(currentOuterTuple);
+            currentCandidatesCursor = 0;
+        }
+    }
+
     @Override
     public void close() throws TexeraException {
     	if (cursor == CLOSED) {
             return;
         }
 
+        Exception closeException = null;
         try {
             innerOperator.close();
             outerOperator.close();
         } catch (Exception e) {
-            throw new DataflowException(e.getMessage(), e);
+            closeException = e;
+        }
+        // the spill files are deleted even if the input operators fail to close
+        try {
+            if (spilledJoin != null) {
+                spilledJoin.delete();
+            }
+        } catch (Exception e) {
+            if (closeException == null) {
+                closeException = e;
+            } else {
+                closeException.addSuppressed(e);
+            }
+        } finally {
+            spilledJoin = null;
         }
         
         // Set the inner tuple list back to null on close.
         innerTupleList = null;
         innerTupleListCursor = 0;
+        candidateIndex = null;
+        isInnerLoaded = false;
+        currentCandidates = Collections.emptyList();
+        currentCandidatesCursor = 0;
         cursor = CLOSED;
+        
+        if (closeException != null) {
+            throw new DataflowException(closeException.getMessage(), closeException);
+        }
     }
 
 
@@ -242,6 +411,26 @@ public class Join implements IOperator {
     public IJoinPredicate getPredicate() {
         return this.joinPredicate;
     }
+    
+    /**
+     * Gets the candidate index of inner tuples created by the predicate when Join is opened,
+     *   or null if Join is not open or the predicate doesn't create one.
+     * It can be used to get the statistics of the index, such as the pruning statistics of SimilarityJoinIndex.
+     */
+    public IJoinCandidateIndex getCandidateIndex() {
+        return this.candidateIndex;
+    }
+    
+    /**
+     * Returns true if the inner tuples exceeded the memory budget and the inputs are spilled to disk.
+     */
+    public boolean isInnerSpilled() {
+        return this.spilledJoin != null;
+    }
+    
+    SpilledJoin getSpilledJoin() {
+        return this.spilledJoin;
+    }
 
     public Schema transformToOutputSchema(Schema... inputSchema) {
         if (inputSchema.length != 2)
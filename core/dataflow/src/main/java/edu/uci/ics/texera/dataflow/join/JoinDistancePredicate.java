@@ -1,12 +1,13 @@
 package edu.uci.ics.texera.dataflow.join;
 
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.collect.ImmutableMap;
 
@@ -20,6 +21,7 @@ import edu.uci.ics.texera.api.schema.AttributeType;
 import edu.uci.ics.texera.api.schema.Schema;
 import edu.uci.ics.texera.api.span.Span;
 import edu.uci.ics.texera.api.tuple.*;
+import edu.uci.ics.texera.dataflow.annotation.AdvancedOption;
 import edu.uci.ics.texera.dataflow.common.OperatorGroupConstants;
 import edu.uci.ics.texera.dataflow.common.PredicateBase;
 import edu.uci.ics.texera.dataflow.common.PropertyNameConstants;
@@ -34,6 +36,7 @@ public class JoinDistancePredicate extends PredicateBase implements IJoinPredica
 
     private String joinAttributeName;
     private Integer threshold;
+    private Integer innerMemoryBudget;
 
     /**
      * <p>
@@ -101,10 +104,20 @@ public class JoinDistancePredicate extends PredicateBase implements IJoinPredica
     public JoinDistancePredicate(
             String joinAttributeName, 
             Integer threshold) {
-        this.joinAttributeName = joinAttributeName;
-        this.threshold = threshold;
+        this(joinAttributeName, joinAttributeName, threshold, null);
+    }
+    
+    public JoinDistancePredicate(String innerAttributeName, String outerAttributeName, Integer threshold) {
+        this(innerAttributeName, outerAttributeName, threshold, null);
     }
     
+    /**
+     * @param innerAttributeName, the attribute to join, it must be the same as outerAttributeName
+     * @param outerAttributeName, the attribute to join
+     * @param threshold, the maximum distance (in characters) between any two spans
+     * @param innerMemoryBudget, optional, the memory budget (in MB) of the inner tuples, 
+     *   the inputs are spilled to disk if it's exceeded, default 256
+     */
     @JsonCreator
     public JoinDistancePredicate(
             @JsonProperty(value = PropertyNameConstants.INNER_ATTRIBUTE_NAME, required = true)
@@ -112,12 +125,22 @@ public class JoinDistancePredicate extends PredicateBase implements IJoinPredica
             @JsonProperty(value = PropertyNameConstants.OUTER_ATTRIBUTE_NAME, required = true)
             String outerAttributeName,
             @JsonProperty(value = PropertyNameConstants.SPAN_DISTANCE, required = true)
-            Integer threshold) {
+            Integer threshold,
+            @AdvancedOption
+            @JsonProperty(value = PropertyNameConstants.JOIN_INNER_MEMORY_BUDGET, required = false,
+                    defaultValue = "256")
+            Integer innerMemoryBudget) {
         if (! innerAttributeName.equalsIgnoreCase(outerAttributeName)) {
             throw new TexeraException(PropertyNameConstants.NAME_NOT_MATCH_EXCEPTION);
         }
         this.joinAttributeName = innerAttributeName;
         this.threshold = threshold;
+        if (innerMemoryBudget == null) {
+            innerMemoryBudget = Join.DEFAULT_INNER_MEMORY_BUDGET;
+        } else if (innerMemoryBudget <= 0) {
+            throw new TexeraException(PropertyNameConstants.INVALID_JOIN_INNER_MEMORY_BUDGET_EXCEPTION);
+        }
+        this.innerMemoryBudget = innerMemoryBudget;
     }
     
     @JsonProperty(value = PropertyNameConstants.INNER_ATTRIBUTE_NAME)
@@ -137,6 +160,21 @@ public class JoinDistancePredicate extends PredicateBase implements IJoinPredica
         return this.threshold;
     }
     
+    @JsonProperty(value = PropertyNameConstants.JOIN_INNER_MEMORY_BUDGET)
+    @Override
+    public Integer getInnerMemoryBudget() {
+        return this.innerMemoryBudget;
+    }
+    
+    /**
+     * Two tuples can only be joined if they have the same _ID and the same value of the join attribute.
+     */
+    @JsonIgnore
+    @Override
+    public List<String> getEquiJoinAttributeNames() {
+        return Arrays.asList(SchemaConstants._ID, this.joinAttributeName);
+    }
+    
     @Override
     public Schema generateOutputSchema(Schema innerOperatorSchema, Schema outerOperatorSchema) throws DataflowException {
         return generateIntersectionSchema(innerOperatorSchema, outerOperatorSchema);
@@ -229,39 +267,54 @@ public class JoinDistancePredicate extends PredicateBase implements IJoinPredica
 	        outerSpanList = spanFieldOfOuterTuple.getValue();
 	    }
 	
-	    Iterator<Span> outerSpanIter = outerSpanList.iterator();
-	
-	    // TODO Currently we are using two loops to go over two span lists.
-	    // We can optimize it by sorting the spans based on the start position
-	    // and then doing a "sort merge" of the two lists.
-	    // (Also probably weed out the spans with fields that don't agree with
-	    // the ones specified in the JoinPredicate during "sort merge"?)
-	    while (outerSpanIter.hasNext()) {
-	        Span outerSpan = outerSpanIter.next();
-	        // Check if the field matches the filed over which we want to join.
-	        // If not return null.
-	        if (!outerSpan.getAttributeName().equals(this.joinAttributeName)) {
-	            continue;
-	        }
-	        Iterator<Span> innerSpanIter = innerSpanList.iterator();
-	        while (innerSpanIter.hasNext()) {
-	            Span innerSpan = innerSpanIter.next();
-	            if (!innerSpan.getAttributeName().equals(this.joinAttributeName)) {
-	                continue;
-	            }
-	            Integer threshold = this.getThreshold();
-	            if (Math.abs(outerSpan.getStart() - innerSpan.getStart()) <= threshold
-	                    && Math.abs(outerSpan.getEnd() - innerSpan.getEnd()) <= threshold) {
-	                Integer newSpanStartIndex = Math.min(innerSpan.getStart(), outerSpan.getStart());
-	                Integer newSpanEndIndex = Math.max(innerSpan.getEnd(), outerSpan.getEnd());
-	                String attributeName = this.joinAttributeName;
-	                String fieldValue = (String) innerTuple.getField(attributeName).getValue();
-	                String newFieldValue = fieldValue.substring(newSpanStartIndex, newSpanEndIndex);
-	                String spanKey = outerSpan.getKey() + "_" + innerSpan.getKey();
-	                Span newSpan = new Span(attributeName, newSpanStartIndex, newSpanEndIndex, spanKey, newFieldValue);
-	                newJoinSpanList.add(newSpan);
+	    // only keep the spans of the join attribute
+	    List<Span> outerJoinSpans = filterJoinAttributeSpans(outerSpanList);
+	    List<Span> innerJoinSpans = filterJoinAttributeSpans(innerSpanList);
+	    if (outerJoinSpans.isEmpty() || innerJoinSpans.isEmpty()) {
+	        return null;
+	    }
+	    
+	    /*
+	     * Sort the inner spans by their start positions, then for each outer span,
+	     * binary search the window of inner spans whose start is within the threshold,
+	     * and check the end positions only for the spans in the window.
+	     * 
+	     * The inner spans are sorted by packing (start, index) into a long,
+	     * so that the sorting doesn't allocate an object for each span.
+	     */
+	    int innerSize = innerJoinSpans.size();
+	    long[] sortedInnerSpans = new long[innerSize];
+	    for (int i = 0; i < innerSize; i++) {
+	        sortedInnerSpans[i] = ((long) innerJoinSpans.get(i).getStart() << 32) | i;
+	    }
+	    Arrays.sort(sortedInnerSpans);
+	    
+	    int threshold = this.getThreshold();
+	    String fieldValue = (String) innerTuple.getField(this.joinAttributeName).getValue();
+	    // the indexes of the inner spans joined with the current outer span
+	    int[] windowMatches = new int[innerSize];
+	    for (Span outerSpan : outerJoinSpans) {
+	        int outerStart = outerSpan.getStart();
+	        int outerEnd = outerSpan.getEnd();
+	        int numWindowMatches = 0;
+	        for (int k = lowerBound(sortedInnerSpans, (long) outerStart - threshold); 
+	                k < innerSize && (sortedInnerSpans[k] >> 32) <= (long) outerStart + threshold; k++) {
+	            int innerIndex = (int) sortedInnerSpans[k];
+	            if (Math.abs(outerEnd - innerJoinSpans.get(innerIndex).getEnd()) <= threshold) {
+	                windowMatches[numWindowMatches++] = innerIndex;
 	            }
 	        }
+	        // output the joined spans in the order of the inner span list
+	        Arrays.sort(windowMatches, 0, numWindowMatches);
+	        for (int m = 0; m < numWindowMatches; m++) {
+	            Span innerSpan = innerJoinSpans.get(windowMatches[m]);
+	            int newSpanStartIndex = Math.min(innerSpan.getStart(), outerStart);
+	            int newSpanEndIndex = Math.max(innerSpan.getEnd(), outerEnd);
+	            String newFieldValue = fieldValue.substring(newSpanStartIndex, newSpanEndIndex);
+	            String spanKey = outerSpan.getKey() + "_" + innerSpan.getKey();
+	            newJoinSpanList.add(new Span(this.joinAttributeName, newSpanStartIndex, newSpanEndIndex, 
+	                    spanKey, newFieldValue));
+	        }
 	    }
 	
 	    if (newJoinSpanList.isEmpty()) {
@@ -282,6 +335,37 @@ public class JoinDistancePredicate extends PredicateBase implements IJoinPredica
 	    return new Tuple(outputSchema, outputFields.stream().toArray(IField[]::new));
 	}
 
+	/*
+	 * Gets the spans of the join attribute in a span list, keeping their order.
+	 */
+	private List<Span> filterJoinAttributeSpans(List<Span> spanList) {
+	    List<Span> joinAttributeSpans = new ArrayList<>(spanList.size());
+	    for (Span span : spanList) {
+	        if (span.getAttributeName().equals(this.joinAttributeName)) {
+	            joinAttributeSpans.add(span);
+	        }
+	    }
+	    return joinAttributeSpans;
+	}
+	
+	/*
+	 * Finds the first position in the sorted array of packed (start, index) values
+	 *   whose start is greater than or equal to minStart.
+	 */
+	private static int lowerBound(long[] sortedSpans, long minStart) {
+	    int low = 0;
+	    int high = sortedSpans.length;
+	    while (low < high) {
+	        int mid = (low + high) >>> 1;
+	        if ((sortedSpans[mid] >> 32) < minStart) {
+	            low = mid + 1;
+	        } else {
+	            high = mid;
+	        }
+	    }
+	    return low;
+	}
+	
 	/**
 	 * Used to compare the value's of a field from the inner and outer tuples'.
 	 * 
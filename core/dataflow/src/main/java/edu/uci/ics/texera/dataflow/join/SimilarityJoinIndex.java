@@ -0,0 +1,353 @@
+package edu.uci.ics.texera.dataflow.join;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import edu.uci.ics.texera.api.constants.SchemaConstants;
+import edu.uci.ics.texera.api.field.ListField;
+import edu.uci.ics.texera.api.span.Span;
+import edu.uci.ics.texera.api.tuple.Tuple;
+
+/**
+ * SimilarityJoinIndex is the candidate index used by SimilarityJoinPredicate
+ *   with the default similarity function (normalized Levenshtein).
+ *
+ * The join values of a tuple are the values of its spans on the join attribute.
+ * Each distinct inner value is split into positional q-grams (a gram and its occurrence number in the value),
+ *   and the grams are ordered globally by the number of inner values containing them, rarest first.
+ *
+ * Two filters are applied before the expensive similarity computation:
+ *   Length filter: the normalized Levenshtein similarity of two strings is at most
+ *     shorter length / longer length, so the pair is pruned if that ratio is below the threshold.
+ *   Prefix filter: if a string of length l is similar to another string above threshold t,
+ *     their edit distance is at most tau = floor((1 - t) * l / t),
+ *     and each edit destroys at most q grams. Therefore the first q * tau + 1 grams (the prefix)
+ *     of the two strings in the global order must share a gram.
+ *     Only the prefixes of the inner values are put in the inverted index,
+ *     and an outer value only probes the index with its own prefix.
+ *
+ * Values that are too short to have a prefix smaller than their grams can't be filtered by prefix,
+ *   and are always candidates (subject to the length filter).
+ *
+ * The index also keeps the pruning statistics of the join.
+ *
+ */
+public class SimilarityJoinIndex implements IJoinCandidateIndex {
+
+    public static final int DEFAULT_GRAM_LENGTH = 2;
+
+    // tolerance of the floating point computations of the bounds, the filters must never prune a similar pair
+    private static final double EPSILON = 1e-9;
+
+    private final String innerJoinAttrName;
+    private final String outerJoinAttrName;
+    private final double similarityThreshold;
+    private final int gramLength;
+
+    private final List<Tuple> innerTuples = new ArrayList<>();
+
+    // the distinct inner values, and for each of them, the positions of the inner tuples containing it
+    private final Map<String, Integer> innerValueIDs = new HashMap<>();
+    private final List<String> innerValues = new ArrayList<>();
+    private final List<List<Integer>> innerValueTuples = new ArrayList<>();
+
+    // the inverted index is built on the first probe, after all the inner tuples are added
+    private boolean isBuilt = false;
+    private Map<String, Integer> gramRanks;
+    private Map<Integer, List<Integer>> prefixPostings;
+    private List<Integer> unfilterableValueIDs;
+
+    // stamps used to deduplicate the candidate values of an outer value, and the candidate tuples of a probe
+    private int[] valueStamps;
+    private long[] tupleStamps;
+    private int currentStamp = 0;
+
+    // pruning statistics
+    private long numProbes = 0;
+    private long numCandidatePairs = 0;
+    private long numPrunedPairs = 0;
+    private long numCandidateValuePairs = 0;
+    private long numLengthPrunedValuePairs = 0;
+
+    public SimilarityJoinIndex(String innerJoinAttrName, String outerJoinAttrName, double similarityThreshold) {
+        this(innerJoinAttrName, outerJoinAttrName, similarityThreshold, DEFAULT_GRAM_LENGTH);
+    }
+
+    public SimilarityJoinIndex(String innerJoinAttrName, String outerJoinAttrName, double similarityThreshold,
+            int gramLength) {
+        this.innerJoinAttrName = innerJoinAttrName;
+        this.outerJoinAttrName = outerJoinAttrName;
+        this.similarityThreshold = similarityThreshold;
+        this.gramLength = gramLength;
+    }
+
+    @Override
+    public void addInnerTuple(Tuple innerTuple) {
+        int tuplePosition = innerTuples.size();
+        innerTuples.add(innerTuple);
+        for (String value : getJoinValues(innerTuple, innerJoinAttrName)) {
+            Integer valueID = innerValueIDs.get(value);
+            if (valueID == null) {
+                valueID = innerValues.size();
+                innerValueIDs.put(value, valueID);
+                innerValues.add(value);
+                innerValueTuples.add(new ArrayList<>());
+            }
+            innerValueTuples.get(valueID).add(tuplePosition);
+        }
+    }
+
+    @Override
+    public List<Tuple> getCandidates(Tuple outerTuple) {
+        if (! isBuilt) {
+            buildInvertedIndex();
+        }
+        numProbes++;
+
+        List<Integer> candidateTuplePositions = new ArrayList<>();
+        for (String outerValue : getJoinValues(outerTuple, outerJoinAttrName)) {
+            currentStamp++;
+            if (isUnfilterable(outerValue.length())) {
+                for (int valueID = 0; valueID < innerValues.size(); valueID++) {
+                    checkCandidateValue(outerValue, valueID, candidateTuplePositions);
+                }
+                continue;
+            }
+            for (int rank : getPrefixRanks(outerValue)) {
+                List<Integer> postings = prefixPostings.get(rank);
+                if (postings != null) {
+                    for (int valueID : postings) {
+                        checkCandidateValue(outerValue, valueID, candidateTuplePositions);
+                    }
+                }
+            }
+            for (int valueID : unfilterableValueIDs) {
+                checkCandidateValue(outerValue, valueID, candidateTuplePositions);
+            }
+        }
+        Collections.sort(candidateTuplePositions);
+        List<Tuple> candidates = new ArrayList<>(candidateTuplePositions.size());
+        for (int tuplePosition : candidateTuplePositions) {
+            candidates.add(innerTuples.get(tuplePosition));
+        }
+        numCandidatePairs += candidates.size();
+        numPrunedPairs += innerTuples.size() - candidates.size();
+        return candidates;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return innerValues.isEmpty();
+    }
+
+    /*
+     * Adds the tuples of an inner value to the candidates if the value passes the length filter.
+     * The tuples already added in this probe are skipped.
+     */
+    private void checkCandidateValue(String outerValue, int valueID, List<Integer> candidateTuplePositions) {
+        if (valueStamps[valueID] == currentStamp) {
+            return;
+        }
+        valueStamps[valueID] = currentStamp;
+        if (! passesLengthFilter(innerValues.get(valueID).length(), outerValue.length(), similarityThreshold)) {
+            numLengthPrunedValuePairs++;
+            return;
+        }
+        numCandidateValuePairs++;
+        for (int tuplePosition : innerValueTuples.get(valueID)) {
+            if (tupleStamps[tuplePosition] != numProbes) {
+                tupleStamps[tuplePosition] = numProbes;
+                candidateTuplePositions.add(tuplePosition);
+            }
+        }
+    }
+
+    private void buildInvertedIndex() {
+        // count the number of inner values containing each gram
+        Map<String, Integer> gramFrequencies = new HashMap<>();
+        for (String value : innerValues) {
+            for (String gram : getPositionalGrams(value)) {
+                gramFrequencies.merge(gram, 1, Integer::sum);
+            }
+        }
+
+        // the global order: rarest grams first, ties are broken by the grams themselves
+        List<String> orderedGrams = new ArrayList<>(gramFrequencies.keySet());
+        orderedGrams.sort((gram1, gram2) -> {
+            int frequencyComparison = Integer.compare(gramFrequencies.get(gram1), gramFrequencies.get(gram2));
+            return frequencyComparison != 0 ? frequencyComparison : gram1.compareTo(gram2);
+        });
+        gramRanks = new HashMap<>();
+        for (int rank = 0; rank < orderedGrams.size(); rank++) {
+            gramRanks.put(orderedGrams.get(rank), rank);
+        }
+
+        prefixPostings = new HashMap<>();
+        unfilterableValueIDs = new ArrayList<>();
+        for (int valueID = 0; valueID < innerValues.size(); valueID++) {
+            String value = innerValues.get(valueID);
+            if (isUnfilterable(value.length())) {
+                unfilterableValueIDs.add(valueID);
+                continue;
+            }
+            for (int rank : getPrefixRanks(value)) {
+                prefixPostings.computeIfAbsent(rank, key -> new ArrayList<>()).add(valueID);
+            }
+        }
+
+        valueStamps = new int[innerValues.size()];
+        tupleStamps = new long[innerTuples.size()];
+        isBuilt = true;
+    }
+
+    /*
+     * Gets the ranks of the grams in the prefix of a value.
+     * Grams that don't appear in any inner value are ordered after all the others,
+     *   they can't match any inner prefix anyway.
+     */
+    private int[] getPrefixRanks(String value) {
+        List<String> grams = getPositionalGrams(value);
+        int[] ranks = new int[grams.size()];
+        int numRanks = 0;
+        for (String gram : grams) {
+            Integer rank = gramRanks.get(gram);
+            if (rank != null) {
+                ranks[numRanks++] = rank;
+            }
+        }
+        Arrays.sort(ranks, 0, numRanks);
+        return Arrays.copyOf(ranks, Math.min(numRanks, getPrefixLength(value.length())));
+    }
+
+    /*
+     * Gets the q-grams of a value, each gram is tagged by its occurrence number in the value,
+     *   so that the grams of a value are distinct.
+     */
+    private List<String> getPositionalGrams(String value) {
+        List<String> grams = new ArrayList<>();
+        Map<String, Integer> occurrences = new HashMap<>();
+        for (int i = 0; i + gramLength <= value.length(); i++) {
+            String gram = value.substring(i, i + gramLength);
+            int occurrence = occurrences.merge(gram, 1, Integer::sum);
+            // the gram has a fixed length, so appending the number is unambiguous
+            grams.add(gram + occurrence);
+        }
+        return grams;
+    }
+
+    private int getPrefixLength(int valueLength) {
+        int maxEditDistance = (int) Math.floor((1 - similarityThreshold) * valueLength / similarityThreshold + EPSILON);
+        return gramLength * maxEditDistance + 1;
+    }
+
+    private boolean isUnfilterable(int valueLength) {
+        return getPrefixLength(valueLength) > valueLength - gramLength + 1;
+    }
+
+    /**
+     * Checks if two strings of the lengths can have a normalized Levenshtein similarity above the threshold,
+     *   which is at most shorter length / longer length.
+     *
+     * @param length1
+     * @param length2
+     * @param similarityThreshold
+     * @return
+     */
+    public static boolean passesLengthFilter(int length1, int length2, double similarityThreshold) {
+        int maxLength = Math.max(length1, length2);
+        if (maxLength == 0) {
+            return true;
+        }
+        return Math.min(length1, length2) >= similarityThreshold * maxLength - EPSILON;
+    }
+
+    /*
+     * Gets the distinct values of the spans of a tuple on the join attribute.
+     */
+    private static Set<String> getJoinValues(Tuple tuple, String joinAttrName) {
+        Set<String> joinValues = new LinkedHashSet<>();
+        if (! tuple.getSchema().containsAttribute(SchemaConstants.SPAN_LIST)) {
+            return joinValues;
+        }
+        ListField<Span> spanListField = tuple.getField(SchemaConstants.SPAN_LIST);
+        for (Span span : spanListField.getValue()) {
+            if (span.getAttributeName().equals(joinAttrName) && span.getValue() != null) {
+                joinValues.add(span.getValue());
+            }
+        }
+        return joinValues;
+    }
+
+    /**
+     * Gets the number of inner tuples added to the index.
+     */
+    public int getNumInnerTuples() {
+        return innerTuples.size();
+    }
+
+    /**
+     * Gets the number of distinct inner join values.
+     */
+    public int getNumInnerValues() {
+        return innerValues.size();
+    }
+
+    /**
+     * Gets the number of distinct inner join values that can't be filtered by prefix.
+     */
+    public int getNumUnfilterableValues() {
+        return unfilterableValueIDs == null ? 0 : unfilterableValueIDs.size();
+    }
+
+    /**
+     * Gets the number of outer tuples probing the index.
+     */
+    public long getNumProbes() {
+        return numProbes;
+    }
+
+    /**
+     * Gets the number of (inner tuple, outer tuple) pairs returned as candidates.
+     */
+    public long getNumCandidatePairs() {
+        return numCandidatePairs;
+    }
+
+    /**
+     * Gets the number of (inner tuple, outer tuple) pairs pruned by the filters.
+     */
+    public long getNumPrunedPairs() {
+        return numPrunedPairs;
+    }
+
+    /**
+     * Gets the number of (inner value, outer value) pairs that passed both the prefix filter and the length filter.
+     */
+    public long getNumCandidateValuePairs() {
+        return numCandidateValuePairs;
+    }
+
+    /**
+     * Gets the number of (inner value, outer value) pairs that passed the prefix filter
+     *   but were pruned by the length filter.
+     */
+    public long getNumLengthPrunedValuePairs() {
+        return numLengthPrunedValuePairs;
+    }
+
+    @Override
+    public String toString() {
+        return "SimilarityJoinIndex [innerTuples=" + getNumInnerTuples() + ", innerValues=" + getNumInnerValues()
+                + ", unfilterableValues=" + getNumUnfilterableValues() + ", probes=" + numProbes
+                + ", candidatePairs=" + numCandidatePairs + ", prunedPairs=" + numPrunedPairs
+                + ", candidateValuePairs=" + numCandidateValuePairs
+                + ", lengthPrunedValuePairs=" + numLengthPrunedValuePairs + "]";
+    }
+
+}
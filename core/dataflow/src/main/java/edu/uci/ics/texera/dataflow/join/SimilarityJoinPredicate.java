@@ -10,6 +10,7 @@ import com.google.common.collect.ImmutableMap;
 
 import edu.uci.ics.texera.api.constants.SchemaConstants;
 import edu.uci.ics.texera.api.exception.DataflowException;
+import edu.uci.ics.texera.api.exception.TexeraException;
 import edu.uci.ics.texera.api.field.IDField;
 import edu.uci.ics.texera.api.field.IField;
 import edu.uci.ics.texera.api.field.ListField;
@@ -18,6 +19,7 @@ import edu.uci.ics.texera.api.schema.AttributeType;
 import edu.uci.ics.texera.api.schema.Schema;
 import edu.uci.ics.texera.api.span.Span;
 import edu.uci.ics.texera.api.tuple.*;
+import edu.uci.ics.texera.dataflow.annotation.AdvancedOption;
 import edu.uci.ics.texera.dataflow.common.OperatorGroupConstants;
 import edu.uci.ics.texera.dataflow.common.PredicateBase;
 import edu.uci.ics.texera.dataflow.common.PropertyNameConstants;
@@ -36,6 +38,9 @@ import info.debatty.java.stringsimilarity.NormalizedLevenshtein;
  * Currently the similarity is measured by normalized Levenshtein distance,
  *   which is the Levenshtein distance divided by the length of the longest string
  *
+ * With the default similarity function, Join uses a SimilarityJoinIndex of the inner tuples
+ *   (q-gram prefix filtering and length filtering) to avoid computing the similarity of every pair of tuples.
+ *
  * Example of a same-table, different-tuple join, similarity threshold > 0.8
  *
  * table_schema,   inner_tuple,             outer_tuple
@@ -66,7 +71,11 @@ public class SimilarityJoinPredicate extends PredicateBase implements IJoinPredi
     String innerJoinAttrName;
     String outerJoinAttrName;
     
+    Integer innerMemoryBudget;
+    
     private SimilarityFunc similarityFunc;
+    // the filters of SimilarityJoinIndex are only valid for the default similarity function
+    private boolean isDefaultSimilarityFunc;
     
     @FunctionalInterface
     public static interface SimilarityFunc {
@@ -78,6 +87,17 @@ public class SimilarityJoinPredicate extends PredicateBase implements IJoinPredi
         this(joinAttributeName, joinAttributeName, similarityThreshold);
     }
     
+    public SimilarityJoinPredicate(String innerJoinAttrName, String outerJoinAttrName, Double similarityThreshold) {
+        this(innerJoinAttrName, outerJoinAttrName, similarityThreshold, null);
+    }
+    
+    /**
+     * @param innerJoinAttrName, the attribute of the inner spans to join
+     * @param outerJoinAttrName, the attribute of the outer spans to join
+     * @param similarityThreshold, the minimum similarity of two spans to join
+     * @param innerMemoryBudget, optional, the memory budget (in MB) of the inner tuples, 
+     *   the inputs are spilled to disk if it's exceeded, default 256
+     */
     @JsonCreator
     public SimilarityJoinPredicate(
             @JsonProperty(value = PropertyNameConstants.INNER_ATTRIBUTE_NAME, required = true)
@@ -85,7 +105,11 @@ public class SimilarityJoinPredicate extends PredicateBase implements IJoinPredi
             @JsonProperty(value = PropertyNameConstants.OUTER_ATTRIBUTE_NAME, required = true)
             String outerJoinAttrName, 
             @JsonProperty(value = PropertyNameConstants.JOIN_SIMILARITY_THRESHOLD, required = true)
-            Double similarityThreshold) {
+            Double similarityThreshold,
+            @AdvancedOption
+            @JsonProperty(value = PropertyNameConstants.JOIN_INNER_MEMORY_BUDGET, required = false,
+                    defaultValue = "256")
+            Integer innerMemoryBudget) {
         if (similarityThreshold > 1) {
             similarityThreshold = 1.0;
         } else if (similarityThreshold < 0) {
@@ -95,9 +119,17 @@ public class SimilarityJoinPredicate extends PredicateBase implements IJoinPredi
         this.innerJoinAttrName = innerJoinAttrName;
         this.outerJoinAttrName = outerJoinAttrName;
         
+        if (innerMemoryBudget == null) {
+            innerMemoryBudget = Join.DEFAULT_INNER_MEMORY_BUDGET;
+        } else if (innerMemoryBudget <= 0) {
+            throw new TexeraException(PropertyNameConstants.INVALID_JOIN_INNER_MEMORY_BUDGET_EXCEPTION);
+        }
+        this.innerMemoryBudget = innerMemoryBudget;
+        
         // initialize default similarity function to NormalizedLevenshtein
         // which is Levenshtein distance / length of longest string
         this.similarityFunc = ((str1, str2) -> (1.0 - new NormalizedLevenshtein().distance(str1, str2)));
+        this.isDefaultSimilarityFunc = true;
     }
     
     @JsonProperty(value = PropertyNameConstants.INNER_ATTRIBUTE_NAME)
@@ -116,6 +148,12 @@ public class SimilarityJoinPredicate extends PredicateBase implements IJoinPredi
     public Double getThreshold() {
         return this.similarityThreshold;
     }
+    
+    @JsonProperty(value = PropertyNameConstants.JOIN_INNER_MEMORY_BUDGET)
+    @Override
+    public Integer getInnerMemoryBudget() {
+        return this.innerMemoryBudget;
+    }
 
     
     @Override
@@ -183,6 +221,10 @@ public class SimilarityJoinPredicate extends PredicateBase implements IJoinPredi
         Set<String> resultValueSet = new HashSet<>();
         for (String innerString : innerSpanValueSet) {
             for (String outerString : outerSpanValueSet) {
+                if (isDefaultSimilarityFunc && ! SimilarityJoinIndex.passesLengthFilter(
+                        innerString.length(), outerString.length(), similarityThreshold)) {
+                    continue;
+                }
                 if (this.similarityFunc.calculateSimilarity(innerString, outerString) >= this.similarityThreshold ) {
                     resultValueSet.add(innerString);
                     resultValueSet.add(outerString);
@@ -254,6 +296,20 @@ public class SimilarityJoinPredicate extends PredicateBase implements IJoinPredi
     @JsonIgnore
     public void setSimilarityFunction(SimilarityFunc similarityFunc) {
         this.similarityFunc = similarityFunc;
+        this.isDefaultSimilarityFunc = false;
+    }
+    
+    /**
+     * Creates a SimilarityJoinIndex if the default similarity function is used,
+     *   a custom similarity function is computed on every pair of tuples.
+     */
+    @JsonIgnore
+    @Override
+    public IJoinCandidateIndex createCandidateIndex() {
+        if (! isDefaultSimilarityFunc || similarityThreshold == 0) {
+            return null;
+        }
+        return new SimilarityJoinIndex(innerJoinAttrName, outerJoinAttrName, similarityThreshold);
     }
     
     @Override
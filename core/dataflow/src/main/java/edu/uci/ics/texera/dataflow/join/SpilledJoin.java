@@ -0,0 +1,315 @@
+package edu.uci.ics.texera.dataflow.join;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import edu.uci.ics.texera.api.field.IField;
+import edu.uci.ics.texera.api.field.ListField;
+import edu.uci.ics.texera.api.schema.Schema;
+import edu.uci.ics.texera.api.span.CompactPayload;
+import edu.uci.ics.texera.api.span.LazyPayload;
+import edu.uci.ics.texera.api.span.Span;
+import edu.uci.ics.texera.api.tuple.Tuple;
+import edu.uci.ics.texera.dataflow.utils.TupleSpillFile;
+import edu.uci.ics.texera.storage.utils.StorageUtils;
+
+/**
+ * SpilledJoin joins the inner and outer tuples of a Join after they are spilled to disk,
+ *   it's used by Join when the inner tuples don't fit in the memory budget of the predicate.
+ *
+ * If the predicate has equi-join attributes, both sides are hash partitioned on them into
+ *   NUM_HASH_PARTITIONS pairs of spill files (grace hash join), otherwise there's only one partition.
+ * Each partition is joined by block nested loop: the inner tuples of the partition are loaded
+ *   in blocks that fit in the memory budget, the candidate index of the predicate is built on the block,
+ *   and the outer tuples of the partition are read from disk and probe the block.
+ *
+ * The result tuples are the same as the in-memory join, but they are returned partition by partition
+ *   and block by block, so they're not in the order of the outer tuples.
+ *
+ */
+class SpilledJoin {
+
+    static final int NUM_HASH_PARTITIONS = 16;
+    // the estimated size of a lazy payload that isn't computed: the payload object and its supplier
+    private static final long UNCOMPUTED_PAYLOAD_SIZE = 64;
+
+    private final IJoinPredicate joinPredicate;
+    private final Schema outputSchema;
+    private final long memoryBudget;
+    private final List<String> equiJoinAttributeNames;
+
+    private final Path spillDirectory;
+    private final List<TupleSpillFile> innerPartitions = new ArrayList<>();
+    private final List<TupleSpillFile> outerPartitions = new ArrayList<>();
+
+    // the state of the block nested loop
+    private int currentPartition = -1;
+    private TupleSpillFile.Reader innerReader;
+    private boolean isInnerPartitionExhausted = true;
+    private Tuple nextInnerTuple;
+    private List<Tuple> currentBlock = Collections.emptyList();
+    private IJoinCandidateIndex currentBlockIndex;
+    private TupleSpillFile.Reader outerReader;
+    private Tuple currentOuterTuple;
+    private List<Tuple> currentCandidates = Collections.emptyList();
+    private int currentCandidatesCursor = 0;
+
+    private int numBlocks = 0;
+
+    SpilledJoin(IJoinPredicate joinPredicate, Schema innerSchema, Schema outerSchema, Schema outputSchema,
+            long memoryBudget) throws IOException {
+        this.joinPredicate = joinPredicate;
+        this.outputSchema = outputSchema;
+        this.memoryBudget = memoryBudget;
+        this.equiJoinAttributeNames = joinPredicate.getEquiJoinAttributeNames();
+
+        this.spillDirectory = Files.createTempDirectory("texera-join-spill");
+        int numPartitions = equiJoinAttributeNames.isEmpty() ? 1 : NUM_HASH_PARTITIONS;
+        try {
+            for (int i = 0; i < numPartitions; i++) {
+                innerPartitions.add(new TupleSpillFile(spillDirectory, innerSchema));
+                outerPartitions.add(new TupleSpillFile(spillDirectory, outerSchema));
+            }
+        } catch (IOException e) {
+            delete();
+            throw e;
+        }
+    }
+
+    void addInnerTuple(Tuple innerTuple) throws IOException {
+        int partition = getPartition(innerTuple);
+        if (partition >= 0) {
+            innerPartitions.get(partition).write(innerTuple);
+        }
+    }
+
+    void addOuterTuple(Tuple outerTuple) throws IOException {
+        int partition = getPartition(outerTuple);
+        if (partition >= 0) {
+            outerPartitions.get(partition).write(outerTuple);
+        }
+    }
+
+    /**
+     * Finishes spilling the inputs, it must be called before getting the results.
+     */
+    void finishSpilling() throws IOException {
+        for (int i = 0; i < innerPartitions.size(); i++) {
+            innerPartitions.get(i).finishWriting();
+            outerPartitions.get(i).finishWriting();
+        }
+    }
+
+    /*
+     * Gets the partition of a tuple, or -1 if it has no equi-join key and can't be joined.
+     */
+    private int getPartition(Tuple tuple) {
+        if (equiJoinAttributeNames.isEmpty()) {
+            return 0;
+        }
+        List<Object> equiJoinKey = EquiJoinCandidateIndex.getEquiJoinKey(tuple, equiJoinAttributeNames);
+        if (equiJoinKey == null) {
+            return -1;
+        }
+        // mix the bits of the hash code, so that the partitions don't depend on its low bits only
+        int hashCode = equiJoinKey.hashCode();
+        return Math.floorMod((hashCode ^ (hashCode >>> 16)) * 0x45d9f3b, NUM_HASH_PARTITIONS);
+    }
+
+    /**
+     * Computes the next result tuple, or returns null if all the partitions are joined.
+     */
+    Tuple computeNextTuple() throws Exception {
+        while (true) {
+            while (currentCandidatesCursor < currentCandidates.size()) {
+                Tuple nextTuple = joinPredicate.joinTuples(
+                        currentCandidates.get(currentCandidatesCursor), currentOuterTuple, outputSchema);
+                currentCandidatesCursor++;
+                if (nextTuple != null) {
+                    return nextTuple;
+                }
+            }
+            // get the next outer tuple of the partition and its candidates in the current block
+            currentOuterTuple = outerReader == null ? null : outerReader.next();
+            if (currentOuterTuple != null) {
+                currentCandidates = currentBlockIndex == null ?
+                        currentBlock : currentBlockIndex.getCandidates(currentOuterTuple);
+                currentCandidatesCursor = 0;
+                continue;
+            }
+            // all outer tuples have probed the current block, load the next block
+            if (! loadNextBlock()) {
+                return null;
+            }
+        }
+    }
+
+    /*
+     * Loads the next block of inner tuples, moving to the next partition if the current one is exhausted,
+     *   and starts reading the outer tuples of the partition again.
+     * Returns false if all the partitions are joined.
+     */
+    private boolean loadNextBlock() throws IOException {
+        closeReaders();
+        currentBlock = Collections.emptyList();
+        currentBlockIndex = null;
+        currentCandidates = Collections.emptyList();
+        currentCandidatesCursor = 0;
+
+        while (isInnerPartitionExhausted) {
+            currentPartition++;
+            if (currentPartition >= innerPartitions.size()) {
+                return false;
+            }
+            // skip the partition if one of the sides is empty
+            if (innerPartitions.get(currentPartition).getNumTuples() == 0
+                    || outerPartitions.get(currentPartition).getNumTuples() == 0) {
+                continue;
+            }
+            innerReader = innerPartitions.get(currentPartition).openReader();
+            nextInnerTuple = innerReader.next();
+            isInnerPartitionExhausted = false;
+        }
+
+        // read the inner tuples while the block fits in the memory budget, a block has at least one tuple
+        List<Tuple> block = new ArrayList<>();
+        long blockSize = 0;
+        while (nextInnerTuple != null) {
+            long tupleSize = estimateTupleSize(nextInnerTuple);
+            if (! block.isEmpty() && blockSize + tupleSize > memoryBudget) {
+                break;
+            }
+            block.add(nextInnerTuple);
+            blockSize += tupleSize;
+            nextInnerTuple = innerReader.next();
+        }
+        if (nextInnerTuple == null) {
+            isInnerPartitionExhausted = true;
+            innerReader.close();
+            innerReader = null;
+        }
+
+        currentBlock = block;
+        currentBlockIndex = joinPredicate.createCandidateIndex();
+        if (currentBlockIndex != null) {
+            for (Tuple innerTuple : block) {
+                currentBlockIndex.addInnerTuple(innerTuple);
+            }
+        }
+        numBlocks++;
+        outerReader = outerPartitions.get(currentPartition).openReader();
+        return true;
+    }
+
+    private void closeReaders() throws IOException {
+        if (outerReader != null) {
+            outerReader.close();
+            outerReader = null;
+        }
+        if (isInnerPartitionExhausted && innerReader != null) {
+            innerReader.close();
+            innerReader = null;
+        }
+    }
+
+    /**
+     * Closes the readers and deletes all the spill files.
+     */
+    void delete() throws IOException {
+        try {
+            isInnerPartitionExhausted = true;
+            closeReaders();
+        } finally {
+            StorageUtils.deleteDirectory(spillDirectory.toString());
+        }
+    }
+
+    int getNumPartitions() {
+        return innerPartitions.size();
+    }
+
+    int getNumSpilledInnerTuples() {
+        return innerPartitions.stream().mapToInt(TupleSpillFile::getNumTuples).sum();
+    }
+
+    int getNumSpilledOuterTuples() {
+        return outerPartitions.stream().mapToInt(TupleSpillFile::getNumTuples).sum();
+    }
+
+    /**
+     * Gets the number of inner blocks loaded so far.
+     */
+    int getNumBlocks() {
+        return numBlocks;
+    }
+
+    /**
+     * Estimates the heap size of a tuple in bytes, it's used to check the memory budget of Join.
+     */
+    static long estimateTupleSize(Tuple tuple) {
+        // object headers and references of the tuple, its field list and the schema reference
+        long size = 64;
+        for (IField field : tuple.getFields()) {
+            size += 16;
+            Object value = field.getValue();
+            if (field instanceof ListField) {
+                size += 24 + estimateListSize(((ListField<?>) field).getValue());
+            } else if (value instanceof String) {
+                size += estimateStringSize((String) value);
+            } else {
+                size += 24;
+            }
+        }
+        return size;
+    }
+
+    /*
+     * A payload is estimated from its arrays, iterating it would compute a lazy payload and create its spans.
+     */
+    private static long estimateListSize(List<?> list) {
+        if (list instanceof LazyPayload) {
+            LazyPayload lazyPayload = (LazyPayload) list;
+            if (! lazyPayload.isComputed()) {
+                // only the supplier of the payload is in the memory
+                return UNCOMPUTED_PAYLOAD_SIZE;
+            }
+            return 16 + estimatePayloadSize(lazyPayload.getPayload());
+        } else if (list instanceof CompactPayload) {
+            return estimatePayloadSize((CompactPayload) list);
+        }
+        long size = 0;
+        for (Object element : list) {
+            size += estimateElementSize(element);
+        }
+        return size;
+    }
+
+    private static long estimatePayloadSize(CompactPayload payload) {
+        // the 5 int arrays of the tokens and the term array, the attribute values are the strings of the tuple
+        long size = 64 + 6 * 16 + 20L * payload.size();
+        for (int termId = 0; termId < payload.getNumTerms(); termId++) {
+            size += 8 + estimateStringSize(payload.getTerm(termId));
+        }
+        return size;
+    }
+
+    private static long estimateElementSize(Object element) {
+        if (element instanceof Span) {
+            Span span = (Span) element;
+            // span attribute names and keys are usually shared by many spans, only the reference is counted
+            return 48 + estimateStringSize(span.getValue());
+        } else if (element instanceof String) {
+            return 8 + estimateStringSize((String) element);
+        }
+        return 32;
+    }
+
+    private static long estimateStringSize(String str) {
+        return str == null ? 0 : 40 + 2L * str.length();
+    }
+
+}
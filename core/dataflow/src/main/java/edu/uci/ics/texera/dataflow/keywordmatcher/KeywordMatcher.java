@@ -1,7 +1,6 @@
 package edu.uci.ics.texera.dataflow.keywordmatcher;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 import edu.uci.ics.texera.api.constants.ErrorMessages;
 import edu.uci.ics.texera.api.constants.SchemaConstants;
@@ -14,6 +13,7 @@ import edu.uci.ics.texera.api.span.Span;
 import edu.uci.ics.texera.api.tuple.Tuple;
 import edu.uci.ics.texera.dataflow.common.AbstractSingleInputOperator;
 import edu.uci.ics.texera.dataflow.utils.DataflowUtils;
+import edu.uci.ics.texera.dataflow.utils.PayloadTokenIndex;
 
 public class KeywordMatcher extends AbstractSingleInputOperator {
 
@@ -23,6 +23,8 @@ public class KeywordMatcher extends AbstractSingleInputOperator {
     private Set<String> queryTokenSet;
     private ArrayList<String> queryTokenList;
     private ArrayList<String> queryTokenWithStopwordsList;
+    // the spans of the query tokens in the payload of the current tuple, for the index based matching types
+    private PayloadTokenIndex payloadTokenIndex;
     
     private boolean addPayload = false;
     private boolean addResultAttribute = false;
@@ -58,12 +60,14 @@ public class KeywordMatcher extends AbstractSingleInputOperator {
 
     private void preProcessKeywordTokens() {
         queryTokenSet = new HashSet<>(DataflowUtils.tokenizeQuery(predicate.getLuceneAnalyzerString(), predicate.getQuery()));
+        payloadTokenIndex = new PayloadTokenIndex(predicate.getAttributeNames(), queryTokenSet);
     }
 
     private void preProcessKeywordTokensWithStopwords() {
         queryTokenList = DataflowUtils.tokenizeQuery(predicate.getLuceneAnalyzerString(), predicate.getQuery());
         queryTokenWithStopwordsList = DataflowUtils.tokenizeQueryWithStopwords(
                 predicate.getLuceneAnalyzerString(), predicate.getQuery());
+        payloadTokenIndex = new PayloadTokenIndex(predicate.getAttributeNames(), queryTokenList);
     }
 
     @Override
@@ -81,6 +85,11 @@ public class KeywordMatcher extends AbstractSingleInputOperator {
         return resultTuple;
     }
 
+    @Override
+    protected List<Tuple> computeNextMatchingBatch(int maxTuples) throws TexeraException {
+        return processNextInputBatch(maxTuples);
+    }
+
     @Override
     public Tuple processOneInputTuple(Tuple inputTuple) throws TexeraException {
         // add payload if needed before passing it to the matching functions
@@ -91,10 +100,16 @@ public class KeywordMatcher extends AbstractSingleInputOperator {
             inputTuple = tupleBuilderPayload.build();
         }
         
+        // index the spans of the query tokens in one pass over the payload
+        if (payloadTokenIndex != null) {
+            ListField<Span> payloadField = inputTuple.getField(SchemaConstants.PAYLOAD);
+            payloadTokenIndex.index(payloadField.getValue());
+        }
+        
         // compute the keyword matching results
         List<Span> matchingResults = null;
         if (this.predicate.getMatchingType() == KeywordMatchingType.CONJUNCTION_INDEXBASED) {
-           matchingResults =  appendConjunctionMatchingSpans(inputTuple, predicate.getAttributeNames(), queryTokenSet, predicate.getQuery());
+           matchingResults =  appendConjunctionMatchingSpans(inputTuple, predicate.getAttributeNames(), predicate.getQuery());
         }
         if (this.predicate.getMatchingType() == KeywordMatchingType.PHRASE_INDEXBASED) {
             matchingResults = appendPhraseMatchingSpans(inputTuple, predicate.getAttributeNames(), queryTokenList, queryTokenWithStopwordsList, predicate.getQuery());
@@ -119,8 +134,6 @@ public class KeywordMatcher extends AbstractSingleInputOperator {
     }
 
     private List<Span> appendPhraseMatchingSpans(Tuple inputTuple, List<String> attributeNames, List<String> queryTokenList, List<String> queryTokenListWithStopwords, String queryKeyword) throws DataflowException {
-        ListField<Span> payloadField = inputTuple.getField(SchemaConstants.PAYLOAD);
-        List<Span> payload = payloadField.getValue();
         List<Span> matchingResults = new ArrayList<>();
         for (String attributeName : attributeNames) {
             AttributeType attributeType = inputTuple.getSchema().getAttribute(attributeName).getType();
@@ -142,25 +155,21 @@ public class KeywordMatcher extends AbstractSingleInputOperator {
             // for TEXT type, spans need to be reconstructed according to the
             // phrase query
             if (attributeType == AttributeType.TEXT) {
-                Set<String> queryTokenSet = new HashSet<>(queryTokenList);
-                List<Span> relevantSpans = filterRelevantSpans(payload, queryTokenSet);
-                List<Span> fieldSpanList = relevantSpans.stream().filter(span -> span.getAttributeName().equals(attributeName))
-                        .collect(Collectors.toList());
-
-                if (!DataflowUtils.isAllQueryTokensPresent(fieldSpanList, queryTokenSet)) {
+                int attributeIndex = payloadTokenIndex.getAttributeIndex(attributeName);
+                if (payloadTokenIndex.getNumPresentTerms(attributeIndex) != payloadTokenIndex.getNumTerms()) {
                     // move on to next field if not all query tokens are present
                     // in the spans
                     continue;
                 }
+                // the phrase matching sorts the span list, so it gets a copy
+                List<Span> fieldSpanList = new ArrayList<>(payloadTokenIndex.getSpans(attributeIndex));
                 matchingResults.addAll(DataflowUtils.constructPhraseMatchingSpans(attributeName, fieldValue, queryKeyword, fieldSpanList, queryTokenListWithStopwords, queryTokenList));
             }
         }
         return matchingResults;
     }
 
-    private List<Span> appendConjunctionMatchingSpans(Tuple inputTuple, List<String> attributeNames, Set<String> queryTokenSet, String queryKeyword) throws DataflowException {
-        ListField<Span> payloadField = inputTuple.getField(SchemaConstants.PAYLOAD);
-        List<Span> payload = payloadField.getValue();
+    private List<Span> appendConjunctionMatchingSpans(Tuple inputTuple, List<String> attributeNames, String queryKeyword) throws DataflowException {
         List<Span> matchingResults = new ArrayList<>();
         for (String attributeName : attributeNames) {
             AttributeType attributeType = inputTuple.getSchema().getAttribute(attributeName).getType();
@@ -182,11 +191,9 @@ public class KeywordMatcher extends AbstractSingleInputOperator {
             // for TEXT type, every token in the query should be present in span
             // list for this field
             if (attributeType == AttributeType.TEXT) {
-                List<Span> relevantSpans = filterRelevantSpans(payload, queryTokenSet);
-                List<Span> fieldSpanList = relevantSpans.stream().filter(span -> span.getAttributeName().equals(attributeName))
-                        .collect(Collectors.toList());
-                if (DataflowUtils.isAllQueryTokensPresent(fieldSpanList, queryTokenSet)) {
-                    matchingResults.addAll(fieldSpanList);
+                int attributeIndex = payloadTokenIndex.getAttributeIndex(attributeName);
+                if (payloadTokenIndex.getNumPresentTerms(attributeIndex) == payloadTokenIndex.getNumTerms()) {
+                    matchingResults.addAll(payloadTokenIndex.getSpans(attributeIndex));
                 }
 
             }
@@ -231,18 +238,6 @@ public class KeywordMatcher extends AbstractSingleInputOperator {
         }
         return matchingResults;
     }
-    
-    private List<Span> filterRelevantSpans(List<Span> spanList, Set<String> queryTokenSet) {
-        List<Span> relevantSpans = new ArrayList<>();
-        Iterator<Span> iterator = spanList.iterator();
-        while (iterator.hasNext()) {
-            Span span = iterator.next();
-            if (queryTokenSet.contains(span.getKey())) {
-                relevantSpans.add(span);
-            }
-        }
-        return relevantSpans;
-    }
 
     public KeywordPredicate getPredicate() {
         return this.predicate;
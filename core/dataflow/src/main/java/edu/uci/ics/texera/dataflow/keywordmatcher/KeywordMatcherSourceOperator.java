@@ -1,6 +1,7 @@
 package edu.uci.ics.texera.dataflow.keywordmatcher;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 
 import edu.uci.ics.texera.api.constants.ErrorMessages;
@@ -67,6 +68,7 @@ public class KeywordMatcherSourceOperator extends AbstractSingleInputOperator im
 
         this.dataReader = RelationManager.getInstance().getTableDataReader(predicate.getTableName(), luceneQuery);
         this.dataReader.setPayloadAdded(true);
+        this.dataReader.setStreaming(true);
         
         // generate KeywordMatcher
         keywordMatcher = new KeywordMatcher(predicate);
@@ -110,6 +112,23 @@ public class KeywordMatcherSourceOperator extends AbstractSingleInputOperator im
     public KeywordPredicate getPredicate() {
         return this.predicate;
     }
+    
+    /**
+     * Makes this operator only read the attributes needed by the rest of the plan 
+     *   (and the _id and the attributes of the keyword query), see DataReader.setProjectedAttributes().
+     * It must be called before open().
+     * 
+     * @param attributeNames, the names of the attributes to read, null to read all the attributes
+     */
+    public void setProjectedAttributes(Collection<String> attributeNames) {
+        if (attributeNames == null) {
+            this.dataReader.setProjectedAttributes(null);
+            return;
+        }
+        HashSet<String> projectedAttributes = new HashSet<>(attributeNames);
+        projectedAttributes.addAll(predicate.getAttributeNames());
+        this.dataReader.setProjectedAttributes(projectedAttributes);
+    }
 
     /**
      * Creates a Query object as a boolean Query on all attributes Example: For
@@ -0,0 +1,176 @@
+package edu.uci.ics.texera.dataflow.parallel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import edu.uci.ics.texera.api.dataflow.IOperator;
+import edu.uci.ics.texera.api.dataflow.ISink;
+import edu.uci.ics.texera.api.engine.Plan;
+import edu.uci.ics.texera.api.exception.DataflowException;
+import edu.uci.ics.texera.api.exception.StorageException;
+import edu.uci.ics.texera.dataflow.common.AbstractSingleInputOperator;
+import edu.uci.ics.texera.dataflow.common.PredicateBase;
+import edu.uci.ics.texera.dataflow.comparablematcher.ComparableMatcher;
+import edu.uci.ics.texera.dataflow.keywordmatcher.KeywordMatcher;
+import edu.uci.ics.texera.dataflow.projection.ProjectionOperator;
+import edu.uci.ics.texera.dataflow.regexmatcher.RegexMatcher;
+import edu.uci.ics.texera.dataflow.sink.AbstractSink;
+import edu.uci.ics.texera.dataflow.sink.tuple.TupleSink;
+import edu.uci.ics.texera.dataflow.source.scan.ScanBasedSourceOperator;
+import edu.uci.ics.texera.storage.RelationManager;
+import edu.uci.ics.texera.storage.SharedSearcher;
+
+/**
+ * ParallelPlanBuilder rewrites a query plan so that it runs on multiple cores.
+ *
+ * It looks for a table scan source (ScanBasedSourceOperator) followed by a chain of
+ *   stateless operators (KeywordMatcher, RegexMatcher, ProjectionOperator, ComparableMatcher)
+ *   without limit and offset. The scan is split into numPartitions doc ID ranges,
+ *   the chain is cloned for every partition, and the partitions are merged by a
+ *   PartitionExchangeOperator that feeds the rest of the plan.
+ *
+ * The rest of the plan, including the sink, still runs on the calling thread.
+ * If the plan doesn't have such a chain, it's returned unchanged.
+ *
+ * Usage:
+ *   Engine.getEngine().evaluate(ParallelPlanBuilder.buildParallelPlan(plan, numPartitions));
+ *
+ */
+public class ParallelPlanBuilder {
+
+    private static final List<Class<? extends AbstractSingleInputOperator>> STATELESS_OPERATORS = Arrays.asList(
+            KeywordMatcher.class, RegexMatcher.class, ProjectionOperator.class, ComparableMatcher.class);
+
+    /**
+     * Builds the parallel version of a plan.
+     *
+     * Output order is preserved if the sink is a TupleSink with a limit or an offset,
+     *   so that the sink returns the same tuples as the serial plan.
+     *
+     * @param plan
+     * @param numPartitions
+     * @return
+     * @throws DataflowException
+     */
+    public static Plan buildParallelPlan(Plan plan, int numPartitions) throws DataflowException {
+        boolean preserveOrder = false;
+        if (plan.getRoot() instanceof TupleSink) {
+            TupleSink tupleSink = (TupleSink) plan.getRoot();
+            preserveOrder = tupleSink.getPredicate().getLimit() != Integer.MAX_VALUE
+                    || tupleSink.getPredicate().getOffset() != 0;
+        }
+        return buildParallelPlan(plan, numPartitions, preserveOrder);
+    }
+
+    /**
+     * Builds the parallel version of a plan.
+     *
+     * @param plan, the plan to rewrite, its operators must not have been opened
+     * @param numPartitions, the number of partitions the table scan is split into
+     * @param preserveOrder, if the output order should be the same as the serial plan
+     * @return the parallel plan, or the original plan if it can't be parallelized
+     * @throws DataflowException
+     */
+    public static Plan buildParallelPlan(Plan plan, int numPartitions, boolean preserveOrder) throws DataflowException {
+        if (numPartitions < 1) {
+            throw new DataflowException("number of partitions must be positive");
+        }
+        if (numPartitions == 1) {
+            return plan;
+        }
+
+        ISink sink = plan.getRoot();
+
+        // walk down the plan from the sink, the operator above the stateless chain is the attach point
+        IOperator attachPoint = sink;
+        List<AbstractSingleInputOperator> statelessChain = new ArrayList<>();
+        IOperator currentOperator = getInputOperator(sink);
+        while (currentOperator != null && ! (currentOperator instanceof ScanBasedSourceOperator)) {
+            if (! (currentOperator instanceof AbstractSingleInputOperator)) {
+                // operators with multiple inputs or unknown sources are not supported
+                return plan;
+            }
+            AbstractSingleInputOperator singleInputOperator = (AbstractSingleInputOperator) currentOperator;
+            if (isStateless(singleInputOperator)) {
+                statelessChain.add(singleInputOperator);
+            } else {
+                attachPoint = singleInputOperator;
+                statelessChain.clear();
+            }
+            currentOperator = singleInputOperator.getInputOperator();
+        }
+        if (currentOperator == null) {
+            return plan;
+        }
+        ScanBasedSourceOperator scanSource = (ScanBasedSourceOperator) currentOperator;
+
+        // clone the source and the stateless chain for each partition, from the bottom to the top
+        //   the partitions share one searcher, so they split the doc IDs of the same snapshot of the table
+        Collections.reverse(statelessChain);
+        SharedSearcher sharedSearcher;
+        try {
+            sharedSearcher = RelationManager.getInstance().getTableSharedSearcher(
+                    scanSource.getPredicate().getTableName());
+        } catch (StorageException e) {
+            throw new DataflowException(e.getMessage(), e);
+        }
+        List<List<IOperator>> partitionOperators = new ArrayList<>();
+        for (int i = 0; i < numPartitions; i++) {
+            List<IOperator> partition = new ArrayList<>();
+            ScanBasedSourceOperator partitionSource = scanSource.getPredicate().newOperator();
+            partitionSource.setPartition(i, numPartitions, sharedSearcher);
+            partition.add(partitionSource);
+            for (AbstractSingleInputOperator operator : statelessChain) {
+                AbstractSingleInputOperator operatorClone =
+                        (AbstractSingleInputOperator) getPredicate(operator).newOperator();
+                operatorClone.setInputOperator(partition.get(partition.size() - 1));
+                partition.add(operatorClone);
+            }
+            partitionOperators.add(partition);
+        }
+
+        PartitionExchangeOperator exchangeOperator = new PartitionExchangeOperator(partitionOperators, preserveOrder);
+        setInputOperator(attachPoint, exchangeOperator);
+        return new Plan(sink);
+    }
+
+    private static boolean isStateless(AbstractSingleInputOperator operator) {
+        return STATELESS_OPERATORS.contains(operator.getClass())
+                && operator.getLimit() == Integer.MAX_VALUE && operator.getOffset() == 0;
+    }
+
+    private static PredicateBase getPredicate(AbstractSingleInputOperator operator) {
+        if (operator instanceof KeywordMatcher) {
+            return ((KeywordMatcher) operator).getPredicate();
+        } else if (operator instanceof RegexMatcher) {
+            return ((RegexMatcher) operator).getPredicate();
+        } else if (operator instanceof ProjectionOperator) {
+            return ((ProjectionOperator) operator).getPredicate();
+        } else if (operator instanceof ComparableMatcher) {
+            return ((ComparableMatcher) operator).getPredicate();
+        }
+        throw new DataflowException("operator " + operator.getClass().getName() + " can't be cloned");
+    }
+
+    private static IOperator getInputOperator(ISink sink) {
+        if (sink instanceof TupleSink) {
+            return ((TupleSink) sink).getInputOperator();
+        } else if (sink instanceof AbstractSink) {
+            return ((AbstractSink) sink).getInputOperator();
+        }
+        return null;
+    }
+
+    private static void setInputOperator(IOperator operator, IOperator inputOperator) {
+        if (operator instanceof TupleSink) {
+            ((TupleSink) operator).setInputOperator(inputOperator);
+        } else if (operator instanceof AbstractSink) {
+            ((AbstractSink) operator).setInputOperator(inputOperator);
+        } else {
+            ((AbstractSingleInputOperator) operator).setInputOperator(inputOperator);
+        }
+    }
+
+}
@@ -0,0 +1,309 @@
+package edu.uci.ics.texera.dataflow.parallel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import edu.uci.ics.texera.api.constants.ErrorMessages;
+import edu.uci.ics.texera.api.dataflow.IOperator;
+import edu.uci.ics.texera.api.exception.DataflowException;
+import edu.uci.ics.texera.api.exception.TexeraException;
+import edu.uci.ics.texera.api.schema.Schema;
+import edu.uci.ics.texera.api.tuple.Tuple;
+
+/**
+ * PartitionExchangeOperator merges the outputs of several partition pipelines into one stream.
+ *
+ * Each partition pipeline is a chain of operators (a partitioned source followed by
+ *   stateless operators) that runs on its own thread and pushes batches of tuples
+ *   into a bounded queue. The exchange operator is the single consumer of these queues.
+ *
+ * If preserveOrder is true, all tuples of partition 0 are returned before the tuples
+ *   of partition 1, and so on. Partitions still run in parallel, the bounded queues
+ *   only make the later partitions wait if they are too far ahead.
+ * If preserveOrder is false, batches are returned in the order they are produced.
+ *
+ */
+public class PartitionExchangeOperator implements IOperator {
+
+    private static final int QUEUE_CAPACITY_PER_PARTITION = 4;
+
+    // a marker batch (compared by reference) indicating that a partition has no more tuples
+    private static final List<Tuple> END_OF_PARTITION = Collections.unmodifiableList(new ArrayList<>());
+
+    // the operators of each partition, from the source to the top operator
+    private final List<List<IOperator>> partitionOperators;
+    private final boolean preserveOrder;
+    private final int batchSize;
+
+    private ExecutorService executor;
+    private List<BlockingQueue<List<Tuple>>> partitionQueues;
+    private final AtomicReference<Throwable> partitionFailure = new AtomicReference<>();
+
+    // the partition being consumed if order is preserved, otherwise the number of finished partitions
+    private int consumedPartitions;
+    private List<Tuple> currentBatch = Collections.emptyList();
+    private int currentBatchCursor = 0;
+
+    private Schema outputSchema;
+    private int cursor = CLOSED;
+
+    /**
+     * Constructs a PartitionExchangeOperator.
+     *
+     * @param partitionOperators, for each partition, the list of its operators
+     *   from the source operator to the top operator whose output is exchanged
+     * @param preserveOrder, if the tuples should be returned in the partition order
+     */
+    public PartitionExchangeOperator(List<List<IOperator>> partitionOperators, boolean preserveOrder) {
+        this(partitionOperators, preserveOrder, DEFAULT_BATCH_SIZE);
+    }
+
+    public PartitionExchangeOperator(List<List<IOperator>> partitionOperators, boolean preserveOrder, int batchSize) {
+        if (partitionOperators == null || partitionOperators.isEmpty()) {
+            throw new DataflowException("PartitionExchangeOperator needs at least one partition.");
+        }
+        for (List<IOperator> partition : partitionOperators) {
+            if (partition == null || partition.isEmpty()) {
+                throw new DataflowException("A partition of PartitionExchangeOperator has no operator.");
+            }
+        }
+        if (batchSize <= 0) {
+            throw new DataflowException("batch size must be positive");
+        }
+        this.partitionOperators = partitionOperators;
+        this.preserveOrder = preserveOrder;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void open() throws TexeraException {
+        if (cursor != CLOSED) {
+            return;
+        }
+        int numPartitions = partitionOperators.size();
+        executor = Executors.newFixedThreadPool(numPartitions, runnable -> {
+            Thread thread = new Thread(runnable, "texera-partition-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // open all partitions in parallel, opening a source usually runs the index search
+        List<Callable<Void>> openTasks = new ArrayList<>();
+        for (List<IOperator> partition : partitionOperators) {
+            openTasks.add(() -> {
+                getTopOperator(partition).open();
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> openResult : executor.invokeAll(openTasks)) {
+                openResult.get();
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+            shutdown();
+            // the partitions that are opened must be closed here, close() returns early since this isn't opened
+            DataflowException openException = new DataflowException(cause.getMessage(), cause);
+            try {
+                closePartitions();
+            } catch (TexeraException closeException) {
+                openException.addSuppressed(closeException);
+            }
+            throw openException;
+        }
+        outputSchema = getTopOperator(partitionOperators.get(0)).getOutputSchema();
+
+        partitionQueues = new ArrayList<>();
+        if (preserveOrder) {
+            for (int i = 0; i < numPartitions; i++) {
+                partitionQueues.add(new ArrayBlockingQueue<>(QUEUE_CAPACITY_PER_PARTITION));
+            }
+        } else {
+            partitionQueues.add(new ArrayBlockingQueue<>(QUEUE_CAPACITY_PER_PARTITION * numPartitions));
+        }
+        partitionFailure.set(null);
+        for (int i = 0; i < numPartitions; i++) {
+            IOperator topOperator = getTopOperator(partitionOperators.get(i));
+            BlockingQueue<List<Tuple>> queue = partitionQueues.get(preserveOrder ? i : 0);
+            executor.execute(() -> producePartition(topOperator, queue));
+        }
+
+        consumedPartitions = 0;
+        currentBatch = Collections.emptyList();
+        currentBatchCursor = 0;
+        cursor = OPENED;
+    }
+
+    /*
+     * Runs on a worker thread: pulls all the batches of one partition into its queue.
+     */
+    private void producePartition(IOperator topOperator, BlockingQueue<List<Tuple>> queue) {
+        try {
+            try {
+                List<Tuple> batch;
+                while (! Thread.currentThread().isInterrupted()
+                        && ! (batch = topOperator.getNextBatch(batchSize)).isEmpty()) {
+                    queue.put(batch);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (Throwable e) {
+                partitionFailure.compareAndSet(null, e);
+            }
+            queue.put(END_OF_PARTITION);
+        } catch (InterruptedException e) {
+            // the exchange operator is closed, stop producing
+        }
+    }
+
+    @Override
+    public Tuple getNextTuple() throws TexeraException {
+        if (cursor == CLOSED) {
+            throw new DataflowException(ErrorMessages.OPERATOR_NOT_OPENED);
+        }
+        if (! fillCurrentBatch()) {
+            return null;
+        }
+        cursor++;
+        return currentBatch.get(currentBatchCursor++);
+    }
+
+    @Override
+    public List<Tuple> getNextBatch(int maxTuples) throws TexeraException {
+        if (cursor == CLOSED) {
+            throw new DataflowException(ErrorMessages.OPERATOR_NOT_OPENED);
+        }
+        if (! fillCurrentBatch()) {
+            return Collections.emptyList();
+        }
+        int batchEnd = Math.min(currentBatch.size(), currentBatchCursor + maxTuples);
+        List<Tuple> resultTuples = new ArrayList<>(currentBatch.subList(currentBatchCursor, batchEnd));
+        cursor += resultTuples.size();
+        currentBatchCursor = batchEnd;
+        return resultTuples;
+    }
+
+    /*
+     * Makes sure the current batch has tuples left to return.
+     * Returns false if all partitions are exhausted.
+     */
+    private boolean fillCurrentBatch() throws TexeraException {
+        int numPartitions = partitionOperators.size();
+        try {
+            while (currentBatchCursor >= currentBatch.size()) {
+                if (consumedPartitions >= numPartitions) {
+                    return false;
+                }
+                List<Tuple> batch = partitionQueues.get(preserveOrder ? consumedPartitions : 0).take();
+                if (batch == END_OF_PARTITION) {
+                    consumedPartitions++;
+                    checkPartitionFailure();
+                    continue;
+                }
+                currentBatch = batch;
+                currentBatchCursor = 0;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataflowException(e.getMessage(), e);
+        }
+        return true;
+    }
+
+    private void checkPartitionFailure() throws TexeraException {
+        Throwable failure = partitionFailure.get();
+        if (failure == null) {
+            return;
+        }
+        if (failure instanceof TexeraException) {
+            throw (TexeraException) failure;
+        }
+        throw new DataflowException(failure.getMessage(), failure);
+    }
+
+    @Override
+    public void close() throws TexeraException {
+        if (cursor == CLOSED) {
+            return;
+        }
+        shutdown();
+        partitionQueues = null;
+        currentBatch = Collections.emptyList();
+        cursor = CLOSED;
+        closePartitions();
+    }
+
+    /*
+     * Closes every operator of every partition, an operator that isn't opened returns early.
+     * Operators don't close their input operators, so they're all closed here, from the top operator down.
+     */
+    private void closePartitions() throws TexeraException {
+        TexeraException closeException = null;
+        for (List<IOperator> partition : partitionOperators) {
+            for (int i = partition.size() - 1; i >= 0; i--) {
+                try {
+                    partition.get(i).close();
+                } catch (TexeraException e) {
+                    closeException = e;
+                }
+            }
+        }
+        if (closeException != null) {
+            throw closeException;
+        }
+    }
+
+    /*
+     * Stops all the partition workers and waits for them to finish,
+     *   so that no operator is still in use when it's being closed.
+     */
+    private void shutdown() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+    }
+
+    private static IOperator getTopOperator(List<IOperator> partition) {
+        return partition.get(partition.size() - 1);
+    }
+
+    public int getNumPartitions() {
+        return partitionOperators.size();
+    }
+
+    public List<List<IOperator>> getPartitionOperators() {
+        return partitionOperators;
+    }
+
+    public boolean isPreserveOrder() {
+        return preserveOrder;
+    }
+
+    @Override
+    public Schema getOutputSchema() {
+        return outputSchema;
+    }
+
+    @Override
+    public Schema transformToOutputSchema(Schema... inputSchema) {
+        return getTopOperator(partitionOperators.get(0)).transformToOutputSchema(inputSchema);
+    }
+
+}
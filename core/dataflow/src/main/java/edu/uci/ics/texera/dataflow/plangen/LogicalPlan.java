@@ -3,6 +3,10 @@ package edu.uci.ics.texera.dataflow.plangen;
 import java.lang.reflect.InvocationTargetException;
 import java.util.*;
 
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Query;
+
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
@@ -15,8 +19,17 @@ import edu.uci.ics.texera.api.exception.PlanGenException;
 import edu.uci.ics.texera.api.exception.TexeraException;
 import edu.uci.ics.texera.dataflow.common.PredicateBase;
 import edu.uci.ics.texera.dataflow.common.PropertyNameConstants;
+import edu.uci.ics.texera.dataflow.comparablematcher.ComparablePredicate;
+import edu.uci.ics.texera.dataflow.comparablematcher.ComparableToRangeQueryTranslator;
+import edu.uci.ics.texera.dataflow.dictionarymatcher.DictionaryPredicate;
+import edu.uci.ics.texera.dataflow.fuzzytokenmatcher.FuzzyTokenPredicate;
 import edu.uci.ics.texera.dataflow.connector.OneToNBroadcastConnector;
 import edu.uci.ics.texera.dataflow.join.Join;
+import edu.uci.ics.texera.dataflow.keywordmatcher.KeywordMatcherSourceOperator;
+import edu.uci.ics.texera.dataflow.keywordmatcher.KeywordPredicate;
+import edu.uci.ics.texera.dataflow.projection.ProjectionPredicate;
+import edu.uci.ics.texera.dataflow.source.scan.ScanBasedSourceOperator;
+import edu.uci.ics.texera.dataflow.source.scan.ScanSourcePredicate;
 import edu.uci.ics.texera.api.schema.Schema;
 
 
@@ -242,6 +255,10 @@ public class LogicalPlan {
     /**
      * Builds and returns the query plan from the operator graph.
      * 
+     * The filters that can be looked up in the index are pushed down into the scan sources (see pushDownFilters()),
+     *   so the operators of the plan can differ from the operator graph.
+     * The sources that read a table only read the attributes needed by the rest of the plan (see pushDownProjections()).
+     * 
      * @return the plan generated from the operator graph
      * @throws PlanGenException, if the operator graph is invalid.
      */
@@ -249,7 +266,9 @@ public class LogicalPlan {
         System.out.println("2.buildQueryPlan");
         buildOperators();
         validateOperatorGraph();
-        connectOperators(operatorObjectMap);
+        LinkedHashMap<String, LinkedHashSet<String>> physicalAdjacencyList = pushDownFilters();
+        pushDownProjections();
+        connectOperators(operatorObjectMap, physicalAdjacencyList);
 
         ISink sink = findSinkOperator(operatorObjectMap);
         
@@ -460,6 +479,11 @@ public class LogicalPlan {
      * the corresponding "setInputOperator" function to connect operators.
      */
     private void connectOperators(HashMap<String, IOperator> operatorObjectMap) throws PlanGenException {
+        connectOperators(operatorObjectMap, adjacencyList);
+    }
+    
+    private void connectOperators(HashMap<String, IOperator> operatorObjectMap, 
+            LinkedHashMap<String, LinkedHashSet<String>> adjacencyList) throws PlanGenException {
         //System.out.println("3.1.connectOperators");
         for (String vertex : adjacencyList.keySet()) {
             IOperator currentOperator = operatorObjectMap.get(vertex);
@@ -484,6 +508,147 @@ public class LogicalPlan {
         }
     }
 
+    /*
+     * Pushes the filters that can be looked up in the index down into the scan sources.
+     * 
+     * A ScanBasedSourceOperator followed by a chain of ComparableMatchers, whose comparisons can be translated
+     *   into range queries on the table (see ComparableToRangeQueryTranslator), is fused into one 
+     *   ScanBasedSourceOperator which only reads the tuples in all the ranges, 
+     *   instead of reading the whole table and comparing every tuple.
+     * A matcher is only fused if it's the only output of the scan (or of the previous fused matcher),
+     *   and the scan (or the previous fused matcher) is its only input.
+     * 
+     * This function assumes that the operator graph is valid.
+     * The fused matchers are removed from operatorObjectMap, and the operator graph after the fusion is returned,
+     *   in which the fused scan sources are linked to the outputs of their last fused matcher.
+     */
+    private LinkedHashMap<String, LinkedHashSet<String>> pushDownFilters() {
+        LinkedHashMap<String, LinkedHashSet<String>> physicalAdjacencyList = new LinkedHashMap<>();
+        HashMap<String, Integer> inDegrees = new HashMap<>();
+        for (String vertex : adjacencyList.keySet()) {
+            physicalAdjacencyList.put(vertex, new LinkedHashSet<>(adjacencyList.get(vertex)));
+            for (String adjacentVertex : adjacencyList.get(vertex)) {
+                inDegrees.put(adjacentVertex, inDegrees.getOrDefault(adjacentVertex, 0) + 1);
+            }
+        }
+        
+        for (String vertex : adjacencyList.keySet()) {
+            PredicateBase predicate = operatorPredicateMap.get(vertex);
+            if (! (predicate instanceof ScanSourcePredicate)) {
+                continue;
+            }
+            ScanSourcePredicate scanPredicate = (ScanSourcePredicate) predicate;
+            
+            List<Query> rangeQueries = new ArrayList<>();
+            while (physicalAdjacencyList.get(vertex).size() == 1) {
+                String adjacentVertex = physicalAdjacencyList.get(vertex).iterator().next();
+                PredicateBase adjacentPredicate = operatorPredicateMap.get(adjacentVertex);
+                if (! (adjacentPredicate instanceof ComparablePredicate) || inDegrees.get(adjacentVertex) != 1) {
+                    break;
+                }
+                Query rangeQuery = ComparableToRangeQueryTranslator.translate(
+                        (ComparablePredicate) adjacentPredicate, scanPredicate.getTableName());
+                if (rangeQuery == null) {
+                    break;
+                }
+                rangeQueries.add(rangeQuery);
+                // the scan source takes over the outputs of the fused matcher
+                physicalAdjacencyList.put(vertex, physicalAdjacencyList.remove(adjacentVertex));
+                operatorObjectMap.remove(adjacentVertex);
+            }
+            
+            if (rangeQueries.size() == 1) {
+                operatorObjectMap.put(vertex, new ScanBasedSourceOperator(scanPredicate, rangeQueries.get(0)));
+            } else if (rangeQueries.size() > 1) {
+                BooleanQuery.Builder queryBuilder = new BooleanQuery.Builder();
+                for (Query rangeQuery : rangeQueries) {
+                    queryBuilder.add(rangeQuery, Occur.FILTER);
+                }
+                operatorObjectMap.put(vertex, new ScanBasedSourceOperator(scanPredicate, queryBuilder.build()));
+            }
+        }
+        return physicalAdjacencyList;
+    }
+
+    /*
+     * Pushes the projections down into the sources that read a table (ScanBasedSourceOperator and KeywordMatcherSourceOperator),
+     *   so that they don't read the attributes that no operator after them needs.
+     * 
+     * The attributes needed after a source are computed along every path of the operator graph from the source:
+     *   a ProjectionOperator only needs its projected attributes, 
+     *   and a filter or matcher that outputs all of its input attributes needs the attributes it reads 
+     *   and the attributes needed after it (see getReadAttributes()).
+     *   If a path reaches any other operator (a sink, a join, ...), all the attributes are needed.
+     * 
+     * This function assumes that the operator graph is valid.
+     */
+    private void pushDownProjections() {
+        HashMap<String, Optional<Set<String>>> requiredAttributesMap = new HashMap<>();
+        for (String vertex : adjacencyList.keySet()) {
+            IOperator operator = operatorObjectMap.get(vertex);
+            if (! (operator instanceof ScanBasedSourceOperator || operator instanceof KeywordMatcherSourceOperator)) {
+                continue;
+            }
+            Optional<Set<String>> requiredAttributes = getRequiredAttributes(vertex, requiredAttributesMap);
+            if (! requiredAttributes.isPresent()) {
+                continue;
+            }
+            if (operator instanceof ScanBasedSourceOperator) {
+                ((ScanBasedSourceOperator) operator).setProjectedAttributes(requiredAttributes.get());
+            } else {
+                ((KeywordMatcherSourceOperator) operator).setProjectedAttributes(requiredAttributes.get());
+            }
+        }
+    }
+    
+    /*
+     * Gets the (lower case) names of the attributes of an operator's output that are needed by the operators after it,
+     *   or empty if all the attributes are needed. The results are memoized in requiredAttributesMap.
+     */
+    private Optional<Set<String>> getRequiredAttributes(String vertex, 
+            HashMap<String, Optional<Set<String>>> requiredAttributesMap) {
+        if (requiredAttributesMap.containsKey(vertex)) {
+            return requiredAttributesMap.get(vertex);
+        }
+        Optional<Set<String>> requiredAttributes = Optional.of(new HashSet<>());
+        for (String adjacentVertex : adjacencyList.get(vertex)) {
+            PredicateBase adjacentPredicate = operatorPredicateMap.get(adjacentVertex);
+            if (adjacentPredicate instanceof ProjectionPredicate) {
+                ((ProjectionPredicate) adjacentPredicate).getProjectionFields()
+                        .forEach(attributeName -> requiredAttributes.get().add(attributeName.toLowerCase()));
+                continue;
+            }
+            List<String> readAttributes = getReadAttributes(adjacentPredicate);
+            Optional<Set<String>> adjacentRequiredAttributes = readAttributes == null ? 
+                    Optional.empty() : getRequiredAttributes(adjacentVertex, requiredAttributesMap);
+            if (! adjacentRequiredAttributes.isPresent()) {
+                requiredAttributesMap.put(vertex, Optional.empty());
+                return Optional.empty();
+            }
+            readAttributes.forEach(attributeName -> requiredAttributes.get().add(attributeName.toLowerCase()));
+            requiredAttributes.get().addAll(adjacentRequiredAttributes.get());
+        }
+        requiredAttributesMap.put(vertex, requiredAttributes);
+        return requiredAttributes;
+    }
+    
+    /*
+     * Gets the attributes read by an operator that outputs all of its input attributes, 
+     *   or null if the operator isn't known to do so.
+     */
+    private static List<String> getReadAttributes(PredicateBase predicate) {
+        if (predicate instanceof ComparablePredicate) {
+            return Arrays.asList(((ComparablePredicate) predicate).getAttributeName());
+        } else if (predicate instanceof KeywordPredicate) {
+            return ((KeywordPredicate) predicate).getAttributeNames();
+        } else if (predicate instanceof FuzzyTokenPredicate) {
+            return ((FuzzyTokenPredicate) predicate).getAttributeNames();
+        } else if (predicate instanceof DictionaryPredicate) {
+            return ((DictionaryPredicate) predicate).getAttributeNames();
+        }
+        return null;
+    }
+
     /*
      * Invoke the corresponding "setInputOperator" method of the dest operator.
      */
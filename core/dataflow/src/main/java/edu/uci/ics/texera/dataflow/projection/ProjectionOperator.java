@@ -1,5 +1,6 @@
 package edu.uci.ics.texera.dataflow.projection;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -38,6 +39,16 @@ public class ProjectionOperator extends AbstractSingleInputOperator {
         return processOneInputTuple(inputTuple);
     }
 
+    @Override
+    protected List<Tuple> computeNextMatchingBatch(int maxTuples) throws TexeraException {
+        List<Tuple> inputTuples = inputOperator.getNextBatch(maxTuples);
+        List<Tuple> resultTuples = new ArrayList<>(inputTuples.size());
+        for (Tuple inputTuple : inputTuples) {
+            resultTuples.add(processOneInputTuple(inputTuple));
+        }
+        return resultTuples;
+    }
+
     @Override
     public Tuple processOneInputTuple(Tuple inputTuple) throws TexeraException {
         IField[] outputFields =
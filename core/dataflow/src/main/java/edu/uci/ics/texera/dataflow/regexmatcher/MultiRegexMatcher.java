@@ -0,0 +1,186 @@
+package edu.uci.ics.texera.dataflow.regexmatcher;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import edu.uci.ics.texera.dataflow.dictionarymatcher.ACTrie;
+import edu.uci.ics.texera.dataflow.regexmatcher.GramBooleanQuery.QueryOp;
+
+/**
+ * MultiRegexMatcher finds the matches of many regexes in a text, such as the entries of a dictionary in REGEX mode.
+ *
+ * Each regex is translated once to a boolean query of the n-grams that a text must contain for the regex to match it
+ *   (by RegexToGramQueryTranslator, the same literal analysis as the n-gram index of RegexMatcherSourceOperator).
+ *   The grams of all the regexes are compiled into one Aho-Corasick automaton, so a text is scanned once
+ *   to find all the grams it contains. Then only the regexes whose query is satisfied by these grams are run on the text.
+ *
+ * A regex that can't be translated (for example, it uses a syntax of java.util.regex that RE2J doesn't support),
+ *   or whose query can't filter any text (for example, it has no literal of at least 3 characters), is always run.
+ *
+ */
+public class MultiRegexMatcher {
+
+    /**
+     * MatchHandler receives the matches of all the regexes in a text.
+     */
+    @FunctionalInterface
+    public interface MatchHandler {
+        /**
+         * @param patternIndex, the index of the matching pattern in the list of patterns
+         * @param start, the start offset of the match
+         * @param end, the end offset of the match
+         */
+        void onMatch(int patternIndex, int start, int end);
+    }
+
+    /*
+     * A GramBooleanQuery compiled to gram IDs. A null filter always matches.
+     */
+    private static class GramFilter {
+        private final QueryOp operator;
+        private final int gramId;
+        private final GramFilter[] subFilters;
+
+        private GramFilter(QueryOp operator, int gramId, GramFilter[] subFilters) {
+            this.operator = operator;
+            this.gramId = gramId;
+            this.subFilters = subFilters;
+        }
+
+        private boolean matches(BitSet presentGrams) {
+            switch (operator) {
+            case LEAF:
+                return presentGrams.get(gramId);
+            case AND:
+                for (GramFilter subFilter : subFilters) {
+                    if (! subFilter.matches(presentGrams)) {
+                        return false;
+                    }
+                }
+                return true;
+            case OR:
+                for (GramFilter subFilter : subFilters) {
+                    if (subFilter.matches(presentGrams)) {
+                        return true;
+                    }
+                }
+                return false;
+            default:
+                return true;
+            }
+        }
+    }
+
+    private final List<Pattern> patterns;
+    private final GramFilter[] filters;
+
+    private final Map<String, Integer> gramIds = new HashMap<>();
+    private final ACTrie gramTrie = new ACTrie();
+    private final BitSet presentGrams = new BitSet();
+
+    /**
+     * @param patterns, the compiled regexes to match
+     */
+    public MultiRegexMatcher(List<Pattern> patterns) {
+        this.patterns = new ArrayList<>(patterns);
+        this.filters = new GramFilter[patterns.size()];
+        for (int i = 0; i < patterns.size(); i++) {
+            filters[i] = translateToFilter(patterns.get(i));
+        }
+        gramTrie.addKeywords(new ArrayList<>(gramIds.keySet()));
+        gramTrie.constructFailureTransactions();
+    }
+
+    private GramFilter translateToFilter(Pattern pattern) {
+        // these flags change the syntax or the case folding of the regex, which the translation doesn't take into account
+        if ((pattern.flags() & (Pattern.LITERAL | Pattern.COMMENTS | Pattern.UNICODE_CASE | Pattern.CANON_EQ
+                | Pattern.UNICODE_CHARACTER_CLASS)) != 0) {
+            return null;
+        }
+        // the grams are translated from the RE2J parse of the regex, which must read the regex as java.util.regex does
+        if (! RE2JCompatibility.isSameSyntax(pattern.pattern())) {
+            return null;
+        }
+        GramBooleanQuery query;
+        try {
+            query = RegexToGramQueryTranslator.translateToLowerCaseGrams(pattern.pattern());
+        } catch (RuntimeException e) {
+            // the regex is valid for java.util.regex, it just can't be filtered
+            return null;
+        }
+        return compileFilter(query);
+    }
+
+    private GramFilter compileFilter(GramBooleanQuery query) {
+        switch (query.operator) {
+        case LEAF:
+            Integer gramId = gramIds.get(query.leaf);
+            if (gramId == null) {
+                gramId = gramIds.size();
+                gramIds.put(query.leaf, gramId);
+            }
+            return new GramFilter(QueryOp.LEAF, gramId, null);
+        case AND:
+        case OR:
+            List<GramFilter> subFilters = new ArrayList<>();
+            for (GramBooleanQuery subQuery : query.subQuerySet) {
+                GramFilter subFilter = compileFilter(subQuery);
+                if (subFilter == null && query.operator == QueryOp.OR) {
+                    return null;
+                }
+                if (subFilter != null) {
+                    subFilters.add(subFilter);
+                }
+            }
+            if (subFilters.isEmpty()) {
+                return null;
+            }
+            return new GramFilter(query.operator, -1, subFilters.toArray(new GramFilter[subFilters.size()]));
+        default:
+            // ANY matches every text, NONE is only produced for invalid regexes, so neither filters anything
+            return null;
+        }
+    }
+
+    /**
+     * Finds the matches of all the patterns in a text, in the order of the patterns.
+     *
+     * @param text
+     * @param handler
+     */
+    public void match(String text, MatchHandler handler) {
+        presentGrams.clear();
+        if (! gramIds.isEmpty()) {
+            gramTrie.parseText(TranslatorUtils.toLowerCaseByCharacter(text),
+                    (start, end, gram) -> presentGrams.set(gramIds.get(gram)));
+        }
+        for (int i = 0; i < patterns.size(); i++) {
+            if (filters[i] != null && ! filters[i].matches(presentGrams)) {
+                continue;
+            }
+            Matcher javaMatcher = patterns.get(i).matcher(text);
+            while (javaMatcher.find()) {
+                handler.onMatch(i, javaMatcher.start(), javaMatcher.end());
+            }
+        }
+    }
+
+    /**
+     * Gets the number of patterns that are filtered by their grams, the other patterns are always run.
+     */
+    public int getNumFilteredPatterns() {
+        int numFiltered = 0;
+        for (GramFilter filter : filters) {
+            if (filter != null) {
+                numFiltered++;
+            }
+        }
+        return numFiltered;
+    }
+
+}
@@ -0,0 +1,156 @@
+package edu.uci.ics.texera.dataflow.regexmatcher;
+
+/**
+ * RE2JCompatibility checks if a java.util.regex regex can be handed to RE2J, which parses it with its own syntax.
+ *
+ * isSameSyntax() is required for anything derived from the RE2J parse of the regex,
+ *   such as the n-gram queries of RegexToGramQueryTranslator that filter the texts the regex is run on:
+ *   if the two engines read the regex differently, the n-grams may not be in a text that java.util.regex matches.
+ * isSameMatching() is required to match the regex by RE2J instead of java.util.regex (see RegexEngine.AUTO).
+ *
+ * Both checks are conservative, a regex that is rejected may still be read the same way by the two engines.
+ *
+ */
+public class RE2JCompatibility {
+
+    // the escapes of letters and digits that RE2J reads as java.util.regex does, or as a superset of it
+    private static final String SAME_SYNTAX_ESCAPES = "dDwWStnrfaxbBAz";
+    // the escapes of letters and digits that RE2J matches exactly as java.util.regex does
+    private static final String SAME_MATCHING_ESCAPES = "dDwWtnrfax";
+    private static final String SAME_MATCHING_IGNORE_CASE_ESCAPES = "dDtnrfa";
+
+    /**
+     * Checks if RE2J reads a regex the same as java.util.regex, assuming RE2J can parse it:
+     *   every text that java.util.regex matches has a match of the RE2J parse of the regex.
+     *
+     * The regex must not have:
+     *   nested character classes and "&&" (an intersection in java.util.regex, two characters in RE2J),
+     *   flags and groups other than "(?:" (for example, (?U) is ungreedy in RE2J),
+     *   and escapes other than \d \D \w \W \S \t \n \r \f \a \x \b \B \A \z and the escaped punctuations
+     *   (for example \s, \v, \h, \p and octal escapes are different).
+     *
+     * @param regex
+     * @return true if the RE2J parse of the regex can be used for java.util.regex
+     */
+    public static boolean isSameSyntax(String regex) {
+        return check(regex, false, false);
+    }
+
+    /**
+     * Checks if RE2J matches a regex the same as java.util.regex, assuming RE2J can parse it.
+     *
+     * The regex must read the same (see isSameSyntax()), except that \S \b \B \A \z are not allowed either,
+     *   and must not have any of the constructs that the two engines match differently:
+     *   "." (RE2J also matches \r, U+0085, U+2028 and U+2029),
+     *   "$" (java.util.regex also matches before a line terminator at the end of the text).
+     *
+     * If the case is ignored, RE2J folds the cases of all Unicode characters but java.util.regex only folds ASCII,
+     *   so the regex must be ASCII and must not match "k" or "s" (they're folded with U+212A and U+017F)
+     *   by a character, a range, \w, \W or \x.
+     *
+     * @param regex
+     * @param ignoreCase
+     * @return true if the regex can be matched by RE2J
+     */
+    public static boolean isSameMatching(String regex, boolean ignoreCase) {
+        return check(regex, true, ignoreCase);
+    }
+
+    private static boolean check(String regex, boolean isMatching, boolean ignoreCase) {
+        if (regex.contains("&&")) {
+            return false;
+        }
+        ignoreCase = isMatching && ignoreCase;
+        String compatibleEscapes = ! isMatching ? SAME_SYNTAX_ESCAPES :
+            ignoreCase ? SAME_MATCHING_IGNORE_CASE_ESCAPES : SAME_MATCHING_ESCAPES;
+        boolean inClass = false;
+        boolean isClassStart = false;
+        // the last single character in the character class, -1 if it's not a character, used to check the ranges
+        int lastClassChar = -1;
+        int i = 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (ignoreCase && ! isCaseFoldedSame(c)) {
+                return false;
+            }
+            if (c == '\\') {
+                if (i + 1 >= regex.length()) {
+                    return false;
+                }
+                char escaped = regex.charAt(i + 1);
+                if (escaped == 'Q' && ! inClass) {
+                    int quoteEnd = regex.indexOf("\\E", i + 2);
+                    String quoted = regex.substring(i + 2, quoteEnd < 0 ? regex.length() : quoteEnd);
+                    if (ignoreCase && ! quoted.chars().allMatch(ch -> isCaseFoldedSame((char) ch))) {
+                        return false;
+                    }
+                    i = quoteEnd < 0 ? regex.length() : quoteEnd + 2;
+                    continue;
+                }
+                if (Character.isLetterOrDigit(escaped) && compatibleEscapes.indexOf(escaped) < 0) {
+                    return false;
+                }
+                if (ignoreCase && ! isCaseFoldedSame(escaped)) {
+                    return false;
+                }
+                if (inClass) {
+                    // a range with an escaped character is only checked if the case is not ignored
+                    if (ignoreCase && (regex.startsWith("-", i + 2) || (i > 0 && regex.charAt(i - 1) == '-'))) {
+                        return false;
+                    }
+                    lastClassChar = -1;
+                    isClassStart = false;
+                }
+                i += 2;
+                continue;
+            }
+            if (inClass) {
+                if (c == '[') {
+                    return false;
+                } else if (c == ']' && ! isClassStart) {
+                    inClass = false;
+                } else if (c == '^' && isClassStart && regex.charAt(i - 1) == '[') {
+                    // a negated class, the next character is still at the start of the class
+                    i++;
+                    continue;
+                } else if (c == '-' && lastClassChar >= 0 && i + 1 < regex.length()
+                        && regex.charAt(i + 1) != ']' && regex.charAt(i + 1) != '\\') {
+                    char rangeEnd = regex.charAt(i + 1);
+                    if (ignoreCase && (isInRange('k', lastClassChar, rangeEnd) || isInRange('K', lastClassChar, rangeEnd)
+                            || isInRange('s', lastClassChar, rangeEnd) || isInRange('S', lastClassChar, rangeEnd))) {
+                        return false;
+                    }
+                    lastClassChar = -1;
+                    isClassStart = false;
+                    i += 2;
+                    continue;
+                } else {
+                    lastClassChar = c;
+                }
+                isClassStart = false;
+            } else if (c == '[') {
+                inClass = true;
+                isClassStart = true;
+                lastClassChar = -1;
+            } else if (isMatching && (c == '.' || c == '$')) {
+                return false;
+            } else if (c == '(' && regex.startsWith("?", i + 1) && ! regex.startsWith("?:", i + 1)) {
+                return false;
+            }
+            i++;
+        }
+        return true;
+    }
+
+    /*
+     * Checks if both engines fold the case of a character in the regex the same way.
+     */
+    private static boolean isCaseFoldedSame(char c) {
+        return c <= 0x7F && "kKsS".indexOf(c) < 0;
+    }
+
+    private static boolean isInRange(char c, int rangeStart, char rangeEnd) {
+        return c >= rangeStart && c <= rangeEnd;
+    }
+
+}
@@ -0,0 +1,185 @@
+package edu.uci.ics.texera.dataflow.regexmatcher;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.Pattern;
+
+import org.apache.lucene.search.Query;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import edu.uci.ics.texera.api.exception.DataflowException;
+
+/**
+ * RegexArtifactCache is a process-wide cache of the artifacts that are computed from a regex
+ *   when a regex operator is opened, so that a query that is issued again reuses them:
+ *   - the compiled java.util.regex Pattern of a regex and its flags,
+ *   - the compiled RE2J Pattern of a regex and its flags,
+ *   - the n-gram query of a regex translated by RegexToGramQueryTranslator,
+ *   - the lower-case n-gram query of a regex, which is looked up in the secondary n-gram indexes,
+ *   - the parsed Lucene query of a query string on the attributes of a table with its analyzer,
+ *   - the preprocessed form of a labeled regex.
+ *
+ * Each kind of artifact is kept in its own bounded cache that evicts the least recently used entry,
+ *   and records its hit rate, which can be read by getStats().
+ *
+ */
+public class RegexArtifactCache {
+
+    public static final int MAXIMUM_SIZE = 256;
+
+    public static final String PATTERN_CACHE = "pattern";
+    public static final String RE2J_PATTERN_CACHE = "re2jPattern";
+    public static final String GRAM_QUERY_CACHE = "gramQuery";
+    public static final String LOWER_CASE_GRAM_QUERY_CACHE = "lowerCaseGramQuery";
+    public static final String LUCENE_QUERY_CACHE = "luceneQuery";
+    public static final String LABELED_REGEX_CACHE = "labeledRegex";
+
+    private static final Cache<List<Object>, Pattern> patternCache = newCache();
+    private static final Cache<List<Object>, com.google.re2j.Pattern> re2jPatternCache = newCache();
+    private static final Cache<String, GramBooleanQuery> gramQueryCache = newCache();
+    private static final Cache<String, GramBooleanQuery> lowerCaseGramQueryCache = newCache();
+    private static final Cache<List<Object>, Query> luceneQueryCache = newCache();
+    private static final Cache<List<Object>, Object> labeledRegexCache = newCache();
+
+    private RegexArtifactCache() {
+    }
+
+    private static <K, V> Cache<K, V> newCache() {
+        // a single segment makes the eviction order strictly least recently used
+        return CacheBuilder.newBuilder()
+                .maximumSize(MAXIMUM_SIZE)
+                .concurrencyLevel(1)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Gets the compiled pattern of a regex with the given flags.
+     *
+     * @param regex
+     * @param flags, the flags of Pattern.compile()
+     * @return the compiled pattern
+     */
+    public static Pattern getPattern(String regex, int flags) {
+        return get(patternCache, Arrays.asList(regex, flags), () -> Pattern.compile(regex, flags));
+    }
+
+    /**
+     * Gets the compiled RE2J pattern of a regex with the given flags.
+     *
+     * @param regex
+     * @param flags, the flags of com.google.re2j.Pattern.compile()
+     * @return the compiled pattern
+     * @throws com.google.re2j.PatternSyntaxException, if RE2J doesn't support the regex
+     */
+    public static com.google.re2j.Pattern getRE2JPattern(String regex, int flags) throws com.google.re2j.PatternSyntaxException {
+        return get(re2jPatternCache, Arrays.asList(regex, flags), () -> com.google.re2j.Pattern.compile(regex, flags));
+    }
+
+    /**
+     * Gets the n-gram query of a regex, translated by RegexToGramQueryTranslator.translate().
+     * The returned query is shared, it must not be modified.
+     *
+     * @param regex
+     * @return the n-gram query
+     * @throws com.google.re2j.PatternSyntaxException, if the regex can't be translated
+     */
+    public static GramBooleanQuery getGramQuery(String regex) throws com.google.re2j.PatternSyntaxException {
+        return get(gramQueryCache, regex, () -> RegexToGramQueryTranslator.translate(regex));
+    }
+
+    /**
+     * Gets the lower-case n-gram query of a regex, translated by RegexToGramQueryTranslator.translateToLowerCaseGrams().
+     * The returned query is shared, it must not be modified.
+     *
+     * @param regex
+     * @return the lower-case n-gram query
+     * @throws com.google.re2j.PatternSyntaxException, if the regex can't be translated
+     */
+    public static GramBooleanQuery getLowerCaseGramQuery(String regex) throws com.google.re2j.PatternSyntaxException {
+        return get(lowerCaseGramQueryCache, regex, () -> RegexToGramQueryTranslator.translateToLowerCaseGrams(regex));
+    }
+
+    /**
+     * Gets the Lucene query of a query string, parsed by the loader if it's not cached.
+     *
+     * @param tableName, the table to query
+     * @param luceneAnalyzerString, the analyzer of the table
+     * @param attributeNames, the attributes to query
+     * @param queryString, the query string
+     * @param loader, parses the query string
+     * @return the Lucene query
+     */
+    public static Query getLuceneQuery(String tableName, String luceneAnalyzerString, List<String> attributeNames,
+            String queryString, Callable<Query> loader) {
+        return get(luceneQueryCache, Arrays.asList(tableName, luceneAnalyzerString, ImmutableList.copyOf(attributeNames), queryString), loader);
+    }
+
+    /**
+     * Gets the preprocessed form of a labeled regex, computed by the loader if it's not cached.
+     * The type distinguishes the preprocessing of the different kinds of labeled regexes.
+     *
+     * @param type, the class of the preprocessed form
+     * @param regex, the labeled regex
+     * @param loader, preprocesses the regex
+     * @return the preprocessed form, which must be immutable
+     */
+    public static <T> T getLabeledRegex(Class<T> type, String regex, Callable<T> loader) {
+        return type.cast(get(labeledRegexCache, Arrays.asList(type, regex), loader));
+    }
+
+    private static <K, V> V get(Cache<K, V> cache, K key, Callable<? extends V> loader) {
+        try {
+            return cache.get(key, loader);
+        } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            // rethrow the exception of the loader, such as a PatternSyntaxException
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new DataflowException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Gets the statistics of each cache, including its hit rate.
+     *
+     * @return a map of the name of each cache to its statistics
+     */
+    public static Map<String, CacheStats> getStats() {
+        return ImmutableMap.<String, CacheStats>builder()
+                .put(PATTERN_CACHE, patternCache.stats())
+                .put(RE2J_PATTERN_CACHE, re2jPatternCache.stats())
+                .put(GRAM_QUERY_CACHE, gramQueryCache.stats())
+                .put(LOWER_CASE_GRAM_QUERY_CACHE, lowerCaseGramQueryCache.stats())
+                .put(LUCENE_QUERY_CACHE, luceneQueryCache.stats())
+                .put(LABELED_REGEX_CACHE, labeledRegexCache.stats())
+                .build();
+    }
+
+    /**
+     * Removes all the cached artifacts. The statistics are not reset.
+     */
+    public static void invalidateAll() {
+        patternCache.invalidateAll();
+        re2jPatternCache.invalidateAll();
+        gramQueryCache.invalidateAll();
+        lowerCaseGramQueryCache.invalidateAll();
+        luceneQueryCache.invalidateAll();
+        labeledRegexCache.invalidateAll();
+    }
+
+}
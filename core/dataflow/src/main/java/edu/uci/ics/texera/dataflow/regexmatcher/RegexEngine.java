@@ -0,0 +1,63 @@
+package edu.uci.ics.texera.dataflow.regexmatcher;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import edu.uci.ics.texera.api.exception.TexeraException;
+
+/**
+ * RegexEngine: the engine that RegexMatcher uses to match a regex. <br>
+ *
+ * JDK: <br>
+ * java.util.regex, which supports all of the Java regex syntax,
+ * but backtracks, so a pathological regex such as "(a+)+b" can take exponential time on a tuple. <br>
+ *
+ * RE2J: <br>
+ * com.google.re2j, which matches in time linear to the length of the text,
+ * but doesn't support backreferences, look-arounds, possessive quantifiers and atomic groups. <br>
+ *
+ * AUTO: <br>
+ * RE2J if it supports the regex and matches it the same as JDK (for example, the regex has no ".", "$" or \b), <br>
+ * JDK otherwise. <br>
+ *
+ */
+public enum RegexEngine {
+
+    AUTO(RegexEngineName.AUTO),
+
+    JDK(RegexEngineName.JDK),
+
+    RE2J(RegexEngineName.RE2J);
+
+    public final String name;
+
+    private RegexEngine(String name) {
+        this.name = name;
+    }
+
+    // use the name string instead of enum string in JSON
+    @JsonValue
+    public String getName() {
+        return this.name;
+    }
+
+    public static RegexEngine fromName(String name) {
+        if (name.equalsIgnoreCase(AUTO.getName()) ||
+                name.equalsIgnoreCase(AUTO.toString())) {
+            return AUTO;
+        } else if (name.equalsIgnoreCase(JDK.getName()) ||
+                name.equalsIgnoreCase(JDK.toString())) {
+            return JDK;
+        } else if (name.equalsIgnoreCase(RE2J.getName()) ||
+                name.equalsIgnoreCase(RE2J.toString())) {
+            return RE2J;
+        } else {
+            throw new TexeraException("Cannot convert " + name + " to RegexEngine");
+        }
+    }
+
+    public class RegexEngineName {
+        public static final String AUTO = "auto";
+        public static final String JDK = "jdk";
+        public static final String RE2J = "re2j";
+    }
+}
@@ -2,10 +2,15 @@ package edu.uci.ics.texera.dataflow.regexmatcher;
 
 import edu.uci.ics.texera.api.constants.ErrorMessages;
 import edu.uci.ics.texera.api.schema.Schema;
+
+import org.apache.lucene.index.Term;
 import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
 import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
 
 import edu.uci.ics.texera.api.dataflow.ISourceOperator;
 import edu.uci.ics.texera.api.exception.DataflowException;
@@ -16,10 +21,27 @@ import edu.uci.ics.texera.dataflow.common.AbstractSingleInputOperator;
 import edu.uci.ics.texera.dataflow.utils.DataflowUtils;
 import edu.uci.ics.texera.storage.DataReader;
 import edu.uci.ics.texera.storage.RelationManager;
+import edu.uci.ics.texera.storage.constants.LuceneAnalyzerConstants;
 
+/**
+ * RegexMatcherSourceOperator reads the tuples of a table that can match a regex, and matches the regex on them.
+ * 
+ * If the predicate uses the index, the regex is translated to an n-gram query that prefilters the tuples,
+ *   either on the secondary n-gram indexes of the attributes (see RelationManager.createTable()),
+ *   or on the attributes themselves if the table is analyzed into n-grams.
+ * The selectivity of the n-gram query is estimated by counting its matches in the index,
+ *   and the table is scanned instead if the query matches more than MAX_INDEX_SELECTIVITY of it,
+ *   because reading most of the tuples through the index costs as much as scanning the table.
+ */
 public class RegexMatcherSourceOperator extends AbstractSingleInputOperator implements ISourceOperator {
     
+    public static final double MAX_INDEX_SELECTIVITY = 0.5;
+    
     private final RegexSourcePredicate predicate;
+    
+    // the estimated fraction of the table matching the n-gram query, 1 if there is no n-gram query
+    private double indexSelectivity = 1;
+    private boolean indexUsed = false;
 
     private final DataReader dataReader;
     private final RegexMatcher regexMatcher;
@@ -28,13 +50,21 @@ public class RegexMatcherSourceOperator extends AbstractSingleInputOperator impl
         //System.out.println("4.1RegexMatcherSourceOperator");
         this.predicate = predicate;
         
+        Query luceneQuery = new MatchAllDocsQuery();
         if (this.predicate.isUseIndex()) {
-            this.dataReader = RelationManager.getInstance().getTableDataReader(this.predicate.getTableName(), 
-                    createLuceneQuery(this.predicate));
-        } else {
-            this.dataReader = RelationManager.getInstance().getTableDataReader(this.predicate.getTableName(), 
-                    new MatchAllDocsQuery());
+            Query indexQuery = createLuceneQuery(this.predicate);
+            if (! (indexQuery instanceof MatchAllDocsQuery)) {
+                indexSelectivity = RelationManager.getInstance().estimateSelectivity(
+                        this.predicate.getTableName(), indexQuery);
+                if (indexSelectivity <= MAX_INDEX_SELECTIVITY) {
+                    luceneQuery = indexQuery;
+                    indexUsed = true;
+                }
+            }
         }
+        this.dataReader = RelationManager.getInstance().getTableDataReader(this.predicate.getTableName(), 
+                luceneQuery);
+        this.dataReader.setStreaming(true);
         
         regexMatcher = new RegexMatcher(this.predicate);
         regexMatcher.setInputOperator(dataReader);
@@ -61,28 +91,129 @@ public class RegexMatcherSourceOperator extends AbstractSingleInputOperator impl
     protected void cleanUp() throws TexeraException {
     }
     
+    /**
+     * Gets whether the tuples are read by the n-gram query of the regex, instead of scanning the table.
+     */
+    public boolean isIndexUsed() {
+        return indexUsed;
+    }
+    
+    /**
+     * Gets the estimated fraction of the table that matches the n-gram query of the regex,
+     *   it's 1 if the index isn't used by the predicate or the regex can't be translated.
+     */
+    public double getIndexSelectivity() {
+        return indexSelectivity;
+    }
+    
+    /**
+     * Creates the Lucene query that prefilters the tuples of the table that can match the regex,
+     *   it's a MatchAllDocsQuery if the tuples can't be prefiltered.
+     * 
+     * @param predicate
+     * @return
+     * @throws StorageException
+     */
     public static Query createLuceneQuery(RegexSourcePredicate predicate) throws StorageException {
+        RelationManager relationManager = RelationManager.getInstance();
+        if (relationManager.getTableGramIndexAttributes(predicate.getTableName()).containsAll(predicate.getAttributeNames())) {
+            return createGramIndexQuery(predicate);
+        }
+        
+        // the grams can only be looked up in the attributes themselves if they are analyzed into grams of the same length
+        String luceneAnalyzerString = relationManager.getTableAnalyzerString(predicate.getTableName());
+        if (! luceneAnalyzerString.equals(LuceneAnalyzerConstants.nGramAnalyzerString(TranslatorUtils.DEFAULT_GRAM_LENGTH))) {
+            return new MatchAllDocsQuery();
+        }
+        
         Query luceneQuery;
-        String queryString;
+        // The translated query and the parsed query are cached, so that issuing the same regex again doesn't redo them.
+        String queryString = translateToQueryString(predicate.getRegex());
+
+        // Try to parse the query string. It if fails, raise an exception.
+        luceneQuery = RegexArtifactCache.getLuceneQuery(predicate.getTableName(), luceneAnalyzerString,
+                predicate.getAttributeNames(), queryString, () -> {
+                    try {
+                        return new MultiFieldQueryParser(
+                                predicate.getAttributeNames().stream().toArray(String[]::new), 
+                                RelationManager.getInstance().getTableAnalyzer(predicate.getTableName()))
+                                .parse(queryString);
+                    } catch (ParseException e) {
+                        throw new StorageException (e);
+                    }
+                });
         
-        // Try to apply translator. If it fails, use scan query.
+        return luceneQuery;
+    }
+
+    /*
+     * Creates the query of the lower-case n-grams of the regex on the secondary n-gram index fields of the attributes.
+     * The regex can match any of the attributes, so the queries of the attributes are combined by OR.
+     */
+    private static Query createGramIndexQuery(RegexSourcePredicate predicate) {
+        // the grams are translated from the RE2J parse of the regex, which must read the regex as java.util.regex does
+        if (! RE2JCompatibility.isSameSyntax(predicate.getRegex())) {
+            return new MatchAllDocsQuery();
+        }
+        GramBooleanQuery gramQuery;
         try {
-            queryString = RegexToGramQueryTranslator.translate(predicate.getRegex()).getLuceneQueryString();
+            gramQuery = RegexArtifactCache.getLowerCaseGramQuery(predicate.getRegex());
         } catch (com.google.re2j.PatternSyntaxException e) {
-            queryString = DataflowUtils.LUCENE_SCAN_QUERY;
+            return new MatchAllDocsQuery();
+        }
+        try {
+            BooleanQuery.Builder attributesQueryBuilder = new BooleanQuery.Builder();
+            for (String attributeName : predicate.getAttributeNames()) {
+                Query attributeQuery = toGramIndexQuery(gramQuery, 
+                        LuceneAnalyzerConstants.getGramIndexFieldName(attributeName));
+                if (attributeQuery == null) {
+                    return new MatchAllDocsQuery();
+                }
+                attributesQueryBuilder.add(attributeQuery, Occur.SHOULD);
+            }
+            return attributesQueryBuilder.build();
+        } catch (BooleanQuery.TooManyClauses e) {
+            return new MatchAllDocsQuery();
+        }
+    }
+    
+    /*
+     * Converts an n-gram query to a Lucene query on an n-gram index field.
+     * Returns null if the query matches every text, a sub-query that matches every text is dropped from an AND.
+     */
+    private static Query toGramIndexQuery(GramBooleanQuery gramQuery, String fieldName) {
+        switch (gramQuery.operator) {
+        case LEAF:
+            return new TermQuery(new Term(fieldName, gramQuery.leaf));
+        case AND:
+        case OR:
+            BooleanQuery.Builder queryBuilder = new BooleanQuery.Builder();
+            int numClauses = 0;
+            for (GramBooleanQuery subQuery : gramQuery.subQuerySet) {
+                Query subLuceneQuery = toGramIndexQuery(subQuery, fieldName);
+                if (subLuceneQuery == null && gramQuery.operator == GramBooleanQuery.QueryOp.OR) {
+                    return null;
+                }
+                if (subLuceneQuery != null) {
+                    queryBuilder.add(subLuceneQuery, 
+                            gramQuery.operator == GramBooleanQuery.QueryOp.AND ? Occur.FILTER : Occur.SHOULD);
+                    numClauses++;
+                }
+            }
+            return numClauses == 0 ? null : queryBuilder.build();
+        default:
+            // ANY matches every text, NONE is only produced for invalid regexes, so neither filters anything
+            return null;
         }
+    }
 
-        // Try to parse the query string. It if fails, raise an exception.
+    private static String translateToQueryString(String regex) {
+        // Try to apply translator. If it fails, use scan query.
         try {
-            luceneQuery = new MultiFieldQueryParser(
-                    predicate.getAttributeNames().stream().toArray(String[]::new), 
-                    RelationManager.getInstance().getTableAnalyzer(predicate.getTableName()))
-                    .parse(queryString);
-        } catch (ParseException e) {
-            throw new StorageException (e);
+            return RegexArtifactCache.getGramQuery(regex).getLuceneQueryString();
+        } catch (com.google.re2j.PatternSyntaxException e) {
+            return DataflowUtils.LUCENE_SCAN_QUERY;
         }
-        
-        return luceneQuery;
     }
 
     public Schema transformToOutputSchema(Schema... inputSchema) {
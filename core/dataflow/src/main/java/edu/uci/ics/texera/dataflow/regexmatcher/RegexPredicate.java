@@ -32,6 +32,8 @@ public class RegexPredicate extends PredicateBase {
 
     private String spanListName;
     private final Boolean ignoreCase;
+    private final RegexEngine regexEngine;
+    private final Integer regexTimeBudget;
     
     /*
      * This constructor is only for internal use.
@@ -40,14 +42,25 @@ public class RegexPredicate extends PredicateBase {
         this(regex, attributeNames, null, spanListName);
     }
     public RegexPredicate(RegexPredicate that) {
-        this(that.regex, that.attributeNames, that.ignoreCase, that.spanListName);
+        this(that.regex, that.attributeNames, that.ignoreCase, that.regexEngine, that.regexTimeBudget, that.spanListName);
     }
+    
+    /*
+     * This constructor is only for internal use, it uses the default regex engine and no time budget.
+     */
+    public RegexPredicate(String regex, List<String> attributeNames, Boolean ignoreCase, String spanListName) {
+        this(regex, attributeNames, ignoreCase, null, null, spanListName);
+    }
+    
     /**
      * RegexPredicate is used to create a RegexMatcher.
      * 
      * @param regex, the regex to be used
      * @param attributeNames, a list of attribute names to match regex on
      * @param ignoreCase, optional, ignores regex case, default false
+     * @param regexEngine, optional, the engine that matches the regex, default auto
+     * @param regexTimeBudget, optional, the milliseconds the regex can take to match the attributes of a tuple, 
+     *          a tuple whose matching runs out of the budget is skipped, default 0, which means no budget
      * @param spanListName, the name of the attribute where the results will be put in
      */
     @JsonCreator
@@ -63,6 +76,16 @@ public class RegexPredicate extends PredicateBase {
                     defaultValue = "false")
             Boolean ignoreCase,
             
+            @AdvancedOption
+            @JsonProperty(value = PropertyNameConstants.REGEX_ENGINE, required = false,
+                    defaultValue = RegexEngine.RegexEngineName.AUTO)
+            RegexEngine regexEngine,
+            
+            @AdvancedOption
+            @JsonProperty(value = PropertyNameConstants.REGEX_TIME_BUDGET, required = false,
+                    defaultValue = "0")
+            Integer regexTimeBudget,
+            
             @JsonProperty(value = PropertyNameConstants.SPAN_LIST_NAME, required = false)
             String spanListName) {
         
@@ -77,6 +100,18 @@ public class RegexPredicate extends PredicateBase {
         } else {
             this.ignoreCase = ignoreCase;
         }
+        if (regexEngine == null) {
+            this.regexEngine = RegexEngine.AUTO;
+        } else {
+            this.regexEngine = regexEngine;
+        }
+        if (regexTimeBudget == null) {
+            this.regexTimeBudget = 0;
+        } else if (regexTimeBudget < 0) {
+            throw new TexeraException(PropertyNameConstants.INVALID_REGEX_TIME_BUDGET_EXCEPTION);
+        } else {
+            this.regexTimeBudget = regexTimeBudget;
+        }
         if (spanListName == null || spanListName.trim().isEmpty()) {
             this.spanListName = null;
         } else {
@@ -109,6 +144,16 @@ public class RegexPredicate extends PredicateBase {
     public Boolean isIgnoreCase() {
         return this.ignoreCase;
     }
+    
+    @JsonProperty(PropertyNameConstants.REGEX_ENGINE)
+    public RegexEngine getRegexEngine() {
+        return this.regexEngine;
+    }
+    
+    @JsonProperty(PropertyNameConstants.REGEX_TIME_BUDGET)
+    public Integer getRegexTimeBudget() {
+        return this.regexTimeBudget;
+    }
 
     @Override
     public IOperator newOperator() {
@@ -27,6 +27,19 @@ public class RegexSourcePredicate extends RegexPredicate {
             String spanListName) {
         this(regex, attributeNames, null, tableName, null, spanListName);
     }
+    
+    /*
+     * This constructor is for internal use, it uses the default regex engine and no time budget.
+     */
+    public RegexSourcePredicate(
+            String regex, 
+            List<String> attributeNames, 
+            Boolean ignoreCase, 
+            String tableName,
+            Boolean useIndex,
+            String spanListName) {
+        this(regex, attributeNames, ignoreCase, null, null, tableName, useIndex, spanListName);
+    }
 
     /**
      * RegexSourcePredicate is used to create a RegexSourceOperator.
@@ -34,6 +47,9 @@ public class RegexSourcePredicate extends RegexPredicate {
      * @param regex, the regex to be used
      * @param attributeNames, a list of attribute names to match regex on
      * @param ignoreCase, optional, ignores regex case, default false
+     * @param regexEngine, optional, the engine that matches the regex, default auto
+     * @param regexTimeBudget, optional, the milliseconds the regex can take to match the attributes of a tuple, 
+     *          default 0, which means no budget
      * @param tableName, the name of the source table
      * @param useIndex, optional, use the gram-based regex index query, default true
      * @param spanListName, the name of the attribute where the results will be put in
@@ -51,6 +67,16 @@ public class RegexSourcePredicate extends RegexPredicate {
                     defaultValue = "false")
             Boolean ignoreCase, 
             
+            @AdvancedOption
+            @JsonProperty(value = PropertyNameConstants.REGEX_ENGINE, required = false,
+                    defaultValue = RegexEngine.RegexEngineName.AUTO)
+            RegexEngine regexEngine,
+            
+            @AdvancedOption
+            @JsonProperty(value = PropertyNameConstants.REGEX_TIME_BUDGET, required = false,
+                    defaultValue = "0")
+            Integer regexTimeBudget,
+            
             @JsonProperty(value = PropertyNameConstants.TABLE_NAME, required = true)
             String tableName,
             
@@ -61,7 +87,7 @@ public class RegexSourcePredicate extends RegexPredicate {
             
             @JsonProperty(value = PropertyNameConstants.SPAN_LIST_NAME, required = true)
             String spanListName) {
-        super(regex, attributeNames, ignoreCase, spanListName);
+        super(regex, attributeNames, ignoreCase, regexEngine, regexTimeBudget, spanListName);
 
         if (tableName == null || tableName.isEmpty()) {
             throw new TexeraException(PropertyNameConstants.EMPTY_NAME_EXCEPTION);
@@ -87,7 +87,8 @@ public class RegexStats {
     public void addStatsSubRegexSuccess(double successCost, int matchingSrcSize){
         // update cost
         if(successCost != 0){ // Update cost average only if the passed input is greater than zero
-            successCostAverage = ((successDataPointCounter * successCostAverage) + successCost ) / (successDataPointCounter + 1);
+            // successDataPointCounter starts at 1 to avoid zero selectivity, so the costs are counted by df
+            successCostAverage = ((df * successCostAverage) + successCost ) / (df + 1);
         }
         df ++;
         // update selectivity
@@ -43,23 +43,50 @@ public class RegexToGramQueryTranslator {
     public static GramBooleanQuery translate(String regex, int gramLength)
             throws com.google.re2j.PatternSyntaxException {
 
-        TranslatorUtils.GRAM_LENGTH = gramLength;
-
         // Since the inverted index relies on lower-case grams, we need to
         // convert the characters to lower case.
-        regex = regex.toLowerCase();
-        
-        PublicRegexp re = PublicParser.parse(regex, PublicRE2.PERL);
-        re = PublicSimplify.simplify(re);
+        GramBooleanQuery match = translateToGrams(regex.toLowerCase(), gramLength);
 
-        RegexInfo regexInfo = analyze(re);
-        regexInfo.simplify(true);
+        TranslatorUtils.escapeSpecialCharacters(match);
 
-        TranslatorUtils.GRAM_LENGTH = TranslatorUtils.DEFAULT_GRAM_LENGTH;
+        return match;
+    }
 
-        TranslatorUtils.escapeSpecialCharacters(regexInfo.match);
+    /**
+     * This method translates a regular expression to a boolean expression of
+     * n-grams that must be in the lower-cased text for the regex to match it,
+     * either case sensitively or case insensitively. <br>
+     * 
+     * Unlike translate(), the regex is parsed as it is and only the grams are
+     * lower-cased (character by character), so that classes like \S are not changed,
+     * and the grams are not escaped for Lucene. It's used to filter the text before
+     * running the regex on it.
+     * 
+     * @param regex,
+     *            the regex string to be translated.
+     * @return GamBooleanQeruy, a boolean query of lower-case n-grams.
+     */
+    static GramBooleanQuery translateToLowerCaseGrams(String regex) throws com.google.re2j.PatternSyntaxException {
+        GramBooleanQuery match = translateToGrams(regex, TranslatorUtils.DEFAULT_GRAM_LENGTH);
+        TranslatorUtils.toLowerCaseByCharacter(match);
+        return match;
+    }
+
+    private static GramBooleanQuery translateToGrams(String regex, int gramLength)
+            throws com.google.re2j.PatternSyntaxException {
 
-        return regexInfo.match;
+        TranslatorUtils.GRAM_LENGTH = gramLength;
+        try {
+            PublicRegexp re = PublicParser.parse(regex, PublicRE2.PERL);
+            re = PublicSimplify.simplify(re);
+
+            RegexInfo regexInfo = analyze(re);
+            regexInfo.simplify(true);
+
+            return regexInfo.match;
+        } finally {
+            TranslatorUtils.GRAM_LENGTH = TranslatorUtils.DEFAULT_GRAM_LENGTH;
+        }
     }
 
     /**
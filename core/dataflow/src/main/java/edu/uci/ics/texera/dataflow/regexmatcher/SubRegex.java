@@ -16,6 +16,8 @@ public class SubRegex extends AbstractSubSequence{
     Pattern startWithRegexPattern;
     Pattern startToEndRegexPattern;
     Pattern endWithRegexPattern;
+    // the pattern that finds the sub-regex with the RE2J engine of RegexMatcher
+    com.google.re2j.Pattern re2jPattern;
     RegexPredicate predicate;
     ComplexityLevel complexity;
     SubRegex reverseSubRegex;
@@ -75,6 +77,16 @@ public class SubRegex extends AbstractSubSequence{
 
     }
 
+    /**
+     * Discards the statistics collected so far, also the ones of the reverse sub-regex.
+     */
+    public void resetStats(){
+        stats = new RegexStats(predicate.getAttributeNames().size());
+        if(reverseSubRegex != null){
+            reverseSubRegex.resetStats();
+        }
+    }
+
     public void setOriginalSubCount(int count){
         super.setOriginalSubCount(count);
         if(reverseSubRegex != null){
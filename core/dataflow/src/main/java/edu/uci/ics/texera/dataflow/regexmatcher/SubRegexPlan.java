@@ -0,0 +1,127 @@
+package edu.uci.ics.texera.dataflow.regexmatcher;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * SubRegexPlan is the order in which RegexMatcher checks the core sub-regexes of a regex on a field value,
+ *   chosen by the statistics that the sub-regexes collected on the first tuples.
+ *
+ * Each filter of the plan is a core sub-regex that must be found in the field value,
+ *   because a match of the regex contains a match of each of its core sub-regexes.
+ *   If a filter isn't found, the field value is skipped without running the whole regex.
+ *   A filter is found in the reversed field value by its reverse sub-regex if that is expected to be cheaper.
+ * The whole regex is only run on the field values in which all the filters are found.
+ *
+ * Assuming the sub-regexes match independently, the expected cost of a plan is
+ *   cost(f1) + sel(f1) * cost(f2) + ... + sel(f1) * ... * sel(fn) * cost(regex),
+ *   which is the least when the filters are ordered by cost(f) / (1 - sel(f)).
+ *   The plan keeps the prefix of this order with the least expected cost, which can be no filter at all.
+ *
+ */
+public class SubRegexPlan {
+
+    private final List<SubRegex> filters;
+    private final List<Boolean> reverseFilters;
+    private final SubRegex mainRegex;
+    private final double expectedCost;
+
+    private SubRegexPlan(List<SubRegex> filters, SubRegex mainRegex, double expectedCost) {
+        this.filters = filters;
+        this.reverseFilters = new ArrayList<>();
+        for (SubRegex filter : filters) {
+            reverseFilters.add(filter.isReverseExecutionFaster());
+        }
+        this.mainRegex = mainRegex;
+        this.expectedCost = expectedCost;
+    }
+
+    /**
+     * Chooses the plan with the least expected cost, by the statistics of the sub-regexes.
+     *
+     * @param coreSubRegexes, the core sub-regexes of the regex
+     * @param mainRegex, the whole regex
+     * @return the cheapest plan
+     */
+    public static SubRegexPlan choose(List<SubRegex> coreSubRegexes, SubRegex mainRegex) {
+        List<SubRegex> candidates = new ArrayList<>();
+        for (SubRegex subRegex : coreSubRegexes) {
+            // a sub-regex that is found in every field value can't filter any
+            if (subRegex.stats.getSelectivity() < 1) {
+                candidates.add(subRegex);
+            }
+        }
+        Collections.sort(candidates, Comparator.comparingDouble(
+                subRegex -> subRegex.getExpectedCost() / (1 - subRegex.stats.getSelectivity())));
+
+        double mainRegexCost = mainRegex.stats.getExpectedCost();
+        int bestNumFilters = 0;
+        double bestCost = mainRegexCost;
+
+        double filtersCost = 0;
+        double passingProbability = 1;
+        for (int i = 0; i < candidates.size(); i++) {
+            filtersCost += passingProbability * candidates.get(i).getExpectedCost();
+            passingProbability *= candidates.get(i).stats.getSelectivity();
+            double cost = filtersCost + passingProbability * mainRegexCost;
+            if (cost < bestCost) {
+                bestNumFilters = i + 1;
+                bestCost = cost;
+            }
+        }
+        return new SubRegexPlan(new ArrayList<>(candidates.subList(0, bestNumFilters)), mainRegex, bestCost);
+    }
+
+    /**
+     * @return the core sub-regexes to find before running the whole regex, in order
+     */
+    public List<SubRegex> getFilters() {
+        return Collections.unmodifiableList(filters);
+    }
+
+    /**
+     * @param index, the index of a filter
+     * @return whether the filter is found in the reversed field value by its reverse sub-regex
+     */
+    public boolean isReverseFilter(int index) {
+        return reverseFilters.get(index);
+    }
+
+    /**
+     * @return the statistics of the first step of the plan, which runs on every field value
+     */
+    public RegexStats getFirstStepStats() {
+        return filters.isEmpty() ? mainRegex.stats : filters.get(0).stats;
+    }
+
+    /**
+     * @return the expected cost of the plan on a field value, in nanoseconds
+     */
+    public double getExpectedCost() {
+        return expectedCost;
+    }
+
+    /**
+     * Describes the steps of the plan, one per line.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < filters.size(); i++) {
+            SubRegex filter = filters.get(i);
+            SubRegex executedFilter = isReverseFilter(i) ? filter.getReverseSubRegex() : filter;
+            sb.append(String.format("%d. find %s %s%s, selectivity %.4f, cost %.0f ns\n",
+                    i + 1, filter.toStringShort().trim(), executedFilter.predicate.getRegex(),
+                    isReverseFilter(i) ? " in the reversed text" : "",
+                    filter.stats.getSelectivity(), filter.getExpectedCost()));
+        }
+        sb.append(String.format("%d. match %s, selectivity %.4f, cost %.0f ns\n",
+                filters.size() + 1, mainRegex.predicate.getRegex(),
+                mainRegex.stats.getSelectivity(), mainRegex.stats.getExpectedCost()));
+        sb.append(String.format("expected cost: %.0f ns per field value", expectedCost));
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,82 @@
+package edu.uci.ics.texera.dataflow.regexmatcher;
+
+import edu.uci.ics.texera.api.exception.DataflowException;
+
+/**
+ * TimeBudgetCharSequence wraps a text to abort a regex match on it that runs longer than its time budget.
+ *
+ * Both java.util.regex and RE2J read the text by charAt(), even while a backtracking match makes no progress,
+ *   so the deadline is checked every CHECK_INTERVAL reads, and a TimeBudgetExceededException is thrown
+ *   out of the matcher once it has passed.
+ *
+ */
+public class TimeBudgetCharSequence implements CharSequence {
+
+    // the number of reads between two checks of the clock, must be a power of 2
+    private static final int CHECK_INTERVAL = 1 << 12;
+
+    private final String text;
+    private final long deadlineNanos;
+    private int readCount = 0;
+
+    /**
+     * @param text, the text to match
+     * @param timeBudgetMillis, the time the matches on the text can take, starting now
+     */
+    public TimeBudgetCharSequence(String text, long timeBudgetMillis) {
+        this.text = text;
+        this.deadlineNanos = System.nanoTime() + timeBudgetMillis * 1000000L;
+    }
+
+    private TimeBudgetCharSequence(long deadlineNanos, String text) {
+        this.text = text;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Wraps another text that shares the deadline of this one,
+     *   for example the reversed text that a reverse sub-regex is found in.
+     *
+     * @param otherText, the text to match
+     * @return the wrapped text
+     */
+    public TimeBudgetCharSequence withText(String otherText) {
+        return new TimeBudgetCharSequence(deadlineNanos, otherText);
+    }
+
+    @Override
+    public char charAt(int index) {
+        if ((++readCount & (CHECK_INTERVAL - 1)) == 0 && System.nanoTime() - deadlineNanos > 0) {
+            throw new TimeBudgetExceededException();
+        }
+        return text.charAt(index);
+    }
+
+    @Override
+    public int length() {
+        return text.length();
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return text.subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+
+    /**
+     * TimeBudgetExceededException is thrown by a match that runs out of its time budget.
+     */
+    public static class TimeBudgetExceededException extends DataflowException {
+
+        private static final long serialVersionUID = 4178573461850298245L;
+
+        public TimeBudgetExceededException() {
+            super("the regex match ran out of its time budget");
+        }
+    }
+
+}
@@ -207,4 +207,26 @@ public class TranslatorUtils {
         }
     }
 
+    static void toLowerCaseByCharacter(GramBooleanQuery query) {
+        if (query.operator == QueryOp.LEAF) {
+            query.leaf = toLowerCaseByCharacter(query.leaf);
+        } else {
+            for (GramBooleanQuery subQuery : query.subQuerySet) {
+                toLowerCaseByCharacter(subQuery);
+            }
+        }
+    }
+
+    /**
+     * Lower-cases a string with Character.toLowerCase(), which keeps the length of the string,
+     * unlike String.toLowerCase().
+     */
+    static String toLowerCaseByCharacter(String str) {
+        char[] chars = str.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
 }
@@ -1,10 +1,11 @@
 package edu.uci.ics.texera.dataflow.regexmatcher.label;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -13,6 +14,7 @@ import edu.uci.ics.texera.api.exception.DataflowException;
 import edu.uci.ics.texera.api.field.ListField;
 import edu.uci.ics.texera.api.span.Span;
 import edu.uci.ics.texera.api.tuple.Tuple;
+import edu.uci.ics.texera.dataflow.regexmatcher.RegexArtifactCache;
 import edu.uci.ics.texera.dataflow.regexmatcher.RegexMatcher;
 import edu.uci.ics.texera.dataflow.regexmatcher.RegexPredicate;
 
@@ -27,58 +29,113 @@ import edu.uci.ics.texera.dataflow.regexmatcher.RegexPredicate;
  */
 public class LabeledRegexProcessor {
     
+    // the number of patterns of distinct label values that are kept for the tuples that follow
+    public static final int MAX_CACHED_PATTERNS = 1024;
+    
     private RegexPredicate predicate;
-    private String cleanedRegex;
-    private ArrayList<String> labelList = new ArrayList<>();
+    private List<String> labelList;
+    private List<String> regexParts;
+    private List<String> regexPartLabels;
+    
+    // the compiled patterns of the label values of the recent tuples, in least recently used order
+    private final Map<Map<String, List<String>>, Pattern> patternCache = new LinkedHashMap<Map<String, List<String>>, Pattern>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Map<String, List<String>>, Pattern> eldest) {
+            return size() > MAX_CACHED_PATTERNS;
+        }
+    };
+    
+    /*
+     * The labels of a regex, and the regex split around its labels (with trimmed labels),
+     *   which are cached by RegexArtifactCache.
+     * For regex "<drug>\\s*cures\\s*<disease>", the parts are {"", "\\s*cures\\s*", ""}
+     *   and the labels between the parts are {"drug", "disease"}.
+     */
+    private static class PreprocessedRegex {
+        private final List<String> labelList = new ArrayList<>();
+        private final List<String> regexParts = new ArrayList<>();
+        private final List<String> regexPartLabels = new ArrayList<>();
+    }
     
     public LabeledRegexProcessor(RegexPredicate predicate) {
         this.predicate = predicate;
-        preprocessRegex();
+        PreprocessedRegex preprocessedRegex = RegexArtifactCache.getLabeledRegex(
+                PreprocessedRegex.class, predicate.getRegex(), () -> preprocessRegex(predicate.getRegex()));
+        this.labelList = preprocessedRegex.labelList;
+        this.regexParts = preprocessedRegex.regexParts;
+        this.regexPartLabels = preprocessedRegex.regexPartLabels;
     }
     
-    private void preprocessRegex() {
-        Matcher labelMatcher = Pattern.compile(RegexMatcher.CHECK_REGEX_LABEL).matcher(predicate.getRegex());
-        cleanedRegex = predicate.getRegex();
+    private static PreprocessedRegex preprocessRegex(String regex) {
+        PreprocessedRegex preprocessedRegex = new PreprocessedRegex();
+        Matcher labelMatcher = RegexArtifactCache.getPattern(RegexMatcher.CHECK_REGEX_LABEL, 0).matcher(regex);
+        int pre = 0;
         while (labelMatcher.find()) {
-            String labelStr = predicate.getRegex().substring(
-                    labelMatcher.start() + 1, labelMatcher.end() - 1);
-            String substrTrimmed = labelStr.trim();
-            labelList.add(substrTrimmed);
-            cleanedRegex = cleanedRegex.replace("<" + labelStr + ">", "<" + substrTrimmed + ">");
+            String substrTrimmed = regex.substring(
+                    labelMatcher.start() + 1, labelMatcher.end() - 1).trim();
+            if (! preprocessedRegex.labelList.contains(substrTrimmed)) {
+                preprocessedRegex.labelList.add(substrTrimmed);
+            }
+            preprocessedRegex.regexParts.add(regex.substring(pre, labelMatcher.start()));
+            preprocessedRegex.regexPartLabels.add(substrTrimmed);
+            pre = labelMatcher.end();
         }
+        preprocessedRegex.regexParts.add(regex.substring(pre));
+        return preprocessedRegex;
     }
     
     /**
-     * Process regex pattern
+     * Process regex pattern.
+     * The regex is only compiled for the label values that haven't been seen in the recent tuples.
      * @param inputTuple
      * @return tuple with matching entries
      */
     public List<Span> computeMatchingResults(Tuple inputTuple) {
-        Map<String, Set<String>> labelValues = fetchLabelValues(inputTuple);
-        String regexWithVal = rewriteRegexWithLabelValues(labelValues);
-        Pattern regexPattern = predicate.isIgnoreCase() ? 
-                Pattern.compile(regexWithVal, Pattern.CASE_INSENSITIVE)
-                : Pattern.compile(regexWithVal);
-                
-        return RegexMatcher.computeMatchingResultsWithPattern("", predicate, regexPattern);
+        Map<String, List<String>> labelValues = fetchLabelValues(inputTuple);
+        Pattern regexPattern = patternCache.get(labelValues);
+        if (regexPattern == null) {
+            String regexWithVal = rewriteRegexWithLabelValues(labelValues);
+            regexPattern = predicate.isIgnoreCase() ? 
+                    Pattern.compile(regexWithVal, Pattern.CASE_INSENSITIVE)
+                    : Pattern.compile(regexWithVal);
+            patternCache.put(labelValues, regexPattern);
+        }
+        
+        List<Span> matchingResults = new ArrayList<>();
+        for (String attributeName : predicate.getAttributeNames()) {
+            String fieldValue = inputTuple.getField(attributeName).getValue().toString();
+            Matcher javaMatcher = regexPattern.matcher(fieldValue);
+            while (javaMatcher.find()) {
+                int start = javaMatcher.start();
+                int end = javaMatcher.end();
+                matchingResults.add(
+                        new Span(attributeName, start, end, predicate.getRegex(), fieldValue.substring(start, end)));
+            }
+        }
+        return matchingResults;
     }
     
     /**
-     * Create Map of label id and corresponding attribute values
+     * Create Map of label id and corresponding attribute values.
+     * The distinct values of a label are sorted (the longer ones first) so that
+     *   the same values always make the same regex, no matter the order of the spans.
      * @param inputTuple
      * @return map of label id and corresponding attribute values
      */
-    private Map<String, Set<String>> fetchLabelValues(Tuple inputTuple) throws DataflowException {
-        Map<String, Set<String>> labelSpanList = new HashMap<>();
+    private Map<String, List<String>> fetchLabelValues(Tuple inputTuple) throws DataflowException {
+        Map<String, List<String>> labelSpanList = new HashMap<>();
         for (String label : this.labelList) {
             if (! inputTuple.getSchema().containsAttribute(label)) {
                 throw new DataflowException("label " + label + " does not exist");
             }
             ListField<Span> spanListField = inputTuple.getField(label);
-            Set<String> labelValues = spanListField.getValue().stream()
+            List<String> labelValues = spanListField.getValue().stream()
                     .map(span -> span.getValue())
-                    .map(value -> escapeString(value))
-                    .collect(Collectors.toSet());
+                    .distinct()
+                    .sorted(Comparator.comparing(String::length).reversed().thenComparing(Comparator.naturalOrder()))
+                    .collect(Collectors.toList());
             labelSpanList.put(label, labelValues);
         }
         return labelSpanList;
@@ -98,18 +155,20 @@ public class LabeledRegexProcessor {
     }
     
     /**
-     * Replace labels with actual values in labeled regex
-     * @param cleanedRegex
-     * @param labelValueList
+     * Replace labels with actual (escaped) values in labeled regex
+     * @param labelValues
      * @return regex with actual span values
      */
-    private String rewriteRegexWithLabelValues(Map<String, Set<String>> labelValues) {
-        String regexWithValue = cleanedRegex;
-        for(Map.Entry<String, Set<String>> entry : labelValues.entrySet()){
-            String repVal = "(" + entry.getValue().stream().collect(Collectors.joining("|")) + ")";
-            regexWithValue = regexWithValue.replaceAll("<"+entry.getKey()+">", repVal);
+    private String rewriteRegexWithLabelValues(Map<String, List<String>> labelValues) {
+        StringBuilder regexWithValue = new StringBuilder(regexParts.get(0));
+        for (int i = 0; i < regexPartLabels.size(); i++) {
+            regexWithValue.append("(")
+                .append(labelValues.get(regexPartLabels.get(i)).stream()
+                        .map(value -> escapeString(value)).collect(Collectors.joining("|")))
+                .append(")")
+                .append(regexParts.get(i + 1));
         }
-        return regexWithValue;
+        return regexWithValue.toString();
     }
 
 }
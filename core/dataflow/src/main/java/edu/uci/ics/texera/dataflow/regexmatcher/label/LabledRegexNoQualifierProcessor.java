@@ -12,6 +12,7 @@ import java.util.stream.Collectors;
 import edu.uci.ics.texera.api.field.ListField;
 import edu.uci.ics.texera.api.span.Span;
 import edu.uci.ics.texera.api.tuple.Tuple;
+import edu.uci.ics.texera.dataflow.regexmatcher.RegexArtifactCache;
 import edu.uci.ics.texera.dataflow.regexmatcher.RegexMatcher;
 import edu.uci.ics.texera.dataflow.regexmatcher.RegexPredicate;
 
@@ -34,14 +35,27 @@ public class LabledRegexNoQualifierProcessor {
 
     private RegexPredicate predicate;
     
-    private ArrayList<String> labelList = new ArrayList<>();
-    private ArrayList<String> affixList = new ArrayList<>();
-    private ArrayList<String> sortedAffixList = new ArrayList<>(); // sort the affixList by length in decreasing order to short-cut the filter tuple operation.
+    private List<String> labelList;
+    private List<String> affixList;
+    private List<String> sortedAffixList; // sort the affixList by length in decreasing order to short-cut the filter tuple operation.
+    
+    /*
+     * The labels and affixes of a regex, which are cached by RegexArtifactCache.
+     */
+    private static class PreprocessedRegex {
+        private final List<String> labelList = new ArrayList<>();
+        private final List<String> affixList = new ArrayList<>();
+        private List<String> sortedAffixList;
+    }
     
     public LabledRegexNoQualifierProcessor(RegexPredicate predicate) {
         this.predicate = predicate;
         // populate labelList and affixList
-        preprocessRegex();
+        PreprocessedRegex preprocessedRegex = RegexArtifactCache.getLabeledRegex(
+                PreprocessedRegex.class, predicate.getRegex(), () -> preprocessRegex(predicate.getRegex()));
+        this.labelList = preprocessedRegex.labelList;
+        this.affixList = preprocessedRegex.affixList;
+        this.sortedAffixList = preprocessedRegex.sortedAffixList;
     }
 
     /**
@@ -50,22 +64,27 @@ public class LabledRegexNoQualifierProcessor {
      * labelList {"label1", "label2"}
      * Sort the affixList in length decreasing order to filter tuples.
      */
-    private void preprocessRegex() {
-        Matcher labelMatcher = Pattern.compile(RegexMatcher.CHECK_REGEX_LABEL).matcher(predicate.getRegex());
+    private static PreprocessedRegex preprocessRegex(String regex) {
+        PreprocessedRegex preprocessedRegex = new PreprocessedRegex();
+        List<String> labelList = preprocessedRegex.labelList;
+        List<String> affixList = preprocessedRegex.affixList;
+        Matcher labelMatcher = RegexArtifactCache.getPattern(RegexMatcher.CHECK_REGEX_LABEL, 0).matcher(regex);
         int pre = 0;
         while (labelMatcher.find()) {
             int start = labelMatcher.start();
             int end = labelMatcher.end();
             
-            affixList.add(predicate.getRegex().substring(pre, start));
-            labelList.add(predicate.getRegex().substring(
+            affixList.add(regex.substring(pre, start));
+            labelList.add(regex.substring(
                     labelMatcher.start() + 1, labelMatcher.end() - 1).trim());
 
             pre = end;
         }
-        affixList.add(predicate.getRegex().substring(pre));
-        sortedAffixList = new ArrayList<>(affixList);
+        affixList.add(regex.substring(pre));
+        List<String> sortedAffixList = new ArrayList<>(affixList);
         sortedAffixList.sort((o1, o2) -> (o2.length()-o1.length()));
+        preprocessedRegex.sortedAffixList = sortedAffixList;
+        return preprocessedRegex;
     }
 
     /**
@@ -19,7 +19,7 @@ import edu.uci.ics.texera.api.tuple.Tuple;
 public abstract class AbstractSink implements ISink {
 
     private IOperator inputOperator;
-    private int cursor = CLOSED;
+    protected int cursor = CLOSED;
 
     /**
      * @about Opens the child operator.
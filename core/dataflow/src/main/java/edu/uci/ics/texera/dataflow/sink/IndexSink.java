@@ -1,6 +1,9 @@
 package edu.uci.ics.texera.dataflow.sink;
 
+import com.google.common.collect.AbstractIterator;
+
 import edu.uci.ics.texera.api.constants.ErrorMessages;
+import edu.uci.ics.texera.api.dataflow.IOperator;
 import edu.uci.ics.texera.api.exception.DataflowException;
 import edu.uci.ics.texera.api.exception.StorageException;
 import edu.uci.ics.texera.api.exception.TexeraException;
@@ -12,18 +15,27 @@ import edu.uci.ics.texera.storage.RelationManager;
 /**
  * IndexSink is a sink that writes tuples into an index.
  * 
+ * In bulk load mode, the tuples of the input operator are inserted by DataWriter.insertTuples(),
+ *   which builds the Lucene documents on several threads, instead of being inserted one by one.
+ * 
  * @author zuozhi
  */
 public class IndexSink extends AbstractSink {
 
     private DataWriter dataWriter;
     private boolean isAppend = false;
+    private boolean isBulkLoad = false;
 
     public IndexSink(String tableName, boolean isAppend) throws DataflowException {
+        this(tableName, isAppend, false);
+    }
+    
+    public IndexSink(String tableName, boolean isAppend, boolean isBulkLoad) throws DataflowException {
         try {
             RelationManager relationManager = RelationManager.getInstance();
             this.dataWriter = relationManager.getTableDataWriter(tableName);
             this.isAppend = isAppend;
+            this.isBulkLoad = isBulkLoad;
         } catch (StorageException e) {
             throw new DataflowException(e);
         }
@@ -38,9 +50,36 @@ public class IndexSink extends AbstractSink {
         }
     }
 
+    @Override
+    public void processTuples() throws TexeraException {
+        if (! isBulkLoad) {
+            super.processTuples();
+            return;
+        }
+        if (cursor == CLOSED) {
+            throw new DataflowException(ErrorMessages.OPERATOR_NOT_OPENED);
+        }
+        // the input operator is pulled lazily, on this thread, as the data writer consumes the tuples
+        IOperator inputOperator = getInputOperator();
+        cursor += dataWriter.insertTuples(() -> new AbstractIterator<Tuple>() {
+            @Override
+            protected Tuple computeNext() {
+                Tuple nextTuple = inputOperator.getNextTuple();
+                return nextTuple != null ? nextTuple : endOfData();
+            }
+        });
+    }
+
     protected void processOneTuple(Tuple nextTuple) throws TexeraException {
         dataWriter.insertTuple(nextTuple);
     }
+    
+    /**
+     * @return the data writer of the table, which can be tuned (see DataWriter) before the sink is opened
+     */
+    public DataWriter getDataWriter() {
+        return this.dataWriter;
+    }
 
     public void close() throws TexeraException {
         if (this.dataWriter != null) {
@@ -56,6 +56,10 @@ public class TupleSink implements ISink {
     public IOperator getInputOperator() {
         return this.inputOperator;
     }
+    
+    public TupleSinkPredicate getPredicate() {
+        return this.predicate;
+    }
 
     @Override
     public Schema getOutputSchema() {
@@ -109,6 +113,30 @@ public class TupleSink implements ISink {
 
     }
 
+    @Override
+    public List<Tuple> getNextBatch(int maxTuples) throws TexeraException {
+        List<Tuple> results = new ArrayList<>();
+        if (cursor == CLOSED) {
+            return results;
+        }
+        long end = (long) predicate.getLimit() + predicate.getOffset();
+        while (cursor < end && results.size() < maxTuples) {
+            int batchSize = (int) Math.min(maxTuples - results.size(), end - cursor);
+            List<Tuple> inputTuples = inputOperator.getNextBatch(batchSize);
+            if (inputTuples.isEmpty()) {
+                break;
+            }
+            for (Tuple inputTuple : inputTuples) {
+                cursor++;
+                if (cursor > predicate.getOffset()) {
+                    results.add(new Tuple.Builder(inputTuple)
+                            .removeIfExists(SchemaConstants.PAYLOAD, AsterixSource.RAW_DATA).build());
+                }
+            }
+        }
+        return results;
+    }
+
     @Override
     public void close() throws TexeraException {
         if (cursor == CLOSED) {
@@ -128,9 +156,9 @@ public class TupleSink implements ISink {
     public List<Tuple> collectAllTuples() throws TexeraException {
         this.open();
         ArrayList<Tuple> results = new ArrayList<>();
-        Tuple tuple;
-        while ((tuple = this.getNextTuple()) != null) {
-            results.add(tuple);
+        List<Tuple> batch;
+        while (! (batch = this.getNextBatch(DEFAULT_BATCH_SIZE)).isEmpty()) {
+            results.addAll(batch);
         }
         this.close();
         return results;
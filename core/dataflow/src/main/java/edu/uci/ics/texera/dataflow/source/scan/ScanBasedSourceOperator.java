@@ -1,5 +1,8 @@
 package edu.uci.ics.texera.dataflow.source.scan;
 
+import java.util.Collection;
+import java.util.List;
+
 import edu.uci.ics.texera.api.exception.DataflowException;
 import edu.uci.ics.texera.api.exception.StorageException;
 import edu.uci.ics.texera.api.exception.TexeraException;
@@ -7,27 +10,42 @@ import edu.uci.ics.texera.api.schema.Schema;
 import edu.uci.ics.texera.api.tuple.Tuple;
 
 import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
 
 import edu.uci.ics.texera.api.constants.ErrorMessages;
 import edu.uci.ics.texera.api.dataflow.ISourceOperator;
 import edu.uci.ics.texera.storage.DataReader;
 import edu.uci.ics.texera.storage.RelationManager;
+import edu.uci.ics.texera.storage.SharedSearcher;
 
 /**
  * Created by chenli on 3/28/16.
+ * 
+ * ScanBasedSourceOperator reads the tuples of a table. 
+ *   It can also be given a query (such as the range queries of the comparisons pushed down by LogicalPlan),
+ *   then it only reads the tuples matching the query, without scoring them.
  */
 public class ScanBasedSourceOperator implements ISourceOperator {
 
+    private final ScanSourcePredicate predicate;
+    private final Query query;
     private DataReader dataReader;
     
     private boolean isOpen = false;
 
     public ScanBasedSourceOperator(ScanSourcePredicate predicate) throws DataflowException {
+        this(predicate, new MatchAllDocsQuery());
+    }
+    
+    public ScanBasedSourceOperator(ScanSourcePredicate predicate, Query query) throws DataflowException {
+        this.predicate = predicate;
+        this.query = query;
         try {
             this.dataReader = RelationManager.getInstance().getTableDataReader(
-                    predicate.getTableName(), new MatchAllDocsQuery());
-            // TODO add an option to set if payload is added in the future.
+                    predicate.getTableName(), query);
+            // the payload is lazy, its term vectors are only read if a token-based operator uses it
             this.dataReader.setPayloadAdded(true);
+            this.dataReader.setStreaming(true);
         } catch (StorageException e) {
             throw new DataflowException(e);
         }
@@ -59,6 +77,18 @@ public class ScanBasedSourceOperator implements ISourceOperator {
         }
     }
 
+    @Override
+    public List<Tuple> getNextBatch(int maxTuples) throws TexeraException {
+        if (! isOpen) {
+            throw new DataflowException(ErrorMessages.OPERATOR_NOT_OPENED);
+        }
+        try {
+            return dataReader.getNextBatch(maxTuples);
+        } catch (Exception e) {
+            throw new DataflowException(e.getMessage(), e);
+        }
+    }
+
     @Override
     public void close() throws TexeraException {
         if (! isOpen) {
@@ -72,6 +102,67 @@ public class ScanBasedSourceOperator implements ISourceOperator {
         }
     }
 
+    /**
+     * Makes this operator only scan one of numPartitions disjoint parts of the table.
+     * It must be called before open().
+     * 
+     * @param partitionIndex
+     * @param numPartitions
+     * @throws DataflowException
+     */
+    public void setPartition(int partitionIndex, int numPartitions) throws DataflowException {
+        setPartition(partitionIndex, numPartitions, null);
+    }
+
+    /**
+     * Makes this operator only scan one of numPartitions disjoint parts of the table,
+     *   reading the snapshot of the table shared by all the partitions (see DataReader.setPartition()).
+     * It must be called before open().
+     * 
+     * @param partitionIndex
+     * @param numPartitions
+     * @param sharedSearcher, the searcher of the table shared by all the partitions, 
+     *   null to read the latest snapshot when this operator is opened
+     * @throws DataflowException
+     */
+    public void setPartition(int partitionIndex, int numPartitions, SharedSearcher sharedSearcher) 
+            throws DataflowException {
+        if (isOpen) {
+            throw new DataflowException("Partition cannot be changed after opening the operator");
+        }
+        try {
+            dataReader.setPartition(partitionIndex, numPartitions, sharedSearcher);
+        } catch (StorageException e) {
+            throw new DataflowException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Makes this operator only read the attributes needed by the rest of the plan (and the _id), 
+     *   see DataReader.setProjectedAttributes().
+     * It must be called before open().
+     * 
+     * @param attributeNames, the names of the attributes to read, null to read all the attributes
+     * @throws DataflowException
+     */
+    public void setProjectedAttributes(Collection<String> attributeNames) throws DataflowException {
+        if (isOpen) {
+            throw new DataflowException("Projected attributes cannot be changed after opening the operator");
+        }
+        dataReader.setProjectedAttributes(attributeNames);
+    }
+
+    public ScanSourcePredicate getPredicate() {
+        return this.predicate;
+    }
+    
+    /**
+     * @return the query of the tuples this operator reads, MatchAllDocsQuery if it reads the whole table
+     */
+    public Query getQuery() {
+        return this.query;
+    }
+
     @Override
     public Schema getOutputSchema() {
         return dataReader.getOutputSchema();
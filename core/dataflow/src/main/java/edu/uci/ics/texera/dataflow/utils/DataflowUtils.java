@@ -16,6 +16,8 @@ import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import edu.uci.ics.texera.api.exception.DataflowException;
 import edu.uci.ics.texera.api.exception.TexeraException;
 import edu.uci.ics.texera.api.schema.AttributeType;
+import edu.uci.ics.texera.api.span.CompactPayload;
+import edu.uci.ics.texera.api.span.LazyPayload;
 import edu.uci.ics.texera.api.span.Span;
 import edu.uci.ics.texera.api.tuple.*;
 import edu.uci.ics.texera.storage.constants.LuceneAnalyzerConstants;
@@ -96,20 +98,24 @@ public class DataflowUtils {
     }
 
     public static List<Span> generatePayloadFromTuple(Tuple tuple, Analyzer luceneAnalyzer) {
-        List<Span> tuplePayload = tuple.getSchema().getAttributes().stream()
+        CompactPayload.Builder payloadBuilder = new CompactPayload.Builder();
+        tuple.getSchema().getAttributes().stream()
                 .filter(attr -> (attr.getType() == AttributeType.TEXT)) // generate payload only for TEXT field
                 .map(attr -> attr.getName())
-                .map(attributeName -> generatePayload(attributeName, tuple.getField(attributeName).getValue().toString(),
-                        luceneAnalyzer))
-                .flatMap(payload -> payload.stream()) // flatten a list of lists to a list
-                .collect(Collectors.toList());
+                .forEach(attributeName -> addPayload(payloadBuilder, attributeName,
+                        tuple.getField(attributeName).getValue().toString(), luceneAnalyzer));
 
-        return tuplePayload;
+        return payloadBuilder.build();
     }
 
     public static List<Span> generatePayload(String attributeName, String fieldValue, Analyzer luceneAnalyzer) {
-        List<Span> payload = new ArrayList<>();
+        CompactPayload.Builder payloadBuilder = new CompactPayload.Builder();
+        addPayload(payloadBuilder, attributeName, fieldValue, luceneAnalyzer);
+        return payloadBuilder.build();
+    }
 
+    private static void addPayload(CompactPayload.Builder payloadBuilder, String attributeName, String fieldValue,
+            Analyzer luceneAnalyzer) {
         try {
             TokenStream tokenStream = luceneAnalyzer.tokenStream(null, new StringReader(fieldValue));
             OffsetAttribute offsetAttribute = tokenStream.addAttribute(OffsetAttribute.class);
@@ -126,16 +132,35 @@ public class DataflowUtils {
                 int charStart = offsetAttribute.startOffset();
                 int charEnd = offsetAttribute.endOffset();
                 String analyzedTermStr = charTermAttribute.toString();
-                String originalTermStr = fieldValue.substring(charStart, charEnd);
 
-                payload.add(new Span(attributeName, charStart, charEnd, analyzedTermStr, originalTermStr, tokenPosition));
+                payloadBuilder.add(attributeName, fieldValue, charStart, charEnd, analyzedTermStr, tokenPosition);
             }
             tokenStream.close();
         } catch (IOException e) {
             throw new DataflowException(e);
         }
+    }
 
-        return payload;
+    /**
+     * Gets the spans of a payload whose key (the analyzed term) is one of the given terms, in the order of the payload.
+     * If the payload is a CompactPayload, the terms are matched by their IDs and only the matching spans are created.
+     *
+     * @param payload
+     * @param keys
+     * @return the matching spans of the payload
+     */
+    public static List<Span> getPayloadSpans(List<Span> payload, Collection<String> keys) {
+        payload = LazyPayload.unwrap(payload);
+        if (payload instanceof CompactPayload) {
+            return ((CompactPayload) payload).getSpans(keys);
+        }
+        List<Span> relevantSpans = new ArrayList<>();
+        for (Span span : payload) {
+            if (keys.contains(span.getKey())) {
+                relevantSpans.add(span);
+            }
+        }
+        return relevantSpans;
     }
 
 
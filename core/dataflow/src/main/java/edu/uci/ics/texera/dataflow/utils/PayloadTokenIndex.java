@@ -0,0 +1,248 @@
+package edu.uci.ics.texera.dataflow.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.uci.ics.texera.api.span.CompactPayload;
+import edu.uci.ics.texera.api.span.LazyPayload;
+import edu.uci.ics.texera.api.span.Span;
+
+/**
+ * PayloadTokenIndex indexes the payload spans of one tuple at a time by attribute and term.
+ * It's used by the token-based matchers (KeywordMatcher, FuzzyTokenMatcher and DictionaryMatcher).
+ *
+ * The attributes and the terms to index (the query tokens or the dictionary tokens) are given once when
+ *   the operator is set up. Then index() makes a single pass over the payload of each tuple, and keeps
+ *   the spans of the indexed terms of each attribute in the order of the payload, and the number of spans of each term.
+ *   The spans of the other terms are skipped, and they're not even created if the payload is a CompactPayload.
+ *
+ * The index is reused for all the tuples, the lists it returns are only valid until the next call to index().
+ *
+ */
+public class PayloadTokenIndex {
+
+    private final List<String> attributeNames;
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private final List<String> terms = new ArrayList<>();
+
+    // the state of the current tuple, for each attribute
+    private final List<List<Span>> attributeSpans = new ArrayList<>();
+    private final int[][] spanTermIds;
+    private final int[][] termCounts;
+    private final int[][] presentTermIds;
+    private final int[] numPresentTerms;
+
+    // the index term ID of each term ID of the current CompactPayload, or -1
+    private int[] payloadTermIds = new int[0];
+
+    /**
+     * @param attributeNames, the attributes to index
+     * @param terms, the terms to index, the ID of a term is the order in which it first appears
+     */
+    public PayloadTokenIndex(List<String> attributeNames, Collection<String> terms) {
+        this.attributeNames = new ArrayList<>(attributeNames);
+        for (String term : terms) {
+            if (! termIds.containsKey(term)) {
+                termIds.put(term, this.terms.size());
+                this.terms.add(term);
+            }
+        }
+
+        int numAttributes = this.attributeNames.size();
+        this.spanTermIds = new int[numAttributes][];
+        this.termCounts = new int[numAttributes][];
+        this.presentTermIds = new int[numAttributes][];
+        this.numPresentTerms = new int[numAttributes];
+        for (int i = 0; i < numAttributes; i++) {
+            attributeSpans.add(new ArrayList<>());
+            spanTermIds[i] = new int[16];
+            termCounts[i] = new int[this.terms.size()];
+            presentTermIds[i] = new int[16];
+        }
+    }
+
+    /**
+     * Gets the ID of an indexed term, or -1 if it's not indexed.
+     */
+    public int getTermId(String term) {
+        Integer termId = termIds.get(term);
+        return termId == null ? -1 : termId;
+    }
+
+    public int getNumTerms() {
+        return terms.size();
+    }
+
+    /**
+     * Gets the index of an attribute, or -1 if it's not indexed.
+     */
+    public int getAttributeIndex(String attributeName) {
+        return attributeNames.indexOf(attributeName);
+    }
+
+    /**
+     * Indexes the payload of a tuple, replacing the previous tuple.
+     */
+    public void index(List<Span> payload) {
+        clear();
+        payload = LazyPayload.unwrap(payload);
+        if (payload instanceof CompactPayload) {
+            indexCompactPayload((CompactPayload) payload);
+            return;
+        }
+        String lastAttributeName = null;
+        int lastAttributeIndex = -1;
+        for (Span span : payload) {
+            Integer termId = termIds.get(span.getKey());
+            if (termId == null) {
+                continue;
+            }
+            if (! span.getAttributeName().equals(lastAttributeName)) {
+                lastAttributeName = span.getAttributeName();
+                lastAttributeIndex = getAttributeIndex(lastAttributeName);
+            }
+            if (lastAttributeIndex >= 0) {
+                addSpan(lastAttributeIndex, termId, span);
+            }
+        }
+    }
+
+    private void indexCompactPayload(CompactPayload payload) {
+        // map the term IDs of the payload to the index term IDs, looking up the smaller dictionary in the larger one
+        int numPayloadTerms = payload.getNumTerms();
+        if (payloadTermIds.length < numPayloadTerms) {
+            payloadTermIds = new int[Math.max(numPayloadTerms, payloadTermIds.length * 2)];
+        }
+        Arrays.fill(payloadTermIds, 0, numPayloadTerms, -1);
+        boolean hasIndexedTerm = false;
+        if (terms.size() < numPayloadTerms) {
+            for (int termId = 0; termId < terms.size(); termId++) {
+                int payloadTermId = payload.getTermId(terms.get(termId));
+                if (payloadTermId >= 0) {
+                    payloadTermIds[payloadTermId] = termId;
+                    hasIndexedTerm = true;
+                }
+            }
+        } else {
+            for (int payloadTermId = 0; payloadTermId < numPayloadTerms; payloadTermId++) {
+                Integer termId = termIds.get(payload.getTerm(payloadTermId));
+                if (termId != null) {
+                    payloadTermIds[payloadTermId] = termId;
+                    hasIndexedTerm = true;
+                }
+            }
+        }
+        if (! hasIndexedTerm) {
+            return;
+        }
+
+        String lastAttributeName = null;
+        int lastAttributeIndex = -1;
+        for (int i = 0; i < payload.size(); i++) {
+            int termId = payloadTermIds[payload.getTermId(i)];
+            if (termId < 0) {
+                continue;
+            }
+            String attributeName = payload.getAttributeName(i);
+            if (! attributeName.equals(lastAttributeName)) {
+                lastAttributeName = attributeName;
+                lastAttributeIndex = getAttributeIndex(attributeName);
+            }
+            if (lastAttributeIndex >= 0) {
+                addSpan(lastAttributeIndex, termId, payload.get(i));
+            }
+        }
+    }
+
+    private void addSpan(int attributeIndex, int termId, Span span) {
+        List<Span> spans = attributeSpans.get(attributeIndex);
+        if (spans.size() == spanTermIds[attributeIndex].length) {
+            spanTermIds[attributeIndex] = Arrays.copyOf(spanTermIds[attributeIndex], spans.size() * 2);
+        }
+        spanTermIds[attributeIndex][spans.size()] = termId;
+        spans.add(span);
+
+        if (termCounts[attributeIndex][termId]++ == 0) {
+            int numPresent = numPresentTerms[attributeIndex];
+            if (numPresent == presentTermIds[attributeIndex].length) {
+                presentTermIds[attributeIndex] = Arrays.copyOf(presentTermIds[attributeIndex], numPresent * 2);
+            }
+            presentTermIds[attributeIndex][numPresent] = termId;
+            numPresentTerms[attributeIndex]++;
+        }
+    }
+
+    private void clear() {
+        for (int i = 0; i < attributeNames.size(); i++) {
+            for (int j = 0; j < numPresentTerms[i]; j++) {
+                termCounts[i][presentTermIds[i][j]] = 0;
+            }
+            numPresentTerms[i] = 0;
+            attributeSpans.get(i).clear();
+        }
+    }
+
+    /**
+     * Gets the spans of the indexed terms in an attribute, in the order of the payload.
+     */
+    public List<Span> getSpans(int attributeIndex) {
+        return Collections.unmodifiableList(attributeSpans.get(attributeIndex));
+    }
+
+    /**
+     * Gets the spans of the given terms in an attribute, in the order of the payload.
+     */
+    public List<Span> getSpans(int attributeIndex, int[] termIds) {
+        List<Span> spans = attributeSpans.get(attributeIndex);
+        List<Span> termSpans = new ArrayList<>();
+        for (int i = 0; i < spans.size(); i++) {
+            int spanTermId = spanTermIds[attributeIndex][i];
+            for (int termId : termIds) {
+                if (spanTermId == termId) {
+                    termSpans.add(spans.get(i));
+                    break;
+                }
+            }
+        }
+        return termSpans;
+    }
+
+    /**
+     * Gets the number of spans of a term in an attribute.
+     */
+    public int getTermCount(int attributeIndex, int termId) {
+        return termCounts[attributeIndex][termId];
+    }
+
+    /**
+     * Gets the number of distinct indexed terms that have a span in an attribute.
+     */
+    public int getNumPresentTerms(int attributeIndex) {
+        return numPresentTerms[attributeIndex];
+    }
+
+    /**
+     * Gets the ID of the i-th distinct indexed term that has a span in an attribute.
+     */
+    public int getPresentTermId(int attributeIndex, int i) {
+        return presentTermIds[attributeIndex][i];
+    }
+
+    /**
+     * Returns true if all the given terms have a span in an attribute.
+     */
+    public boolean containsAllTerms(int attributeIndex, int[] termIds) {
+        for (int termId : termIds) {
+            if (termCounts[attributeIndex][termId] == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
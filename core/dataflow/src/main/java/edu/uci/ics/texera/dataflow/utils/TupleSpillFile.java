@@ -0,0 +1,360 @@
+package edu.uci.ics.texera.dataflow.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.uci.ics.texera.api.exception.DataflowException;
+import edu.uci.ics.texera.api.field.DateField;
+import edu.uci.ics.texera.api.field.DateTimeField;
+import edu.uci.ics.texera.api.field.DoubleField;
+import edu.uci.ics.texera.api.field.IDField;
+import edu.uci.ics.texera.api.field.IField;
+import edu.uci.ics.texera.api.field.IntegerField;
+import edu.uci.ics.texera.api.field.ListField;
+import edu.uci.ics.texera.api.field.StringField;
+import edu.uci.ics.texera.api.field.TextField;
+import edu.uci.ics.texera.api.schema.Schema;
+import edu.uci.ics.texera.api.span.Span;
+import edu.uci.ics.texera.api.tuple.Tuple;
+
+/**
+ * TupleSpillFile is a temporary file of tuples with the same schema, which is used by operators
+ *   (such as Join and Aggregator) to spill their inputs or intermediate results to disk.
+ *
+ * Tuples are written in a compact binary encoding:
+ *   each field is a one byte type tag followed by its value, integers are written in a variable length,
+ *   and the strings that repeat a lot in span lists (attribute names and keys) are only written the first time,
+ *   then they are referred to by their number in the file.
+ *
+ * A file is written once, then it can be read any number of times.
+ *
+ */
+public class TupleSpillFile {
+
+    private static final byte STRING_FIELD = 1;
+    private static final byte TEXT_FIELD = 2;
+    private static final byte INTEGER_FIELD = 3;
+    private static final byte DOUBLE_FIELD = 4;
+    private static final byte DATE_FIELD = 5;
+    private static final byte DATETIME_FIELD = 6;
+    private static final byte ID_FIELD = 7;
+    private static final byte LIST_FIELD = 8;
+    // set on the type tag if the value of the field is null
+    private static final byte NULL_VALUE_FLAG = (byte) 0x80;
+
+    private static final byte SPAN_ELEMENT = 1;
+    private static final byte STRING_ELEMENT = 2;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path path;
+    private final Schema schema;
+
+    private DataOutputStream output;
+    private Map<String, Integer> writtenDictionary = new HashMap<>();
+    private int numTuples = 0;
+
+    public TupleSpillFile(Path directory, Schema schema) throws IOException {
+        this.path = Files.createTempFile(directory, "spill", ".bin");
+        this.schema = schema;
+        this.output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE));
+    }
+
+    public void write(Tuple tuple) throws IOException {
+        if (output == null) {
+            throw new DataflowException("spill file " + path + " is already written");
+        }
+        List<IField> fields = tuple.getFields();
+        for (IField field : fields) {
+            writeField(field);
+        }
+        numTuples++;
+    }
+
+    /**
+     * Flushes and closes the file for writing, it must be called before reading the file.
+     */
+    public void finishWriting() throws IOException {
+        if (output != null) {
+            output.close();
+            output = null;
+            writtenDictionary = null;
+        }
+    }
+
+    public Reader openReader() throws IOException {
+        if (output != null) {
+            throw new DataflowException("spill file " + path + " is still being written");
+        }
+        return new Reader();
+    }
+
+    public int getNumTuples() {
+        return numTuples;
+    }
+
+    public long getFileSize() throws IOException {
+        return Files.size(path);
+    }
+
+    public void delete() throws IOException {
+        if (output != null) {
+            output.close();
+            output = null;
+        }
+        Files.deleteIfExists(path);
+    }
+
+    private void writeField(IField field) throws IOException {
+        byte typeTag = getTypeTag(field);
+        Object value = field.getValue();
+        if (value == null) {
+            output.writeByte(typeTag | NULL_VALUE_FLAG);
+            return;
+        }
+        output.writeByte(typeTag);
+        switch (typeTag) {
+        case STRING_FIELD:
+        case TEXT_FIELD:
+        case ID_FIELD:
+            writeString((String) value);
+            break;
+        case INTEGER_FIELD:
+            writeVarInt((Integer) value);
+            break;
+        case DOUBLE_FIELD:
+            output.writeDouble((Double) value);
+            break;
+        case DATE_FIELD:
+            writeVarLong(((LocalDate) value).toEpochDay());
+            break;
+        case DATETIME_FIELD:
+            LocalDateTime dateTime = (LocalDateTime) value;
+            writeVarLong(dateTime.toEpochSecond(ZoneOffset.UTC));
+            writeVarInt(dateTime.getNano());
+            break;
+        default:
+            writeList((List<?>) value);
+        }
+    }
+
+    private static byte getTypeTag(IField field) {
+        if (field instanceof StringField) {
+            return STRING_FIELD;
+        } else if (field instanceof TextField) {
+            return TEXT_FIELD;
+        } else if (field instanceof IntegerField) {
+            return INTEGER_FIELD;
+        } else if (field instanceof DoubleField) {
+            return DOUBLE_FIELD;
+        } else if (field instanceof DateField) {
+            return DATE_FIELD;
+        } else if (field instanceof DateTimeField) {
+            return DATETIME_FIELD;
+        } else if (field instanceof IDField) {
+            return ID_FIELD;
+        } else if (field instanceof ListField) {
+            return LIST_FIELD;
+        }
+        throw new DataflowException("field type " + field.getClass().getName() + " can't be spilled to disk");
+    }
+
+    private void writeList(List<?> list) throws IOException {
+        writeVarInt(list.size());
+        for (Object element : list) {
+            if (element instanceof Span) {
+                Span span = (Span) element;
+                output.writeByte(SPAN_ELEMENT);
+                writeDictionaryString(span.getAttributeName());
+                writeVarInt(span.getStart());
+                writeVarInt(span.getEnd());
+                writeDictionaryString(span.getKey());
+                writeString(span.getValue());
+                writeVarInt(span.getTokenOffset());
+            } else if (element instanceof String) {
+                output.writeByte(STRING_ELEMENT);
+                writeString((String) element);
+            } else {
+                throw new DataflowException("list element type " + element.getClass().getName()
+                        + " can't be spilled to disk");
+            }
+        }
+    }
+
+    private void writeDictionaryString(String str) throws IOException {
+        Integer stringNumber = writtenDictionary.get(str);
+        if (stringNumber != null) {
+            writeVarInt(stringNumber + 1);
+            return;
+        }
+        writeVarInt(0);
+        writeString(str);
+        writtenDictionary.put(str, writtenDictionary.size());
+    }
+
+    private void writeString(String str) throws IOException {
+        if (str == null) {
+            writeVarInt(-1);
+            return;
+        }
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private void writeVarInt(int value) throws IOException {
+        writeVarLong(value);
+    }
+
+    /*
+     * Writes a zigzag encoded variable length integer, small negative numbers (such as -1) are also short.
+     */
+    private void writeVarLong(long value) throws IOException {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            output.writeByte((int) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        output.writeByte((int) zigzag);
+    }
+
+    /**
+     * Reader reads the tuples of the file from the beginning.
+     */
+    public class Reader implements Closeable {
+
+        private final DataInputStream input;
+        private final List<String> readDictionary = new ArrayList<>();
+        private int numReadTuples = 0;
+
+        private Reader() throws IOException {
+            this.input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE));
+        }
+
+        /**
+         * Reads the next tuple, or returns null if all the tuples are read.
+         */
+        public Tuple next() throws IOException {
+            if (numReadTuples >= numTuples) {
+                return null;
+            }
+            List<IField> fields = new ArrayList<>(schema.getAttributes().size());
+            for (int i = 0; i < schema.getAttributes().size(); i++) {
+                fields.add(readField());
+            }
+            numReadTuples++;
+            return new Tuple(schema, fields);
+        }
+
+        @Override
+        public void close() throws IOException {
+            input.close();
+        }
+
+        private IField readField() throws IOException {
+            byte typeTag = input.readByte();
+            boolean isNullValue = (typeTag & NULL_VALUE_FLAG) != 0;
+            typeTag &= ~NULL_VALUE_FLAG;
+            switch (typeTag) {
+            case STRING_FIELD:
+                return new StringField(isNullValue ? null : readString());
+            case TEXT_FIELD:
+                return new TextField(isNullValue ? null : readString());
+            case ID_FIELD:
+                return new IDField(isNullValue ? null : readString());
+            case INTEGER_FIELD:
+                return new IntegerField(isNullValue ? null : readVarInt());
+            case DOUBLE_FIELD:
+                return new DoubleField(isNullValue ? null : input.readDouble());
+            case DATE_FIELD:
+                return new DateField(isNullValue ? null : LocalDate.ofEpochDay(readVarLong()));
+            case DATETIME_FIELD:
+                return new DateTimeField(isNullValue ? null : readDateTime());
+            case LIST_FIELD:
+                return new ListField<>(isNullValue ? null : readList());
+            default:
+                throw new DataflowException("spill file " + path + " is corrupted: unknown field type " + typeTag);
+            }
+        }
+
+        private LocalDateTime readDateTime() throws IOException {
+            long epochSecond = readVarLong();
+            return LocalDateTime.ofEpochSecond(epochSecond, readVarInt(), ZoneOffset.UTC);
+        }
+
+        private List<Object> readList() throws IOException {
+            int size = readVarInt();
+            List<Object> list = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                byte elementTag = input.readByte();
+                if (elementTag == SPAN_ELEMENT) {
+                    String attributeName = readDictionaryString();
+                    int start = readVarInt();
+                    int end = readVarInt();
+                    String key = readDictionaryString();
+                    String value = readString();
+                    int tokenOffset = readVarInt();
+                    list.add(new Span(attributeName, start, end, key, value, tokenOffset));
+                } else if (elementTag == STRING_ELEMENT) {
+                    list.add(readString());
+                } else {
+                    throw new DataflowException("spill file " + path + " is corrupted: unknown list element type "
+                            + elementTag);
+                }
+            }
+            return list;
+        }
+
+        private String readDictionaryString() throws IOException {
+            int stringNumber = readVarInt();
+            if (stringNumber > 0) {
+                return readDictionary.get(stringNumber - 1);
+            }
+            String str = readString();
+            readDictionary.add(str);
+            return str;
+        }
+
+        private String readString() throws IOException {
+            int length = readVarInt();
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            input.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private int readVarInt() throws IOException {
+            return (int) readVarLong();
+        }
+
+        private long readVarLong() throws IOException {
+            long zigzag = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = input.readByte();
+                zigzag |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+
+    }
+
+}
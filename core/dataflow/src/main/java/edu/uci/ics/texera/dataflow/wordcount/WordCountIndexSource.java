@@ -2,6 +2,7 @@ package edu.uci.ics.texera.dataflow.wordcount;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -21,10 +22,14 @@ import edu.uci.ics.texera.api.exception.TexeraException;
 import edu.uci.ics.texera.api.field.IDField;
 import edu.uci.ics.texera.api.field.IField;
 import edu.uci.ics.texera.api.field.IntegerField;
+import edu.uci.ics.texera.api.field.ListField;
 import edu.uci.ics.texera.api.field.StringField;
 import edu.uci.ics.texera.api.schema.Attribute;
 import edu.uci.ics.texera.api.schema.AttributeType;
 import edu.uci.ics.texera.api.schema.Schema;
+import edu.uci.ics.texera.api.span.CompactPayload;
+import edu.uci.ics.texera.api.span.LazyPayload;
+import edu.uci.ics.texera.api.span.Span;
 import edu.uci.ics.texera.api.tuple.Tuple;
 import edu.uci.ics.texera.storage.DataReader;
 import edu.uci.ics.texera.storage.RelationManager;
@@ -89,26 +94,16 @@ public class WordCountIndexSource implements ISourceOperator {
             HashMap<String, Integer> wordCountMap = new HashMap<>();
             DataReader dataReader = RelationManager.getInstance().getTableDataReader(
                     predicate.getTableName(), new MatchAllDocsQuery());
+            // only the index reader is used, there is no need to collect all the hits
+            dataReader.setStreaming(true);
             
-            dataReader.open();
-            
-            IndexReader luceneIndexReader = dataReader.getLuceneIndexReader();
-            
-            for (int i = 0; i< luceneIndexReader.numDocs(); i++) {
-                Terms termVector = luceneIndexReader.getTermVector(i, predicate.getAttribute());
-                
-                TermsEnum termsEnum = termVector.iterator();
-                while(termsEnum.next() != null){
-                    String key = termsEnum.term().utf8ToString();
-                    wordCountMap.put(key, wordCountMap.get(key)==null ?
-                            ((int) termsEnum.totalTermFreq()) :
-                                wordCountMap.get(key) + ((int) termsEnum.totalTermFreq()));
-                }
+            // a table without term vectors (see StorageProfile) is counted from the payloads of the attribute
+            if (! dataReader.getStorageProfile().isTermVectorsStored()) {
+                countWordsFromPayload(dataReader, wordCountMap);
+            } else {
+                countWordsFromTermVector(dataReader, wordCountMap);
             }
             
-            luceneIndexReader.close();
-            dataReader.close();
-            
             sortedWordCountMap = wordCountMap.entrySet().stream()
                     .sorted((e1, e2) -> e2.getValue().compareTo(e1.getValue()))
                     .collect(Collectors.toList());
@@ -120,6 +115,46 @@ public class WordCountIndexSource implements ISourceOperator {
         
     }
     
+    private void countWordsFromTermVector(DataReader dataReader, HashMap<String, Integer> wordCountMap) 
+            throws IOException {
+        dataReader.open();
+        
+        IndexReader luceneIndexReader = dataReader.getLuceneIndexReader();
+        
+        for (int i = 0; i< luceneIndexReader.numDocs(); i++) {
+            Terms termVector = luceneIndexReader.getTermVector(i, predicate.getAttribute());
+            
+            TermsEnum termsEnum = termVector.iterator();
+            while(termsEnum.next() != null){
+                String key = termsEnum.term().utf8ToString();
+                wordCountMap.put(key, wordCountMap.get(key)==null ?
+                        ((int) termsEnum.totalTermFreq()) :
+                            wordCountMap.get(key) + ((int) termsEnum.totalTermFreq()));
+            }
+        }
+        
+        // the index reader is shared, it's released when the data reader is closed
+        dataReader.close();
+    }
+    
+    private void countWordsFromPayload(DataReader dataReader, HashMap<String, Integer> wordCountMap) {
+        dataReader.setPayloadAdded(true);
+        dataReader.setProjectedAttributes(Arrays.asList(predicate.getAttribute()));
+        
+        dataReader.open();
+        Tuple tuple;
+        while ((tuple = dataReader.getNextTuple()) != null) {
+            ListField<Span> payloadField = tuple.getField(SchemaConstants.PAYLOAD);
+            CompactPayload payload = (CompactPayload) LazyPayload.unwrap(payloadField.getValue());
+            for (int i = 0; i < payload.size(); i++) {
+                // the keys of the payload are the terms of the term vectors
+                String key = payload.getKey(i);
+                wordCountMap.put(key, wordCountMap.get(key)==null ? 1 : wordCountMap.get(key) + 1);
+            }
+        }
+        dataReader.close();
+    }
+    
 
     @Override
     public void close() throws TexeraException {
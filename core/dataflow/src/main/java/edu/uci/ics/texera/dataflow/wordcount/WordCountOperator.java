@@ -20,6 +20,8 @@ import edu.uci.ics.texera.api.field.StringField;
 import edu.uci.ics.texera.api.schema.Attribute;
 import edu.uci.ics.texera.api.schema.AttributeType;
 import edu.uci.ics.texera.api.schema.Schema;
+import edu.uci.ics.texera.api.span.CompactPayload;
+import edu.uci.ics.texera.api.span.LazyPayload;
 import edu.uci.ics.texera.api.span.Span;
 import edu.uci.ics.texera.api.tuple.Tuple;
 import edu.uci.ics.texera.dataflow.common.AbstractSingleInputOperator;
@@ -84,8 +86,19 @@ public class WordCountOperator extends AbstractSingleInputOperator implements IS
             }
             
             ListField<Span> payloadField = tuple.getField("payload");
-            List<Span> payloadSpanList = payloadField.getValue();
+            List<Span> payloadSpanList = LazyPayload.unwrap(payloadField.getValue());
             
+            if (payloadSpanList instanceof CompactPayload) {
+                // read the tokens directly without creating the spans
+                CompactPayload payload = (CompactPayload) payloadSpanList;
+                for (int i = 0; i < payload.size(); i++) {
+                    if (payload.getAttributeName(i).equals(predicate.getAttribute())) {
+                        String key = payload.getValue(i).toLowerCase();
+                        wordCountMap.put(key, wordCountMap.get(key)==null ? 1 : wordCountMap.get(key) + 1);
+                    }
+                }
+                continue;
+            }
             for (Span span : payloadSpanList) {
                 if (span.getAttributeName().equals(predicate.getAttribute())) {
                     String key = span.getValue().toLowerCase();
@@ -5,6 +5,7 @@ package edu.uci.ics.texera.dataflow.aggregator;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.AfterClass;
@@ -24,6 +25,7 @@ import edu.uci.ics.texera.api.schema.AttributeType;
 import edu.uci.ics.texera.api.schema.Schema;
 import edu.uci.ics.texera.api.tuple.Tuple;
 import edu.uci.ics.texera.api.utils.TestUtils;
+import edu.uci.ics.texera.dataflow.source.tuple.TupleSourceOperator;
 import edu.uci.ics.texera.dataflow.source.scan.ScanBasedSourceOperator;
 import edu.uci.ics.texera.dataflow.source.scan.ScanSourcePredicate;
 import edu.uci.ics.texera.storage.DataWriter;
@@ -395,6 +397,103 @@ public class AggregatorTest {
         Assert.assertTrue(TestUtils.equals(expectedResults, returnedResults));
     }
 
+    //TEST 13: Find count and average height for each age
+    @Test
+    public void testGroupByAggregation() throws Exception {
+        String groupByAttributeName = TestConstants.AGE_ATTR.getName();
+        String heightAttributeName = TestConstants.HEIGHT_ATTR.getName();
+        String countResultAttributeName = AggregatorTestConstants.COUNT_HEIGHT_RESULT_ATTR_NAME;
+        String avgResultAttributeName = AggregatorTestConstants.AVG_HEIGHT_RESULT_ATTR_NAME;
+
+        List<AggregationAttributeAndResult> aggEntitiesList = new ArrayList<>();
+        aggEntitiesList.add(new AggregationAttributeAndResult(heightAttributeName, AggregationType.COUNT, countResultAttributeName));
+        aggEntitiesList.add(new AggregationAttributeAndResult(heightAttributeName, AggregationType.AVERAGE, avgResultAttributeName));
+
+        Schema schema = new Schema(TestConstants.AGE_ATTR, new Attribute(countResultAttributeName, AttributeType.INTEGER),
+                new Attribute(avgResultAttributeName, AttributeType.DOUBLE));
+        List<Tuple> expectedResults = new ArrayList<>();
+        expectedResults.add(new Tuple(schema, new IntegerField(46), new IntegerField(1), new DoubleField(5.50)));
+        expectedResults.add(new Tuple(schema, new IntegerField(45), new IntegerField(1), new DoubleField(5.95)));
+        expectedResults.add(new Tuple(schema, new IntegerField(44), new IntegerField(1), new DoubleField(6.10)));
+        expectedResults.add(new Tuple(schema, new IntegerField(43), new IntegerField(1), new DoubleField(6.06)));
+        expectedResults.add(new Tuple(schema, new IntegerField(42), new IntegerField(2), new DoubleField(5.99)));
+
+        List<Tuple> returnedResults = getQueryResults(aggEntitiesList, Arrays.asList(groupByAttributeName));
+        Assert.assertEquals(5, returnedResults.size());
+        Assert.assertTrue(TestUtils.equals(expectedResults, returnedResults));
+    }
+
+    //TEST 14: Find max age for each date of birth and height
+    @Test
+    public void testMultipleGroupByAttributesAggregation() throws Exception {
+        String resultAttributeName = AggregatorTestConstants.MAX_AGE_RESULT_ATTR_NAME;
+
+        List<AggregationAttributeAndResult> aggEntitiesList = new ArrayList<>();
+        aggEntitiesList.add(new AggregationAttributeAndResult(TestConstants.AGE_ATTR.getName(), AggregationType.MAX, resultAttributeName));
+
+        List<Tuple> returnedResults = getQueryResults(aggEntitiesList,
+                Arrays.asList(TestConstants.DATE_OF_BIRTH_ATTR.getName(), TestConstants.HEIGHT_ATTR.getName()));
+
+        // the last two people have the same date of birth and height
+        Schema schema = new Schema(TestConstants.DATE_OF_BIRTH_ATTR, TestConstants.HEIGHT_ATTR,
+                new Attribute(resultAttributeName, AttributeType.INTEGER));
+        List<Tuple> expectedResults = new ArrayList<>();
+        for (Tuple tuple : TestConstants.getSamplePeopleTuples().subList(0, 5)) {
+            expectedResults.add(new Tuple(schema, tuple.getField(TestConstants.DATE_OF_BIRTH),
+                    tuple.getField(TestConstants.HEIGHT), tuple.getField(TestConstants.AGE)));
+        }
+
+        Assert.assertEquals(5, returnedResults.size());
+        Assert.assertTrue(TestUtils.equals(expectedResults, returnedResults));
+    }
+
+    //TEST 15: Group by aggregation spills its groups to disk if they exceed the memory budget
+    @Test
+    public void testSpilledGroupByAggregation() throws Exception {
+        Schema inputSchema = new Schema(new Attribute("key", AttributeType.STRING), new Attribute("value", AttributeType.INTEGER));
+        int numGroups = 10000;
+        List<Tuple> inputTuples = new ArrayList<>();
+        for (int i = 0; i < 3 * numGroups; i++) {
+            inputTuples.add(new Tuple(inputSchema,
+                    new StringField("a group key which is long enough to take some memory " + i % numGroups),
+                    new IntegerField(i)));
+        }
+
+        List<AggregationAttributeAndResult> aggEntitiesList = new ArrayList<>();
+        aggEntitiesList.add(new AggregationAttributeAndResult("value", AggregationType.COUNT, "count"));
+        aggEntitiesList.add(new AggregationAttributeAndResult("value", AggregationType.SUM, "sum"));
+        aggEntitiesList.add(new AggregationAttributeAndResult("value", AggregationType.MIN, "min"));
+        aggEntitiesList.add(new AggregationAttributeAndResult("value", AggregationType.MAX, "max"));
+        aggEntitiesList.add(new AggregationAttributeAndResult("value", AggregationType.AVERAGE, "average"));
+
+        Schema resultSchema = new Schema(new Attribute("key", AttributeType.STRING),
+                new Attribute("count", AttributeType.INTEGER), new Attribute("sum", AttributeType.INTEGER),
+                new Attribute("min", AttributeType.INTEGER), new Attribute("max", AttributeType.INTEGER),
+                new Attribute("average", AttributeType.DOUBLE));
+        List<Tuple> expectedResults = new ArrayList<>();
+        for (int i = 0; i < numGroups; i++) {
+            int sum = i + (i + numGroups) + (i + 2 * numGroups);
+            expectedResults.add(new Tuple(resultSchema,
+                    new StringField("a group key which is long enough to take some memory " + i),
+                    new IntegerField(3), new IntegerField(sum), new IntegerField(i), new IntegerField(i + 2 * numGroups),
+                    new DoubleField(sum / 3.0)));
+        }
+
+        Aggregator aggOperator = new Aggregator(new AggregatorPredicate(aggEntitiesList, Arrays.asList("key"), 1));
+        aggOperator.setInputOperator(new TupleSourceOperator(inputTuples, inputSchema));
+        aggOperator.open();
+        List<Tuple> returnedResults = new ArrayList<>();
+        Tuple nextTuple;
+        while ((nextTuple = aggOperator.getNextTuple()) != null) {
+            returnedResults.add(nextTuple);
+        }
+        Assert.assertTrue(aggOperator.isSpilled());
+        aggOperator.close();
+
+        Assert.assertEquals(numGroups, returnedResults.size());
+        Assert.assertTrue(TestUtils.equals(expectedResults, returnedResults));
+    }
+
     @AfterClass
     public static void cleanUp() throws TexeraException {
         RelationManager relationManager = RelationManager.getInstance();
@@ -402,7 +501,11 @@ public class AggregatorTest {
     }
 
     private List<Tuple> getQueryResults(List<AggregationAttributeAndResult> aggregationItems) {
-        AggregatorPredicate aggPredicate = new AggregatorPredicate(aggregationItems);
+        return getQueryResults(aggregationItems, null);
+    }
+
+    private List<Tuple> getQueryResults(List<AggregationAttributeAndResult> aggregationItems, List<String> groupByAttributeNames) {
+        AggregatorPredicate aggPredicate = new AggregatorPredicate(aggregationItems, groupByAttributeNames);
         Aggregator aggOperator = new Aggregator(aggPredicate);
 
         setPreExecConfigs(aggOperator);
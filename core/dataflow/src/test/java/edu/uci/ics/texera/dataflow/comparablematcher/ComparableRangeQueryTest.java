@@ -0,0 +1,208 @@
+package edu.uci.ics.texera.dataflow.comparablematcher;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.lucene.search.Query;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.uci.ics.texera.api.constants.SchemaConstants;
+import edu.uci.ics.texera.api.dataflow.IOperator;
+import edu.uci.ics.texera.api.engine.Plan;
+import edu.uci.ics.texera.api.exception.TexeraException;
+import edu.uci.ics.texera.api.field.DateField;
+import edu.uci.ics.texera.api.field.DateTimeField;
+import edu.uci.ics.texera.api.field.DoubleField;
+import edu.uci.ics.texera.api.field.IntegerField;
+import edu.uci.ics.texera.api.field.StringField;
+import edu.uci.ics.texera.api.schema.Attribute;
+import edu.uci.ics.texera.api.schema.AttributeType;
+import edu.uci.ics.texera.api.schema.Schema;
+import edu.uci.ics.texera.api.tuple.Tuple;
+import edu.uci.ics.texera.api.utils.TestUtils;
+import edu.uci.ics.texera.dataflow.plangen.LogicalPlan;
+import edu.uci.ics.texera.dataflow.plangen.OperatorLink;
+import edu.uci.ics.texera.dataflow.sink.tuple.TupleSink;
+import edu.uci.ics.texera.dataflow.sink.tuple.TupleSinkPredicate;
+import edu.uci.ics.texera.dataflow.source.scan.ScanBasedSourceOperator;
+import edu.uci.ics.texera.dataflow.source.scan.ScanSourcePredicate;
+import edu.uci.ics.texera.storage.DataWriter;
+import edu.uci.ics.texera.storage.RelationManager;
+import edu.uci.ics.texera.storage.constants.LuceneAnalyzerConstants;
+
+public class ComparableRangeQueryTest {
+
+    public static final String RANGE_TABLE = "comparable_range_query_test";
+
+    public static final String NAME = "name";
+    public static final String COUNT = "count";
+    public static final String SCORE = "score";
+    public static final String DAY = "day";
+    public static final String TIME = "time";
+
+    public static final Schema SCHEMA = new Schema(
+            new Attribute(NAME, AttributeType.STRING), new Attribute(COUNT, AttributeType.INTEGER),
+            new Attribute(SCORE, AttributeType.DOUBLE), new Attribute(DAY, AttributeType.DATE),
+            new Attribute(TIME, AttributeType.DATETIME));
+
+    @BeforeClass
+    public static void setUp() throws TexeraException {
+        RelationManager relationManager = RelationManager.getInstance();
+        relationManager.deleteTable(RANGE_TABLE);
+        relationManager.createTable(RANGE_TABLE, TestUtils.getDefaultTestIndex().resolve(RANGE_TABLE),
+                SCHEMA, LuceneAnalyzerConstants.standardAnalyzerString());
+
+        List<Double> scores = Arrays.asList(-2.5, -0.0, 0.0, 0.5, 1.0, 3.75, Double.NaN, Double.POSITIVE_INFINITY);
+        LocalDateTime firstTime = LocalDateTime.of(2017, 3, 1, 23, 59, 59, 500_000_000);
+        List<Tuple> tuples = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            tuples.add(new Tuple(SCHEMA,
+                    new StringField("tuple " + i),
+                    new IntegerField(i - 20),
+                    new DoubleField(scores.get(i % scores.size())),
+                    new DateField(LocalDate.of(2017, 3, 1).plusDays(i % 7)),
+                    new DateTimeField(firstTime.plusHours(i * 5))));
+        }
+        // a date time out of the range of the index values
+        tuples.add(new Tuple(SCHEMA, new StringField("far future"), new IntegerField(Integer.MAX_VALUE),
+                new DoubleField(1e300), new DateField(LocalDate.of(3000, 1, 1)),
+                new DateTimeField(LocalDateTime.of(3000, 1, 1, 0, 0))));
+
+        DataWriter dataWriter = relationManager.getTableDataWriter(RANGE_TABLE);
+        dataWriter.open();
+        dataWriter.insertTuples(tuples);
+        dataWriter.close();
+    }
+
+    @AfterClass
+    public static void cleanUp() throws TexeraException {
+        RelationManager.getInstance().deleteTable(RANGE_TABLE);
+    }
+
+    private static List<Tuple> getResults(IOperator operator) {
+        List<Tuple> results = new ArrayList<>();
+        operator.open();
+        Tuple tuple;
+        while ((tuple = operator.getNextTuple()) != null) {
+            results.add(tuple);
+        }
+        operator.close();
+        return results;
+    }
+
+    private static List<String> getSortedIDs(List<Tuple> tuples) {
+        return tuples.stream().map(tuple -> tuple.getField(SchemaConstants._ID).getValue().toString())
+                .sorted().collect(Collectors.toList());
+    }
+
+    private static List<Tuple> getComparableMatcherResults(ComparablePredicate predicate) {
+        ComparableMatcher comparableMatcher = new ComparableMatcher(predicate);
+        comparableMatcher.setInputOperator(new ScanBasedSourceOperator(new ScanSourcePredicate(RANGE_TABLE)));
+        return getResults(comparableMatcher);
+    }
+
+    private static void assertSameResults(String attributeName, List<Object> compareToValues) {
+        for (ComparisonType comparisonType : ComparisonType.values()) {
+            for (Object compareToValue : compareToValues) {
+                ComparablePredicate predicate = new ComparablePredicate(attributeName, comparisonType, compareToValue);
+                Query rangeQuery = ComparableToRangeQueryTranslator.translate(predicate, RANGE_TABLE);
+                Assert.assertNotNull(rangeQuery);
+
+                List<Tuple> expectedResults = getComparableMatcherResults(predicate);
+                List<Tuple> results = getResults(new ScanBasedSourceOperator(
+                        new ScanSourcePredicate(RANGE_TABLE), rangeQuery));
+                Assert.assertEquals(attributeName + " " + comparisonType + " " + compareToValue,
+                        getSortedIDs(expectedResults), getSortedIDs(results));
+            }
+        }
+    }
+
+    @Test
+    public void testIntegerRange() throws Exception {
+        assertSameResults(COUNT, Arrays.asList(0, -20, 19, 5.5, -3.0, "7", "-7.25", 1e10, Double.NEGATIVE_INFINITY));
+    }
+
+    @Test
+    public void testDoubleRange() throws Exception {
+        assertSameResults(SCORE, Arrays.asList(0.0, -0.0, 1, 0.75, -2.5, "3.75", Double.POSITIVE_INFINITY, "NaN"));
+    }
+
+    @Test
+    public void testDateRange() throws Exception {
+        assertSameResults(DAY, Arrays.asList("2017-03-03", "2017-03-01", "2017-03-04T12:00:00", "2999-12-31"));
+    }
+
+    @Test
+    public void testDateTimeRange() throws Exception {
+        // a date time is compared with a date on its date
+        assertSameResults(TIME, Arrays.asList("2017-03-02T04:59:59.5", "2017-03-02T05:00:00", "2017-03-04",
+                "2017-03-01", "2100-01-01"));
+    }
+
+    @Test
+    public void testInvalidCompareToValue() throws Exception {
+        Assert.assertNull(ComparableToRangeQueryTranslator.translate(
+                new ComparablePredicate(DAY, ComparisonType.EQUAL_TO, "yesterday"), RANGE_TABLE));
+        Assert.assertNull(ComparableToRangeQueryTranslator.translate(
+                new ComparablePredicate(COUNT, ComparisonType.EQUAL_TO, "many"), RANGE_TABLE));
+        // strings are not range-indexed
+        Assert.assertNull(ComparableToRangeQueryTranslator.translate(
+                new ComparablePredicate(NAME, ComparisonType.EQUAL_TO, "tuple 1"), RANGE_TABLE));
+    }
+
+    /*
+     * Scan --> Comparison(day) --> Comparison(count) --> Comparison(name) --> TupleSink
+     *   is built as ScanWithRangeQuery --> Comparison(name) --> TupleSink
+     */
+    @Test
+    public void testLogicalPlanFusesScanAndComparisons() throws Exception {
+        ScanSourcePredicate scanPredicate = new ScanSourcePredicate(RANGE_TABLE);
+        scanPredicate.setID("scan");
+        ComparablePredicate dayPredicate = new ComparablePredicate(DAY, ComparisonType.GREATER_THAN, "2017-03-02");
+        dayPredicate.setID("day comparison");
+        ComparablePredicate countPredicate = new ComparablePredicate(COUNT, ComparisonType.LESS_THAN_OR_EQUAL_TO, 10);
+        countPredicate.setID("count comparison");
+        ComparablePredicate namePredicate = new ComparablePredicate(NAME, ComparisonType.NOT_EQUAL_TO, "tuple 4");
+        namePredicate.setID("name comparison");
+        TupleSinkPredicate tupleSinkPredicate = new TupleSinkPredicate();
+        tupleSinkPredicate.setID("sink");
+
+        LogicalPlan logicalPlan = new LogicalPlan();
+        logicalPlan.addOperator(scanPredicate);
+        logicalPlan.addOperator(dayPredicate);
+        logicalPlan.addOperator(countPredicate);
+        logicalPlan.addOperator(namePredicate);
+        logicalPlan.addOperator(tupleSinkPredicate);
+        logicalPlan.addLink(new OperatorLink("scan", "day comparison"));
+        logicalPlan.addLink(new OperatorLink("day comparison", "count comparison"));
+        logicalPlan.addLink(new OperatorLink("count comparison", "name comparison"));
+        logicalPlan.addLink(new OperatorLink("name comparison", "sink"));
+
+        Plan plan = logicalPlan.buildQueryPlan();
+        TupleSink tupleSink = (TupleSink) plan.getRoot();
+        ComparableMatcher nameMatcher = (ComparableMatcher) tupleSink.getInputOperator();
+        Assert.assertEquals(namePredicate, nameMatcher.getPredicate());
+        Assert.assertTrue(nameMatcher.getInputOperator() instanceof ScanBasedSourceOperator);
+
+        List<Tuple> results = tupleSink.collectAllTuples();
+
+        ComparableMatcher dayMatcher = new ComparableMatcher(dayPredicate);
+        dayMatcher.setInputOperator(new ScanBasedSourceOperator(scanPredicate));
+        ComparableMatcher countMatcher = new ComparableMatcher(countPredicate);
+        countMatcher.setInputOperator(dayMatcher);
+        ComparableMatcher expectedNameMatcher = new ComparableMatcher(namePredicate);
+        expectedNameMatcher.setInputOperator(countMatcher);
+        List<Tuple> expectedResults = getResults(expectedNameMatcher);
+
+        Assert.assertFalse(expectedResults.isEmpty());
+        Assert.assertEquals(getSortedIDs(expectedResults), getSortedIDs(results));
+    }
+
+}
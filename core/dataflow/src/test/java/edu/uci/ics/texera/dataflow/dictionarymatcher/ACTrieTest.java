@@ -5,7 +5,10 @@ import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 
 /**
  * Created by Chang on 10/4/17.
@@ -100,5 +103,62 @@ public class ACTrieTest {
         Assert.assertTrue(exactResults.size() == 7);
     }
 
+    /**
+     * Test the matches of many overlapping keywords against all their occurrences in the text,
+     * including the keywords that are added more than once or only differ in case.
+     * @throws Exception
+     */
+    @Test
+    public void testACTrieAllOccurrences() throws Exception {
+        Random random = new Random(0);
+        List<String> keywords = new ArrayList<>(Arrays.asList("ab", "AB", "ab", "b", "bab"));
+        for (int i = 0; i < 500; i++) {
+            keywords.add(randomString(random, 1 + random.nextInt(6)));
+        }
+        String text = randomString(random, 5000);
+
+        ACTrie trie = new ACTrie();
+        trie.setCaseInsensitive(true);
+        trie.addKeywords(keywords);
+        trie.constructFailureTransactions();
+        List<String> results = new ArrayList<>();
+        for (ACTrie.Emit emit : trie.parseText(text)) {
+            results.add(emit.getStart() + "," + emit.getEnd() + "," + emit.getKeyword());
+        }
+
+        List<String> expectedResults = new ArrayList<>();
+        for (String keyword : new HashSet<>(keywords)) {
+            String key = keyword.toLowerCase();
+            for (int start = text.indexOf(key); start >= 0; start = text.indexOf(key, start + 1)) {
+                expectedResults.add(start + "," + (start + key.length()) + "," + keyword);
+            }
+        }
+        Collections.sort(results);
+        Collections.sort(expectedResults);
+        Assert.assertEquals(expectedResults, results);
+    }
+
+    /**
+     * Test reporting the matches to a handler.
+     * @throws Exception
+     */
+    @Test
+    public void testACTrieMatchHandler() throws Exception {
+        ACTrie trie = new ACTrie();
+        trie.addKeywords(new ArrayList<>(Arrays.asList("he", "hers", "his", "she")));
+        trie.constructFailureTransactions();
+        List<String> results = new ArrayList<>();
+        trie.parseText("ahishers", (start, end, keyword) -> results.add(start + "," + end + "," + keyword));
+        Collections.sort(results);
+        Assert.assertEquals(Arrays.asList("1,4,his", "3,6,she", "4,6,he", "4,8,hers"), results);
+    }
+
+    private static String randomString(Random random, int length) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            sb.append("abc".charAt(random.nextInt(3)));
+        }
+        return sb.toString();
+    }
 
 }
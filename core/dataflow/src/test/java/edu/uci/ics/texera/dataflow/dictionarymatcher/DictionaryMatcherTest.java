@@ -1236,5 +1236,118 @@ public class DictionaryMatcherTest {
         Assert.assertTrue(contains);
     }
 
+    /**
+     * Scenario: the spans of the regex entries are in the order of the entries, then of the attributes,
+     * even though all the entries are matched in one scan of each attribute.
+     */
+    @Test
+    public void testRegexQuerySpanOrder() throws Exception {
+        Dictionary dictionary = new Dictionary(Arrays.asList("Fair", "john", "Tall|wayne"));
+
+        List<Tuple> expectedResults = Arrays.asList(
+                getResultTuple(0, new Span("description", 0, 4, "Tall|wayne", "Tall")),
+                getResultTuple(4, new Span("description", 5, 9, "Fair", "Fair"),
+                        new Span("firstName", 10, 14, "john", "john"),
+                        new Span("firstName", 15, 20, "Tall|wayne", "wayne"),
+                        new Span("description", 0, 4, "Tall|wayne", "Tall")));
+        List<String> attributeNames = Arrays.asList(TestConstants.FIRST_NAME, TestConstants.DESCRIPTION);
+
+        List<Tuple> returnedResults = DictionaryMatcherTestHelper.getQueryResults(PEOPLE_TABLE, dictionary, attributeNames, KeywordMatchingType.REGEX);
+        Assert.assertTrue(TestUtils.equals(expectedResults, returnedResults));
+        // ListField doesn't compare the order of the spans
+        for (int i = 0; i < expectedResults.size(); i++) {
+            ListField<Span> expectedSpans = expectedResults.get(i).getField(RESULTS);
+            ListField<Span> returnedSpans = returnedResults.get(i).getField(RESULTS);
+            Assert.assertEquals(expectedSpans.getValue(), returnedSpans.getValue());
+        }
+    }
+
+    /*
+     * Adds the results attribute with the given spans to a tuple of TestConstants.getSamplePeopleTuples().
+     */
+    private static Tuple getResultTuple(int sampleTupleIndex, Span... spans) {
+        return new Tuple.Builder(TestConstants.getSamplePeopleTuples().get(sampleTupleIndex))
+                .add(RESULTS_ATTRIBUTE, new ListField<Span>(Arrays.asList(spans))).build();
+    }
+
+    /**
+     * Scenario: the dictionary source queries the index once for all the entries,
+     * an entry must be the exact value (case sensitive) of a STRING attribute.
+     */
+    @Test
+    public void testEntriesInStringFieldsUsingKeyword() throws Exception {
+        Dictionary dictionary = new Dictionary(Arrays.asList("john Lee", "cruise", "brad", "Tom Hanks"));
+
+        List<Tuple> expectedResults = Arrays.asList(
+                getResultTuple(0, new Span("lastName", 0, 8, "john Lee", "john Lee")),
+                getResultTuple(1, new Span("lastName", 0, 6, "cruise", "cruise")));
+        List<String> attributeNames = Arrays.asList(TestConstants.FIRST_NAME, TestConstants.LAST_NAME);
+
+        List<Tuple> returnedResults = DictionaryMatcherTestHelper.getQueryResults(PEOPLE_TABLE, dictionary, attributeNames, KeywordMatchingType.CONJUNCTION_INDEXBASED);
+        Assert.assertTrue(TestUtils.equals(expectedResults, returnedResults));
+    }
+
+    /**
+     * Scenario: the dictionary source queries the index once for all the entries,
+     * the tokens of an entry are lower-cased to match the tokens of a TEXT attribute.
+     */
+    @Test
+    public void testEntriesInTextFieldUsingKeyword() throws Exception {
+        Dictionary dictionary = new Dictionary(Arrays.asList("Tall ANGRY", "clooney SHORT"));
+
+        List<Tuple> expectedResults = Arrays.asList(
+                getResultTuple(0, new Span("description", 0, 4, "tall", "Tall", 0),
+                        new Span("description", 5, 10, "angry", "Angry", 1)),
+                getResultTuple(3, new Span("description", 4, 11, "clooney", "Clooney", 1),
+                        new Span("description", 15, 20, "short", "Short", 3),
+                        new Span("description", 29, 36, "clooney", "clooney", 6)));
+        List<String> attributeNames = Arrays.asList(TestConstants.DESCRIPTION);
+
+        List<Tuple> returnedResults = DictionaryMatcherTestHelper.getQueryResults(PEOPLE_TABLE, dictionary, attributeNames, KeywordMatchingType.CONJUNCTION_INDEXBASED);
+        Assert.assertTrue(TestUtils.equals(expectedResults, returnedResults));
+    }
+
+    /**
+     * Scenario: the dictionary source queries the index once for all the entries,
+     * on both a STRING attribute (exact values) and a TEXT attribute (tokens).
+     */
+    @Test
+    public void testEntriesInStringAndTextFieldsUsingKeyword() throws Exception {
+        Dictionary dictionary = new Dictionary(Arrays.asList("bruce", "short BROWN", "Mary brown"));
+
+        List<Tuple> expectedResults = Arrays.asList(
+                getResultTuple(0, new Span("firstName", 0, 5, "bruce", "bruce")),
+                getResultTuple(1, new Span("description", 0, 5, "short", "Short", 0),
+                        new Span("description", 6, 11, "brown", "Brown", 1)),
+                getResultTuple(5, new Span("firstName", 0, 10, "Mary brown", "Mary brown")));
+        List<String> attributeNames = Arrays.asList(TestConstants.FIRST_NAME, TestConstants.DESCRIPTION);
+
+        List<Tuple> returnedResults = DictionaryMatcherTestHelper.getQueryResults(PEOPLE_TABLE, dictionary, attributeNames, KeywordMatchingType.CONJUNCTION_INDEXBASED);
+        Assert.assertTrue(TestUtils.equals(expectedResults, returnedResults));
+    }
+
+    /**
+     * Scenario: the tokens of an entry are in the table, but only in different tuples.
+     * The tuples are candidates of the query of the dictionary source, 
+     * and they must be rejected by the dictionary matcher.
+     */
+    @Test
+    public void testEntryTokensInDifferentTuplesUsingKeyword() throws Exception {
+        Dictionary dictionary = new Dictionary(Arrays.asList("tall short", "angry brown"));
+        List<String> attributeNames = Arrays.asList(TestConstants.DESCRIPTION);
+
+        List<Tuple> returnedResults = DictionaryMatcherTestHelper.getQueryResults(PEOPLE_TABLE, dictionary, attributeNames, KeywordMatchingType.CONJUNCTION_INDEXBASED);
+        Assert.assertTrue(returnedResults.isEmpty());
+
+        // an entry whose tokens are in the same tuple is still matched among the candidates
+        dictionary = new Dictionary(Arrays.asList("tall short", "angry brown", "fair tall"));
+        List<Tuple> expectedResults = Arrays.asList(
+                getResultTuple(4, new Span("description", 0, 4, "tall", "Tall", 0),
+                        new Span("description", 5, 9, "fair", "Fair", 1)));
+
+        returnedResults = DictionaryMatcherTestHelper.getQueryResults(PEOPLE_TABLE, dictionary, attributeNames, KeywordMatchingType.CONJUNCTION_INDEXBASED);
+        Assert.assertTrue(TestUtils.equals(expectedResults, returnedResults));
+    }
+
 }
 
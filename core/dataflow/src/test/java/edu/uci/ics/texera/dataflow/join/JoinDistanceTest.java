@@ -1,7 +1,11 @@
 package edu.uci.ics.texera.dataflow.join;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import org.junit.After;
@@ -12,6 +16,8 @@ import org.junit.Test;
 import edu.uci.ics.texera.api.constants.SchemaConstants;
 import edu.uci.ics.texera.api.exception.DataflowException;
 import edu.uci.ics.texera.api.exception.TexeraException;
+import edu.uci.ics.texera.api.field.DateField;
+import edu.uci.ics.texera.api.field.IDField;
 import edu.uci.ics.texera.api.field.IField;
 import edu.uci.ics.texera.api.field.IntegerField;
 import edu.uci.ics.texera.api.field.ListField;
@@ -20,6 +26,8 @@ import edu.uci.ics.texera.api.field.TextField;
 import edu.uci.ics.texera.api.schema.Attribute;
 import edu.uci.ics.texera.api.schema.AttributeType;
 import edu.uci.ics.texera.api.schema.Schema;
+import edu.uci.ics.texera.api.span.CompactPayload;
+import edu.uci.ics.texera.api.span.LazyPayload;
 import edu.uci.ics.texera.api.span.Span;
 import edu.uci.ics.texera.api.tuple.Tuple;
 import edu.uci.ics.texera.api.utils.TestUtils;
@@ -31,6 +39,7 @@ import edu.uci.ics.texera.dataflow.keywordmatcher.KeywordMatcherSourceOperator;
 import edu.uci.ics.texera.dataflow.keywordmatcher.KeywordMatchingType;
 import edu.uci.ics.texera.dataflow.projection.ProjectionOperator;
 import edu.uci.ics.texera.dataflow.projection.ProjectionPredicate;
+import edu.uci.ics.texera.dataflow.source.tuple.TupleSourceOperator;
 import edu.uci.ics.texera.storage.constants.LuceneAnalyzerConstants;
 import junit.framework.Assert;
 
@@ -893,5 +902,188 @@ public class JoinDistanceTest {
             resultList.add(tuple);
         }
     }
+    
+    /*
+     * This case tests the hash join on _ID with many tuples on both sides.
+     * Both operators match the same keyword, so every tuple only joins with itself.
+     * 
+     * Test result: one result tuple for each tuple matching the keyword, with distinct _IDs.
+     */
+    @Test
+    public void testHashJoinOnIdWithMultipleTuples() throws Exception {
+        List<Tuple> tuples = new ArrayList<>();
+        tuples.addAll(JoinTestConstants.bookGroup1);
+        tuples.addAll(JoinTestConstants.bookGroup2);
+        JoinTestHelper.insertToTable(BOOK_TABLE, tuples);
+        
+        KeywordMatcherSourceOperator keywordSource = 
+                JoinTestHelper.getKeywordSource(BOOK_TABLE, "review", conjunction);
+        List<Tuple> keywordResults = new ArrayList<>();
+        Tuple tuple;
+        keywordSource.open();
+        while ((tuple = keywordSource.getNextTuple()) != null) {
+            keywordResults.add(tuple);
+        }
+        keywordSource.close();
+        
+        KeywordMatcherSourceOperator keywordSourceOuter = 
+                JoinTestHelper.getKeywordSource(BOOK_TABLE, "review", conjunction);
+        KeywordMatcherSourceOperator keywordSourceInner = 
+                JoinTestHelper.getKeywordSource(BOOK_TABLE, "review", conjunction);
+        JoinDistancePredicate distancePredicate = new JoinDistancePredicate(JoinTestConstants.REVIEW, 0);
+        Assert.assertTrue(distancePredicate.getEquiJoinAttributeNames().contains(SchemaConstants._ID));
+        
+        List<Tuple> resultList = JoinTestHelper.getJoinDistanceResults(keywordSourceInner, keywordSourceOuter, 
+                distancePredicate, Integer.MAX_VALUE, 0);
+        
+        Assert.assertTrue(keywordResults.size() > 1);
+        Assert.assertEquals(keywordResults.size(), resultList.size());
+        Assert.assertEquals(resultList.size(), resultList.stream()
+                .map(resultTuple -> resultTuple.getField(SchemaConstants._ID).getValue())
+                .distinct().count());
+    }
+    
+    /*
+     * This case tests joinTuples() directly on two tuples with many spans, 
+     *   including spans of another attribute that must be ignored.
+     * 
+     * Test result: the joined spans are the same (and in the same order) as 
+     *   comparing every outer span with every inner span.
+     */
+    @Test
+    public void testJoinTuplesWithManySpans() throws Exception {
+        String text = String.join(" ", Collections.nCopies(200, "word"));
+        Schema schema = new Schema(SchemaConstants._ID_ATTRIBUTE, JoinTestConstants.REVIEW_ATTR, 
+                SchemaConstants.SPAN_LIST_ATTRIBUTE);
+        
+        List<Span> innerSpans = new ArrayList<>();
+        List<Span> outerSpans = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            int innerStart = (i * 37) % 900;
+            int outerStart = (i * 53) % 900;
+            innerSpans.add(new Span(JoinTestConstants.REVIEW, innerStart, innerStart + 4 + i % 3, "inner" + i, ""));
+            outerSpans.add(new Span(JoinTestConstants.REVIEW, outerStart, outerStart + 4 + i % 5, "outer" + i, ""));
+        }
+        innerSpans.add(new Span(JoinTestConstants.TITLE, 0, 4, "other", ""));
+        outerSpans.add(new Span(JoinTestConstants.TITLE, 0, 4, "other", ""));
+        
+        IDField id = new IDField("1");
+        Tuple innerTuple = new Tuple(schema, id, new TextField(text), new ListField<>(innerSpans));
+        Tuple outerTuple = new Tuple(schema, id, new TextField(text), new ListField<>(outerSpans));
+        
+        int threshold = 10;
+        List<Span> expectedSpans = new ArrayList<>();
+        for (Span outerSpan : outerSpans) {
+            for (Span innerSpan : innerSpans) {
+                if (outerSpan.getAttributeName().equals(JoinTestConstants.REVIEW) 
+                        && innerSpan.getAttributeName().equals(JoinTestConstants.REVIEW)
+                        && Math.abs(outerSpan.getStart() - innerSpan.getStart()) <= threshold
+                        && Math.abs(outerSpan.getEnd() - innerSpan.getEnd()) <= threshold) {
+                    int start = Math.min(outerSpan.getStart(), innerSpan.getStart());
+                    int end = Math.max(outerSpan.getEnd(), innerSpan.getEnd());
+                    expectedSpans.add(new Span(JoinTestConstants.REVIEW, start, end, 
+                            outerSpan.getKey() + "_" + innerSpan.getKey(), text.substring(start, end)));
+                }
+            }
+        }
+        
+        Tuple resultTuple = new JoinDistancePredicate(JoinTestConstants.REVIEW, threshold)
+                .joinTuples(innerTuple, outerTuple, schema);
+        ListField<Span> resultSpanField = resultTuple.getField(SchemaConstants.SPAN_LIST);
+        List<Span> resultSpans = resultSpanField.getValue();
+        
+        Assert.assertTrue(expectedSpans.size() > 0);
+        Assert.assertEquals(expectedSpans, resultSpans);
+    }
+    
+    /*
+     * This case tests a join whose inner tuples exceed the memory budget (1 MB) of the predicate,
+     *   so both inputs are spilled to disk and joined partition by partition.
+     * 
+     * Test result: the same result tuples (including the payload) as the in-memory join.
+     */
+    @Test
+    public void testSpilledJoinOnId() throws Exception {
+        Schema schema = new Schema(SchemaConstants._ID_ATTRIBUTE, new Attribute("count", AttributeType.INTEGER),
+                new Attribute("date", AttributeType.DATE), JoinTestConstants.REVIEW_ATTR, 
+                SchemaConstants.SPAN_LIST_ATTRIBUTE, SchemaConstants.PAYLOAD_ATTRIBUTE);
+        String text = String.join(" ", Collections.nCopies(600, "word"));
+        List<Span> payload = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            payload.add(new Span(JoinTestConstants.REVIEW, i * 5, i * 5 + 4, "word", "word", i));
+        }
+        
+        List<Tuple> innerTuples = new ArrayList<>();
+        List<Tuple> outerTuples = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            IDField id = new IDField("id" + i);
+            int start = (i % 100) * 5;
+            innerTuples.add(new Tuple(schema, id, new IntegerField(i), new DateField(LocalDate.of(2017, 1, 1 + i % 28)), 
+                    new TextField(text), new ListField<>(Collections.singletonList(
+                            new Span(JoinTestConstants.REVIEW, start, start + 4, "inner", "word"))),
+                    new ListField<>(payload)));
+            // only the outer tuples with even numbers are close enough to join
+            int outerStart = start + (i % 2 == 0 ? 5 : 50);
+            outerTuples.add(new Tuple(schema, id, new IntegerField(i), new DateField(LocalDate.of(2017, 1, 1 + i % 28)), 
+                    new TextField(text), new ListField<>(Collections.singletonList(
+                            new Span(JoinTestConstants.REVIEW, outerStart, outerStart + 4, "outer", "word"))),
+                    new ListField<>(payload)));
+        }
+        
+        List<Tuple> inMemoryResults = JoinTestHelper.getJoinDistanceResults(
+                new TupleSourceOperator(innerTuples, schema), new TupleSourceOperator(outerTuples, schema), 
+                new JoinDistancePredicate(JoinTestConstants.REVIEW, 10), Integer.MAX_VALUE, 0);
+        
+        Join join = new Join(new JoinDistancePredicate(JoinTestConstants.REVIEW, JoinTestConstants.REVIEW, 10, 1));
+        join.setInnerInputOperator(new TupleSourceOperator(innerTuples, schema));
+        join.setOuterInputOperator(new TupleSourceOperator(outerTuples, schema));
+        List<Tuple> spilledResults = new ArrayList<>();
+        Tuple tuple;
+        join.open();
+        while ((tuple = join.getNextTuple()) != null) {
+            spilledResults.add(tuple);
+        }
+        Assert.assertTrue(join.isInnerSpilled());
+        Assert.assertEquals(SpilledJoin.NUM_HASH_PARTITIONS, join.getSpilledJoin().getNumPartitions());
+        Assert.assertEquals(300, join.getSpilledJoin().getNumSpilledInnerTuples());
+        Assert.assertEquals(300, join.getSpilledJoin().getNumSpilledOuterTuples());
+        join.close();
+        
+        Comparator<Tuple> idComparator = Comparator.comparing(
+                resultTuple -> resultTuple.getField(SchemaConstants._ID).getValue().toString());
+        inMemoryResults.sort(idComparator);
+        spilledResults.sort(idComparator);
+        Assert.assertEquals(150, inMemoryResults.size());
+        Assert.assertEquals(inMemoryResults, spilledResults);
+    }
+
+    /*
+     * This case tests that estimating the size of an inner tuple doesn't compute its lazy payload.
+     * 
+     * Test result: the payload is only computed when it's read, and then it's estimated from its arrays.
+     */
+    @Test
+    public void testEstimateTupleSizeOfLazyPayload() throws Exception {
+        String content = "the lazy fox";
+        AtomicInteger numComputed = new AtomicInteger();
+        LazyPayload lazyPayload = new LazyPayload(() -> {
+            numComputed.incrementAndGet();
+            return new CompactPayload.Builder()
+                    .add("content", content, 0, 3, "the", 0)
+                    .add("content", content, 4, 8, "lazy", 1)
+                    .add("content", content, 9, 12, "fox", 2)
+                    .build();
+        });
+        Schema schema = new Schema(new Attribute("content", AttributeType.TEXT), SchemaConstants.PAYLOAD_ATTRIBUTE);
+        Tuple tuple = new Tuple(schema, new TextField(content), new ListField<Span>(lazyPayload));
+
+        long uncomputedSize = SpilledJoin.estimateTupleSize(tuple);
+        Assert.assertFalse(lazyPayload.isComputed());
+        Assert.assertEquals(0, numComputed.get());
+
+        lazyPayload.getPayload();
+        Assert.assertTrue(SpilledJoin.estimateTupleSize(tuple) > uncomputedSize);
+        Assert.assertEquals(1, numComputed.get());
+    }
 
-}
\ No newline at end of file
+}
\ No newline at end of file
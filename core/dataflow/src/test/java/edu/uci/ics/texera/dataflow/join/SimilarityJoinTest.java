@@ -10,7 +10,10 @@ import edu.uci.ics.texera.api.exception.TexeraException;
 import edu.uci.ics.texera.api.field.IDField;
 import edu.uci.ics.texera.api.field.IntegerField;
 import edu.uci.ics.texera.api.field.ListField;
+import edu.uci.ics.texera.api.field.StringField;
 import edu.uci.ics.texera.api.field.TextField;
+import edu.uci.ics.texera.api.schema.Attribute;
+import edu.uci.ics.texera.api.schema.AttributeType;
 import edu.uci.ics.texera.api.schema.Schema;
 import edu.uci.ics.texera.api.span.Span;
 import edu.uci.ics.texera.api.tuple.Tuple;
@@ -18,11 +21,16 @@ import edu.uci.ics.texera.api.utils.TestUtils;
 import edu.uci.ics.texera.dataflow.join.SimilarityJoinPredicate;
 import edu.uci.ics.texera.dataflow.keywordmatcher.KeywordMatchingType;
 import edu.uci.ics.texera.dataflow.regexmatcher.RegexMatcher;
+import edu.uci.ics.texera.dataflow.source.tuple.TupleSourceOperator;
+import info.debatty.java.stringsimilarity.NormalizedLevenshtein;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 import java.util.UUID;
 
 /**
@@ -228,5 +236,133 @@ public class SimilarityJoinTest {
         Assert.assertTrue(results.isEmpty());
     }
 
+    /*
+     * Tests that the similarity join using SimilarityJoinIndex returns the same results
+     *   as computing the similarity of every pair of tuples, and that the index prunes most of the pairs.
+     */
+    @Test
+    public void testIndexedSimilarityJoin() throws TexeraException {
+        String nameAttr = "name";
+        Schema schema = new Schema(SchemaConstants._ID_ATTRIBUTE, new Attribute(nameAttr, AttributeType.STRING),
+                SchemaConstants.SPAN_LIST_ATTRIBUTE);
+
+        List<String> names = new ArrayList<>();
+        List<String> editedNames = new ArrayList<>();
+        generateNamePairs(200, names, editedNames);
+        List<Tuple> innerTuples = new ArrayList<>();
+        List<Tuple> outerTuples = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            innerTuples.add(getNameTuple(schema, nameAttr, names.get(i)));
+            outerTuples.add(getNameTuple(schema, nameAttr, editedNames.get(i)));
+        }
+
+        SimilarityJoinPredicate indexedPredicate = new SimilarityJoinPredicate(nameAttr, 0.8);
+        Join join = new Join(indexedPredicate);
+        join.setInnerInputOperator(new TupleSourceOperator(innerTuples, schema));
+        join.setOuterInputOperator(new TupleSourceOperator(outerTuples, schema));
+        List<Tuple> indexedResults = new ArrayList<>();
+        join.open();
+        Tuple tuple;
+        while ((tuple = join.getNextTuple()) != null) {
+            indexedResults.add(tuple);
+        }
+        SimilarityJoinIndex similarityJoinIndex = (SimilarityJoinIndex) join.getCandidateIndex();
+        join.close();
+
+        // a custom similarity function disables the index
+        SimilarityJoinPredicate bruteForcePredicate = new SimilarityJoinPredicate(nameAttr, 0.8);
+        bruteForcePredicate.setSimilarityFunction(
+                (str1, str2) -> (1.0 - new NormalizedLevenshtein().distance(str1, str2)));
+        Assert.assertNull(bruteForcePredicate.createCandidateIndex());
+        List<Tuple> bruteForceResults = JoinTestHelper.getJoinDistanceResults(
+                new TupleSourceOperator(innerTuples, schema), new TupleSourceOperator(outerTuples, schema),
+                bruteForcePredicate, Integer.MAX_VALUE, 0);
+
+        Assert.assertTrue(indexedResults.size() >= 200 * 2 / 3);
+        Assert.assertEquals(bruteForceResults.size(), indexedResults.size());
+        for (int i = 0; i < indexedResults.size(); i++) {
+            Assert.assertEquals(bruteForceResults.get(i).getField(SchemaConstants.SPAN_LIST).getValue(),
+                    indexedResults.get(i).getField(SchemaConstants.SPAN_LIST).getValue());
+        }
+
+        Assert.assertEquals(200, similarityJoinIndex.getNumInnerTuples());
+        Assert.assertEquals(200, similarityJoinIndex.getNumProbes());
+        Assert.assertEquals(200 * 200, similarityJoinIndex.getNumCandidatePairs() + similarityJoinIndex.getNumPrunedPairs());
+        Assert.assertTrue(similarityJoinIndex.getNumPrunedPairs() > 200 * 200 / 2);
+    }
+
+    /*
+     * Tests a similarity join whose inner tuples exceed the memory budget (1 MB) of the predicate,
+     *   so both inputs are spilled to disk and joined block by block.
+     */
+    @Test
+    public void testSpilledSimilarityJoin() throws TexeraException {
+        String nameAttr = "name";
+        Schema schema = new Schema(SchemaConstants._ID_ATTRIBUTE, new Attribute(nameAttr, AttributeType.STRING),
+                new Attribute("description", AttributeType.TEXT), SchemaConstants.SPAN_LIST_ATTRIBUTE);
+
+        // each tuple has a long description, so that the inner tuples take a few MB
+        List<String> names = new ArrayList<>();
+        List<String> editedNames = new ArrayList<>();
+        generateNamePairs(300, names, editedNames);
+        String description = String.join(" ", Collections.nCopies(1000, "text"));
+        List<Tuple> innerTuples = new ArrayList<>();
+        List<Tuple> outerTuples = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            innerTuples.add(new Tuple(schema, IDField.newRandomID(), new StringField(names.get(i)),
+                    new TextField(description), new ListField<>(Arrays.asList(
+                            new Span(nameAttr, 0, names.get(i).length(), nameAttr, names.get(i))))));
+            outerTuples.add(new Tuple(schema, IDField.newRandomID(), new StringField(editedNames.get(i)),
+                    new TextField(description), new ListField<>(Arrays.asList(
+                            new Span(nameAttr, 0, editedNames.get(i).length(), nameAttr, editedNames.get(i))))));
+        }
+
+        List<Tuple> inMemoryResults = JoinTestHelper.getJoinDistanceResults(
+                new TupleSourceOperator(innerTuples, schema), new TupleSourceOperator(outerTuples, schema),
+                new SimilarityJoinPredicate(nameAttr, 0.8), Integer.MAX_VALUE, 0);
+
+        Join join = new Join(new SimilarityJoinPredicate(nameAttr, nameAttr, 0.8, 1));
+        join.setInnerInputOperator(new TupleSourceOperator(innerTuples, schema));
+        join.setOuterInputOperator(new TupleSourceOperator(outerTuples, schema));
+        List<Tuple> spilledResults = new ArrayList<>();
+        join.open();
+        Tuple tuple;
+        while ((tuple = join.getNextTuple()) != null) {
+            spilledResults.add(tuple);
+        }
+        Assert.assertTrue(join.isInnerSpilled());
+        Assert.assertEquals(1, join.getSpilledJoin().getNumPartitions());
+        Assert.assertTrue(join.getSpilledJoin().getNumBlocks() > 1);
+        join.close();
+
+        Assert.assertTrue(inMemoryResults.size() >= 300 * 2 / 3);
+        Assert.assertTrue(TestUtils.equals(inMemoryResults, spilledResults));
+    }
+
+    private static Tuple getNameTuple(Schema schema, String nameAttr, String name) {
+        return new Tuple(schema, IDField.newRandomID(), new StringField(name),
+                new ListField<>(Arrays.asList(new Span(nameAttr, 0, name.length(), nameAttr, name))));
+    }
+
+    /*
+     * Generates random names, and the same names with a few random edits.
+     */
+    private static void generateNamePairs(int numPairs, List<String> names, List<String> editedNames) {
+        Random random = new Random(2017);
+        for (int i = 0; i < numPairs; i++) {
+            StringBuilder name = new StringBuilder();
+            int nameLength = 4 + random.nextInt(16);
+            for (int j = 0; j < nameLength; j++) {
+                name.append((char) ('a' + random.nextInt(26)));
+            }
+            StringBuilder editedName = new StringBuilder(name);
+            for (int edits = random.nextInt(3); edits > 0; edits--) {
+                editedName.setCharAt(random.nextInt(editedName.length()), (char) ('a' + random.nextInt(26)));
+            }
+            names.add(name.toString());
+            editedNames.add(editedName.toString());
+        }
+    }
+
 
 }
@@ -0,0 +1,174 @@
+package edu.uci.ics.texera.dataflow.parallel;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.uci.ics.texera.api.constants.test.TestConstants;
+import edu.uci.ics.texera.api.engine.Plan;
+import edu.uci.ics.texera.api.exception.DataflowException;
+import edu.uci.ics.texera.api.exception.TexeraException;
+import edu.uci.ics.texera.api.tuple.Tuple;
+import edu.uci.ics.texera.api.utils.TestUtils;
+import edu.uci.ics.texera.dataflow.keywordmatcher.KeywordMatcher;
+import edu.uci.ics.texera.dataflow.keywordmatcher.KeywordMatchingType;
+import edu.uci.ics.texera.dataflow.keywordmatcher.KeywordPredicate;
+import edu.uci.ics.texera.dataflow.projection.ProjectionOperator;
+import edu.uci.ics.texera.dataflow.projection.ProjectionPredicate;
+import edu.uci.ics.texera.dataflow.sink.tuple.TupleSink;
+import edu.uci.ics.texera.dataflow.sink.tuple.TupleSinkPredicate;
+import edu.uci.ics.texera.dataflow.source.scan.ScanBasedSourceOperator;
+import edu.uci.ics.texera.dataflow.source.scan.ScanSourcePredicate;
+import edu.uci.ics.texera.dataflow.source.tuple.TupleSourceOperator;
+import edu.uci.ics.texera.storage.DataWriter;
+import edu.uci.ics.texera.storage.RelationManager;
+import edu.uci.ics.texera.storage.constants.LuceneAnalyzerConstants;
+
+public class ParallelPlanBuilderTest {
+
+    public static final String PEOPLE_TABLE = "parallel_plan_test_people";
+
+    @BeforeClass
+    public static void setUp() throws TexeraException {
+        RelationManager relationManager = RelationManager.getInstance();
+        relationManager.deleteTable(PEOPLE_TABLE);
+        relationManager.createTable(PEOPLE_TABLE, TestUtils.getDefaultTestIndex().resolve(PEOPLE_TABLE),
+                TestConstants.SCHEMA_PEOPLE, LuceneAnalyzerConstants.standardAnalyzerString());
+
+        DataWriter dataWriter = relationManager.getTableDataWriter(PEOPLE_TABLE);
+        dataWriter.open();
+        for (Tuple tuple : TestConstants.getSamplePeopleTuples()) {
+            dataWriter.insertTuple(tuple);
+        }
+        dataWriter.close();
+    }
+
+    @AfterClass
+    public static void cleanUp() throws TexeraException {
+        RelationManager.getInstance().deleteTable(PEOPLE_TABLE);
+    }
+
+    /*
+     * Builds the plan: scan source -> (keyword matcher) -> tuple sink
+     */
+    private static Plan buildPlan(String keywordQuery, int limit, int offset) {
+        ScanBasedSourceOperator scanSource = new ScanBasedSourceOperator(new ScanSourcePredicate(PEOPLE_TABLE));
+        TupleSink tupleSink = new TupleSink(new TupleSinkPredicate(limit, offset));
+        if (keywordQuery == null) {
+            tupleSink.setInputOperator(scanSource);
+        } else {
+            KeywordMatcher keywordMatcher = new KeywordMatcher(new KeywordPredicate(keywordQuery,
+                    Arrays.asList(TestConstants.DESCRIPTION), LuceneAnalyzerConstants.standardAnalyzerString(),
+                    KeywordMatchingType.CONJUNCTION_INDEXBASED, "spanList"));
+            keywordMatcher.setInputOperator(scanSource);
+            tupleSink.setInputOperator(keywordMatcher);
+        }
+        return new Plan(tupleSink);
+    }
+
+    private static List<Tuple> getResults(Plan plan) {
+        return ((TupleSink) plan.getRoot()).collectAllTuples();
+    }
+
+    @Test
+    public void testParallelScan() throws TexeraException {
+        List<Tuple> serialResults = getResults(buildPlan(null, Integer.MAX_VALUE, 0));
+        Plan parallelPlan = ParallelPlanBuilder.buildParallelPlan(buildPlan(null, Integer.MAX_VALUE, 0), 3, false);
+        List<Tuple> parallelResults = getResults(parallelPlan);
+
+        TupleSink tupleSink = (TupleSink) parallelPlan.getRoot();
+        Assert.assertTrue(tupleSink.getInputOperator() instanceof PartitionExchangeOperator);
+        Assert.assertEquals(TestConstants.getSamplePeopleTuples().size(), parallelResults.size());
+        Assert.assertTrue(TestUtils.equals(serialResults, parallelResults));
+    }
+
+    @Test
+    public void testParallelKeywordMatcher() throws TexeraException {
+        List<Tuple> serialResults = getResults(buildPlan("angry", Integer.MAX_VALUE, 0));
+        Plan parallelPlan = ParallelPlanBuilder.buildParallelPlan(buildPlan("angry", Integer.MAX_VALUE, 0), 4);
+        List<Tuple> parallelResults = getResults(parallelPlan);
+
+        PartitionExchangeOperator exchangeOperator =
+                (PartitionExchangeOperator) ((TupleSink) parallelPlan.getRoot()).getInputOperator();
+        Assert.assertEquals(4, exchangeOperator.getNumPartitions());
+        Assert.assertFalse(exchangeOperator.isPreserveOrder());
+        Assert.assertTrue(exchangeOperator.getPartitionOperators().get(0).get(1) instanceof KeywordMatcher);
+        Assert.assertFalse(serialResults.isEmpty());
+        Assert.assertTrue(TestUtils.equals(serialResults, parallelResults));
+    }
+
+    /*
+     * With a limit and offset on the sink, the parallel plan must return the same tuples in the same order.
+     */
+    @Test
+    public void testPreserveOrderWithLimitOffset() throws TexeraException {
+        List<Tuple> serialResults = getResults(buildPlan(null, 3, 1));
+        Plan parallelPlan = ParallelPlanBuilder.buildParallelPlan(buildPlan(null, 3, 1), 3);
+        List<Tuple> parallelResults = getResults(parallelPlan);
+
+        PartitionExchangeOperator exchangeOperator =
+                (PartitionExchangeOperator) ((TupleSink) parallelPlan.getRoot()).getInputOperator();
+        Assert.assertTrue(exchangeOperator.isPreserveOrder());
+        Assert.assertEquals(3, parallelResults.size());
+        Assert.assertEquals(serialResults, parallelResults);
+    }
+
+    @Test
+    public void testSinglePartitionPlanUnchanged() throws TexeraException {
+        Plan plan = buildPlan("angry", Integer.MAX_VALUE, 0);
+        Assert.assertSame(plan, ParallelPlanBuilder.buildParallelPlan(plan, 1));
+    }
+
+    /*
+     * A source operator that records if it's opened.
+     */
+    private static class OpenStateSourceOperator extends TupleSourceOperator {
+
+        boolean isOpened = false;
+
+        OpenStateSourceOperator() {
+            super(TestConstants.getSamplePeopleTuples(), TestConstants.SCHEMA_PEOPLE);
+        }
+
+        @Override
+        public void open() throws TexeraException {
+            super.open();
+            isOpened = true;
+        }
+
+        @Override
+        public void close() throws TexeraException {
+            super.close();
+            isOpened = false;
+        }
+    }
+
+    /*
+     * If a partition fails to open, the operators of the other partitions that are opened must be closed,
+     *   and so must the input of the failed operator.
+     */
+    @Test
+    public void testOpenFailureClosesPartitions() throws TexeraException {
+        OpenStateSourceOperator source1 = new OpenStateSourceOperator();
+        OpenStateSourceOperator source2 = new OpenStateSourceOperator();
+        // the projection opens its input, then fails on the attribute that isn't in the schema
+        ProjectionOperator failingOperator = new ProjectionOperator(
+                new ProjectionPredicate(Arrays.asList("no_such_attribute")));
+        failingOperator.setInputOperator(source2);
+        PartitionExchangeOperator exchangeOperator = new PartitionExchangeOperator(
+                Arrays.asList(Arrays.asList(source1), Arrays.asList(source2, failingOperator)), false);
+
+        try {
+            exchangeOperator.open();
+            Assert.fail("open should throw the exception of the failed partition");
+        } catch (DataflowException e) {
+        }
+        Assert.assertFalse(source1.isOpened);
+        Assert.assertFalse(source2.isOpened);
+    }
+
+}
@@ -17,8 +17,17 @@ import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import edu.uci.ics.texera.api.constants.SchemaConstants;
 import edu.uci.ics.texera.api.constants.test.TestConstants;
 import edu.uci.ics.texera.api.dataflow.IOperator;
+import edu.uci.ics.texera.api.engine.Plan;
+import edu.uci.ics.texera.dataflow.comparablematcher.ComparableMatcher;
+import edu.uci.ics.texera.dataflow.comparablematcher.ComparablePredicate;
+import edu.uci.ics.texera.dataflow.comparablematcher.ComparisonType;
+import edu.uci.ics.texera.dataflow.plangen.LogicalPlan;
+import edu.uci.ics.texera.dataflow.plangen.OperatorLink;
+import edu.uci.ics.texera.dataflow.sink.tuple.TupleSink;
+import edu.uci.ics.texera.dataflow.sink.tuple.TupleSinkPredicate;
 import edu.uci.ics.texera.dataflow.source.scan.ScanBasedSourceOperator;
 import edu.uci.ics.texera.dataflow.source.scan.ScanSourcePredicate;
 import edu.uci.ics.texera.storage.DataWriter;
@@ -121,4 +130,52 @@ public class ProjectionOperatorTest {
         Assert.assertTrue(TestUtils.equals(expectedResults, returnedResults));
     }
 
+    /*
+     * Scan --> Comparison(lastName) --> Projection(description) --> TupleSink
+     *   only reads the attributes lastName and description from the table.
+     */
+    @Test
+    public void testProjectionPushdown() throws Exception {
+        ScanSourcePredicate scanPredicate = new ScanSourcePredicate(PEOPLE_TABLE);
+        scanPredicate.setID("scan");
+        ComparablePredicate comparablePredicate = new ComparablePredicate(
+                TestConstants.LAST_NAME, ComparisonType.NOT_EQUAL_TO, "pitt");
+        comparablePredicate.setID("comparison");
+        ProjectionPredicate projectionPredicate = new ProjectionPredicate(Arrays.asList(TestConstants.DESCRIPTION));
+        projectionPredicate.setID("projection");
+        TupleSinkPredicate tupleSinkPredicate = new TupleSinkPredicate();
+        tupleSinkPredicate.setID("sink");
+
+        LogicalPlan logicalPlan = new LogicalPlan();
+        logicalPlan.addOperator(scanPredicate);
+        logicalPlan.addOperator(comparablePredicate);
+        logicalPlan.addOperator(projectionPredicate);
+        logicalPlan.addOperator(tupleSinkPredicate);
+        logicalPlan.addLink(new OperatorLink("scan", "comparison"));
+        logicalPlan.addLink(new OperatorLink("comparison", "projection"));
+        logicalPlan.addLink(new OperatorLink("projection", "sink"));
+
+        Plan plan = logicalPlan.buildQueryPlan();
+        TupleSink tupleSink = (TupleSink) plan.getRoot();
+        List<Tuple> results = tupleSink.collectAllTuples();
+
+        ProjectionOperator projection = (ProjectionOperator) tupleSink.getInputOperator();
+        ComparableMatcher comparableMatcher = (ComparableMatcher) projection.getInputOperator();
+        ScanBasedSourceOperator scanSource = (ScanBasedSourceOperator) comparableMatcher.getInputOperator();
+        Schema scanSchema = scanSource.getOutputSchema();
+        Assert.assertTrue(scanSchema.containsAttribute(SchemaConstants._ID));
+        Assert.assertTrue(scanSchema.containsAttribute(TestConstants.LAST_NAME));
+        Assert.assertTrue(scanSchema.containsAttribute(TestConstants.DESCRIPTION));
+        Assert.assertFalse(scanSchema.containsAttribute(TestConstants.FIRST_NAME));
+        Assert.assertFalse(scanSchema.containsAttribute(TestConstants.DATE_OF_BIRTH));
+
+        ComparableMatcher expectedComparableMatcher = new ComparableMatcher(comparablePredicate);
+        expectedComparableMatcher.setInputOperator(new ScanBasedSourceOperator(new ScanSourcePredicate(PEOPLE_TABLE)));
+        List<Tuple> expectedResults = getProjectionResults(expectedComparableMatcher, 
+                Arrays.asList(TestConstants.DESCRIPTION));
+
+        Assert.assertEquals(5, expectedResults.size());
+        Assert.assertTrue(TestUtils.equals(expectedResults, results));
+    }
+
 }
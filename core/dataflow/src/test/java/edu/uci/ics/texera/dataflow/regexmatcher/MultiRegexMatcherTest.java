@@ -0,0 +1,96 @@
+package edu.uci.ics.texera.dataflow.regexmatcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MultiRegexMatcherTest {
+
+    private static final List<String> REGEXES = Arrays.asList(
+            "george washington",
+            "(wash|jeff)ington",
+            "\\Sington\\b",
+            "lin(c|k)oln",
+            "[a-z]+@[a-z]+\\.com",
+            "b.b",
+            "(?<=mr\\. )smith",
+            "president(?!ial)",
+            "ABRAHAM");
+
+    private static final List<String> TEXTS = Arrays.asList(
+            "George Washington was the first President of the United States.",
+            "Abraham Lincoln, Thomas Jefferson and Mr. Smith visited Lexington.",
+            "Contact bob@example.com or the presidential office, not Mr. Smith Jr.",
+            "nothing to see here",
+            "");
+
+    private static List<Pattern> compilePatterns() {
+        List<Pattern> patterns = new ArrayList<>();
+        for (String regex : REGEXES) {
+            patterns.add(Pattern.compile(regex, Pattern.CASE_INSENSITIVE));
+        }
+        return patterns;
+    }
+
+    /*
+     * The matches of the patterns run one by one on the text, in the order of the patterns.
+     */
+    private static List<String> getExpectedMatches(List<Pattern> patterns, String text) {
+        List<String> matches = new ArrayList<>();
+        for (int i = 0; i < patterns.size(); i++) {
+            Matcher matcher = patterns.get(i).matcher(text);
+            while (matcher.find()) {
+                matches.add(i + ":" + matcher.start() + "-" + matcher.end());
+            }
+        }
+        return matches;
+    }
+
+    @Test
+    public void testSameMatchesAsEachPattern() throws Exception {
+        List<Pattern> patterns = compilePatterns();
+        MultiRegexMatcher multiRegexMatcher = new MultiRegexMatcher(patterns);
+        for (String text : TEXTS) {
+            List<String> matches = new ArrayList<>();
+            multiRegexMatcher.match(text, (patternIndex, start, end) -> matches.add(patternIndex + ":" + start + "-" + end));
+            Assert.assertEquals(getExpectedMatches(patterns, text), matches);
+        }
+    }
+
+    @Test
+    public void testPatternsFilteredByGrams() throws Exception {
+        MultiRegexMatcher multiRegexMatcher = new MultiRegexMatcher(compilePatterns());
+        // "b.b" has no literal of 3 characters, and RE2J doesn't support look-arounds
+        Assert.assertEquals(REGEXES.size() - 3, multiRegexMatcher.getNumFilteredPatterns());
+    }
+
+    /*
+     * RE2J reads these regexes differently from java.util.regex (an intersection, a nested class, \v),
+     *   the grams translated from them must not filter out the texts they match.
+     */
+    @Test
+    public void testSyntaxDifferentInRE2J() throws Exception {
+        List<Pattern> patterns = Arrays.asList(
+                Pattern.compile("[a-z&&[^aeiou]]bcd"),
+                Pattern.compile("[[a-z]]bcd"),
+                Pattern.compile("abc\\vdef"));
+        List<String> texts = Arrays.asList("xbcd", "xbcd", "abc\ndef");
+        MultiRegexMatcher multiRegexMatcher = new MultiRegexMatcher(patterns);
+        Assert.assertEquals(0, multiRegexMatcher.getNumFilteredPatterns());
+
+        for (int i = 0; i < patterns.size(); i++) {
+            String text = texts.get(i);
+            Assert.assertTrue(patterns.get(i).matcher(text).find());
+            List<String> matches = new ArrayList<>();
+            multiRegexMatcher.match(text, (patternIndex, start, end) -> matches.add(patternIndex + ":" + start + "-" + end));
+            Assert.assertEquals(getExpectedMatches(patterns, text), matches);
+            Assert.assertTrue(matches.contains(i + ":0-" + text.length()));
+        }
+    }
+
+}
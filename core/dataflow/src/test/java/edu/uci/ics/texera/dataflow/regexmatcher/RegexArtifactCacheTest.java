@@ -0,0 +1,52 @@
+package edu.uci.ics.texera.dataflow.regexmatcher;
+
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.cache.CacheStats;
+
+public class RegexArtifactCacheTest {
+
+    @Test
+    public void testPatternIsReused() throws Exception {
+        Pattern pattern = RegexArtifactCache.getPattern("george\\s+washington", Pattern.CASE_INSENSITIVE);
+        Assert.assertSame(pattern, RegexArtifactCache.getPattern("george\\s+washington", Pattern.CASE_INSENSITIVE));
+        Assert.assertNotSame(pattern, RegexArtifactCache.getPattern("george\\s+washington", 0));
+        Assert.assertEquals(0, RegexArtifactCache.getPattern("george\\s+washington", 0).flags());
+    }
+
+    @Test
+    public void testGramQueryIsReused() throws Exception {
+        GramBooleanQuery query = RegexArtifactCache.getGramQuery("lincoln");
+        Assert.assertSame(query, RegexArtifactCache.getGramQuery("lincoln"));
+        Assert.assertEquals(RegexToGramQueryTranslator.translate("lincoln"), query);
+    }
+
+    @Test
+    public void testHitRate() throws Exception {
+        CacheStats before = RegexArtifactCache.getStats().get(RegexArtifactCache.PATTERN_CACHE);
+        RegexArtifactCache.getPattern("hit rate test", 0);
+        RegexArtifactCache.getPattern("hit rate test", 0);
+        RegexArtifactCache.getPattern("hit rate test", 0);
+        CacheStats stats = RegexArtifactCache.getStats().get(RegexArtifactCache.PATTERN_CACHE).minus(before);
+        Assert.assertEquals(2, stats.hitCount());
+        Assert.assertEquals(1, stats.missCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() throws Exception {
+        Pattern first = RegexArtifactCache.getPattern("eviction test 0", 0);
+        for (int i = 1; i <= RegexArtifactCache.MAXIMUM_SIZE; i++) {
+            RegexArtifactCache.getPattern("eviction test " + i, 0);
+        }
+        Assert.assertNotSame(first, RegexArtifactCache.getPattern("eviction test 0", 0));
+    }
+
+    @Test(expected = java.util.regex.PatternSyntaxException.class)
+    public void testInvalidPattern() throws Exception {
+        RegexArtifactCache.getPattern("(unclosed", 0);
+    }
+
+}
@@ -0,0 +1,186 @@
+package edu.uci.ics.texera.dataflow.regexmatcher;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.uci.ics.texera.api.exception.DataflowException;
+import edu.uci.ics.texera.api.field.TextField;
+import edu.uci.ics.texera.api.schema.Attribute;
+import edu.uci.ics.texera.api.schema.AttributeType;
+import edu.uci.ics.texera.api.schema.Schema;
+import edu.uci.ics.texera.api.span.Span;
+import edu.uci.ics.texera.api.tuple.Tuple;
+import edu.uci.ics.texera.dataflow.source.tuple.TupleSourceOperator;
+
+import static edu.uci.ics.texera.dataflow.regexmatcher.RegexMatcherTupleTestHelper.*;
+
+public class RegexEngineTest {
+
+    private static final List<String> TEXTS = Arrays.asList(
+            "George Washington was the first President of the United States.",
+            "Contact bob@example.com or alice@example.org, not Mr. Smith Jr.",
+            "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa",
+            "");
+
+    // texts where the two engines can match differently: line terminators, Unicode case folding, non-ASCII letters
+    private static final List<String> UNICODE_TEXTS = Arrays.asList(
+            "line one\r\nline two\u0085line three\u2028x\u2029y",
+            "Kelvin \u212Aelvin, strasse \u017Ftrasse",
+            "tab\u000Bvertical",
+            "naive caf\u00E9 \u00C9COLE \u00E9cole ABC",
+            "[a]bc b&&c a:b",
+            "end of text\n");
+
+    @Test
+    public void testAutoSelectsEngine() throws Exception {
+        Assert.assertEquals(RegexEngine.RE2J,
+                openRegexMatcher(TEXTS, "(a+)+b", true, RegexEngine.AUTO, null).getRegexEngine());
+        // RE2J doesn't support backreferences and look-arounds
+        Assert.assertEquals(RegexEngine.JDK,
+                openRegexMatcher(TEXTS, "(\\w)\\1", true, RegexEngine.AUTO, null).getRegexEngine());
+        Assert.assertEquals(RegexEngine.JDK,
+                openRegexMatcher(TEXTS, "(?<=mr\\. )smith", true, RegexEngine.AUTO, null).getRegexEngine());
+        // RE2J doesn't support intersections of character classes
+        Assert.assertEquals(RegexEngine.JDK,
+                openRegexMatcher(TEXTS, "[a-z&&[^aeiou]]+", true, RegexEngine.AUTO, null).getRegexEngine());
+    }
+
+    @Test
+    public void testEnginesHaveSameResults() throws Exception {
+        List<String> regexes = Arrays.asList(
+                "george washington", "[a-z]+@[a-z]+\\.(com|org)", "\\bmr\\.?\\s+\\w+", "a{3,5}", "x*", "(a+)+");
+        for (String regex : regexes) {
+            List<List<Span>> jdkResults = getResults(openRegexMatcher(TEXTS, regex, true, RegexEngine.JDK, null));
+            List<List<Span>> re2jResults = getResults(openRegexMatcher(TEXTS, regex, true, RegexEngine.RE2J, null));
+            Assert.assertFalse(jdkResults.isEmpty());
+            Assert.assertEquals(jdkResults, re2jResults);
+        }
+    }
+
+    /*
+     * Tests that AUTO selects JDK for the regexes that RE2J matches differently,
+     *   and the results are the same as JDK's.
+     */
+    @Test
+    public void testAutoSelectsJDKForDifferentRegexes() throws Exception {
+        Map<String, Boolean> regexes = new LinkedHashMap<>();
+        regexes.put(".+", false);
+        regexes.put("text$", false);
+        regexes.put("[a[bc]]", false);
+        regexes.put("[[:alpha:]]+", false);
+        regexes.put("[a-z&&[^aeiou]]+", false);
+        regexes.put("\\s+", false);
+        regexes.put("caf\\b", false);
+        regexes.put("(?m)^line", false);
+        regexes.put("(?i)kelvin", false);
+        regexes.put("\\0101", false);
+        regexes.put("kelvin", true);
+        regexes.put("strasse", true);
+        regexes.put("\u00E9cole", true);
+        regexes.put("[a-z]+", true);
+        regexes.put("\\w+", true);
+        regexes.put("\\x6Belvin", true);
+        for (Map.Entry<String, Boolean> regex : regexes.entrySet()) {
+            RegexMatcher autoMatcher = openRegexMatcher(
+                    UNICODE_TEXTS, regex.getKey(), regex.getValue(), RegexEngine.AUTO, null);
+            Assert.assertEquals(regex.getKey(), RegexEngine.JDK, autoMatcher.getRegexEngine());
+            List<List<Span>> autoResults = getResults(autoMatcher);
+            List<List<Span>> jdkResults = getResults(
+                    openRegexMatcher(UNICODE_TEXTS, regex.getKey(), regex.getValue(), RegexEngine.JDK, null));
+            List<List<Span>> re2jResults = getResults(
+                    openRegexMatcher(UNICODE_TEXTS, regex.getKey(), regex.getValue(), RegexEngine.RE2J, null));
+            Assert.assertEquals(regex.getKey(), jdkResults, autoResults);
+            Assert.assertFalse(regex.getKey(), jdkResults.equals(re2jResults));
+        }
+    }
+
+    /*
+     * Tests that AUTO selects RE2J for the regexes without any construct that RE2J matches differently,
+     *   and the results are the same as JDK's.
+     */
+    @Test
+    public void testAutoSelectsRE2JForSameRegexes() throws Exception {
+        Map<String, Boolean> regexes = new LinkedHashMap<>();
+        regexes.put("[a-z]+@[a-z]+\\.(com|org)", false);
+        regexes.put("\\w+", false);
+        regexes.put("(a+)+b", true);
+        regexes.put("line (one|two)", true);
+        regexes.put("[^a-z ]+", false);
+        regexes.put("\\d+|\\D", false);
+        regexes.put("x*", true);
+        regexes.put("\\Qa]b\\E", false);
+        regexes.put("[-a\\]]+", false);
+        regexes.put("[b-j]+", true);
+        regexes.put("caf\u00E9", false);
+        regexes.put("tab\\x0Bvertical", false);
+        for (Map.Entry<String, Boolean> regex : regexes.entrySet()) {
+            RegexMatcher autoMatcher = openRegexMatcher(
+                    UNICODE_TEXTS, regex.getKey(), regex.getValue(), RegexEngine.AUTO, null);
+            Assert.assertEquals(regex.getKey(), RegexEngine.RE2J, autoMatcher.getRegexEngine());
+            List<List<Span>> autoResults = getResults(autoMatcher);
+            List<List<Span>> jdkResults = getResults(
+                    openRegexMatcher(UNICODE_TEXTS, regex.getKey(), regex.getValue(), RegexEngine.JDK, null));
+            Assert.assertEquals(regex.getKey(), jdkResults, autoResults);
+        }
+    }
+
+    /*
+     * Tests that the regex is matched on every attribute of the predicate,
+     *   and the spans are named after the attributes, in the order of the attributes.
+     */
+    @Test
+    public void testMultipleAttributes() throws Exception {
+        String title = "title";
+        Schema schema = new Schema(new Attribute(title, AttributeType.TEXT), new Attribute(TEXT, AttributeType.TEXT));
+        List<Tuple> tuples = Arrays.asList(
+                new Tuple(schema, new TextField("a zebra"), new TextField("zebras and a zebra")),
+                new Tuple(schema, new TextField("no match"), new TextField("the zebra")),
+                new Tuple(schema, new TextField("nothing"), new TextField("here")));
+        List<List<Span>> expectedResults = Arrays.asList(
+                Arrays.asList(new Span(TEXT, 0, 5, "zebra", "zebra"), new Span(TEXT, 13, 18, "zebra", "zebra"),
+                        new Span(title, 2, 7, "zebra", "zebra")),
+                Arrays.asList(new Span(TEXT, 4, 9, "zebra", "zebra")));
+
+        for (RegexEngine regexEngine : Arrays.asList(RegexEngine.JDK, RegexEngine.RE2J)) {
+            RegexMatcher regexMatcher = new RegexMatcher(new RegexPredicate(
+                    "zebra", Arrays.asList(TEXT, title), false, regexEngine, null, RESULTS));
+            regexMatcher.setInputOperator(new TupleSourceOperator(tuples, schema));
+            regexMatcher.open();
+            Assert.assertEquals(expectedResults, getResults(regexMatcher));
+        }
+    }
+
+    @Test(expected = DataflowException.class)
+    public void testRE2JUnsupportedRegex() throws Exception {
+        openRegexMatcher(TEXTS, "(\\w)\\1", true, RegexEngine.RE2J, null);
+    }
+
+    @Test
+    public void testTimeBudgetAbortsRunawayMatch() throws Exception {
+        // the backtracking of "(a+)+b" on a long run of "a" takes exponential time
+        String runawayText = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa";
+        RegexMatcher regexMatcher = openRegexMatcher(
+                Arrays.asList(runawayText, "aab"), "(a+)+b", true, RegexEngine.JDK, 100);
+        List<List<Span>> results = getResults(regexMatcher);
+
+        Assert.assertEquals(Arrays.asList(Arrays.asList(new Span(TEXT, 0, 3, "(a+)+b", "aab"))), results);
+        Assert.assertEquals(1, regexMatcher.getNumTimedOutTuples());
+    }
+
+    @Test
+    public void testRE2JMatchesRunawayRegex() throws Exception {
+        String runawayText = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa";
+        RegexMatcher regexMatcher = openRegexMatcher(
+                Arrays.asList(runawayText, "aab"), "(a+)+b", true, RegexEngine.AUTO, 10000);
+        List<List<Span>> results = getResults(regexMatcher);
+
+        Assert.assertEquals(Arrays.asList(Arrays.asList(new Span(TEXT, 0, 3, "(a+)+b", "aab"))), results);
+        Assert.assertEquals(0, regexMatcher.getNumTimedOutTuples());
+    }
+
+}
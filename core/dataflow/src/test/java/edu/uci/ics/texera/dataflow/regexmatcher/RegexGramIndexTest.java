@@ -0,0 +1,142 @@
+package edu.uci.ics.texera.dataflow.regexmatcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.uci.ics.texera.api.dataflow.IOperator;
+import edu.uci.ics.texera.api.exception.TexeraException;
+import edu.uci.ics.texera.api.field.TextField;
+import edu.uci.ics.texera.api.schema.Attribute;
+import edu.uci.ics.texera.api.schema.AttributeType;
+import edu.uci.ics.texera.api.schema.Schema;
+import edu.uci.ics.texera.api.tuple.Tuple;
+import edu.uci.ics.texera.api.utils.TestUtils;
+import edu.uci.ics.texera.dataflow.source.scan.ScanBasedSourceOperator;
+import edu.uci.ics.texera.dataflow.source.scan.ScanSourcePredicate;
+import edu.uci.ics.texera.storage.DataWriter;
+import edu.uci.ics.texera.storage.RelationManager;
+import edu.uci.ics.texera.storage.constants.LuceneAnalyzerConstants;
+
+public class RegexGramIndexTest {
+
+    public static final String GRAM_INDEX_TABLE = "regex_test_gram_index";
+    public static final String CONTENT = "content";
+    public static final String RESULTS = "regex test results";
+
+    public static final Schema SCHEMA = new Schema(new Attribute(CONTENT, AttributeType.TEXT));
+
+    @BeforeClass
+    public static void setUp() throws TexeraException {
+        RelationManager relationManager = RelationManager.getInstance();
+        relationManager.deleteTable(GRAM_INDEX_TABLE);
+        // the table is analyzed by the standard analyzer, the regexes are prefiltered by the n-gram index
+        relationManager.createTable(GRAM_INDEX_TABLE, TestUtils.getDefaultTestIndex().resolve(GRAM_INDEX_TABLE),
+                SCHEMA, LuceneAnalyzerConstants.standardAnalyzerString(), Arrays.asList(CONTENT));
+
+        DataWriter dataWriter = relationManager.getTableDataWriter(GRAM_INDEX_TABLE);
+        dataWriter.open();
+        for (int i = 0; i < 20; i++) {
+            dataWriter.insertTuple(new Tuple(SCHEMA, new TextField("the lions are sleeping " + i)));
+        }
+        dataWriter.insertTuple(new Tuple(SCHEMA, new TextField("the Zebras are running")));
+        dataWriter.insertTuple(new Tuple(SCHEMA, new TextField("a zebra crossing")));
+        dataWriter.close();
+    }
+
+    @AfterClass
+    public static void cleanUp() throws TexeraException {
+        RelationManager.getInstance().deleteTable(GRAM_INDEX_TABLE);
+    }
+
+    private static List<Tuple> getScanSourceResults(RegexPredicate regexPredicate) {
+        RegexMatcher regexMatcher = new RegexMatcher(regexPredicate);
+        regexMatcher.setInputOperator(new ScanBasedSourceOperator(new ScanSourcePredicate(GRAM_INDEX_TABLE)));
+        return getResults(regexMatcher);
+    }
+
+    private static List<Tuple> getResults(IOperator operator) {
+        List<Tuple> results = new ArrayList<>();
+        operator.open();
+        Tuple tuple;
+        while ((tuple = operator.getNextTuple()) != null) {
+            results.add(tuple);
+        }
+        operator.close();
+        return results;
+    }
+
+    @Test
+    public void testSelectiveRegexUsesIndex() throws Exception {
+        RegexSourcePredicate predicate = new RegexSourcePredicate(
+                "zebras? +[a-z]+", Arrays.asList(CONTENT), true, GRAM_INDEX_TABLE, true, RESULTS);
+        RegexMatcherSourceOperator regexSource = new RegexMatcherSourceOperator(predicate);
+
+        Assert.assertTrue(regexSource.isIndexUsed());
+        Assert.assertEquals(2.0 / 22, regexSource.getIndexSelectivity(), 1e-9);
+
+        List<Tuple> results = getResults(regexSource);
+        Assert.assertEquals(2, results.size());
+        Assert.assertTrue(TestUtils.equals(getScanSourceResults(predicate), results));
+    }
+
+    @Test
+    public void testCaseSensitiveRegex() throws Exception {
+        RegexSourcePredicate predicate = new RegexSourcePredicate(
+                "Zebras", Arrays.asList(CONTENT), false, GRAM_INDEX_TABLE, true, RESULTS);
+        RegexMatcherSourceOperator regexSource = new RegexMatcherSourceOperator(predicate);
+
+        Assert.assertTrue(regexSource.isIndexUsed());
+        List<Tuple> results = getResults(regexSource);
+        Assert.assertEquals(1, results.size());
+        Assert.assertTrue(TestUtils.equals(getScanSourceResults(predicate), results));
+    }
+
+    @Test
+    public void testUnselectiveRegexScansTable() throws Exception {
+        // every tuple has the grams of "the", and "\\d+" has no grams
+        for (String regex : Arrays.asList("the\\s+[a-z]+", "\\d+")) {
+            RegexSourcePredicate predicate = new RegexSourcePredicate(
+                    regex, Arrays.asList(CONTENT), false, GRAM_INDEX_TABLE, true, RESULTS);
+            RegexMatcherSourceOperator regexSource = new RegexMatcherSourceOperator(predicate);
+
+            Assert.assertFalse(regexSource.isIndexUsed());
+            Assert.assertTrue(regexSource.getIndexSelectivity() > RegexMatcherSourceOperator.MAX_INDEX_SELECTIVITY);
+            Assert.assertTrue(TestUtils.equals(getScanSourceResults(predicate), getResults(regexSource)));
+        }
+    }
+
+    /*
+     * RE2J reads these regexes differently from java.util.regex (an intersection, a nested class),
+     *   so their grams can't be looked up in the index.
+     */
+    @Test
+    public void testSyntaxDifferentInRE2JScansTable() throws Exception {
+        for (String regex : Arrays.asList("[a-z&&[^aeiou]]ebras?", "[[a-z]]ebras?")) {
+            RegexSourcePredicate predicate = new RegexSourcePredicate(
+                    regex, Arrays.asList(CONTENT), false, GRAM_INDEX_TABLE, true, RESULTS);
+            RegexMatcherSourceOperator regexSource = new RegexMatcherSourceOperator(predicate);
+
+            Assert.assertFalse(regexSource.isIndexUsed());
+            List<Tuple> results = getResults(regexSource);
+            Assert.assertEquals(1, results.size());
+            Assert.assertTrue(TestUtils.equals(getScanSourceResults(predicate), results));
+        }
+    }
+
+    @Test
+    public void testRegexWithoutIndex() throws Exception {
+        RegexSourcePredicate predicate = new RegexSourcePredicate(
+                "zebras?\\s+[a-z]+", Arrays.asList(CONTENT), true, GRAM_INDEX_TABLE, false, RESULTS);
+        RegexMatcherSourceOperator regexSource = new RegexMatcherSourceOperator(predicate);
+
+        Assert.assertFalse(regexSource.isIndexUsed());
+        Assert.assertEquals(2, getResults(regexSource).size());
+    }
+
+}
@@ -209,6 +209,16 @@ public class RegexMatcherTest {
         fields.add(spanField);
         expectedResults.add(new Tuple(spanSchema, fields.toArray(new IField[fields.size()])));
 
+        // expected to match "tested", "testing" & "tests"
+        spans.clear();
+        spans.add(new Span(RegexTestConstantsText.CONTENT, 54, 60, query, "tested"));
+        spans.add(new Span(RegexTestConstantsText.CONTENT, 62, 69, query, "testing"));
+        spans.add(new Span(RegexTestConstantsText.CONTENT, 70, 75, query, "tests"));
+        spanField = new ListField<Span>(new ArrayList<Span>(spans));
+        fields = new ArrayList<IField>(data.get(11).getFields());
+        fields.add(spanField);
+        expectedResults.add(new Tuple(spanSchema, fields.toArray(new IField[fields.size()])));
+
         Assert.assertTrue(TestUtils.equals(expectedResults, exactResults));
     }
 
@@ -310,6 +320,14 @@ public class RegexMatcherTest {
         fields.add(spanField);
         expectedResults.add(new Tuple(spanSchema, fields.toArray(new IField[fields.size()])));
 
+        spans.clear();
+        spans.add(new Span(RegexTestConstantsText.CONTENT, 132, 135, query, "[a]"));
+        spans.add(new Span(RegexTestConstantsText.CONTENT, 142, 145, query, "[!]"));
+        spanField = new ListField<Span>(new ArrayList<Span>(spans));
+        fields = new ArrayList<IField>(data.get(11).getFields());
+        fields.add(spanField);
+        expectedResults.add(new Tuple(spanSchema, fields.toArray(new IField[fields.size()])));
+
         Assert.assertTrue(TestUtils.equals(expectedResults, exactResults));
     }
 
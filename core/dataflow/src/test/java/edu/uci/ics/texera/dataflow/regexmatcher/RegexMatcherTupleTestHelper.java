@@ -0,0 +1,63 @@
+package edu.uci.ics.texera.dataflow.regexmatcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.uci.ics.texera.api.field.ListField;
+import edu.uci.ics.texera.api.field.TextField;
+import edu.uci.ics.texera.api.schema.Attribute;
+import edu.uci.ics.texera.api.schema.AttributeType;
+import edu.uci.ics.texera.api.schema.Schema;
+import edu.uci.ics.texera.api.span.Span;
+import edu.uci.ics.texera.api.tuple.Tuple;
+import edu.uci.ics.texera.dataflow.source.tuple.TupleSourceOperator;
+
+/**
+ * Helper class to run a RegexMatcher on texts in memory, without writing a table.
+ *
+ * The texts are in an attribute that isn't named "content",
+ *   so that the matcher is tested to match the attributes of the predicate.
+ */
+public class RegexMatcherTupleTestHelper {
+
+    public static final String TEXT = "text";
+    public static final String RESULTS = "regex results";
+
+    public static final Schema SCHEMA = new Schema(new Attribute(TEXT, AttributeType.TEXT));
+
+    public static List<Tuple> buildTuples(List<String> texts) {
+        List<Tuple> tuples = new ArrayList<>();
+        for (String text : texts) {
+            tuples.add(new Tuple(SCHEMA, new TextField(text)));
+        }
+        return tuples;
+    }
+
+    public static RegexMatcher openRegexMatcher(List<String> texts, String regex, boolean ignoreCase,
+            RegexEngine regexEngine, Integer regexTimeBudget) {
+        RegexMatcher regexMatcher = new RegexMatcher(new RegexPredicate(
+                regex, Arrays.asList(TEXT), ignoreCase, regexEngine, regexTimeBudget, RESULTS));
+        regexMatcher.setInputOperator(new TupleSourceOperator(buildTuples(texts), SCHEMA));
+        regexMatcher.open();
+        return regexMatcher;
+    }
+
+    /**
+     * Gets the span lists of the matching tuples, and closes the matcher.
+     *
+     * @param regexMatcher
+     * @return the span list of each matching tuple
+     */
+    public static List<List<Span>> getResults(RegexMatcher regexMatcher) {
+        List<List<Span>> results = new ArrayList<>();
+        Tuple tuple;
+        while ((tuple = regexMatcher.getNextTuple()) != null) {
+            ListField<Span> spanListField = tuple.getField(RESULTS);
+            results.add(spanListField.getValue());
+        }
+        regexMatcher.close();
+        return results;
+    }
+
+}
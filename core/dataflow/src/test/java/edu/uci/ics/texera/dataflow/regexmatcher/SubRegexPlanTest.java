@@ -0,0 +1,138 @@
+package edu.uci.ics.texera.dataflow.regexmatcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.re2j.PublicParser;
+import com.google.re2j.PublicRE2;
+import com.google.re2j.PublicRegexp;
+
+import edu.uci.ics.texera.api.span.Span;
+
+public class SubRegexPlanTest {
+
+    private static final List<String> WORDS = Arrays.asList(
+            "running", "jumping", "the", "a", "quick", "brown", "fox", "sing", "dog", "lazy", "over");
+
+    private static String randomText(Random random, String rareWord, double rareWordProbability) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            sb.append(WORDS.get(random.nextInt(WORDS.size()))).append(" ");
+        }
+        if (random.nextDouble() < rareWordProbability) {
+            sb.append(rareWord);
+        }
+        return sb.toString();
+    }
+
+    private static RegexMatcher openRegexMatcher(List<String> texts, String regex) {
+        return RegexMatcherTupleTestHelper.openRegexMatcher(texts, regex, false, RegexEngine.RE2J, null);
+    }
+
+    private static List<List<Span>> getExpectedResults(List<String> texts, String regex) {
+        Pattern pattern = Pattern.compile(regex);
+        List<List<Span>> results = new ArrayList<>();
+        for (String text : texts) {
+            List<Span> spans = new ArrayList<>();
+            Matcher matcher = pattern.matcher(text);
+            while (matcher.find()) {
+                spans.add(new Span(RegexMatcherTupleTestHelper.TEXT, matcher.start(), matcher.end(), regex, matcher.group()));
+            }
+            if (! spans.isEmpty()) {
+                results.add(spans);
+            }
+        }
+        return results;
+    }
+
+    @Test
+    public void testPlanHasSameResults() throws Exception {
+        Random random = new Random(1);
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            texts.add(randomText(random, "singing zebra", 0.05));
+        }
+        String regex = "[a-z]+ing\\s+zebra";
+
+        RegexMatcher regexMatcher = openRegexMatcher(texts, regex);
+        List<List<Span>> results = RegexMatcherTupleTestHelper.getResults(regexMatcher);
+
+        Assert.assertFalse(results.isEmpty());
+        Assert.assertEquals(getExpectedResults(texts, regex), results);
+        Assert.assertNotNull(regexMatcher.getSubRegexPlan());
+    }
+
+    @Test
+    public void testRareSubRegexIsFilteredFirst() throws Exception {
+        Random random = new Random(2);
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            texts.add(randomText(random, "singing zebra", 0.01));
+        }
+
+        RegexMatcher regexMatcher = openRegexMatcher(texts, "[a-z]+ing\\s+zebra");
+        RegexMatcherTupleTestHelper.getResults(regexMatcher);
+
+        SubRegexPlan plan = regexMatcher.getSubRegexPlan();
+        Assert.assertNotNull(plan);
+        Assert.assertFalse(plan.getFilters().isEmpty());
+        Assert.assertEquals("zebra", plan.getFilters().get(0).getsubRegexPredicate().getRegex());
+        Assert.assertTrue(regexMatcher.explain().contains("zebra"));
+    }
+
+    @Test
+    public void testReplanOnDrift() throws Exception {
+        Random random = new Random(3);
+        List<String> texts = new ArrayList<>();
+        // the rare word becomes frequent after the statistics are collected
+        for (int i = 0; i < 1000; i++) {
+            texts.add(randomText(random, "singing zebra", 0.01));
+        }
+        for (int i = 0; i < 3000; i++) {
+            texts.add(randomText(random, "singing zebra", 0.9));
+        }
+        String regex = "[a-z]+ing\\s+zebra";
+
+        RegexMatcher regexMatcher = openRegexMatcher(texts, regex);
+        List<List<Span>> results = RegexMatcherTupleTestHelper.getResults(regexMatcher);
+
+        Assert.assertEquals(getExpectedResults(texts, regex), results);
+        Assert.assertTrue(regexMatcher.getNumReplans() > 0);
+    }
+
+    @Test
+    public void testRegexWithoutCoreSubRegexes() throws Exception {
+        List<String> texts = Arrays.asList("the quick brown fox", "lazy dog");
+        RegexMatcher regexMatcher = openRegexMatcher(texts, "fox|dog");
+
+        Assert.assertEquals(getExpectedResults(texts, "fox|dog"), RegexMatcherTupleTestHelper.getResults(regexMatcher));
+        Assert.assertNull(regexMatcher.getSubRegexPlan());
+    }
+
+    @Test
+    public void testReverseSubRegex() throws Exception {
+        List<String> regexes = Arrays.asList("[a-z]+ing", "\\A(ab){2}", "(fo|ba)r\\s\\d{2,3}", "x*y?z\\z");
+        List<String> texts = Arrays.asList("singing", "ababx", "xabab", "foo bar 123", "for 12", "xxyz", "xyzx", "");
+        for (String regex : regexes) {
+            PublicRegexp re = PublicParser.parse(regex, PublicRE2.PERL);
+            String reverseRegex = PublicRegexp.reverseDeepCopy(re);
+            Assert.assertNotNull(reverseRegex);
+            com.google.re2j.Pattern pattern = com.google.re2j.Pattern.compile(regex);
+            com.google.re2j.Pattern reversePattern = com.google.re2j.Pattern.compile(reverseRegex);
+            for (String text : texts) {
+                String reversedText = new StringBuilder(text).reverse().toString();
+                Assert.assertEquals(regex + " on " + text,
+                        pattern.matcher(text).find(), reversePattern.matcher(reversedText).find());
+            }
+        }
+        Assert.assertNull(PublicRegexp.reverseDeepCopy(PublicParser.parse("\\.com$", PublicRE2.PERL)));
+    }
+
+}
@@ -0,0 +1,67 @@
+package edu.uci.ics.texera.dataflow.regexmatcher.label;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.uci.ics.texera.api.field.ListField;
+import edu.uci.ics.texera.api.field.TextField;
+import edu.uci.ics.texera.api.schema.Attribute;
+import edu.uci.ics.texera.api.schema.AttributeType;
+import edu.uci.ics.texera.api.schema.Schema;
+import edu.uci.ics.texera.api.span.Span;
+import edu.uci.ics.texera.api.tuple.Tuple;
+import edu.uci.ics.texera.dataflow.regexmatcher.RegexPredicate;
+
+public class LabeledRegexProcessorTest {
+
+    private static final String CONTENT = "content";
+    private static final String DRUG = "drug";
+    private static final String REGEX = "<drug>\\s*(cures|treats)";
+
+    private static final Schema SCHEMA = new Schema(
+            new Attribute(CONTENT, AttributeType.TEXT), new Attribute(DRUG, AttributeType.LIST));
+
+    private static Tuple buildTuple(String content, String... drugs) {
+        List<Span> drugSpans = Arrays.stream(drugs)
+                .map(drug -> new Span(CONTENT, content.indexOf(drug), content.indexOf(drug) + drug.length(), drug, drug))
+                .collect(Collectors.toList());
+        return new Tuple(SCHEMA, new TextField(content), new ListField<Span>(drugSpans));
+    }
+
+    @Test
+    public void testLabelValuesAreMatched() throws Exception {
+        LabeledRegexProcessor processor = new LabeledRegexProcessor(
+                new RegexPredicate(REGEX, Arrays.asList(CONTENT), null));
+        String content = "aspirin cures headaches, and vitamin c. treats colds";
+
+        List<Span> results = processor.computeMatchingResults(buildTuple(content, "aspirin", "vitamin c."));
+
+        List<Span> expectedResults = Arrays.asList(
+                new Span(CONTENT, 0, 13, REGEX, "aspirin cures"),
+                new Span(CONTENT, 29, 46, REGEX, "vitamin c. treats"));
+        Assert.assertEquals(expectedResults, results);
+    }
+
+    @Test
+    public void testRecurringLabelValues() throws Exception {
+        LabeledRegexProcessor processor = new LabeledRegexProcessor(
+                new RegexPredicate(REGEX, Arrays.asList(CONTENT), null));
+
+        // the same label values in a different order give the same results
+        String content = "aspirin cures headaches, ibuprofen treats pain";
+        List<Span> results1 = processor.computeMatchingResults(buildTuple(content, "aspirin", "ibuprofen"));
+        List<Span> results2 = processor.computeMatchingResults(buildTuple(content, "ibuprofen", "aspirin"));
+        Assert.assertEquals(2, results1.size());
+        Assert.assertEquals(results1, results2);
+
+        // the values of the previous tuples don't match the next one
+        String otherContent = "aspirin cures headaches, penicillin treats infections";
+        List<Span> results3 = processor.computeMatchingResults(buildTuple(otherContent, "penicillin"));
+        Assert.assertEquals(Arrays.asList(new Span(CONTENT, 25, 42, REGEX, "penicillin treats")), results3);
+    }
+
+}
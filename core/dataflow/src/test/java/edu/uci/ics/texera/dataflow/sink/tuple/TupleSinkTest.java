@@ -2,6 +2,7 @@ package edu.uci.ics.texera.dataflow.sink.tuple;
 
 import java.io.FileNotFoundException;
 import java.util.Arrays;
+import java.util.List;
 
 import org.junit.After;
 import org.junit.Before;
@@ -101,4 +102,24 @@ public class TupleSinkTest {
         Assert.assertTrue(resultTuple2 == null);
     }
     
+    /*
+     * Test getting tuples in a batch with limit 2 and offset 1.
+     */
+    @Test
+    public void testGetNextBatchLimitOffset() throws Exception {
+        TupleSink tupleSink = new TupleSink(new TupleSinkPredicate(2, 1));
+        tupleSink.setInputOperator(inputOperator);
+        
+        tupleSink.open();
+        List<Tuple> resultBatch1 = tupleSink.getNextBatch(10);
+        List<Tuple> resultBatch2 = tupleSink.getNextBatch(10);
+        tupleSink.close();
+        
+        Assert.assertEquals(2, resultBatch1.size());
+        Assert.assertEquals("test2", resultBatch1.get(0).getField("content").getValue());
+        Assert.assertEquals("test3", resultBatch1.get(1).getField("content").getValue());
+        Assert.assertFalse(resultBatch1.get(0).getSchema().containsAttribute(SchemaConstants.PAYLOAD));
+        Assert.assertTrue(resultBatch2.isEmpty());
+    }
+    
 }
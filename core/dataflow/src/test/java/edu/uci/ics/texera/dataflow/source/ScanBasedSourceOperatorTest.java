@@ -5,12 +5,24 @@ package edu.uci.ics.texera.dataflow.source;
 
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import edu.uci.ics.texera.api.constants.SchemaConstants;
 import edu.uci.ics.texera.api.constants.test.TestConstants;
+import edu.uci.ics.texera.api.dataflow.IOperator;
 import edu.uci.ics.texera.api.exception.TexeraException;
+import edu.uci.ics.texera.api.field.ListField;
+import edu.uci.ics.texera.api.span.LazyPayload;
+import edu.uci.ics.texera.api.span.Span;
 import edu.uci.ics.texera.api.tuple.Tuple;
 import edu.uci.ics.texera.api.utils.TestUtils;
+import edu.uci.ics.texera.dataflow.comparablematcher.ComparableMatcher;
+import edu.uci.ics.texera.dataflow.comparablematcher.ComparablePredicate;
+import edu.uci.ics.texera.dataflow.comparablematcher.ComparisonType;
+import edu.uci.ics.texera.dataflow.keywordmatcher.KeywordMatcher;
+import edu.uci.ics.texera.dataflow.keywordmatcher.KeywordMatchingType;
+import edu.uci.ics.texera.dataflow.keywordmatcher.KeywordPredicate;
 import edu.uci.ics.texera.dataflow.source.scan.ScanBasedSourceOperator;
 import edu.uci.ics.texera.dataflow.source.scan.ScanSourcePredicate;
 
@@ -72,4 +84,55 @@ public class ScanBasedSourceOperatorTest {
         scanBasedSourceOperator.close();
     }
 
+    @Test
+    public void testBatchFlow() throws TexeraException, ParseException {
+        List<Tuple> actualTuples = TestConstants.getSamplePeopleTuples();
+        
+        ScanBasedSourceOperator scanBasedSourceOperator = new ScanBasedSourceOperator(new ScanSourcePredicate(PEOPLE_TABLE));
+        scanBasedSourceOperator.open();
+        List<Tuple> batch = null;
+        List<Tuple> returnedTuples = new ArrayList<Tuple>();
+        while (! (batch = scanBasedSourceOperator.getNextBatch(2)).isEmpty()) {
+            Assert.assertTrue(batch.size() <= 2);
+            returnedTuples.addAll(batch);
+        }
+        Assert.assertEquals(actualTuples.size(), returnedTuples.size());
+        boolean contains = TestUtils.equals(actualTuples, returnedTuples);
+        Assert.assertTrue(contains);
+        scanBasedSourceOperator.close();
+    }
+
+    private static List<Boolean> getPayloadComputed(IOperator operator) {
+        List<Boolean> payloadComputed = new ArrayList<>();
+        operator.open();
+        Tuple nextTuple;
+        while ((nextTuple = operator.getNextTuple()) != null) {
+            ListField<Span> payloadField = nextTuple.getField(SchemaConstants.PAYLOAD);
+            payloadComputed.add(((LazyPayload) payloadField.getValue()).isComputed());
+        }
+        operator.close();
+        return payloadComputed;
+    }
+
+    /*
+     * The payload of the scanned tuples is only computed if an operator reads the tokens.
+     */
+    @Test
+    public void testLazyPayload() throws TexeraException {
+        ComparableMatcher comparableMatcher = new ComparableMatcher(
+                new ComparablePredicate(TestConstants.AGE, ComparisonType.GREATER_THAN, 0));
+        comparableMatcher.setInputOperator(new ScanBasedSourceOperator(new ScanSourcePredicate(PEOPLE_TABLE)));
+        List<Boolean> comparablePayloadComputed = getPayloadComputed(comparableMatcher);
+        Assert.assertEquals(TestConstants.getSamplePeopleTuples().size(), comparablePayloadComputed.size());
+        Assert.assertFalse(comparablePayloadComputed.contains(true));
+
+        KeywordMatcher keywordMatcher = new KeywordMatcher(new KeywordPredicate("angry", 
+                Arrays.asList(TestConstants.DESCRIPTION), LuceneAnalyzerConstants.standardAnalyzerString(), 
+                KeywordMatchingType.CONJUNCTION_INDEXBASED, "keyword results"));
+        keywordMatcher.setInputOperator(new ScanBasedSourceOperator(new ScanSourcePredicate(PEOPLE_TABLE)));
+        List<Boolean> keywordPayloadComputed = getPayloadComputed(keywordMatcher);
+        Assert.assertFalse(keywordPayloadComputed.isEmpty());
+        Assert.assertFalse(keywordPayloadComputed.contains(false));
+    }
+
 }
@@ -0,0 +1,208 @@
+package edu.uci.ics.texera.dataflow.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.uci.ics.texera.api.span.CompactPayload;
+import edu.uci.ics.texera.api.span.Span;
+
+public class PayloadTokenIndexTest {
+
+    private static final String DESCRIPTION = "The quick brown fox jumps over the lazy dog, the lazy fox sleeps";
+    private static final String TITLE = "Lazy Fox and Quick Dog";
+    private static final String CONTENT = "a fox in the content";
+
+    private static final List<String> ATTRIBUTE_NAMES = Arrays.asList("description", "title");
+
+    // the token sets of the dictionary entries, some tokens are in several entries
+    private static final List<Set<String>> ENTRY_TOKEN_SETS = Arrays.asList(
+            new LinkedHashSet<>(Arrays.asList("lazy", "fox")),
+            new LinkedHashSet<>(Arrays.asList("quick")),
+            new LinkedHashSet<>(Arrays.asList("dog", "cat")),
+            new LinkedHashSet<>(Arrays.asList("lazy")),
+            new LinkedHashSet<>(Arrays.asList("fox", "jumps", "quick")),
+            new LinkedHashSet<>(Arrays.asList("sleeps", "content")));
+
+    private static CompactPayload buildPayload() {
+        return new CompactPayload.Builder()
+                .add("description", DESCRIPTION, 4, 9, "quick", 1)
+                .add("description", DESCRIPTION, 10, 15, "brown", 2)
+                .add("description", DESCRIPTION, 16, 19, "fox", 3)
+                .add("description", DESCRIPTION, 20, 25, "jumps", 4)
+                .add("description", DESCRIPTION, 35, 39, "lazy", 7)
+                .add("description", DESCRIPTION, 40, 43, "dog", 8)
+                .add("description", DESCRIPTION, 49, 53, "lazy", 10)
+                .add("description", DESCRIPTION, 54, 57, "fox", 11)
+                .add("description", DESCRIPTION, 58, 64, "sleeps", 12)
+                .add("title", TITLE, 0, 4, "lazy", 0)
+                .add("title", TITLE, 5, 8, "fox", 1)
+                .add("title", TITLE, 13, 18, "quick", 3)
+                .add("title", TITLE, 19, 22, "dog", 4)
+                .add("content", CONTENT, 2, 5, "fox", 1)
+                .add("content", CONTENT, 13, 20, "content", 4)
+                .build();
+    }
+
+    private static CompactPayload buildOtherPayload() {
+        return new CompactPayload.Builder()
+                .add("title", TITLE, 5, 8, "fox", 1)
+                .add("title", TITLE, 9, 12, "and", 2)
+                .build();
+    }
+
+    private static PayloadTokenIndex buildIndex() {
+        List<String> tokens = ENTRY_TOKEN_SETS.stream().flatMap(tokenSet -> tokenSet.stream())
+                .collect(Collectors.toList());
+        return new PayloadTokenIndex(ATTRIBUTE_NAMES, tokens);
+    }
+
+    /*
+     * The token IDs of each entry and the entries of each token ID, built the same way as DictionaryMatcher.
+     */
+    private static int[][] getEntryTokenIds(PayloadTokenIndex payloadTokenIndex) {
+        return ENTRY_TOKEN_SETS.stream()
+                .map(tokenSet -> tokenSet.stream().mapToInt(payloadTokenIndex::getTermId).toArray())
+                .toArray(int[][]::new);
+    }
+
+    private static List<List<Integer>> getTokenEntryIds(PayloadTokenIndex payloadTokenIndex, int[][] entryTokenIds) {
+        List<List<Integer>> tokenEntryIds = new ArrayList<>();
+        for (int tokenId = 0; tokenId < payloadTokenIndex.getNumTerms(); tokenId++) {
+            tokenEntryIds.add(new ArrayList<>());
+        }
+        for (int i = 0; i < entryTokenIds.length; i++) {
+            for (int tokenId : entryTokenIds[i]) {
+                tokenEntryIds.get(tokenId).add(i);
+            }
+        }
+        return tokenEntryIds;
+    }
+
+    /*
+     * Checks the index of the payload against the per-span scan of the payload
+     *   that the matchers used before (DataflowUtils.getPayloadSpans() filtered by attribute).
+     */
+    private static void assertSameAsScan(PayloadTokenIndex payloadTokenIndex, List<Span> payload) {
+        int[][] entryTokenIds = getEntryTokenIds(payloadTokenIndex);
+        List<List<Integer>> tokenEntryIds = getTokenEntryIds(payloadTokenIndex, entryTokenIds);
+
+        for (String attributeName : ATTRIBUTE_NAMES) {
+            int attributeIndex = payloadTokenIndex.getAttributeIndex(attributeName);
+
+            // the entries that have a token in the attribute, found by the token to entry lookup
+            BitSet candidateEntries = new BitSet();
+            Set<String> presentTerms = new HashSet<>();
+            for (int i = 0; i < payloadTokenIndex.getNumPresentTerms(attributeIndex); i++) {
+                int tokenId = payloadTokenIndex.getPresentTermId(attributeIndex, i);
+                Assert.assertTrue(payloadTokenIndex.getTermCount(attributeIndex, tokenId) > 0);
+                presentTerms.add(ENTRY_TOKEN_SETS.stream().flatMap(tokenSet -> tokenSet.stream())
+                        .filter(token -> payloadTokenIndex.getTermId(token) == tokenId).findFirst().get());
+                tokenEntryIds.get(tokenId).forEach(candidateEntries::set);
+            }
+            Assert.assertEquals(payloadTokenIndex.getNumPresentTerms(attributeIndex), presentTerms.size());
+
+            for (int i = 0; i < ENTRY_TOKEN_SETS.size(); i++) {
+                Set<String> entryTokens = ENTRY_TOKEN_SETS.get(i);
+                List<Span> expectedSpans = DataflowUtils.getPayloadSpans(payload, entryTokens).stream()
+                        .filter(span -> span.getAttributeName().equals(attributeName))
+                        .collect(Collectors.toList());
+
+                String message = attributeName + " " + entryTokens;
+                Assert.assertEquals(message, ! expectedSpans.isEmpty(), candidateEntries.get(i));
+                Assert.assertEquals(message, DataflowUtils.isAllQueryTokensPresent(expectedSpans, entryTokens),
+                        payloadTokenIndex.containsAllTerms(attributeIndex, entryTokenIds[i]));
+                Assert.assertEquals(message, expectedSpans,
+                        payloadTokenIndex.getSpans(attributeIndex, entryTokenIds[i]));
+
+                for (String token : entryTokens) {
+                    long expectedCount = expectedSpans.stream().filter(span -> span.getKey().equals(token)).count();
+                    Assert.assertEquals(message + " " + token, expectedCount,
+                            payloadTokenIndex.getTermCount(attributeIndex, payloadTokenIndex.getTermId(token)));
+                    Assert.assertEquals(expectedCount > 0, presentTerms.contains(token));
+                }
+            }
+
+            List<Span> expectedAttributeSpans = DataflowUtils.getPayloadSpans(payload,
+                    ENTRY_TOKEN_SETS.stream().flatMap(tokenSet -> tokenSet.stream()).collect(Collectors.toSet()))
+                    .stream().filter(span -> span.getAttributeName().equals(attributeName))
+                    .collect(Collectors.toList());
+            Assert.assertEquals(expectedAttributeSpans, payloadTokenIndex.getSpans(attributeIndex));
+        }
+    }
+
+    @Test
+    public void testTermsAndAttributes() {
+        PayloadTokenIndex payloadTokenIndex = buildIndex();
+
+        // the repeated tokens have one ID, in the order in which they first appear
+        Assert.assertEquals(8, payloadTokenIndex.getNumTerms());
+        Assert.assertEquals(0, payloadTokenIndex.getTermId("lazy"));
+        Assert.assertEquals(1, payloadTokenIndex.getTermId("fox"));
+        Assert.assertEquals(2, payloadTokenIndex.getTermId("quick"));
+        Assert.assertEquals(-1, payloadTokenIndex.getTermId("brown"));
+
+        Assert.assertEquals(1, payloadTokenIndex.getAttributeIndex("title"));
+        Assert.assertEquals(-1, payloadTokenIndex.getAttributeIndex("content"));
+    }
+
+    @Test
+    public void testCompactPayload() {
+        PayloadTokenIndex payloadTokenIndex = buildIndex();
+        CompactPayload payload = buildPayload();
+        payloadTokenIndex.index(payload);
+        assertSameAsScan(payloadTokenIndex, payload);
+    }
+
+    @Test
+    public void testListPayload() {
+        PayloadTokenIndex payloadTokenIndex = buildIndex();
+        List<Span> payload = new ArrayList<>(buildPayload());
+        payloadTokenIndex.index(payload);
+        assertSameAsScan(payloadTokenIndex, payload);
+    }
+
+    /*
+     * The spans of an attribute don't have to be contiguous in a plain list payload.
+     */
+    @Test
+    public void testInterleavedListPayload() {
+        PayloadTokenIndex payloadTokenIndex = buildIndex();
+        List<Span> payload = new ArrayList<>(buildPayload());
+        List<Span> interleavedPayload = new ArrayList<>();
+        for (int i = 0; i < payload.size(); i++) {
+            interleavedPayload.add(payload.get(i % 2 == 0 ? i / 2 : payload.size() - 1 - i / 2));
+        }
+        payloadTokenIndex.index(interleavedPayload);
+        assertSameAsScan(payloadTokenIndex, interleavedPayload);
+    }
+
+    /*
+     * The index is reused for all the tuples, indexing a payload must clear the previous one.
+     */
+    @Test
+    public void testReuse() {
+        PayloadTokenIndex payloadTokenIndex = buildIndex();
+        payloadTokenIndex.index(buildPayload());
+
+        CompactPayload otherPayload = buildOtherPayload();
+        payloadTokenIndex.index(otherPayload);
+        assertSameAsScan(payloadTokenIndex, otherPayload);
+
+        List<Span> listPayload = new ArrayList<>(buildPayload());
+        payloadTokenIndex.index(listPayload);
+        assertSameAsScan(payloadTokenIndex, listPayload);
+
+        payloadTokenIndex.index(new ArrayList<>());
+        assertSameAsScan(payloadTokenIndex, new ArrayList<>());
+    }
+
+}
@@ -0,0 +1,108 @@
+package edu.uci.ics.texera.dataflow.utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.uci.ics.texera.api.constants.SchemaConstants;
+import edu.uci.ics.texera.api.field.DateField;
+import edu.uci.ics.texera.api.field.DateTimeField;
+import edu.uci.ics.texera.api.field.IDField;
+import edu.uci.ics.texera.api.field.IntegerField;
+import edu.uci.ics.texera.api.field.ListField;
+import edu.uci.ics.texera.api.field.StringField;
+import edu.uci.ics.texera.api.field.TextField;
+import edu.uci.ics.texera.api.schema.Attribute;
+import edu.uci.ics.texera.api.schema.AttributeType;
+import edu.uci.ics.texera.api.schema.Schema;
+import edu.uci.ics.texera.api.span.Span;
+import edu.uci.ics.texera.api.tuple.Tuple;
+
+public class TupleSpillFileTest {
+
+    private static final Schema SCHEMA = new Schema(SchemaConstants._ID_ATTRIBUTE,
+            new Attribute("name", AttributeType.STRING), new Attribute("date", AttributeType.DATE),
+            new Attribute("datetime", AttributeType.DATETIME), new Attribute("count", AttributeType.INTEGER),
+            new Attribute("description", AttributeType.TEXT), SchemaConstants.SPAN_LIST_ATTRIBUTE);
+
+    private Path spillDirectory;
+
+    @Before
+    public void setUp() throws IOException {
+        spillDirectory = Files.createTempDirectory("texera-spill-test");
+    }
+
+    @After
+    public void cleanUp() throws IOException {
+        Files.walk(spillDirectory).sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+    }
+
+    private static Tuple createTuple(int i, LocalDate date, LocalDateTime dateTime) {
+        return new Tuple(SCHEMA, new IDField("id" + i), new StringField("name" + i), new DateField(date),
+                new DateTimeField(dateTime), new IntegerField(i), new TextField("text " + i),
+                new ListField<>(Arrays.asList(new Span("description", 0, 4, "text", "text", 0))));
+    }
+
+    private static List<Tuple> writeAndRead(TupleSpillFile spillFile, List<Tuple> tuples) throws IOException {
+        for (Tuple tuple : tuples) {
+            spillFile.write(tuple);
+        }
+        spillFile.finishWriting();
+        List<Tuple> results = new ArrayList<>();
+        try (TupleSpillFile.Reader reader = spillFile.openReader()) {
+            Tuple tuple;
+            while ((tuple = reader.next()) != null) {
+                results.add(tuple);
+            }
+        }
+        return results;
+    }
+
+    /*
+     * Tests that tuples of all the field types are read back the same as they are written.
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        List<Tuple> tuples = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            tuples.add(createTuple(i, LocalDate.of(2017, 1, 1 + i), LocalDateTime.of(2017, 1, 1 + i, 12, 30, i, i)));
+        }
+        TupleSpillFile spillFile = new TupleSpillFile(spillDirectory, SCHEMA);
+        Assert.assertEquals(tuples, writeAndRead(spillFile, tuples));
+        Assert.assertEquals(10, spillFile.getNumTuples());
+        spillFile.delete();
+    }
+
+    /*
+     * Tests that null date and datetime values are read back as null,
+     *   and the fields (and the tuples) after them are still read correctly.
+     */
+    @Test
+    public void testNullDateAndDateTime() throws IOException {
+        List<Tuple> tuples = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            LocalDate date = i % 2 == 0 ? null : LocalDate.of(2017, 1, 1 + i);
+            LocalDateTime dateTime = i % 3 == 0 ? null : LocalDateTime.of(2017, 1, 1 + i, 12, 30, i, i);
+            tuples.add(createTuple(i, date, dateTime));
+        }
+        TupleSpillFile spillFile = new TupleSpillFile(spillDirectory, SCHEMA);
+        List<Tuple> results = writeAndRead(spillFile, tuples);
+        spillFile.delete();
+
+        Assert.assertEquals(tuples, results);
+        Assert.assertNull(results.get(0).getField("date").getValue());
+        Assert.assertNull(results.get(0).getField("datetime").getValue());
+        Assert.assertEquals(new IntegerField(9), results.get(9).getField("count"));
+    }
+
+}
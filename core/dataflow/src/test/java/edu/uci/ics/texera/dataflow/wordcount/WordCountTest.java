@@ -1,5 +1,6 @@
 package edu.uci.ics.texera.dataflow.wordcount;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import org.apache.lucene.analysis.Analyzer;
@@ -22,6 +23,7 @@ import edu.uci.ics.texera.dataflow.source.scan.ScanSourcePredicate;
 import edu.uci.ics.texera.dataflow.utils.DataflowUtils;
 import edu.uci.ics.texera.storage.DataWriter;
 import edu.uci.ics.texera.storage.RelationManager;
+import edu.uci.ics.texera.storage.StorageProfile;
 import edu.uci.ics.texera.storage.constants.LuceneAnalyzerConstants;
 
 /**
@@ -31,6 +33,7 @@ import edu.uci.ics.texera.storage.constants.LuceneAnalyzerConstants;
 public class WordCountTest {
     public static final String COUNT_TABLE = "wordcount_test";
     public static final String COUNT_CHINESE_TABLE = "wordcount_Chinese_test";
+    public static final String COUNT_NO_TERM_VECTORS_TABLE = "wordcount_no_term_vectors_test";
     
     public static HashMap<String, Integer> expectedResult = null;
     public static HashMap<String, Integer> expectedResultChinese = null;
@@ -50,6 +53,15 @@ public class WordCountTest {
         }
         dataWriter.close();
         
+        // the same table without term vectors
+        relationManager.createTable(COUNT_NO_TERM_VECTORS_TABLE, 
+                TestUtils.getDefaultTestIndex().resolve(COUNT_NO_TERM_VECTORS_TABLE), TestConstants.SCHEMA_PEOPLE, 
+                LuceneAnalyzerConstants.standardAnalyzerString(), new ArrayList<>(), StorageProfile.NONE);
+        DataWriter noTermVectorsDataWriter = relationManager.getTableDataWriter(COUNT_NO_TERM_VECTORS_TABLE);
+        noTermVectorsDataWriter.open();
+        noTermVectorsDataWriter.insertTuples(TestConstants.getSamplePeopleTuples());
+        noTermVectorsDataWriter.close();
+        
         expectedResult = computeExpectedResult(TestConstants.getSamplePeopleTuples(), TestConstants.DESCRIPTION,
                 LuceneAnalyzerConstants.getStandardAnalyzer());
         
@@ -72,6 +84,7 @@ public class WordCountTest {
     public static void cleanUp() throws TexeraException {
         RelationManager.getInstance().deleteTable(COUNT_TABLE);
         RelationManager.getInstance().deleteTable(COUNT_CHINESE_TABLE);
+        RelationManager.getInstance().deleteTable(COUNT_NO_TERM_VECTORS_TABLE);
         expectedResult = null;
         expectedResultChinese = null;
     }
@@ -173,5 +186,21 @@ public class WordCountTest {
                 TestConstantsChineseWordCount.DESCRIPTION);
         Assert.assertTrue(results.equals(expectedResultChinese));
     }
+
+    // Test WordCountIndexSource on a table without term vectors
+    @Test
+    public void test5() throws TexeraException {
+        WordCountIndexSource wordCountIndexSource = new WordCountIndexSource(
+                new WordCountIndexSourcePredicate(COUNT_NO_TERM_VECTORS_TABLE, TestConstants.DESCRIPTION));
+        HashMap<String, Integer> results = new HashMap<String, Integer>();
+        wordCountIndexSource.open();
+        Tuple tuple;
+        while((tuple = wordCountIndexSource.getNextTuple()) != null) {
+            results.put((String) tuple.getField(WordCountIndexSource.WORD).getValue(), 
+                    (Integer) tuple.getField(WordCountIndexSource.COUNT).getValue());
+        }
+        wordCountIndexSource.close();
+        Assert.assertTrue(results.equals(expectedResult));
+    }
     
 }
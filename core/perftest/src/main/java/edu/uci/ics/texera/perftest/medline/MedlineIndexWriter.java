@@ -76,14 +76,15 @@ public class MedlineIndexWriter {
         dataWriter.open();
         
         BufferedReader reader = Files.newBufferedReader(medlineFilepath);
-        String line;
-        while ((line = reader.readLine()) != null) {
+        // the records are bulk loaded, the ones that can't be parsed are skipped
+        dataWriter.insertTuples(() -> reader.lines().map(line -> {
             try {
-                dataWriter.insertTuple(recordToTuple(line));
+                return recordToTuple(line);
             } catch (Exception e) {
                 e.printStackTrace();
+                return null;
             }
-        }
+        }).filter(tuple -> tuple != null).iterator());
         reader.close();
         dataWriter.close(); 
     }
@@ -12,13 +12,16 @@ import java.util.Arrays;
 import java.util.List;
 
 import edu.uci.ics.texera.api.constants.SchemaConstants;
+import edu.uci.ics.texera.api.exception.DataflowException;
 import edu.uci.ics.texera.api.exception.TexeraException;
 import edu.uci.ics.texera.api.field.ListField;
+import edu.uci.ics.texera.api.field.TextField;
 import edu.uci.ics.texera.api.schema.Attribute;
 import edu.uci.ics.texera.api.schema.AttributeType;
 import edu.uci.ics.texera.api.schema.Schema;
 import edu.uci.ics.texera.api.span.Span;
 import edu.uci.ics.texera.api.tuple.Tuple;
+import edu.uci.ics.texera.dataflow.regexmatcher.RegexEngine;
 import edu.uci.ics.texera.dataflow.regexmatcher.RegexMatcher;
 import edu.uci.ics.texera.dataflow.regexmatcher.RegexMatcherSourceOperator;
 import edu.uci.ics.texera.dataflow.regexmatcher.RegexPredicate;
@@ -26,6 +29,9 @@ import edu.uci.ics.texera.dataflow.regexmatcher.RegexSourcePredicate;
 
 import edu.uci.ics.texera.dataflow.source.file.FileSourceOperator;
 import edu.uci.ics.texera.dataflow.source.file.FileSourcePredicate;
+import edu.uci.ics.texera.dataflow.source.scan.ScanBasedSourceOperator;
+import edu.uci.ics.texera.dataflow.source.scan.ScanSourcePredicate;
+import edu.uci.ics.texera.dataflow.source.tuple.TupleSourceOperator;
 import edu.uci.ics.texera.perftest.medline.MedlineIndexWriter;
 import edu.uci.ics.texera.perftest.utils.PerfTestUtils;
 import edu.uci.ics.texera.storage.RelationManager;
@@ -52,6 +58,9 @@ public class RegexMatcherPerformanceTest {
 
     private static String csvFile  = "regex.csv";
     private static String csvFileTest  = "test_regex_sample_tuple_number VS.time.csv";
+    private static String engineCsvFile = "regex-engine.csv";
+    private static String ENGINE_HEADER = "Date, dataset, regex, engine, Time(sec), Results, Timed Out Tuples";
+    private static Schema CONTENT_SCHEMA = new Schema(new Attribute("content", AttributeType.TEXT));
     public static final String RESULTS = "regex test results";
     /*
      * regexQueries is a list of regex queries.
@@ -230,4 +239,97 @@ public class RegexMatcherPerformanceTest {
             totalRegexResultCount += counter;
         }
     }
-}
\ No newline at end of file
+
+    /*
+     * This function compares the regex engines of RegexMatcher on a list of regex queries.
+     * 
+     * The abstracts of each table in ./index/standard/ are read into memory once,
+     *   then each query is matched on them by RegexMatcher with each engine,
+     *   so that the time only includes the regex matching.
+     * A query that an engine doesn't support is recorded with the time "unsupported".
+     * 
+     * Test results are written to ./perftest-files/results/regex-engine.csv.
+     * 
+     * CSV file example:
+     * Date,                dataset,      regex,       engine, Time(sec), Results, Timed Out Tuples
+     * 09-09-2016 00:54:29, abstract_100, mosquitos?,  re2j,   0.0312,    12,      0
+     * 
+     */
+    public static void runEngineComparisonTest(List<String> regexQueries, int regexTimeBudget)
+            throws TexeraException, IOException {
+        String currentTime = PerfTestUtils.formatTime(System.currentTimeMillis());
+
+        PerfTestUtils.createFile(PerfTestUtils.getResultPath(engineCsvFile), ENGINE_HEADER);
+        BufferedWriter fileWriter = Files.newBufferedWriter
+                (PerfTestUtils.getResultPath(engineCsvFile), StandardOpenOption.APPEND);
+
+        File indexFiles = new File(PerfTestUtils.standardIndexFolder);
+        for (File file : indexFiles.listFiles()) {
+            if (file.getName().startsWith(".")) {
+                continue;
+            }
+            String tableName = file.getName().replace(".txt", "");
+            List<Tuple> contentTuples = readContentTuples(tableName);
+
+            for (String regex : regexQueries) {
+                for (RegexEngine regexEngine : RegexEngine.values()) {
+                    fileWriter.append("\n");
+                    fileWriter.append(currentTime + delimiter);
+                    fileWriter.append(file.getName() + delimiter);
+                    fileWriter.append(regex + delimiter);
+                    fileWriter.append(regexEngine.getName() + delimiter);
+                    fileWriter.append(matchRegexWithEngine(contentTuples, regex, regexEngine, regexTimeBudget));
+                }
+            }
+        }
+        fileWriter.flush();
+        fileWriter.close();
+    }
+
+    /*
+     * Reads the abstracts of a table to tuples of the "content" attribute, which RegexMatcher matches.
+     */
+    private static List<Tuple> readContentTuples(String tableName) throws TexeraException {
+        List<Tuple> contentTuples = new ArrayList<>();
+
+        ScanBasedSourceOperator scanSource = new ScanBasedSourceOperator(new ScanSourcePredicate(tableName));
+        scanSource.open();
+        Tuple tuple;
+        while ((tuple = scanSource.getNextTuple()) != null) {
+            String abstractText = tuple.getField(MedlineIndexWriter.ABSTRACT).getValue().toString();
+            contentTuples.add(new Tuple(CONTENT_SCHEMA, new TextField(abstractText)));
+        }
+        scanSource.close();
+        return contentTuples;
+    }
+
+    /*
+     * Matches a regex on the tuples with an engine, and returns the time, the number of results,
+     *   and the number of timed out tuples, separated by the delimiter.
+     */
+    private static String matchRegexWithEngine(List<Tuple> contentTuples, String regex, RegexEngine regexEngine,
+            int regexTimeBudget) throws TexeraException {
+        RegexPredicate regexPredicate = new RegexPredicate(regex, Arrays.asList("content"), false,
+                regexEngine, regexTimeBudget, SchemaConstants.SPAN_LIST);
+        RegexMatcher regexMatcher = new RegexMatcher(regexPredicate);
+        regexMatcher.setInputOperator(new TupleSourceOperator(contentTuples, CONTENT_SCHEMA));
+
+        long startMatchTime = System.currentTimeMillis();
+        try {
+            regexMatcher.open();
+        } catch (DataflowException e) {
+            return "unsupported";
+        }
+        int counter = 0;
+        Tuple nextTuple;
+        while ((nextTuple = regexMatcher.getNextTuple()) != null) {
+            ListField<Span> spanListField = nextTuple.getField(SchemaConstants.SPAN_LIST);
+            counter += spanListField.getValue().size();
+        }
+        regexMatcher.close();
+        long endMatchTime = System.currentTimeMillis();
+
+        double matchTime = (endMatchTime - startMatchTime) / 1000.0;
+        return String.format("%.4f", matchTime) + delimiter + counter + delimiter + regexMatcher.getNumTimedOutTuples();
+    }
+}
@@ -7,6 +7,7 @@ import java.util.List;
 import edu.uci.ics.texera.perftest.keywordmatcher.*;
 import edu.uci.ics.texera.perftest.nlpextractor.NlpExtractorPerformanceTest;
 import edu.uci.ics.texera.perftest.regexmatcher.RegexMatcherPerformanceTest;
+import edu.uci.ics.texera.perftest.storageprofile.StorageProfilePerformanceTest;
 import edu.uci.ics.texera.perftest.utils.PerfTestUtils;
 import edu.uci.ics.texera.api.exception.DataflowException;
 import edu.uci.ics.texera.api.exception.StorageException;
@@ -55,7 +56,9 @@ public class RunPerftests {
             //DictionaryMatcherPerformanceTest.runTest("sample_queries.txt");
             //FuzzyTokenMatcherPerformanceTest.runTest("sample_queries.txt", thresholds);
             RegexMatcherPerformanceTest.runTest(regexQueries);
+            //RegexMatcherPerformanceTest.runEngineComparisonTest(regexQueries, 1000);
             //NlpExtractorPerformanceTest.runTest();
+            //StorageProfilePerformanceTest.runTest("sample_queries.txt");
 
         } catch (StorageException | DataflowException | IOException e) {
             e.printStackTrace();
@@ -64,4 +67,4 @@ public class RunPerftests {
 
         }
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
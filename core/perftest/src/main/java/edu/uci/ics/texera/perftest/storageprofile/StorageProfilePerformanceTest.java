@@ -0,0 +1,185 @@
+package edu.uci.ics.texera.perftest.storageprofile;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.apache.lucene.search.MatchAllDocsQuery;
+
+import edu.uci.ics.texera.api.constants.SchemaConstants;
+import edu.uci.ics.texera.api.exception.TexeraException;
+import edu.uci.ics.texera.api.field.ListField;
+import edu.uci.ics.texera.api.span.Span;
+import edu.uci.ics.texera.api.tuple.Tuple;
+import edu.uci.ics.texera.dataflow.keywordmatcher.KeywordMatcherSourceOperator;
+import edu.uci.ics.texera.dataflow.keywordmatcher.KeywordMatchingType;
+import edu.uci.ics.texera.dataflow.keywordmatcher.KeywordSourcePredicate;
+import edu.uci.ics.texera.perftest.medline.MedlineIndexWriter;
+import edu.uci.ics.texera.perftest.utils.PerfTestUtils;
+import edu.uci.ics.texera.storage.DataReader;
+import edu.uci.ics.texera.storage.RelationManager;
+import edu.uci.ics.texera.storage.StorageProfile;
+import edu.uci.ics.texera.storage.constants.LuceneAnalyzerConstants;
+
+/**
+ * This is the performance test of the storage profiles of a table (see StorageProfile).
+ *
+ * Each data file is written into a table of each storage profile,
+ *   and the size of the index, the ingest rate and the latency of the keyword matcher
+ *   (which reads the payload of every matching tuple) are compared.
+ */
+public class StorageProfilePerformanceTest {
+
+    private static String HEADER = "Date,Record #,Storage Profile,Index Size (MB),Ingest Rate (records/s),"
+            + "Min Time,Max Time,Average Time,Std,Average Results,Commit Number";
+    private static String delimiter = ",";
+    private static String newLine = "\n";
+
+    private static String csvFile = "storage-profile.csv";
+
+    /*
+     * queryFileName contains line(s) of queries; the file must be placed in
+     * ./perftest-files/queries/
+     *
+     * This function writes every abstract file in ./sample-data-files/ into a table of each storage profile
+     * in ./index/profile/, and matches the queries against each of them by the conjunction keyword matcher.
+     *
+     * Test results are written in a csv file ./perftest-files/results/storage-profile.csv
+     *
+     * CSV file example:
+     *
+     * Date,                Record #,     Storage Profile,  Index Size (MB), Ingest Rate (records/s), Min Time, ...
+     * 09-09-2016 00:54:18, abstract_100, TERM_VECTORS,     0.8231,          1250.0,                  0.002,    ...
+     *
+     */
+    public static void runTest(String queryFileName) throws TexeraException, IOException {
+        // Reads queries from query file into a list
+        ArrayList<String> queries = PerfTestUtils.readQueries(PerfTestUtils.getQueryPath(queryFileName));
+
+        // Gets the current time
+        String currentTime = PerfTestUtils.formatTime(System.currentTimeMillis());
+
+        PerfTestUtils.createFile(PerfTestUtils.getResultPath(csvFile), HEADER);
+        BufferedWriter fileWriter = Files.newBufferedWriter(PerfTestUtils.getResultPath(csvFile),
+                StandardOpenOption.APPEND);
+
+        File dataFiles = new File(PerfTestUtils.fileFolder);
+        for (File file : dataFiles.listFiles()) {
+            if (file.isDirectory() || ! file.getName().startsWith("abstract")) {
+                continue;
+            }
+            String recordNum = file.getName().replace(".txt", "");
+            for (StorageProfile storageProfile : StorageProfile.values()) {
+                String tableName = recordNum + "_" + storageProfile.name().toLowerCase();
+
+                double ingestTime = writeIndex(file.toPath(), tableName, storageProfile);
+                int numRecords = countRecords(tableName);
+                double indexSizeMB = getIndexSize(
+                        Paths.get(RelationManager.getInstance().getTableDirectory(tableName))) / (1024.0 * 1024.0);
+
+                List<Double> timeResults = new ArrayList<>();
+                int totalResultCount = match(queries, tableName, timeResults);
+                double avgTime = PerfTestUtils.calculateAverage(timeResults);
+
+                fileWriter.append(newLine);
+                fileWriter.append(currentTime + delimiter);
+                fileWriter.append(recordNum + delimiter);
+                fileWriter.append(storageProfile.name() + delimiter);
+                fileWriter.append(String.format("%.4f", indexSizeMB) + delimiter);
+                fileWriter.append(String.format("%.1f", numRecords / ingestTime) + delimiter);
+                fileWriter.append(Collections.min(timeResults) + delimiter + Collections.max(timeResults) + delimiter
+                        + avgTime + delimiter + PerfTestUtils.calculateSTD(timeResults, avgTime) + delimiter
+                        + String.format("%.2f", totalResultCount * 1.0 / queries.size()));
+
+                RelationManager.getInstance().deleteTable(tableName);
+            }
+        }
+        fileWriter.flush();
+        fileWriter.close();
+    }
+
+    /*
+     * Writes a data file into a new table of a storage profile, and returns the time it takes in seconds.
+     */
+    private static double writeIndex(Path dataFilePath, String tableName, StorageProfile storageProfile)
+            throws TexeraException, IOException {
+        RelationManager relationManager = RelationManager.getInstance();
+        relationManager.deleteTable(tableName);
+        relationManager.createTable(tableName, PerfTestUtils.getStorageProfileIndexPath(tableName),
+                MedlineIndexWriter.SCHEMA_MEDLINE, LuceneAnalyzerConstants.standardAnalyzerString(),
+                new ArrayList<>(), storageProfile);
+
+        long startTime = System.currentTimeMillis();
+        try {
+            MedlineIndexWriter.writeMedlineIndex(dataFilePath, tableName);
+        } catch (ParseException e) {
+            throw new TexeraException(e);
+        }
+        long endTime = System.currentTimeMillis();
+        return Math.max(endTime - startTime, 1) / 1000.0;
+    }
+
+    /*
+     * Counts the records written into a table, only reading their IDs.
+     */
+    private static int countRecords(String tableName) throws TexeraException {
+        DataReader dataReader = RelationManager.getInstance().getTableDataReader(tableName, new MatchAllDocsQuery());
+        dataReader.setProjectedAttributes(Arrays.asList(SchemaConstants._ID));
+        int numRecords = 0;
+        dataReader.open();
+        while (dataReader.getNextTuple() != null) {
+            numRecords++;
+        }
+        dataReader.close();
+        return numRecords;
+    }
+
+    private static long getIndexSize(Path indexDirectory) throws IOException {
+        try (Stream<Path> indexFiles = Files.walk(indexDirectory)) {
+            return indexFiles.filter(Files::isRegularFile).mapToLong(path -> path.toFile().length()).sum();
+        }
+    }
+
+    /*
+     * Matches a list of queries against a table, adds the time of each query in seconds to timeResults,
+     *   and returns the total number of results.
+     */
+    private static int match(List<String> queries, String tableName, List<Double> timeResults)
+            throws TexeraException {
+        int totalResultCount = 0;
+        for (String query : queries) {
+            KeywordSourcePredicate predicate = new KeywordSourcePredicate(
+                    query,
+                    Arrays.asList(MedlineIndexWriter.ABSTRACT),
+                    LuceneAnalyzerConstants.standardAnalyzerString(),
+                    KeywordMatchingType.CONJUNCTION_INDEXBASED,
+                    tableName,
+                    SchemaConstants.SPAN_LIST);
+            KeywordMatcherSourceOperator keywordSource = new KeywordMatcherSourceOperator(predicate);
+
+            long startMatchTime = System.currentTimeMillis();
+            keywordSource.open();
+            Tuple nextTuple = null;
+            while ((nextTuple = keywordSource.getNextTuple()) != null) {
+                ListField<Span> spanListField = nextTuple.getField(SchemaConstants.SPAN_LIST);
+                totalResultCount += spanListField.getValue().size();
+            }
+            keywordSource.close();
+            long endMatchTime = System.currentTimeMillis();
+
+            timeResults.add(Double.parseDouble(String.format("%.4f", (endMatchTime - startMatchTime) / 1000.0)));
+        }
+        return totalResultCount;
+    }
+
+}
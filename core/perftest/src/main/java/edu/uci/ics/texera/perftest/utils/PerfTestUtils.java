@@ -35,6 +35,7 @@ public class PerfTestUtils {
     public static String fileFolder = getResourcePath("/sample-data-files").toString();
     public static String standardIndexFolder = getResourcePath("/index/standard").toString();
     public static String trigramIndexFolder = getResourcePath("/index/trigram").toString();
+    public static String storageProfileIndexFolder = getResourcePath("/index/profile").toString();
     public static String resultFolder = getResourcePath("/perftest-files/results").toString();
     public static String queryFolder = getResourcePath("/perftest-files/queries").toString();
     
@@ -254,6 +255,15 @@ public class PerfTestUtils {
         return Paths.get(trigramIndexFolder, indexName);
     }
 
+    /**
+     * 
+     * @param indexName
+     * @return a path of an index of a storage profile test in ./index/profile/
+     */
+    public static Path getStorageProfileIndexPath(String indexName) {
+        return Paths.get(storageProfileIndexFolder, indexName);
+    }
+
     /**
      * 
      * @param resultFileName
@@ -23,10 +23,10 @@ import edu.uci.ics.texera.api.utils.Utils;
  * 
  * Initial tuples for the table catalog:
  * 
- *  tableName    |    tableDirectory    |    luceneAnalyzer
+ *  tableName    |    tableDirectory    |    luceneAnalyzer    |    gramIndexAttributes    |    storageProfile
  * 
- * tableCatalog       ../catalog/table       standardLuceneAnalyzer
- * schemaCatalog      ../catalog/schema      standardLuceneAnalyzer
+ * tableCatalog       ../catalog/table       standardLuceneAnalyzer                             TERM_VECTORS
+ * schemaCatalog      ../catalog/schema      standardLuceneAnalyzer                             TERM_VECTORS
  *   
  * ============================================
  *   
@@ -36,6 +36,8 @@ import edu.uci.ics.texera.api.utils.Utils;
  *   tableCatalog       tableName           string                0
  *   tableCatalog    tableDirectory         string                1
  *   tableCatalog     luceneAnalyzer        string                2
+ *   tableCatalog   gramIndexAttributes     string                3
+ *   tableCatalog     storageProfile        string                4
  *   schemaCatalog      tableName           string                0
  *   schemaCatalog    attributeName         string                1
  *   schemaCatalog    attributeType         string                2
@@ -43,6 +45,11 @@ import edu.uci.ics.texera.api.utils.Utils;
  *     
  * ============================================
  * 
+ * gramIndexAttributes is the comma separated list of the TEXT attributes that have a secondary n-gram index,
+ *   it's missing in the tuples written before it was added to the table catalog.
+ * storageProfile is the name of the StorageProfile of the table, 
+ *   it's missing in the tuples written before it was added, and these tables have term vectors.
+ * 
  * @author Zuozhi Wang
  *
  */
@@ -58,14 +65,20 @@ public class CatalogConstants {
     public static final String TABLE_NAME = "tableName";
     public static final String TABLE_DIRECTORY = "tableDirectory";
     public static final String TABLE_LUCENE_ANALYZER = "luceneAnalyzer";
+    public static final String TABLE_GRAM_INDEX_ATTRIBUTES = "gramIndexAttributes";
+    public static final String TABLE_STORAGE_PROFILE = "storageProfile";
 
     public static final Attribute TABLE_NAME_ATTR = new Attribute(TABLE_NAME, AttributeType.STRING);
     public static final Attribute TABLE_DIRECTORY_ATTR = new Attribute(TABLE_DIRECTORY, AttributeType.STRING);
     public static final Attribute TABLE_LUCENE_ANALYZER_ATTR = new Attribute(TABLE_LUCENE_ANALYZER,
             AttributeType.STRING);
+    public static final Attribute TABLE_GRAM_INDEX_ATTRIBUTES_ATTR = new Attribute(TABLE_GRAM_INDEX_ATTRIBUTES,
+            AttributeType.STRING);
+    public static final Attribute TABLE_STORAGE_PROFILE_ATTR = new Attribute(TABLE_STORAGE_PROFILE,
+            AttributeType.STRING);
 
     public static final Schema TABLE_CATALOG_SCHEMA = new Schema(TABLE_NAME_ATTR, TABLE_DIRECTORY_ATTR,
-            TABLE_LUCENE_ANALYZER_ATTR);
+            TABLE_LUCENE_ANALYZER_ATTR, TABLE_GRAM_INDEX_ATTRIBUTES_ATTR, TABLE_STORAGE_PROFILE_ATTR);
     public static final Schema TABLE_CATALOG_SCHEMA_WITH_ID = Schema.Builder.getSchemaWithID(TABLE_CATALOG_SCHEMA);
 
     // Schema for "schema catalog" table
@@ -99,16 +112,65 @@ public class CatalogConstants {
      * @throws StorageException
      */
     public static Tuple getTableCatalogTuple(String tableName, Path tableDirectory, String luceneAnalyzerStr) {
+        return getTableCatalogTuple(tableName, tableDirectory, luceneAnalyzerStr, new ArrayList<>());
+    }
+    
+    /**
+     * Gets the tuple to be inserted to the table catalog.
+     * 
+     * @param tableName
+     * @param tableDirectory
+     * @param luceneAnalyzerStr
+     * @param gramIndexAttributes, the TEXT attributes that have a secondary n-gram index
+     * @return
+     */
+    public static Tuple getTableCatalogTuple(String tableName, Path tableDirectory, String luceneAnalyzerStr,
+            List<String> gramIndexAttributes) {
+        return getTableCatalogTuple(tableName, tableDirectory, luceneAnalyzerStr, gramIndexAttributes, 
+                StorageProfile.DEFAULT);
+    }
+    
+    /**
+     * Gets the tuple to be inserted to the table catalog.
+     * 
+     * @param tableName
+     * @param tableDirectory
+     * @param luceneAnalyzerStr
+     * @param gramIndexAttributes, the TEXT attributes that have a secondary n-gram index
+     * @param storageProfile, the storage profile of the table
+     * @return
+     */
+    public static Tuple getTableCatalogTuple(String tableName, Path tableDirectory, String luceneAnalyzerStr,
+            List<String> gramIndexAttributes, StorageProfile storageProfile) {
 	    	try {
 	            return new Tuple(TABLE_CATALOG_SCHEMA, 
 	                    new StringField(tableName), 
 	                    new StringField(tableDirectory.toRealPath().toString()),
-	                    new StringField(luceneAnalyzerStr));
+	                    new StringField(luceneAnalyzerStr),
+	                    new StringField(String.join(",", gramIndexAttributes)),
+	                    new StringField(storageProfile.name()));
 	    	} catch (IOException e) {
 	    		throw new TexeraException(e);
 	    	}
     }
     
+    /**
+     * Gets the TEXT attributes that have a secondary n-gram index from the value of gramIndexAttributes.
+     * 
+     * @param gramIndexAttributesStr, the value in the table catalog, null if the tuple doesn't have it
+     * @return
+     */
+    public static List<String> getGramIndexAttributes(String gramIndexAttributesStr) {
+        List<String> gramIndexAttributes = new ArrayList<>();
+        if (gramIndexAttributesStr == null || gramIndexAttributesStr.isEmpty()) {
+            return gramIndexAttributes;
+        }
+        for (String attributeName : gramIndexAttributesStr.split(",")) {
+            gramIndexAttributes.add(attributeName);
+        }
+        return gramIndexAttributes;
+    }
+    
     /**
      * Gets the tuples to be inserted to the schema catalog.
      * 
@@ -1,26 +1,48 @@
 package edu.uci.ics.texera.storage;
 
 import java.io.IOException;
+import java.io.StringReader;
 import java.nio.file.Path;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import edu.uci.ics.texera.api.exception.DataflowException;
 import edu.uci.ics.texera.api.exception.TexeraException;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DocumentStoredFieldVisitor;
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.FieldInfo;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.PostingsEnum;
 import org.apache.lucene.index.Terms;
 import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.CollectionTerminatedException;
 import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.FilterCollector;
+import org.apache.lucene.search.FilterLeafCollector;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LeafCollector;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.TopDocs;
-import org.apache.lucene.store.Directory;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.search.Weight;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
 
 import edu.uci.ics.texera.api.constants.ErrorMessages;
 import edu.uci.ics.texera.api.constants.SchemaConstants;
@@ -31,6 +53,8 @@ import edu.uci.ics.texera.api.field.ListField;
 import edu.uci.ics.texera.api.schema.Attribute;
 import edu.uci.ics.texera.api.schema.AttributeType;
 import edu.uci.ics.texera.api.schema.Schema;
+import edu.uci.ics.texera.api.span.CompactPayload;
+import edu.uci.ics.texera.api.span.LazyPayload;
 import edu.uci.ics.texera.api.span.Span;
 import edu.uci.ics.texera.api.tuple.*;
 import edu.uci.ics.texera.storage.utils.StorageUtils;
@@ -44,12 +68,30 @@ import edu.uci.ics.texera.storage.utils.StorageUtils;
  * 
  * DataReader currently has the option to append a "payload" field to a tuple, the "payload" field is a list of spans. 
  * Each span contains the start, end, and token offset position of a token in the original document.
- * The "payload" contains spans for EVERY token in tuple.
+ * The "payload" contains spans for EVERY token in tuple, it's a CompactPayload built from the term vectors,
+ *   which stores the tokens in int arrays and only creates the span objects when they are accessed.
  * 
  * The purpose of the "payload" field is to make subsequent keyword match, fuzzy token match, and dictionary match faster,
  * because they don't need to tokenize the tuple every time.
+ * The payload is a LazyPayload, it's only built from the term vectors when an operator first reads it,
+ *   so the plans that never use the tokens don't read the term vectors at all.
+ *   If it's first read after the index reader is closed, the tuple is tokenized by the analyzer of the table instead.
+ *   The tables whose storage profile has no term vectors (see StorageProfile) are always tokenized again.
+ *   
+ * By default, DataReader runs the whole search in open() and returns the hits in the order of their scores.
+ * In the streaming mode (see setStreaming()), DataReader doesn't score the documents,
+ *   it walks the matching documents of each index segment in doc ID order, 
+ *   and only reads a document when the next tuple is requested.
+ *   
+ * DataReader can also be restricted to the attributes needed by the rest of the plan (see setProjectedAttributes()),
+ *   then it only loads the stored fields of those attributes, and only builds the payload from their term vectors.
  *   
  * 
+ * DataReader doesn't open the index by itself, it acquires a shared searcher from IndexSearcherPool
+ *   in open() and releases it in close().
+ *   The readers of the partitions of a scan (see setPartition()) can share one SharedSearcher,
+ *   then they split the doc IDs of the same snapshot of the index.
+ * 
  * DataReader for a specific table is only accessible from RelationManager.
  * 
  * 
@@ -71,6 +113,31 @@ public class DataReader implements IOperator {
     private int cursor = CLOSED;
 
     private boolean payloadAdded;
+    // the analyzer of the table, to build the payloads that are first read after the index reader is closed
+    private Analyzer payloadAnalyzer;
+    private StorageProfile storageProfile = StorageProfile.DEFAULT;
+    
+    // the names of the attributes to read (besides _id), null means all the attributes, see setProjectedAttributes()
+    private Set<String> projectedAttributes = null;
+    // the stored fields to load, null means all the stored fields
+    private Set<String> fieldsToLoad = null;
+
+    // the doc ID range of the index this reader is responsible for, see setPartition()
+    private int partitionIndex = 0;
+    private int numPartitions = 1;
+    private int minDocID;
+    private int maxDocID;
+    // the searcher shared by the readers of all the partitions, null if this reader acquires its own
+    private SharedSearcher sharedSearcher = null;
+
+    // the state of the streaming mode: the query weight, and the iterator of the current segment
+    private boolean streaming = false;
+    private Weight luceneWeight;
+    private List<LeafReaderContext> leafContexts;
+    private int leafIndex;
+    private DocIdSetIterator leafIterator;
+    private Bits leafLiveDocs;
+    private int leafDocBase;
 
     /*
      * The package-only level constructor is only accessible inside the storage package.
@@ -93,14 +160,38 @@ public class DataReader implements IOperator {
             return;
         }
         try {
-            Directory indexDirectory = FSDirectory.open(this.dataStore.getDataDirectory());
-            luceneIndexReader = DirectoryReader.open(indexDirectory);
-            luceneIndexSearcher = new IndexSearcher(luceneIndexReader);
-
-            TopDocs topDocs = luceneIndexSearcher.search(query, Integer.MAX_VALUE);
-            scoreDocs = topDocs.scoreDocs;
+            // the searcher is shared with other readers of the same table, see IndexSearcherPool
+            luceneIndexSearcher = sharedSearcher != null ? sharedSearcher.acquire() :
+                IndexSearcherPool.getInstance().acquire(this.dataStore.getDataDirectory());
+            luceneIndexReader = luceneIndexSearcher.getIndexReader();
+
+            int maxDoc = luceneIndexReader.maxDoc();
+            minDocID = (int) ((long) maxDoc * partitionIndex / numPartitions);
+            maxDocID = (int) ((long) maxDoc * (partitionIndex + 1) / numPartitions);
+
+            if (streaming) {
+                // scores are not needed, the documents are only iterated
+                luceneWeight = luceneIndexSearcher.createNormalizedWeight(query, false);
+                leafContexts = luceneIndexReader.leaves();
+                leafIndex = -1;
+                leafIterator = null;
+            } else if (numPartitions > 1) {
+                scoreDocs = searchPartition();
+            } else {
+                TopDocs topDocs = luceneIndexSearcher.search(query, Integer.MAX_VALUE);
+                scoreDocs = topDocs.scoreDocs;
+            }
 
             inputSchema = this.dataStore.getSchema();
+            if (projectedAttributes != null) {
+                inputSchema = new Schema(inputSchema.getAttributes().stream()
+                        .filter(attr -> attr.getName().equalsIgnoreCase(SchemaConstants._ID) 
+                                || projectedAttributes.contains(attr.getName().toLowerCase()))
+                        .toArray(Attribute[]::new));
+                fieldsToLoad = new HashSet<>(inputSchema.getAttributeNames());
+            } else {
+                fieldsToLoad = null;
+            }
             if (payloadAdded) {
                 outputSchema = new Schema.Builder(inputSchema).add(SchemaConstants.PAYLOAD_ATTRIBUTE).build();
             } else {
@@ -114,6 +205,39 @@ public class DataReader implements IOperator {
         cursor = OPENED;
     }
 
+    /*
+     * Searches only the documents in the partition of this reader, the hits are in the order of their scores.
+     * The segments outside the partition are skipped without being scored.
+     */
+    private ScoreDoc[] searchPartition() throws IOException {
+        TopScoreDocCollector topDocsCollector = TopScoreDocCollector.create(Math.max(1, maxDocID - minDocID));
+        luceneIndexSearcher.search(query, new FilterCollector(topDocsCollector) {
+            @Override
+            public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
+                int leafMinDocID = minDocID - context.docBase;
+                int leafMaxDocID = maxDocID - context.docBase;
+                int leafMaxDoc = context.reader().maxDoc();
+                if (leafMaxDocID <= 0 || leafMinDocID >= leafMaxDoc) {
+                    // IndexSearcher moves on to the next segment
+                    throw new CollectionTerminatedException();
+                }
+                LeafCollector leafCollector = super.getLeafCollector(context);
+                if (leafMinDocID <= 0 && leafMaxDocID >= leafMaxDoc) {
+                    return leafCollector;
+                }
+                return new FilterLeafCollector(leafCollector) {
+                    @Override
+                    public void collect(int doc) throws IOException {
+                        if (doc >= leafMinDocID && doc < leafMaxDocID) {
+                            super.collect(doc);
+                        }
+                    }
+                };
+            }
+        });
+        return topDocsCollector.topDocs().scoreDocs;
+    }
+
     @Override
     public Tuple getNextTuple() throws StorageException {
         if (cursor == CLOSED) {
@@ -122,10 +246,18 @@ public class DataReader implements IOperator {
 
         Tuple resultTuple;
         try {
-            if (cursor >= scoreDocs.length) {
-                return null;
+            int docID;
+            if (streaming) {
+                docID = nextMatchingDocID();
+                if (docID == DocIdSetIterator.NO_MORE_DOCS) {
+                    return null;
+                }
+            } else {
+                if (cursor >= scoreDocs.length) {
+                    return null;
+                }
+                docID = scoreDocs[cursor].doc;
             }
-            int docID = scoreDocs[cursor].doc;
             resultTuple = constructTuple(docID);
 
         } catch (IOException | ParseException e) {
@@ -136,26 +268,124 @@ public class DataReader implements IOperator {
         return resultTuple;
     }
 
+    @Override
+    public List<Tuple> getNextBatch(int maxTuples) throws StorageException {
+        if (cursor == CLOSED) {
+            throw new StorageException(ErrorMessages.OPERATOR_NOT_OPENED);
+        }
+        if (streaming) {
+            return getNextStreamingBatch(maxTuples);
+        }
+
+        int batchEnd = (int) Math.min((long) cursor + maxTuples, scoreDocs.length);
+        List<Tuple> resultTuples = new ArrayList<>(Math.max(batchEnd - cursor, 0));
+        try {
+            for (; cursor < batchEnd; cursor++) {
+                resultTuples.add(constructTuple(scoreDocs[cursor].doc));
+            }
+        } catch (IOException | ParseException e) {
+            throw new StorageException(e.getMessage(), e);
+        }
+        return resultTuples;
+    }
+
+    private List<Tuple> getNextStreamingBatch(int maxTuples) throws StorageException {
+        List<Tuple> resultTuples = new ArrayList<>();
+        try {
+            int docID;
+            while (resultTuples.size() < maxTuples 
+                    && (docID = nextMatchingDocID()) != DocIdSetIterator.NO_MORE_DOCS) {
+                resultTuples.add(constructTuple(docID));
+                cursor++;
+            }
+        } catch (IOException | ParseException e) {
+            throw new StorageException(e.getMessage(), e);
+        }
+        return resultTuples;
+    }
+
+    /*
+     * Returns the (index-wide) doc ID of the next live document matching the query
+     *   within the partition of this reader, or NO_MORE_DOCS if there is none.
+     * Segments are visited in order, so doc IDs are returned in increasing order.
+     */
+    private int nextMatchingDocID() throws IOException {
+        while (true) {
+            if (leafIterator == null && ! advanceToNextLeaf()) {
+                return DocIdSetIterator.NO_MORE_DOCS;
+            }
+            int leafMinDocID = minDocID - leafDocBase;
+            int leafDocID = leafIterator.docID() + 1 >= leafMinDocID ? 
+                    leafIterator.nextDoc() : leafIterator.advance(leafMinDocID);
+            if (leafDocID == DocIdSetIterator.NO_MORE_DOCS || leafDocBase + leafDocID >= maxDocID) {
+                leafIterator = null;
+                continue;
+            }
+            if (leafLiveDocs != null && ! leafLiveDocs.get(leafDocID)) {
+                continue;
+            }
+            return leafDocBase + leafDocID;
+        }
+    }
+
+    /*
+     * Moves to the next segment that overlaps the partition and has matching documents.
+     * Returns false if there are no more segments.
+     */
+    private boolean advanceToNextLeaf() throws IOException {
+        while (++leafIndex < leafContexts.size()) {
+            LeafReaderContext leafContext = leafContexts.get(leafIndex);
+            if (leafContext.docBase >= maxDocID 
+                    || leafContext.docBase + leafContext.reader().maxDoc() <= minDocID) {
+                continue;
+            }
+            Scorer scorer = luceneWeight.scorer(leafContext);
+            if (scorer == null) {
+                continue;
+            }
+            leafIterator = scorer.iterator();
+            leafLiveDocs = leafContext.reader().getLiveDocs();
+            leafDocBase = leafContext.docBase;
+            return true;
+        }
+        return false;
+    }
+
     @Override
     public void close() throws StorageException {
         cursor = CLOSED;
-        if (luceneIndexReader != null) {
-            try {
-                luceneIndexReader.close();
-                luceneIndexReader = null;
-            } catch (IOException e) {
-                throw new StorageException(e.getMessage(), e);
+        luceneWeight = null;
+        leafContexts = null;
+        leafIterator = null;
+        leafLiveDocs = null;
+        scoreDocs = null;
+        if (luceneIndexSearcher != null) {
+            IndexSearcher releasedSearcher = luceneIndexSearcher;
+            luceneIndexSearcher = null;
+            luceneIndexReader = null;
+            if (sharedSearcher != null) {
+                sharedSearcher.release();
+            } else {
+                IndexSearcherPool.getInstance().release(this.dataStore.getDataDirectory(), releasedSearcher);
             }
         }
     }
 
     private Tuple constructTuple(int docID) throws IOException, ParseException {
-        Document luceneDocument = luceneIndexSearcher.doc(docID);
+        Document luceneDocument = fieldsToLoad == null ? luceneIndexSearcher.doc(docID) : loadProjectedDocument(docID);
         ArrayList<IField> docFields = documentToFields(luceneDocument);
 
         if (payloadAdded) {
-            ArrayList<Span> payloadSpanList = buildPayloadFromTermVector(docFields, docID);
-            ListField<Span> payloadField = new ListField<Span>(payloadSpanList);
+            // the reader and the schema are captured, the payload can be read after this reader moves on or closes
+            List<IField> documentFields = new ArrayList<>(docFields);
+            Schema documentSchema = inputSchema;
+            IndexReader indexReader = luceneIndexReader;
+            Analyzer analyzer = payloadAnalyzer;
+            ListField<Span> payloadField = storageProfile.isTermVectorsStored() ? 
+                    new ListField<Span>(new LazyPayload(
+                            () -> buildPayload(indexReader, analyzer, documentSchema, documentFields, docID))) :
+                    new ListField<Span>(new LazyPayload(
+                            () -> buildPayload(analyzer, documentSchema, documentFields)));
             docFields.add(payloadField);
         }
 
@@ -163,6 +393,31 @@ public class DataReader implements IOperator {
         return resultTuple;
     }
 
+    /*
+     * Loads only the stored fields of the projected attributes.
+     * The reading of the document stops once they're all loaded, so the stored fields after them 
+     *   (in the order they were written) are not even decompressed if they're in a separate slice.
+     */
+    private Document loadProjectedDocument(int docID) throws IOException {
+        DocumentStoredFieldVisitor visitor = new DocumentStoredFieldVisitor(fieldsToLoad) {
+            private int numFieldsToLoad = fieldsToLoad.size();
+            
+            @Override
+            public Status needsField(FieldInfo fieldInfo) throws IOException {
+                if (numFieldsToLoad == 0) {
+                    return Status.STOP;
+                }
+                if (fieldsToLoad.contains(fieldInfo.name)) {
+                    numFieldsToLoad--;
+                    return Status.YES;
+                }
+                return Status.NO;
+            }
+        };
+        luceneIndexReader.document(docID, visitor);
+        return visitor.getDocument();
+    }
+
     private ArrayList<IField> documentToFields(Document luceneDocument) throws ParseException {
         ArrayList<IField> fields = new ArrayList<>();
         for (Attribute attr : inputSchema.getAttributes()) {
@@ -173,10 +428,44 @@ public class DataReader implements IOperator {
         return fields;
     }
 
-    private ArrayList<Span> buildPayloadFromTermVector(List<IField> fields, int docID) throws IOException {
-        ArrayList<Span> payloadSpanList = new ArrayList<>();
+    /*
+     * Builds the payload of a document from its term vectors, if the index reader is still open.
+     * Otherwise, the document is tokenized again by the analyzer of the table,
+     *   and the tokens are added in the order of the term vectors (by term, then by position).
+     */
+    private static CompactPayload buildPayload(IndexReader indexReader, Analyzer analyzer, Schema documentSchema,
+            List<IField> fields, int docID) throws StorageException {
+        try {
+            if (indexReader.tryIncRef()) {
+                try {
+                    return buildPayloadFromTermVector(indexReader, documentSchema, fields, docID);
+                } finally {
+                    indexReader.decRef();
+                }
+            }
+            return buildPayload(analyzer, documentSchema, fields);
+        } catch (IOException e) {
+            throw new StorageException(e.getMessage(), e);
+        }
+    }
 
-        for (Attribute attr : inputSchema.getAttributes()) {
+    private static CompactPayload buildPayload(Analyzer analyzer, Schema documentSchema, List<IField> fields) 
+            throws StorageException {
+        if (analyzer == null) {
+            throw new StorageException("The payload cannot be built without the term vectors or the analyzer.");
+        }
+        try {
+            return buildPayloadFromAnalyzer(analyzer, documentSchema, fields);
+        } catch (IOException e) {
+            throw new StorageException(e.getMessage(), e);
+        }
+    }
+
+    private static CompactPayload buildPayloadFromTermVector(IndexReader indexReader, Schema documentSchema,
+            List<IField> fields, int docID) throws IOException {
+        CompactPayload.Builder payloadBuilder = new CompactPayload.Builder();
+
+        for (Attribute attr : documentSchema.getAttributes()) {
             String attributeName = attr.getName();
             AttributeType attributeType = attr.getType();
 
@@ -186,9 +475,9 @@ public class DataReader implements IOperator {
                 continue;
             }
 
-            String fieldValue = fields.get(inputSchema.getIndex(attributeName)).getValue().toString();
+            String fieldValue = fields.get(documentSchema.getIndex(attributeName)).getValue().toString();
 
-            Terms termVector = luceneIndexReader.getTermVector(docID, attributeName);
+            Terms termVector = indexReader.getTermVector(docID, attributeName);
             if (termVector == null) {
                 continue;
             }
@@ -201,24 +490,154 @@ public class DataReader implements IOperator {
                 if (termPostings.nextDoc() == DocIdSetIterator.NO_MORE_DOCS) {
                     continue;
                 }
+                String analyzedTermStr = termsEnum.term().utf8ToString();
                 // for each term, go through its postings
                 for (int i = 0; i < termPostings.freq(); i++) {
                     int tokenPosition = termPostings.nextPosition(); // nextPosition needs to be called first
                     int charStart = termPostings.startOffset();
                     int charEnd = termPostings.endOffset();
-                    String analyzedTermStr = termsEnum.term().utf8ToString();
-                    String originalTermStr = fieldValue.substring(charStart, charEnd);
+                    payloadBuilder.add(attributeName, fieldValue, charStart, charEnd, analyzedTermStr, tokenPosition);
+                }
+            }
+        }
+
+        return payloadBuilder.build();
+    }
+
+    private static CompactPayload buildPayloadFromAnalyzer(Analyzer analyzer, Schema documentSchema,
+            List<IField> fields) throws IOException {
+        CompactPayload.Builder payloadBuilder = new CompactPayload.Builder();
 
-                    Span span = new Span(attributeName, charStart, charEnd, analyzedTermStr, originalTermStr,
-                            tokenPosition);
-                    payloadSpanList.add(span);
+        for (Attribute attr : documentSchema.getAttributes()) {
+            String attributeName = attr.getName();
+            if (attr.getType() != AttributeType.TEXT) {
+                continue;
+            }
+            String fieldValue = fields.get(documentSchema.getIndex(attributeName)).getValue().toString();
+
+            List<AnalyzedToken> tokens = new ArrayList<>();
+            try (TokenStream tokenStream = analyzer.tokenStream(attributeName, new StringReader(fieldValue))) {
+                OffsetAttribute offsetAttribute = tokenStream.addAttribute(OffsetAttribute.class);
+                CharTermAttribute charTermAttribute = tokenStream.addAttribute(CharTermAttribute.class);
+                PositionIncrementAttribute positionIncrementAttribute =
+                        tokenStream.addAttribute(PositionIncrementAttribute.class);
+
+                int tokenPosition = -1;
+                tokenStream.reset();
+                while (tokenStream.incrementToken()) {
+                    tokenPosition += positionIncrementAttribute.getPositionIncrement();
+                    tokens.add(new AnalyzedToken(charTermAttribute.toString(), tokenPosition,
+                            offsetAttribute.startOffset(), offsetAttribute.endOffset()));
                 }
+                tokenStream.end();
+            }
+
+            // the terms of a term vector are sorted by their UTF-8 bytes
+            tokens.sort(Comparator.comparing((AnalyzedToken token) -> token.termBytes)
+                    .thenComparingInt(token -> token.position));
+            for (AnalyzedToken token : tokens) {
+                payloadBuilder.add(attributeName, fieldValue, token.start, token.end, token.term, token.position);
             }
         }
 
-        return payloadSpanList;
+        return payloadBuilder.build();
+    }
+
+    private static class AnalyzedToken {
+        private final String term;
+        private final BytesRef termBytes;
+        private final int position;
+        private final int start;
+        private final int end;
+
+        private AnalyzedToken(String term, int position, int start, int end) {
+            this.term = term;
+            this.termBytes = new BytesRef(term);
+            this.position = position;
+            this.start = start;
+            this.end = end;
+        }
+    }
+    
+    /**
+     * Restricts this reader to one of numPartitions disjoint doc ID ranges of the index, 
+     *   so that several readers can scan the same table in parallel.
+     * Partition i covers doc IDs [maxDoc * i / numPartitions, maxDoc * (i + 1) / numPartitions).
+     * 
+     * It must be called before open().
+     * 
+     * @param partitionIndex, the index of the partition, from 0 to numPartitions - 1
+     * @param numPartitions, the total number of partitions
+     */
+    public void setPartition(int partitionIndex, int numPartitions) {
+        setPartition(partitionIndex, numPartitions, null);
+    }
+
+    /**
+     * Restricts this reader to one of numPartitions disjoint doc ID ranges of the index (see above),
+     *   using the searcher shared by the readers of all the partitions.
+     * The readers acquire the same snapshot of the index, so their doc ID ranges don't overlap or leave gaps 
+     *   even if the index is refreshed in between.
+     * 
+     * It must be called before open().
+     * 
+     * @param partitionIndex, the index of the partition, from 0 to numPartitions - 1
+     * @param numPartitions, the total number of partitions
+     * @param sharedSearcher, the searcher of the table shared by all the partitions 
+     *   (see RelationManager.getTableSharedSearcher()), null to acquire a searcher in open()
+     */
+    public void setPartition(int partitionIndex, int numPartitions, SharedSearcher sharedSearcher) {
+        if (numPartitions < 1 || partitionIndex < 0 || partitionIndex >= numPartitions) {
+            throw new StorageException(String.format("Invalid partition %d of %d partitions.", 
+                    partitionIndex, numPartitions));
+        }
+        if (sharedSearcher != null && ! sharedSearcher.getIndexDirectory().equals(dataStore.getDataDirectory())) {
+            throw new StorageException("The shared searcher is not of the table of this reader.");
+        }
+        this.partitionIndex = partitionIndex;
+        this.numPartitions = numPartitions;
+        this.sharedSearcher = sharedSearcher;
+    }
+
+    /**
+     * Sets if this reader runs in the streaming mode.
+     * In the streaming mode, documents are not scored, and tuples are returned in doc ID order
+     *   as they are requested, instead of collecting all the hits in open().
+     * 
+     * It must be called before open().
+     * 
+     * @param streaming
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    public boolean isStreaming() {
+        return this.streaming;
+    }
+
+    /**
+     * Restricts this reader to the attributes needed by the rest of the plan.
+     * The output tuples only have the _id and the projected attributes (in the order of the table's schema),
+     *   and the payload is only built for the projected TEXT attributes.
+     *   The stored fields and the term vectors of the other attributes are never read.
+     * 
+     * It must be called before open().
+     * 
+     * @param attributeNames, the names of the attributes to read (case insensitive), null to read all the attributes
+     */
+    public void setProjectedAttributes(Collection<String> attributeNames) {
+        if (cursor != CLOSED) {
+            throw new StorageException("Projected attributes cannot be changed after opening the reader");
+        }
+        this.projectedAttributes = attributeNames == null ? null : 
+            attributeNames.stream().map(String::toLowerCase).collect(Collectors.toSet());
     }
     
+    public Set<String> getProjectedAttributes() {
+        return this.projectedAttributes;
+    }
+
     public boolean isPayloadAdded() {
         return this.payloadAdded;
     }
@@ -227,6 +646,24 @@ public class DataReader implements IOperator {
         this.payloadAdded = payloadAdded;
     }
 
+    /*
+     * Only the RelationManager sets the analyzer of the table.
+     */
+    void setPayloadAnalyzer(Analyzer payloadAnalyzer) {
+        this.payloadAnalyzer = payloadAnalyzer;
+    }
+
+    /*
+     * Only the RelationManager sets the storage profile of the table.
+     */
+    void setStorageProfile(StorageProfile storageProfile) {
+        this.storageProfile = storageProfile;
+    }
+
+    public StorageProfile getStorageProfile() {
+        return this.storageProfile;
+    }
+
     public Schema getOutputSchema() {
         return outputSchema;
     }
@@ -247,4 +684,4 @@ public class DataReader implements IOperator {
     public Schema transformToOutputSchema(Schema... inputSchema) throws DataflowException {
         throw new TexeraException(ErrorMessages.INVALID_FUNCTION_CALL);
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -2,14 +2,26 @@ package edu.uci.ics.texera.storage;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.MergePolicy;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.store.Directory;
@@ -24,6 +36,7 @@ import edu.uci.ics.texera.api.schema.Attribute;
 import edu.uci.ics.texera.api.schema.AttributeType;
 import edu.uci.ics.texera.api.schema.Schema;
 import edu.uci.ics.texera.api.tuple.Tuple;
+import edu.uci.ics.texera.storage.constants.LuceneAnalyzerConstants;
 import edu.uci.ics.texera.storage.utils.StorageUtils;
 
 /**
@@ -43,6 +56,21 @@ import edu.uci.ics.texera.storage.utils.StorageUtils;
  * Update Operations:
  *   DataWriter can update the tuple, with the tuple's _id remaining the same.
  *   
+ * Secondary n-gram indexes:
+ *   For each TEXT attribute in gramIndexAttributes, DataWriter also indexes the value
+ *   in an extra field analyzed into n-grams (see LuceneAnalyzerConstants.getGramIndexFieldName()),
+ *   so that a regex can be prefiltered by its n-gram query regardless of the analyzer of the table.
+ *   
+ * Storage profile:
+ *   The StorageProfile of the table decides if the term vectors and the offsets of TEXT attributes are indexed.
+ *   
+ * Bulk loading:
+ *   insertTuples() validates the schema once per batch instead of once per tuple,
+ *   and builds the Lucene documents on several threads, which all add to the same (thread-safe) IndexWriter.
+ *   Each thread reuses one document and its fields, only setting the values of the next tuple.
+ *   The RAM buffer size, the merge policy and the number of documents between commits can be tuned
+ *   before the writer is opened.
+ *   
  *   
  * DataWriter for a specific table is only accessible from RelationManager.
  * 
@@ -56,10 +84,24 @@ public class DataWriter {
     private Schema schema;
     private DataStore dataStore;
     private Analyzer analyzer;
+    private List<String> gramIndexAttributes;
+    private StorageProfile storageProfile;
 
     private IndexWriter luceneIndexWriter;
     
     private boolean isOpen = false;
+    
+    // the number of tuples each indexing thread converts to documents at a time in insertTuples()
+    public static final int BULK_CHUNK_SIZE = 1000;
+    
+    // the settings of the IndexWriter, null means the default of Lucene
+    private Double ramBufferSizeMB = null;
+    private MergePolicy mergePolicy = null;
+    // the number of inserted tuples between two commits, 0 means only committing on close()
+    private int commitInterval = 0;
+    private int numIndexingThreads = Runtime.getRuntime().availableProcessors();
+    
+    private int numUncommittedTuples = 0;
 
     /*
      * The package-only level constructor is only accessible inside the storage package.
@@ -67,6 +109,15 @@ public class DataWriter {
      *  while upper-level operators can't.
      */
     DataWriter(DataStore dataStore, Analyzer analyzer) {
+        this(dataStore, analyzer, new ArrayList<>());
+    }
+    
+    DataWriter(DataStore dataStore, Analyzer analyzer, List<String> gramIndexAttributes) {
+        this(dataStore, analyzer, gramIndexAttributes, StorageProfile.DEFAULT);
+    }
+    
+    DataWriter(DataStore dataStore, Analyzer analyzer, List<String> gramIndexAttributes, 
+            StorageProfile storageProfile) {
         this.indexDirectory = dataStore.getDataDirectory();
         // change the schema to a schema with _ID field
         this.schema = dataStore.getSchema();
@@ -74,7 +125,18 @@ public class DataWriter {
             this.schema = Schema.Builder.getSchemaWithID(this.schema);
         }
         this.dataStore = new DataStore(indexDirectory, schema);
-        this.analyzer = analyzer;
+        this.gramIndexAttributes = gramIndexAttributes;
+        this.storageProfile = storageProfile;
+        if (gramIndexAttributes.isEmpty()) {
+            this.analyzer = analyzer;
+        } else {
+            Map<String, Analyzer> gramIndexAnalyzers = new HashMap<>();
+            Analyzer gramIndexAnalyzer = LuceneAnalyzerConstants.getGramIndexAnalyzer();
+            for (String attributeName : gramIndexAttributes) {
+                gramIndexAnalyzers.put(LuceneAnalyzerConstants.getGramIndexFieldName(attributeName), gramIndexAnalyzer);
+            }
+            this.analyzer = new PerFieldAnalyzerWrapper(analyzer, gramIndexAnalyzers);
+        }
     }
     
     public DataStore getDataStore() {
@@ -86,19 +148,73 @@ public class DataWriter {
             try {
                 Directory directory = FSDirectory.open(this.indexDirectory);
                 IndexWriterConfig conf = new IndexWriterConfig(analyzer);
+                if (ramBufferSizeMB != null) {
+                    conf.setRAMBufferSizeMB(ramBufferSizeMB);
+                }
+                if (mergePolicy != null) {
+                    conf.setMergePolicy(mergePolicy);
+                }
                 this.luceneIndexWriter = new IndexWriter(directory, conf);
                 this.isOpen = true;
+                this.numUncommittedTuples = 0;
             } catch (IOException e) {
                 throw new StorageException(e.getMessage(), e);
             }
         }
     }
 
+    /**
+     * Sets the size of the buffer in which Lucene keeps the added documents before flushing them to a segment.
+     *   A larger buffer makes bulk loading faster. It takes effect the next time the writer is opened.
+     * 
+     * @param ramBufferSizeMB, the buffer size in MB
+     */
+    public void setRAMBufferSizeMB(double ramBufferSizeMB) {
+        this.ramBufferSizeMB = ramBufferSizeMB;
+    }
+    
+    /**
+     * Sets the policy by which Lucene merges the segments of the index. 
+     *   It takes effect the next time the writer is opened.
+     * 
+     * @param mergePolicy
+     */
+    public void setMergePolicy(MergePolicy mergePolicy) {
+        this.mergePolicy = mergePolicy;
+    }
+    
+    /**
+     * Sets the number of inserted tuples after which the writer commits, 
+     *   so that a long bulk load is durable (and visible to new readers) along the way.
+     * 
+     * @param commitInterval, the number of tuples between two commits, 0 means only committing on close()
+     */
+    public void setCommitInterval(int commitInterval) {
+        if (commitInterval < 0) {
+            throw new StorageException("commit interval must not be negative");
+        }
+        this.commitInterval = commitInterval;
+    }
+    
+    /**
+     * Sets the number of threads that build the Lucene documents in insertTuples().
+     * 
+     * @param numIndexingThreads
+     */
+    public void setNumIndexingThreads(int numIndexingThreads) {
+        if (numIndexingThreads < 1) {
+            throw new StorageException("number of indexing threads must be at least 1");
+        }
+        this.numIndexingThreads = numIndexingThreads;
+    }
+
     public void close() throws StorageException {
         if (this.luceneIndexWriter != null) {
             try {
                 this.luceneIndexWriter.close();
                 this.isOpen = false;
+                // the changes are committed, make the shared readers of this index see them
+                IndexSearcherPool.getInstance().refresh(this.indexDirectory);
             } catch (IOException e) {
                 throw new StorageException(e.getMessage(), e);
             }
@@ -138,7 +254,7 @@ public class DataWriter {
             
             Document document = getLuceneDocument(tupleWithID);
             this.luceneIndexWriter.addDocument(document);
-            this.dataStore.incrementNumDocuments(1);
+            documentsAdded(1);
             
             return idField;
         } catch (IOException e) {
@@ -147,6 +263,147 @@ public class DataWriter {
         }
     }
     
+    /**
+     * Inserts a batch of tuples, which is much faster than inserting them one by one.
+     * The schema of the tuples is validated once (per distinct schema object), 
+     *   and the Lucene documents are built on several threads.
+     * The tuples are consumed in the iteration order, on the calling thread.
+     *   Therefore the iterable can lazily pull the tuples from an operator.
+     * 
+     * If a tuple's schema doesn't agree with the table's schema, a StorageException is thrown, 
+     *   but the tuples before it may already have been inserted.
+     * 
+     * @param tuples, the tuples to insert, which must not contain the _id field
+     * @return the number of inserted tuples
+     * @throws StorageException
+     */
+    public int insertTuples(Iterable<Tuple> tuples) throws StorageException {
+        if (! isOpen) {
+            throw new StorageException(ErrorMessages.OPERATOR_NOT_OPENED);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(numIndexingThreads);
+        // each indexing thread reuses its own document
+        ThreadLocal<ReusableDocument> reusableDocument = ThreadLocal.withInitial(ReusableDocument::new);
+        Deque<Future<Integer>> pendingChunks = new ArrayDeque<>();
+        
+        int numInserted = 0;
+        RuntimeException failure = null;
+        try {
+            Schema validatedSchema = null;
+            List<Tuple> chunk = new ArrayList<>(BULK_CHUNK_SIZE);
+            for (Tuple tuple : tuples) {
+                // the tuples of an operator share the same schema object, so it's only validated once
+                if (tuple.getSchema() != validatedSchema) {
+                    validateInputSchema(tuple.getSchema());
+                    validatedSchema = tuple.getSchema();
+                }
+                chunk.add(tuple);
+                if (chunk.size() == BULK_CHUNK_SIZE) {
+                    pendingChunks.add(submitChunk(executor, chunk, reusableDocument));
+                    chunk = new ArrayList<>(BULK_CHUNK_SIZE);
+                    // bound the number of tuples held in memory
+                    while (pendingChunks.size() > 2 * numIndexingThreads) {
+                        numInserted += waitForChunk(pendingChunks.poll());
+                    }
+                }
+            }
+            if (! chunk.isEmpty()) {
+                pendingChunks.add(submitChunk(executor, chunk, reusableDocument));
+            }
+        } catch (RuntimeException e) {
+            // including the exceptions of the iterator of the tuples, such as a failure of an upstream operator
+            failure = e;
+        } finally {
+            // wait for all the submitted chunks, no thread may use the index writer after this method returns
+            while (! pendingChunks.isEmpty()) {
+                try {
+                    numInserted += waitForChunk(pendingChunks.poll());
+                } catch (StorageException e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+            executor.shutdown();
+        }
+        
+        if (failure != null) {
+            if (failure instanceof StorageException && failure.getCause() instanceof IOException) {
+                close();
+            }
+            throw failure;
+        }
+        return numInserted;
+    }
+    
+    /*
+     * Checks that the schema of the tuples to insert is the table's schema without the _id field.
+     */
+    private void validateInputSchema(Schema inputSchema) throws StorageException {
+        // tuple must not contain _id field
+        if (inputSchema.containsAttribute(SchemaConstants._ID)) {
+            throw new StorageException("Tuple must not contain _id field. _id must be generated by the system");
+        }
+        // make sure the tuple's schema agrees with the table's schema
+        if (! Schema.Builder.getSchemaWithID(inputSchema).equals(this.schema)) {
+            throw new StorageException("Tuple's schema is not the same as the table's schema");
+        }
+    }
+    
+    private Future<Integer> submitChunk(ExecutorService executor, List<Tuple> chunk, 
+            ThreadLocal<ReusableDocument> reusableDocument) {
+        return executor.submit(() -> {
+            ReusableDocument document = reusableDocument.get();
+            for (Tuple tuple : chunk) {
+                this.luceneIndexWriter.addDocument(document.setTuple(generateID(), tuple));
+            }
+            return chunk.size();
+        });
+    }
+    
+    private int waitForChunk(Future<Integer> chunkFuture) throws StorageException {
+        try {
+            int numAdded = chunkFuture.get();
+            documentsAdded(numAdded);
+            return numAdded;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageException(e.getMessage(), e);
+        } catch (ExecutionException e) {
+            throw new StorageException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+    
+    /*
+     * Counts the added documents, and commits if the commit interval is reached.
+     */
+    private void documentsAdded(int numAdded) throws StorageException {
+        this.dataStore.incrementNumDocuments(numAdded);
+        this.numUncommittedTuples += numAdded;
+        if (commitInterval > 0 && numUncommittedTuples >= commitInterval) {
+            try {
+                this.luceneIndexWriter.commit();
+                this.numUncommittedTuples = 0;
+            } catch (IOException e) {
+                throw new StorageException(e.getMessage(), e);
+            }
+        }
+    }
+    
+    /*
+     * Generates a random (version 4) UUID for the _id field.
+     *   UUID.randomUUID() draws from a SecureRandom shared by all threads, 
+     *   which the indexing threads would contend on.
+     */
+    private static IDField generateID() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long mostSigBits = (random.nextLong() & 0xffffffffffff0fffL) | 0x0000000000004000L;
+        long leastSigBits = (random.nextLong() & 0x3fffffffffffffffL) | 0x8000000000000000L;
+        return new IDField(new UUID(mostSigBits, leastSigBits).toString());
+    }
+    
     /**
      * Deletes a tuple by its ID field.
      * 
@@ -211,9 +468,9 @@ public class DataWriter {
     }
 
     /*
-     * Converts a Texera tuple to a Lucene document
+     * Converts a Texera tuple to a Lucene document, with the fields of the secondary n-gram indexes
      */
-    private static Document getLuceneDocument(Tuple tuple) {
+    private Document getLuceneDocument(Tuple tuple) {
         List<IField> fields = tuple.getFields();
         List<Attribute> attributes = tuple.getSchema().getAttributes();
         Document doc = new Document();
@@ -221,11 +478,63 @@ public class DataWriter {
             IField field = fields.get(count);
             Attribute attr = attributes.get(count);
             AttributeType attributeType = attr.getType();
-            doc.add(StorageUtils.getLuceneField(attributeType, attr.getName(), field.getValue()));
+            for (Field luceneField : StorageUtils.getLuceneFields(
+                    attributeType, attr.getName(), field.getValue(), storageProfile)) {
+                doc.add(luceneField);
+            }
+        }
+        for (String attributeName : gramIndexAttributes) {
+            doc.add(StorageUtils.getGramIndexLuceneField(attributeName, tuple.getField(attributeName).getValue()));
         }
         return doc;
     }
     
+    /*
+     * A Lucene document of the table, whose fields are created for the first tuple 
+     *   and then reused for the following tuples by only setting their values.
+     * IndexWriter is done with a document when addDocument() returns, so a document can be reused right after. 
+     *   A ReusableDocument must only be used by one thread.
+     */
+    private class ReusableDocument {
+        
+        private Document document = null;
+        private final List<List<Field>> fields = new ArrayList<>();
+        private final List<Field> gramIndexFields = new ArrayList<>();
+        
+        /*
+         * Sets the values of the document to the tuple (without the _id field) and the _id.
+         */
+        public Document setTuple(IDField idField, Tuple tuple) {
+            List<Attribute> attributes = schema.getAttributes();
+            List<IField> tupleFields = tuple.getFields();
+            if (document == null) {
+                document = new Document();
+                for (int i = 0; i < attributes.size(); i++) {
+                    Object value = i == 0 ? idField.getValue() : tupleFields.get(i - 1).getValue();
+                    List<Field> attributeFields = StorageUtils.getLuceneFields(
+                            attributes.get(i).getType(), attributes.get(i).getName(), value, storageProfile);
+                    fields.add(attributeFields);
+                    attributeFields.forEach(document::add);
+                }
+                for (String attributeName : gramIndexAttributes) {
+                    Field field = (Field) StorageUtils.getGramIndexLuceneField(
+                            attributeName, tuple.getField(attributeName).getValue());
+                    gramIndexFields.add(field);
+                    document.add(field);
+                }
+                return document;
+            }
+            for (int i = 0; i < attributes.size(); i++) {
+                Object value = i == 0 ? idField.getValue() : tupleFields.get(i - 1).getValue();
+                StorageUtils.setLuceneFieldValues(attributes.get(i).getType(), fields.get(i), value);
+            }
+            for (int i = 0; i < gramIndexAttributes.size(); i++) {
+                gramIndexFields.get(i).setStringValue((String) tuple.getField(gramIndexAttributes.get(i)).getValue());
+            }
+            return document;
+        }
+    }
+    
     /*
      * Adds the _id to the front of the tuple, if the _id field doesn't exist in the tuple.
      */
@@ -244,4 +553,4 @@ public class DataWriter {
         return tupleWithID;
     }
 
-}
\ No newline at end of file
+}
\ No newline at end of file
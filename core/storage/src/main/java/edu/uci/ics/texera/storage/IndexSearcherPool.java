@@ -0,0 +1,234 @@
+package edu.uci.ics.texera.storage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+
+import edu.uci.ics.texera.api.exception.StorageException;
+
+/**
+ * IndexSearcherPool keeps one Lucene SearcherManager for each index directory,
+ *   so that DataReaders (and concurrent queries) on the same table share the open index readers,
+ *   instead of opening all the segments of the index again for every query.
+ *
+ * Searchers are reference counted by the SearcherManager:
+ *   a searcher acquired by a DataReader stays valid until it's released, even if the index is refreshed.
+ *
+ * DataWriter refreshes the pool after it commits its changes,
+ *   and RelationManager invalidates the pool when a table is deleted.
+ *   The Directory of an invalidated index is closed once all of its searchers are released.
+ *
+ * IndexSearcherPool is only accessible from the storage package, except the metrics.
+ *
+ */
+public class IndexSearcherPool {
+
+    private static final IndexSearcherPool singletonInstance = new IndexSearcherPool();
+
+    // key: the absolute path of the index directory
+    private final Map<String, PoolEntry> poolEntries = new HashMap<>();
+    // the invalidated entries whose searchers are not all released yet
+    private final List<PoolEntry> invalidatedEntries = new ArrayList<>();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong refreshCount = new AtomicLong();
+    private final AtomicInteger numAcquiredSearchers = new AtomicInteger();
+
+    private IndexSearcherPool() {
+    }
+
+    public static IndexSearcherPool getInstance() {
+        return singletonInstance;
+    }
+
+    /**
+     * Acquires a searcher of the index in the directory, opening the index if it's not in the pool yet.
+     * The searcher must be released by release() after use.
+     *
+     * @param indexDirectory
+     * @return
+     * @throws StorageException
+     */
+    synchronized IndexSearcher acquire(Path indexDirectory) throws StorageException {
+        try {
+            PoolEntry poolEntry = getPoolEntry(indexDirectory);
+            IndexSearcher indexSearcher = poolEntry.searcherManager.acquire();
+            poolEntry.acquiredSearchers.merge(indexSearcher, 1, Integer::sum);
+            numAcquiredSearchers.incrementAndGet();
+            return indexSearcher;
+        } catch (IOException e) {
+            throw new StorageException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Releases a searcher acquired by acquire().
+     * It's also valid if the index is refreshed or invalidated after the searcher is acquired.
+     *
+     * @param indexDirectory
+     * @param indexSearcher
+     * @throws StorageException
+     */
+    synchronized void release(Path indexDirectory, IndexSearcher indexSearcher) throws StorageException {
+        PoolEntry poolEntry = poolEntries.get(getKey(indexDirectory));
+        if (poolEntry == null || ! poolEntry.acquiredSearchers.containsKey(indexSearcher)) {
+            poolEntry = invalidatedEntries.stream()
+                    .filter(entry -> entry.acquiredSearchers.containsKey(indexSearcher))
+                    .findFirst().orElseThrow(() -> new StorageException(
+                            "the searcher of " + indexDirectory + " is not acquired from the pool"));
+        }
+        try {
+            poolEntry.searcherManager.release(indexSearcher);
+            numAcquiredSearchers.decrementAndGet();
+            poolEntry.acquiredSearchers.computeIfPresent(indexSearcher, 
+                    (searcher, count) -> count > 1 ? count - 1 : null);
+            if (poolEntry.isInvalidated && poolEntry.acquiredSearchers.isEmpty()) {
+                invalidatedEntries.remove(poolEntry);
+                poolEntry.directory.close();
+            }
+        } catch (IOException e) {
+            throw new StorageException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Makes the searchers acquired afterwards see the latest commit of the index.
+     * It does nothing if the index is not in the pool.
+     *
+     * @param indexDirectory
+     * @throws StorageException
+     */
+    void refresh(Path indexDirectory) throws StorageException {
+        PoolEntry poolEntry;
+        synchronized (this) {
+            poolEntry = poolEntries.get(getKey(indexDirectory));
+        }
+        if (poolEntry == null) {
+            return;
+        }
+        try {
+            poolEntry.searcherManager.maybeRefreshBlocking();
+            refreshCount.incrementAndGet();
+        } catch (IOException e) {
+            throw new StorageException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Removes the index from the pool and closes its SearcherManager.
+     * Searchers that are still acquired remain valid until they are released,
+     *   the Directory of the index is closed after the last of them is released.
+     *
+     * @param indexDirectory
+     * @throws StorageException
+     */
+    synchronized void invalidate(Path indexDirectory) throws StorageException {
+        PoolEntry poolEntry = poolEntries.remove(getKey(indexDirectory));
+        if (poolEntry == null) {
+            return;
+        }
+        poolEntry.isInvalidated = true;
+        try {
+            poolEntry.searcherManager.close();
+        } catch (IOException e) {
+            throw new StorageException(e.getMessage(), e);
+        } finally {
+            try {
+                if (poolEntry.acquiredSearchers.isEmpty()) {
+                    poolEntry.directory.close();
+                } else {
+                    invalidatedEntries.add(poolEntry);
+                }
+            } catch (IOException e) {
+                throw new StorageException(e.getMessage(), e);
+            }
+        }
+    }
+
+    private PoolEntry getPoolEntry(Path indexDirectory) throws IOException {
+        String key = getKey(indexDirectory);
+        PoolEntry poolEntry = poolEntries.get(key);
+        if (poolEntry != null) {
+            hitCount.incrementAndGet();
+            return poolEntry;
+        }
+        missCount.incrementAndGet();
+        Directory directory = FSDirectory.open(indexDirectory);
+        try {
+            poolEntry = new PoolEntry(directory, new SearcherManager(directory, null));
+        } catch (IOException e) {
+            directory.close();
+            throw e;
+        }
+        poolEntries.put(key, poolEntry);
+        return poolEntry;
+    }
+
+    private static String getKey(Path indexDirectory) {
+        return indexDirectory.toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * Gets the number of times a searcher is acquired from an index that is already open.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Gets the number of times an index has to be opened to acquire a searcher.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Gets the number of refreshes triggered by DataWriter commits.
+     */
+    public long getRefreshCount() {
+        return refreshCount.get();
+    }
+
+    /**
+     * Gets the number of indexes that are currently open in the pool.
+     */
+    public synchronized int getNumOpenReaders() {
+        return poolEntries.size();
+    }
+
+    /**
+     * Gets the number of searchers that are acquired and not released yet.
+     */
+    public int getNumAcquiredSearchers() {
+        return numAcquiredSearchers.get();
+    }
+
+    /*
+     * The Directory of an index in the pool, its SearcherManager, and the number of times
+     *   each of its searchers is acquired and not released yet (guarded by the pool).
+     */
+    private static class PoolEntry {
+        private final Directory directory;
+        private final SearcherManager searcherManager;
+        private final Map<IndexSearcher, Integer> acquiredSearchers = new IdentityHashMap<>();
+        private boolean isInvalidated = false;
+
+        private PoolEntry(Directory directory, SearcherManager searcherManager) {
+            this.directory = directory;
+            this.searcherManager = searcherManager;
+        }
+    }
+
+}
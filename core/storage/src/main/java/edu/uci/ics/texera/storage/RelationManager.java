@@ -3,13 +3,20 @@ package edu.uci.ics.texera.storage;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.TermQuery;
@@ -18,7 +25,6 @@ import edu.uci.ics.texera.api.constants.SchemaConstants;
 import edu.uci.ics.texera.api.exception.DataflowException;
 import edu.uci.ics.texera.api.exception.StorageException;
 import edu.uci.ics.texera.api.field.IDField;
-import edu.uci.ics.texera.api.field.IField;
 import edu.uci.ics.texera.api.schema.Attribute;
 import edu.uci.ics.texera.api.schema.AttributeType;
 import edu.uci.ics.texera.api.schema.Schema;
@@ -30,9 +36,36 @@ public class RelationManager {
     
     private static volatile RelationManager singletonInstance = null;
     
+    /*
+     * The in-memory cache of the catalog: 
+     *   table name -> directory, schema, analyzer, n-gram indexes and storage profile of the table.
+     * The catalog is only modified by createTable() and deleteTable(), which invalidate the cache.
+     */
+    private final Map<String, TableCatalogEntry> tableCatalogCache = new ConcurrentHashMap<>();
+    
+    private static class TableCatalogEntry {
+        private final String directory;
+        private final Schema schema;
+        private final String analyzerString;
+        private final List<String> gramIndexAttributes;
+        private final StorageProfile storageProfile;
+        private volatile Analyzer analyzer;
+        
+        private TableCatalogEntry(String directory, Schema schema, String analyzerString, 
+                List<String> gramIndexAttributes, StorageProfile storageProfile) {
+            this.directory = directory;
+            this.schema = schema;
+            this.analyzerString = analyzerString;
+            this.gramIndexAttributes = gramIndexAttributes;
+            this.storageProfile = storageProfile;
+        }
+    }
+    
     private RelationManager() throws StorageException {
         if (! checkCatalogExistence()) {
             initializeCatalog();
+        } else {
+            upgradeCatalog();
         }
     }
 
@@ -55,6 +88,9 @@ public class RelationManager {
      */
     public boolean checkTableExistence(String tableName) {
         tableName = tableName.toLowerCase();
+        if (tableCatalogCache.containsKey(tableName)) {
+            return true;
+        }
         return getTableCatalogTuple(tableName) != null;
     }
 
@@ -75,6 +111,42 @@ public class RelationManager {
      */
     public void createTable(String tableName, Path indexDirectory, Schema schema, String luceneAnalyzerString)
             throws StorageException {
+        createTable(tableName, indexDirectory, schema, luceneAnalyzerString, new ArrayList<>());
+    }
+
+    /**
+     * Creates a new table, with a secondary n-gram index on some of its TEXT attributes.
+     * 
+     * DataWriter indexes the values of these attributes into n-grams as well, 
+     *   so that a regex on them can be prefiltered by its n-gram query regardless of the analyzer of the table.
+     * 
+     * @param tableName, the name of the table, must be unique, case is not sensitive
+     * @param indexDirectory, the directory to store the index and data, must not duplicate with other tables' directories
+     * @param schema, the schema of the table
+     * @param luceneAnalyzerString, the string representing the lucene analyzer used
+     * @param gramIndexAttributes, the TEXT attributes to add an n-gram index to
+     * @throws StorageException
+     */
+    public void createTable(String tableName, Path indexDirectory, Schema schema, String luceneAnalyzerString,
+            List<String> gramIndexAttributes) throws StorageException {
+        createTable(tableName, indexDirectory, schema, luceneAnalyzerString, gramIndexAttributes, 
+                StorageProfile.DEFAULT);
+    }
+
+    /**
+     * Creates a new table, with a secondary n-gram index on some of its TEXT attributes,
+     *   whose TEXT attributes are indexed according to a storage profile (see StorageProfile).
+     * 
+     * @param tableName, the name of the table, must be unique, case is not sensitive
+     * @param indexDirectory, the directory to store the index and data, must not duplicate with other tables' directories
+     * @param schema, the schema of the table
+     * @param luceneAnalyzerString, the string representing the lucene analyzer used
+     * @param gramIndexAttributes, the TEXT attributes to add an n-gram index to
+     * @param storageProfile, decides if the term vectors and the offsets of the TEXT attributes are kept
+     * @throws StorageException
+     */
+    public void createTable(String tableName, Path indexDirectory, Schema schema, String luceneAnalyzerString,
+            List<String> gramIndexAttributes, StorageProfile storageProfile) throws StorageException {
         // convert the table name to lower case
         tableName = tableName.toLowerCase();
         // table should not exist
@@ -119,6 +191,19 @@ public class RelationManager {
             throw new StorageException("Lucene Analyzer String is not valid.");
         }
         
+        // only TEXT attributes of the table can have an n-gram index
+        for (String attributeName : gramIndexAttributes) {
+            if (! schema.containsAttribute(attributeName) || 
+                    schema.getAttribute(attributeName).getType() != AttributeType.TEXT) {
+                throw new StorageException(String.format(
+                        "Attribute %s can't have an n-gram index, it's not a TEXT attribute of table %s.", 
+                        attributeName, tableName));
+            }
+        }
+        
+        // readers left in the pool by a previous index in the same directory must not be reused
+        IndexSearcherPool.getInstance().invalidate(indexDirectory);
+        
         // create the directory and clear all data in the index directory
         Schema tableSchema = Schema.Builder.getSchemaWithID(schema);
         DataStore tableDataStore = new DataStore(indexDirectory, tableSchema);
@@ -128,7 +213,9 @@ public class RelationManager {
         dataWriter.close();
         
         // write table info to catalog
-        writeTableInfoToCatalog(tableName, indexDirectory, schema, luceneAnalyzerString);
+        writeTableInfoToCatalog(tableName, indexDirectory, schema, luceneAnalyzerString, gramIndexAttributes, 
+                storageProfile);
+        invalidateTableCatalogCache(tableName);
 
     }
 
@@ -156,6 +243,8 @@ public class RelationManager {
         dataWriter.open();
         dataWriter.clearData();
         dataWriter.close();
+        // close the shared readers of the table before its directory is deleted
+        IndexSearcherPool.getInstance().invalidate(Paths.get(getTableDirectory(tableName)));
         StorageUtils.deleteDirectory(getTableDirectory(tableName));
 
         // generate a query for the table name
@@ -175,6 +264,8 @@ public class RelationManager {
         schemaCatalogWriter.deleteTuple(catalogTableNameQuery);
         schemaCatalogWriter.close();
         
+        invalidateTableCatalogCache(tableName);
+        
     }
     
     /**
@@ -201,6 +292,16 @@ public class RelationManager {
         return tuple;
     }
     
+    /**
+     * Gets the pool of the index searchers shared by the DataReaders of all tables,
+     *   which also provides the metrics of the pool.
+     * 
+     * @return
+     */
+    public IndexSearcherPool getIndexSearcherPool() {
+        return IndexSearcherPool.getInstance();
+    }
+    
     /**
      * Gets the DataWriter of a table. 
      * The DataWriter can be used to insert/delete/update tuples in a table.
@@ -213,7 +314,8 @@ public class RelationManager {
         if (isSystemCatalog(tableName)) {
             throw new StorageException("modify system catalog is not allowed");
         }
-        return new DataWriter(getTableDataStore(tableName), getTableAnalyzer(tableName));
+        return new DataWriter(getTableDataStore(tableName), getTableAnalyzer(tableName), 
+                getTableGramIndexAttributes(tableName), getTableStorageProfile(tableName));
     }
     
     /**
@@ -227,7 +329,22 @@ public class RelationManager {
      */
     public DataReader getTableDataReader(String tableName, Query tupleQuery) throws StorageException {
         DataStore tableDataStore = getTableDataStore(tableName);
-        return new DataReader(tableDataStore, tupleQuery);
+        DataReader dataReader = new DataReader(tableDataStore, tupleQuery);
+        dataReader.setPayloadAnalyzer(getTableAnalyzer(tableName));
+        dataReader.setStorageProfile(getTableStorageProfile(tableName));
+        return dataReader;
+    }
+    
+    /**
+     * Gets a searcher of a table that can be shared by the DataReaders of the partitions of a scan,
+     *   so that they all read the same snapshot of the table (see DataReader.setPartition()).
+     * 
+     * @param tableName, the name of the table, case insensitive
+     * @return
+     * @throws StorageException
+     */
+    public SharedSearcher getTableSharedSearcher(String tableName) throws StorageException {
+        return new SharedSearcher(getTableDataStore(tableName).getDataDirectory());
     }
     
     /**
@@ -251,17 +368,13 @@ public class RelationManager {
      * @throws StorageException
      */
     public String getTableDirectory(String tableName) throws StorageException {
-        // get the tuples with tableName from the table catalog
-        Tuple tableCatalogTuple = getTableCatalogTuple(tableName);
+        TableCatalogEntry tableCatalogEntry = getTableCatalogEntry(tableName);
         
-        // if the tuple is not found, then the table name is not found
-        if (tableCatalogTuple == null) {
+        // if the entry is not found, then the table name is not found
+        if (tableCatalogEntry == null) {
             throw new StorageException(String.format("The directory for table %s is not found.", tableName));
         }
-
-        // get the directory field
-        IField directoryField = tableCatalogTuple.getField(CatalogConstants.TABLE_DIRECTORY);
-        return directoryField.getValue().toString();
+        return tableCatalogEntry.directory;
     }
 
     /**
@@ -272,14 +385,19 @@ public class RelationManager {
      * @throws StorageException
      */
     public Schema getTableSchema(String tableName) throws StorageException {
-        // get the tuples with tableName from the schema catalog
-        List<Tuple> tableAttributeTuples = getSchemaCatalogTuples(tableName);
-
-        // if the list is empty, then the schema is not found
-        if (tableAttributeTuples.isEmpty()) {
+        TableCatalogEntry tableCatalogEntry = getTableCatalogEntry(tableName);
+        
+        // if the entry is not found, then the schema is not found
+        if (tableCatalogEntry == null) {
             throw new StorageException(String.format("The schema of table %s is not found.", tableName));
         }
-        
+        return tableCatalogEntry.schema;
+    }
+    
+    /*
+     * Converts the tuples of a table in the schema catalog to the schema of the table.
+     */
+    private static Schema convertSchemaCatalogTuples(List<Tuple> tableAttributeTuples) {
         // convert the unordered list of tuples to an order list of attributes
         List<Attribute> tableSchemaData = tableAttributeTuples.stream()
                 // sort the tuples based on the attributePosition field.
@@ -301,19 +419,110 @@ public class RelationManager {
      * @throws StorageException
      */
     public String getTableAnalyzerString(String tableName) throws StorageException {
-        // get the tuples with tableName from the table catalog
-        Tuple tableCatalogTuple = getTableCatalogTuple(tableName);
+        TableCatalogEntry tableCatalogEntry = getTableCatalogEntry(tableName);
         
-        // if the tuple is not found, then the table name is not found
-        if (tableCatalogTuple == null) {
+        // if the entry is not found, then the table name is not found
+        if (tableCatalogEntry == null) {
             throw new StorageException(String.format("The analyzer for table %s is not found.", tableName));
         }
+        return tableCatalogEntry.analyzerString;
+    }
+
+    /**
+     * Gets the TEXT attributes of a table that have a secondary n-gram index.
+     * The Lucene field of the index of an attribute is LuceneAnalyzerConstants.getGramIndexFieldName(attributeName).
+     *   
+     * @param tableName, the name of the table, case insensitive
+     * @return
+     * @throws StorageException
+     */
+    public List<String> getTableGramIndexAttributes(String tableName) throws StorageException {
+        TableCatalogEntry tableCatalogEntry = getTableCatalogEntry(tableName);
+        if (tableCatalogEntry == null) {
+            throw new StorageException(String.format("The n-gram indexes of table %s are not found.", tableName));
+        }
+        return new ArrayList<>(tableCatalogEntry.gramIndexAttributes);
+    }
+
+    /**
+     * Gets the storage profile of a table, which decides how its TEXT attributes are indexed.
+     *   
+     * @param tableName, the name of the table, case insensitive
+     * @return
+     * @throws StorageException
+     */
+    public StorageProfile getTableStorageProfile(String tableName) throws StorageException {
+        TableCatalogEntry tableCatalogEntry = getTableCatalogEntry(tableName);
+        if (tableCatalogEntry == null) {
+            throw new StorageException(String.format("The storage profile of table %s is not found.", tableName));
+        }
+        return tableCatalogEntry.storageProfile;
+    }
+    
+    /**
+     * Estimates the fraction of the tuples of a table that match a query, by counting the matching documents in the index.
+     * Counting only walks the postings of the query, so it's much cheaper than reading the tuples.
+     *   
+     * @param tableName, the name of the table, case insensitive
+     * @param query, the query to run on the table
+     * @return the selectivity, from 0 to 1, it's 1 if the table is empty
+     * @throws StorageException
+     */
+    public double estimateSelectivity(String tableName, Query query) throws StorageException {
+        Path tableDirectory = Paths.get(getTableDirectory(tableName));
+        IndexSearcher indexSearcher = IndexSearcherPool.getInstance().acquire(tableDirectory);
+        try {
+            int numDocs = indexSearcher.getIndexReader().numDocs();
+            if (numDocs == 0) {
+                return 1;
+            }
+            return indexSearcher.count(query) * 1.0 / numDocs;
+        } catch (IOException e) {
+            throw new StorageException(e.getMessage(), e);
+        } finally {
+            IndexSearcherPool.getInstance().release(tableDirectory, indexSearcher);
+        }
+    }
+    
+    /**
+     * Checks if an INTEGER, DOUBLE, DATE or DATETIME attribute of a table is range-indexed 
+     *   (see StorageUtils.getLuceneFields()), so that a comparison on it can be looked up by a NumericRangeQuery.
+     * Tables written before range indexes were introduced index dates as strings and have no doc values,
+     *   so the attribute is range-indexed only if it has numeric doc values in every index segment.
+     *   
+     * @param tableName, the name of the table, case insensitive
+     * @param attributeName, the name of the attribute
+     * @return
+     * @throws StorageException
+     */
+    public boolean isRangeIndexed(String tableName, String attributeName) throws StorageException {
+        Schema tableSchema = getTableSchema(tableName);
+        if (! tableSchema.containsAttribute(attributeName)) {
+            return false;
+        }
+        switch (tableSchema.getAttribute(attributeName).getType()) {
+        case INTEGER:
+        case DOUBLE:
+        case DATE:
+        case DATETIME:
+            break;
+        default:
+            return false;
+        }
         
-        // get the lucene analyzer string
-        IField analyzerField = tableCatalogTuple.getField(CatalogConstants.TABLE_LUCENE_ANALYZER);
-        String analyzerString = analyzerField.getValue().toString();
-        
-        return analyzerString;
+        Path tableDirectory = Paths.get(getTableDirectory(tableName));
+        IndexSearcher indexSearcher = IndexSearcherPool.getInstance().acquire(tableDirectory);
+        try {
+            for (LeafReaderContext leafContext : indexSearcher.getIndexReader().leaves()) {
+                FieldInfo fieldInfo = leafContext.reader().getFieldInfos().fieldInfo(attributeName);
+                if (fieldInfo != null && fieldInfo.getDocValuesType() != DocValuesType.NUMERIC) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            IndexSearcherPool.getInstance().release(tableDirectory, indexSearcher);
+        }
     }
 
     /**
@@ -324,31 +533,81 @@ public class RelationManager {
      * @throws StorageException
      */
     public Analyzer getTableAnalyzer(String tableName) throws StorageException {
-        String analyzerString = getTableAnalyzerString(tableName);
+        TableCatalogEntry tableCatalogEntry = getTableCatalogEntry(tableName);
+        if (tableCatalogEntry == null) {
+            throw new StorageException(String.format("The analyzer for table %s is not found.", tableName));
+        }
         
-        // convert a lucene analyzer string to an analyzer object
-        Analyzer luceneAnalyzer = null;
-        try {
-            luceneAnalyzer = LuceneAnalyzerConstants.getLuceneAnalyzer(analyzerString);
-        } catch (DataflowException e) {
-            throw new StorageException(e);
+        // convert a lucene analyzer string to an analyzer object, 
+        //   the analyzer is thread-safe, so it's created once and shared
+        if (tableCatalogEntry.analyzer == null) {
+            try {
+                tableCatalogEntry.analyzer = LuceneAnalyzerConstants.getLuceneAnalyzer(tableCatalogEntry.analyzerString);
+            } catch (DataflowException e) {
+                throw new StorageException(e);
+            }
         }
         
-        return luceneAnalyzer;
+        return tableCatalogEntry.analyzer;
+    }
+    
+    /*
+     * Gets the catalog information of a table from the cache, 
+     *   it reads the table catalog and the schema catalog if the table is not in the cache.
+     * Returns null if the table is not found.
+     */
+    private TableCatalogEntry getTableCatalogEntry(String tableName) throws StorageException {
+        tableName = tableName.toLowerCase();
+        TableCatalogEntry tableCatalogEntry = tableCatalogCache.get(tableName);
+        if (tableCatalogEntry != null) {
+            return tableCatalogEntry;
+        }
+        
+        // reading the catalog and caching the result is atomic with respect to invalidation,
+        //   so that a table being deleted is never cached again with its old information
+        synchronized (tableCatalogCache) {
+            Tuple tableCatalogTuple = getTableCatalogTuple(tableName);
+            List<Tuple> tableAttributeTuples = getSchemaCatalogTuples(tableName);
+            // the table doesn't exist, or it's still being created
+            if (tableCatalogTuple == null || tableAttributeTuples.isEmpty()) {
+                return null;
+            }
+            
+            tableCatalogEntry = new TableCatalogEntry(
+                    tableCatalogTuple.getField(CatalogConstants.TABLE_DIRECTORY).getValue().toString(),
+                    convertSchemaCatalogTuples(tableAttributeTuples),
+                    tableCatalogTuple.getField(CatalogConstants.TABLE_LUCENE_ANALYZER).getValue().toString(),
+                    CatalogConstants.getGramIndexAttributes(
+                            (String) tableCatalogTuple.getField(CatalogConstants.TABLE_GRAM_INDEX_ATTRIBUTES).getValue()),
+                    StorageProfile.fromString(
+                            (String) tableCatalogTuple.getField(CatalogConstants.TABLE_STORAGE_PROFILE).getValue()));
+            tableCatalogCache.put(tableName, tableCatalogEntry);
+            return tableCatalogEntry;
+        }
+    }
+    
+    /*
+     * Removes a table from the catalog cache, it must be called after the catalog of the table is modified.
+     */
+    private void invalidateTableCatalogCache(String tableName) {
+        synchronized (tableCatalogCache) {
+            tableCatalogCache.remove(tableName.toLowerCase());
+        }
     }
     
     /*
      * This is a helper function that writes the table information to 
      *   the table catalog and the schema catalog.
      */
-    private void writeTableInfoToCatalog(String tableName, Path indexDirectory, Schema schema, String luceneAnalyzerString) 
-            throws StorageException {   
+    private void writeTableInfoToCatalog(String tableName, Path indexDirectory, Schema schema, String luceneAnalyzerString,
+            List<String> gramIndexAttributes, StorageProfile storageProfile) throws StorageException {   
         // write table catalog
         DataStore tableCatalogStore = new DataStore(CatalogConstants.TABLE_CATALOG_DIRECTORY,
                 CatalogConstants.TABLE_CATALOG_SCHEMA);
         DataWriter dataWriter = new DataWriter(tableCatalogStore, LuceneAnalyzerConstants.getStandardAnalyzer());
         dataWriter.open();
-        dataWriter.insertTuple(CatalogConstants.getTableCatalogTuple(tableName, indexDirectory, luceneAnalyzerString));
+        dataWriter.insertTuple(CatalogConstants.getTableCatalogTuple(tableName, indexDirectory, luceneAnalyzerString,
+                gramIndexAttributes, storageProfile));
         dataWriter.close();
        
         // write schema catalog
@@ -436,18 +695,44 @@ public class RelationManager {
             writeTableInfoToCatalog(CatalogConstants.TABLE_CATALOG.toLowerCase(), 
             			CatalogConstants.TABLE_CATALOG_DIRECTORY.toRealPath(),
             			CatalogConstants.TABLE_CATALOG_SCHEMA,
-            			LuceneAnalyzerConstants.standardAnalyzerString());
+            			LuceneAnalyzerConstants.standardAnalyzerString(),
+            			new ArrayList<>(),
+            			StorageProfile.DEFAULT);
             // create schema catalog
             writeTableInfoToCatalog(CatalogConstants.SCHEMA_CATALOG.toLowerCase(),
         				CatalogConstants.SCHEMA_CATALOG_DIRECTORY.toRealPath(),
                     	CatalogConstants.SCHEMA_CATALOG_SCHEMA,
-                    	LuceneAnalyzerConstants.standardAnalyzerString()); 
+                    	LuceneAnalyzerConstants.standardAnalyzerString(),
+                    	new ArrayList<>(),
+                    	StorageProfile.DEFAULT); 
         } catch (IOException e) {
             throw new StorageException(e);
         }
     }
     
     
+    /*
+     * Upgrades a catalog written by an earlier version, whose table catalog has fewer attributes:
+     *   the schema of the table catalog in the schema catalog is rewritten to the current one.
+     * The tuples of the table catalog are not rewritten, the attributes they don't have are read as null.
+     */
+    private void upgradeCatalog() throws StorageException {
+        String tableCatalogName = CatalogConstants.TABLE_CATALOG.toLowerCase();
+        Schema tableCatalogSchema = Schema.Builder.getSchemaWithID(CatalogConstants.TABLE_CATALOG_SCHEMA);
+        if (convertSchemaCatalogTuples(getSchemaCatalogTuples(tableCatalogName)).equals(tableCatalogSchema)) {
+            return;
+        }
+        
+        DataWriter schemaCatalogWriter = new DataWriter(CatalogConstants.SCHEMA_CATALOG_DATASTORE,
+                LuceneAnalyzerConstants.getStandardAnalyzer());
+        schemaCatalogWriter.open();
+        schemaCatalogWriter.deleteTuple(new TermQuery(new Term(CatalogConstants.TABLE_NAME, tableCatalogName)));
+        for (Tuple tuple : CatalogConstants.getSchemaCatalogTuples(tableCatalogName, tableCatalogSchema)) {
+            schemaCatalogWriter.insertTuple(tuple);
+        }
+        schemaCatalogWriter.close();
+    }
+    
     /*
      * Converts a attributeTypeString to AttributeType (case insensitive).
      * It returns null if string is not a valid type.
@@ -0,0 +1,55 @@
+package edu.uci.ics.texera.storage;
+
+import java.nio.file.Path;
+
+import org.apache.lucene.search.IndexSearcher;
+
+import edu.uci.ics.texera.api.exception.StorageException;
+
+/**
+ * SharedSearcher is one searcher of an index shared by the DataReaders of the partitions of a scan
+ *   (see DataReader.setPartition()), so that all the partitions split the doc IDs of the same snapshot of the index,
+ *   even if the index is refreshed while they are being opened.
+ *
+ * The searcher is acquired from IndexSearcherPool when the first of the readers is opened,
+ *   and released when the last of them is closed.
+ *
+ * SharedSearcher for a specific table is only accessible from RelationManager.
+ *
+ */
+public class SharedSearcher {
+
+    private final Path indexDirectory;
+
+    private IndexSearcher indexSearcher = null;
+    private int numOpenReaders = 0;
+
+    SharedSearcher(Path indexDirectory) {
+        this.indexDirectory = indexDirectory;
+    }
+
+    synchronized IndexSearcher acquire() throws StorageException {
+        if (indexSearcher == null) {
+            indexSearcher = IndexSearcherPool.getInstance().acquire(indexDirectory);
+        }
+        numOpenReaders++;
+        return indexSearcher;
+    }
+
+    synchronized void release() throws StorageException {
+        if (numOpenReaders == 0) {
+            throw new StorageException("the shared searcher of " + indexDirectory + " is not acquired");
+        }
+        numOpenReaders--;
+        if (numOpenReaders == 0) {
+            IndexSearcher releasedSearcher = indexSearcher;
+            indexSearcher = null;
+            IndexSearcherPool.getInstance().release(indexDirectory, releasedSearcher);
+        }
+    }
+
+    Path getIndexDirectory() {
+        return indexDirectory;
+    }
+
+}
@@ -0,0 +1,65 @@
+package edu.uci.ics.texera.storage;
+
+import edu.uci.ics.texera.api.exception.StorageException;
+
+/**
+ * StorageProfile decides how the TEXT attributes of a table are indexed, it's chosen when the table is created
+ *   and kept in the table catalog.
+ *
+ * All the profiles store the text and index the positions of the tokens, so all the keyword queries work.
+ *   They trade the size of the index for the cost of building the payload (see DataReader):
+ *
+ *   TERM_VECTORS: the postings have the character offsets, and the term vectors are stored as well,
+ *     the payload is read from the term vectors. The text is kept three times (stored field, postings, term vectors).
+ *   POSTINGS_OFFSETS: the postings have the character offsets, there are no term vectors,
+ *     the payload is rebuilt by analyzing the stored text again.
+ *   NONE: the postings only have the positions, there are no term vectors,
+ *     the payload is rebuilt by analyzing the stored text again.
+ *
+ * Tables created before the storage profile was added to the catalog have term vectors.
+ *
+ */
+public enum StorageProfile {
+
+    TERM_VECTORS(true, true),
+    POSTINGS_OFFSETS(false, true),
+    NONE(false, false);
+
+    public static final StorageProfile DEFAULT = TERM_VECTORS;
+
+    private final boolean termVectorsStored;
+    private final boolean offsetsIndexed;
+
+    private StorageProfile(boolean termVectorsStored, boolean offsetsIndexed) {
+        this.termVectorsStored = termVectorsStored;
+        this.offsetsIndexed = offsetsIndexed;
+    }
+
+    public boolean isTermVectorsStored() {
+        return termVectorsStored;
+    }
+
+    public boolean isOffsetsIndexed() {
+        return offsetsIndexed;
+    }
+
+    /**
+     * Gets the storage profile of its name in the table catalog (case insensitive).
+     *
+     * @param storageProfileStr, the value in the table catalog, null if the tuple doesn't have it
+     * @return
+     * @throws StorageException if the name is not a storage profile
+     */
+    public static StorageProfile fromString(String storageProfileStr) throws StorageException {
+        if (storageProfileStr == null || storageProfileStr.isEmpty()) {
+            return DEFAULT;
+        }
+        for (StorageProfile storageProfile : values()) {
+            if (storageProfile.name().equalsIgnoreCase(storageProfileStr)) {
+                return storageProfile;
+            }
+        }
+        throw new StorageException(String.format("Storage profile %s is not valid.", storageProfileStr));
+    }
+
+}
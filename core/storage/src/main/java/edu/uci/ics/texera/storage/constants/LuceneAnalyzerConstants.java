@@ -24,6 +24,12 @@ public class LuceneAnalyzerConstants {
     
     public static final String CHINESE_ANALYZER = "chinese";
     
+    /*
+     * The gram length of the secondary n-gram index of a TEXT attribute,
+     *   which is the gram length that regexes are translated to n-gram queries by.
+     */
+    public static final int GRAM_INDEX_GRAM_NUM = 3;
+    
     
     public static String standardAnalyzerString() {
         return STANDARD_ANALYZER;
@@ -71,6 +77,25 @@ public class LuceneAnalyzerConstants {
     }
 
 
+    /**
+     * Gets the name of the Lucene field of the secondary n-gram index of a TEXT attribute.
+     * The field is only indexed, it's not stored and not part of the table schema.
+     * 
+     * @param attributeName
+     * @return
+     */
+    public static String getGramIndexFieldName(String attributeName) {
+        return "_" + GRAM_INDEX_GRAM_NUM + "gram_" + attributeName;
+    }
+
+    /**
+     * @return the analyzer of the secondary n-gram index fields
+     * @throws DataflowException
+     */
+    public static Analyzer getGramIndexAnalyzer() throws DataflowException {
+        return getNGramAnalyzer(GRAM_INDEX_GRAM_NUM);
+    }
+
     public static Analyzer getStandardAnalyzer() {
         return new StandardAnalyzer();
     }
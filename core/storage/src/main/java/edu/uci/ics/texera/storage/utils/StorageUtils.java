@@ -8,11 +8,22 @@ import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.text.ParseException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
 
+import org.apache.lucene.document.Field;
 import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.LongField;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
 import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.util.NumericUtils;
 
 import edu.uci.ics.texera.api.exception.StorageException;
 import edu.uci.ics.texera.api.field.DateField;
@@ -25,9 +36,51 @@ import edu.uci.ics.texera.api.field.ListField;
 import edu.uci.ics.texera.api.field.StringField;
 import edu.uci.ics.texera.api.field.TextField;
 import edu.uci.ics.texera.api.schema.AttributeType;
+import edu.uci.ics.texera.storage.StorageProfile;
+import edu.uci.ics.texera.storage.constants.LuceneAnalyzerConstants;
 
 public class StorageUtils {
     
+    /*
+     * The field types of TEXT fields of each storage profile. 
+     * By default we enable positional indexing in Lucene so that we can return
+     *   information about character offsets and token offsets.
+     * The field types are frozen, so they're shared by all the TEXT fields instead of being created for each.
+     */
+    private static final EnumMap<StorageProfile, org.apache.lucene.document.FieldType> TEXT_FIELD_TYPES = 
+            new EnumMap<>(StorageProfile.class);
+    static {
+        for (StorageProfile storageProfile : StorageProfile.values()) {
+            org.apache.lucene.document.FieldType textFieldType = new org.apache.lucene.document.FieldType();
+            textFieldType.setIndexOptions(storageProfile.isOffsetsIndexed() ? 
+                    IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS : IndexOptions.DOCS_AND_FREQS_AND_POSITIONS);
+            textFieldType.setStored(true);
+            if (storageProfile.isTermVectorsStored()) {
+                textFieldType.setStoreTermVectors(true);
+                textFieldType.setStoreTermVectorOffsets(true);
+                textFieldType.setStoreTermVectorPayloads(true);
+                textFieldType.setStoreTermVectorPositions(true);
+            }
+            textFieldType.setTokenized(true);
+            textFieldType.freeze();
+            TEXT_FIELD_TYPES.put(storageProfile, textFieldType);
+        }
+    }
+    
+    /*
+     * The field type of the secondary n-gram index fields: they only need to tell which documents contain a gram,
+     *   so neither the text, nor the frequencies, positions and term vectors are kept.
+     */
+    private static final org.apache.lucene.document.FieldType GRAM_INDEX_FIELD_TYPE = 
+            new org.apache.lucene.document.FieldType();
+    static {
+        GRAM_INDEX_FIELD_TYPE.setIndexOptions(IndexOptions.DOCS);
+        GRAM_INDEX_FIELD_TYPE.setTokenized(true);
+        GRAM_INDEX_FIELD_TYPE.setStored(false);
+        GRAM_INDEX_FIELD_TYPE.setOmitNorms(true);
+        GRAM_INDEX_FIELD_TYPE.freeze();
+    }
+    
     public static IField getField(AttributeType attributeType, String fieldValue) throws ParseException {
         IField field = null;
         switch (attributeType) {
@@ -61,50 +114,155 @@ public class StorageUtils {
         return field;
     }
 
-    public static IndexableField getLuceneField(AttributeType attributeType, String attributeName, Object fieldValue) {
-        IndexableField luceneField = null;
+    /**
+     * Gets the Lucene fields of an attribute value.
+     * 
+     * INTEGER, DOUBLE, DATE and DATETIME values are range-indexed: 
+     *   they are indexed as numeric (trie) terms, which NumericRangeQuery looks up, 
+     *   and also kept as numeric doc values.
+     *   DATE and DATETIME values are indexed as the long values of dateToIndexValue() and dateTimeToIndexValue(),
+     *   and only stored as strings.
+     * 
+     * @param attributeType
+     * @param attributeName
+     * @param fieldValue
+     * @return the Lucene fields, with the same name as the attribute
+     */
+    public static List<Field> getLuceneFields(AttributeType attributeType, String attributeName, Object fieldValue) {
+        return getLuceneFields(attributeType, attributeName, fieldValue, StorageProfile.DEFAULT);
+    }
+
+    /**
+     * Gets the Lucene fields of an attribute value in a table of a storage profile, 
+     *   which decides how TEXT values are indexed.
+     * 
+     * @param attributeType
+     * @param attributeName
+     * @param fieldValue
+     * @param storageProfile
+     * @return the Lucene fields, with the same name as the attribute
+     */
+    public static List<Field> getLuceneFields(AttributeType attributeType, String attributeName, Object fieldValue,
+            StorageProfile storageProfile) {
+        List<Field> luceneFields = new ArrayList<>();
         switch (attributeType) {
         // _ID_TYPE is currently same as STRING
         case _ID_TYPE:
         case STRING:
-            luceneField = new org.apache.lucene.document.StringField(attributeName, (String) fieldValue, Store.YES);
+            luceneFields.add(new org.apache.lucene.document.StringField(attributeName, (String) fieldValue, Store.YES));
             break;
         case INTEGER:
-            luceneField = new org.apache.lucene.document.IntField(attributeName, (Integer) fieldValue, Store.YES);
+            luceneFields.add(new org.apache.lucene.document.IntField(attributeName, (Integer) fieldValue, Store.YES));
+            luceneFields.add(new NumericDocValuesField(attributeName, (Integer) fieldValue));
             break;
         case DOUBLE:
-            luceneField = new org.apache.lucene.document.DoubleField(attributeName, (Double) fieldValue, Store.YES);
+            luceneFields.add(new org.apache.lucene.document.DoubleField(attributeName, (Double) fieldValue, Store.YES));
+            luceneFields.add(new NumericDocValuesField(attributeName, NumericUtils.doubleToSortableLong((Double) fieldValue)));
             break;
         case DATE:
-            String dateString = fieldValue.toString();
-            luceneField = new org.apache.lucene.document.StringField(attributeName, dateString, Store.YES);
+            long dateValue = dateToIndexValue((LocalDate) fieldValue);
+            luceneFields.add(new StoredField(attributeName, fieldValue.toString()));
+            luceneFields.add(new LongField(attributeName, dateValue, Store.NO));
+            luceneFields.add(new NumericDocValuesField(attributeName, dateValue));
             break;
         case DATETIME:
-            String dateTimeString = fieldValue.toString();
-            luceneField = new org.apache.lucene.document.StringField(attributeName, dateTimeString, Store.YES);
+            long dateTimeValue = dateTimeToIndexValue((LocalDateTime) fieldValue);
+            luceneFields.add(new StoredField(attributeName, fieldValue.toString()));
+            luceneFields.add(new LongField(attributeName, dateTimeValue, Store.NO));
+            luceneFields.add(new NumericDocValuesField(attributeName, dateTimeValue));
             break;
         case TEXT:
-            // By default we enable positional indexing in Lucene so that we can
-            // return
-            // information about character offsets and token offsets
-            org.apache.lucene.document.FieldType luceneFieldType = new org.apache.lucene.document.FieldType();
-            luceneFieldType.setIndexOptions(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS);
-            luceneFieldType.setStored(true);
-            luceneFieldType.setStoreTermVectors(true);
-            luceneFieldType.setStoreTermVectorOffsets(true);
-            luceneFieldType.setStoreTermVectorPayloads(true);
-            luceneFieldType.setStoreTermVectorPositions(true);
-            luceneFieldType.setTokenized(true);
-
-            luceneField = new org.apache.lucene.document.Field(attributeName, (String) fieldValue, luceneFieldType);
-
+            luceneFields.add(new org.apache.lucene.document.Field(attributeName, (String) fieldValue, 
+                    TEXT_FIELD_TYPES.get(storageProfile)));
             break;
         case LIST:
             // Lucene doesn't have list field
             // WARNING! This case should never be reached.
             break;
         }
-        return luceneField;
+        return luceneFields;
+    }
+    
+    /**
+     * Sets the value of the Lucene fields created by getLuceneFields(), 
+     *   so that the fields can be reused for the next document.
+     * 
+     * @param attributeType
+     * @param luceneFields
+     * @param fieldValue
+     */
+    public static void setLuceneFieldValues(AttributeType attributeType, List<Field> luceneFields, Object fieldValue) {
+        switch (attributeType) {
+        case _ID_TYPE:
+        case STRING:
+        case TEXT:
+            luceneFields.get(0).setStringValue((String) fieldValue);
+            break;
+        case INTEGER:
+            luceneFields.get(0).setIntValue((Integer) fieldValue);
+            luceneFields.get(1).setLongValue((Integer) fieldValue);
+            break;
+        case DOUBLE:
+            luceneFields.get(0).setDoubleValue((Double) fieldValue);
+            luceneFields.get(1).setLongValue(NumericUtils.doubleToSortableLong((Double) fieldValue));
+            break;
+        case DATE:
+            long dateValue = dateToIndexValue((LocalDate) fieldValue);
+            luceneFields.get(0).setStringValue(fieldValue.toString());
+            luceneFields.get(1).setLongValue(dateValue);
+            luceneFields.get(2).setLongValue(dateValue);
+            break;
+        case DATETIME:
+            long dateTimeValue = dateTimeToIndexValue((LocalDateTime) fieldValue);
+            luceneFields.get(0).setStringValue(fieldValue.toString());
+            luceneFields.get(1).setLongValue(dateTimeValue);
+            luceneFields.get(2).setLongValue(dateTimeValue);
+            break;
+        case LIST:
+            // Lucene doesn't have list field
+            // WARNING! This case should never be reached.
+            break;
+        }
+    }
+    
+    /**
+     * Converts a date to the long value it's range-indexed by: the number of days since 1970-01-01.
+     * 
+     * @param date
+     * @return
+     */
+    public static long dateToIndexValue(LocalDate date) {
+        return date.toEpochDay();
+    }
+    
+    /**
+     * Converts a date time to the long value it's range-indexed by: the number of nanoseconds since 1970-01-01T00:00.
+     *   The date times that don't fit in a long (before 1677 or after 2262) are clamped to Long.MIN_VALUE or Long.MAX_VALUE,
+     *   so they still compare correctly with any date time in between.
+     * 
+     * @param dateTime
+     * @return
+     */
+    public static long dateTimeToIndexValue(LocalDateTime dateTime) {
+        long epochSecond = dateTime.toEpochSecond(ZoneOffset.UTC);
+        try {
+            return Math.addExact(Math.multiplyExact(epochSecond, 1_000_000_000L), dateTime.getNano());
+        } catch (ArithmeticException e) {
+            return epochSecond < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+    
+    /**
+     * Gets the Lucene field of the secondary n-gram index of a TEXT attribute,
+     *   which must be analyzed by LuceneAnalyzerConstants.getGramIndexAnalyzer().
+     * 
+     * @param attributeName
+     * @param fieldValue
+     * @return
+     */
+    public static IndexableField getGramIndexLuceneField(String attributeName, Object fieldValue) {
+        return new org.apache.lucene.document.Field(LuceneAnalyzerConstants.getGramIndexFieldName(attributeName), 
+                (String) fieldValue, GRAM_INDEX_FIELD_TYPE);
     }
     
     public static void deleteDirectory(String indexDir) throws StorageException {
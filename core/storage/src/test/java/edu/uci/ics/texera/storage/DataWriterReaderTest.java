@@ -1,16 +1,28 @@
 package edu.uci.ics.texera.storage;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 
+import org.apache.lucene.index.TieredMergePolicy;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import edu.uci.ics.texera.api.constants.SchemaConstants;
 import edu.uci.ics.texera.api.constants.test.TestConstants;
+import edu.uci.ics.texera.api.exception.StorageException;
 import edu.uci.ics.texera.api.exception.TexeraException;
+import edu.uci.ics.texera.api.field.ListField;
+import edu.uci.ics.texera.api.field.TextField;
+import edu.uci.ics.texera.api.schema.Attribute;
+import edu.uci.ics.texera.api.schema.AttributeType;
+import edu.uci.ics.texera.api.schema.Schema;
+import edu.uci.ics.texera.api.span.LazyPayload;
+import edu.uci.ics.texera.api.span.Span;
 import edu.uci.ics.texera.api.tuple.Tuple;
 import edu.uci.ics.texera.api.utils.TestUtils;
 import edu.uci.ics.texera.storage.constants.LuceneAnalyzerConstants;
@@ -18,6 +30,8 @@ import edu.uci.ics.texera.storage.constants.LuceneAnalyzerConstants;
 public class DataWriterReaderTest {
     
     public static final String PEOPLE_TABLE = "data_writer_reader_test_people";
+    public static final String BULK_PEOPLE_TABLE = "data_writer_reader_test_bulk_people";
+    public static final String PARTITION_PEOPLE_TABLE = "data_writer_reader_test_partition_people";
 
     @BeforeClass
     public static void setUp() throws TexeraException {
@@ -39,6 +53,23 @@ public class DataWriterReaderTest {
     public static void cleanUp() throws TexeraException {
         RelationManager relationManager = RelationManager.getInstance();
         relationManager.deleteTable(PEOPLE_TABLE);
+        relationManager.deleteTable(BULK_PEOPLE_TABLE);
+        relationManager.deleteTable(PARTITION_PEOPLE_TABLE);
+    }
+    
+    private static List<Tuple> readAllTuples(String tableName) throws Exception {
+        DataReader dataReader = RelationManager.getInstance().getTableDataReader(
+                tableName, new MatchAllDocsQuery());
+        
+        Tuple nextTuple = null;
+        List<Tuple> returnedTuples = new ArrayList<Tuple>();
+        
+        dataReader.open();
+        while ((nextTuple = dataReader.getNextTuple()) != null) {
+            returnedTuples.add(nextTuple);
+        }
+        dataReader.close();
+        return returnedTuples;
     }
 
     @Test
@@ -58,4 +89,293 @@ public class DataWriterReaderTest {
         Assert.assertTrue(TestUtils.equals(TestConstants.getSamplePeopleTuples(), returnedTuples));
     }
 
+    @Test
+    public void testStreamingReadData() throws Exception {
+        DataReader dataReader = RelationManager.getInstance().getTableDataReader(
+                PEOPLE_TABLE, new MatchAllDocsQuery());
+        dataReader.setStreaming(true);
+        
+        Tuple nextTuple = null;
+        List<Tuple> returnedTuples = new ArrayList<Tuple>();
+        
+        dataReader.open();
+        while ((nextTuple = dataReader.getNextTuple()) != null) {
+            returnedTuples.add(nextTuple);
+        }
+        dataReader.close();
+        
+        Assert.assertTrue(TestUtils.equals(TestConstants.getSamplePeopleTuples(), returnedTuples));
+    }
+    
+    /*
+     * The partitions of a streaming reader must cover every tuple exactly once.
+     */
+    @Test
+    public void testStreamingReadPartitions() throws Exception {
+        List<Tuple> returnedTuples = new ArrayList<Tuple>();
+        int numPartitions = 4;
+        for (int i = 0; i < numPartitions; i++) {
+            DataReader dataReader = RelationManager.getInstance().getTableDataReader(
+                    PEOPLE_TABLE, new MatchAllDocsQuery());
+            dataReader.setStreaming(true);
+            dataReader.setPartition(i, numPartitions);
+            
+            dataReader.open();
+            List<Tuple> batch;
+            while (! (batch = dataReader.getNextBatch(1)).isEmpty()) {
+                returnedTuples.addAll(batch);
+            }
+            dataReader.close();
+        }
+        
+        Assert.assertTrue(TestUtils.equals(TestConstants.getSamplePeopleTuples(), returnedTuples));
+    }
+    
+    /*
+     * The partitions sharing a searcher must cover every tuple exactly once,
+     *   and read the same snapshot of the table even if tuples are inserted between their opens.
+     */
+    @Test
+    public void testSharedSearcherReadPartitions() throws Exception {
+        RelationManager relationManager = RelationManager.getInstance();
+        relationManager.createTable(PARTITION_PEOPLE_TABLE, 
+                TestUtils.getDefaultTestIndex().resolve(PARTITION_PEOPLE_TABLE), 
+                TestConstants.SCHEMA_PEOPLE, LuceneAnalyzerConstants.standardAnalyzerString());
+        DataWriter dataWriter = relationManager.getTableDataWriter(PARTITION_PEOPLE_TABLE);
+        dataWriter.open();
+        for (Tuple tuple : TestConstants.getSamplePeopleTuples()) {
+            dataWriter.insertTuple(tuple);
+        }
+        dataWriter.close();
+        
+        int numAcquiredSearchers = IndexSearcherPool.getInstance().getNumAcquiredSearchers();
+        SharedSearcher sharedSearcher = relationManager.getTableSharedSearcher(PARTITION_PEOPLE_TABLE);
+        int numPartitions = 4;
+        List<DataReader> dataReaders = new ArrayList<>();
+        for (int i = 0; i < numPartitions; i++) {
+            DataReader dataReader = relationManager.getTableDataReader(
+                    PARTITION_PEOPLE_TABLE, new MatchAllDocsQuery());
+            dataReader.setPartition(i, numPartitions, sharedSearcher);
+            dataReaders.add(dataReader);
+        }
+        
+        dataReaders.get(0).open();
+        // the insert refreshes the pool, the other partitions must still split the snapshot of the first one
+        dataWriter.open();
+        for (Tuple tuple : TestConstants.getSamplePeopleTuples()) {
+            dataWriter.insertTuple(tuple);
+        }
+        dataWriter.close();
+        for (int i = 1; i < numPartitions; i++) {
+            dataReaders.get(i).open();
+        }
+        
+        List<Tuple> returnedTuples = new ArrayList<Tuple>();
+        for (DataReader dataReader : dataReaders) {
+            Tuple nextTuple = null;
+            while ((nextTuple = dataReader.getNextTuple()) != null) {
+                returnedTuples.add(nextTuple);
+            }
+            dataReader.close();
+        }
+        
+        Assert.assertTrue(TestUtils.equals(TestConstants.getSamplePeopleTuples(), returnedTuples));
+        Assert.assertEquals(numAcquiredSearchers, IndexSearcherPool.getInstance().getNumAcquiredSearchers());
+        Assert.assertEquals(2 * TestConstants.getSamplePeopleTuples().size(), 
+                readAllTuples(PARTITION_PEOPLE_TABLE).size());
+    }
+
+    /*
+     * A bulk load, with several chunks built on several threads and commits in between, 
+     *   must insert the same tuples as inserting them one by one.
+     */
+    @Test
+    public void testBulkInsertTuples() throws Exception {
+        RelationManager relationManager = RelationManager.getInstance();
+        relationManager.deleteTable(BULK_PEOPLE_TABLE);
+        relationManager.deleteTable(PARTITION_PEOPLE_TABLE);
+        relationManager.createTable(BULK_PEOPLE_TABLE, TestUtils.getDefaultTestIndex().resolve(BULK_PEOPLE_TABLE), 
+                TestConstants.SCHEMA_PEOPLE, LuceneAnalyzerConstants.standardAnalyzerString());
+        
+        List<Tuple> tuples = new ArrayList<>();
+        int numCopies = DataWriter.BULK_CHUNK_SIZE / TestConstants.getSamplePeopleTuples().size() * 3;
+        for (int i = 0; i < numCopies; i++) {
+            tuples.addAll(TestConstants.getSamplePeopleTuples());
+        }
+        
+        DataWriter dataWriter = relationManager.getTableDataWriter(BULK_PEOPLE_TABLE);
+        dataWriter.setNumIndexingThreads(4);
+        dataWriter.setRAMBufferSizeMB(32);
+        dataWriter.setMergePolicy(new TieredMergePolicy());
+        dataWriter.setCommitInterval(500);
+        dataWriter.open();
+        int numInserted = dataWriter.insertTuples(tuples);
+        dataWriter.close();
+        
+        Assert.assertEquals(tuples.size(), numInserted);
+        List<Tuple> returnedTuples = readAllTuples(BULK_PEOPLE_TABLE);
+        Assert.assertTrue(TestUtils.equals(tuples, returnedTuples));
+        Assert.assertEquals(tuples.size(), returnedTuples.stream()
+                .map(tuple -> tuple.getField(SchemaConstants._ID).getValue()).distinct().count());
+    }
+    
+    /*
+     * If the iterator of the tuples fails, the chunks submitted before the failure are still added
+     *   before the failure is thrown, so no indexing thread uses the writer after insertTuples() returns.
+     */
+    @Test
+    public void testBulkInsertIteratorFailure() throws Exception {
+        RelationManager relationManager = RelationManager.getInstance();
+        relationManager.deleteTable(BULK_PEOPLE_TABLE);
+        relationManager.deleteTable(PARTITION_PEOPLE_TABLE);
+        relationManager.createTable(BULK_PEOPLE_TABLE, TestUtils.getDefaultTestIndex().resolve(BULK_PEOPLE_TABLE), 
+                TestConstants.SCHEMA_PEOPLE, LuceneAnalyzerConstants.standardAnalyzerString());
+        
+        int numTuplesBeforeFailure = DataWriter.BULK_CHUNK_SIZE * 2;
+        Tuple tuple = TestConstants.getSamplePeopleTuples().get(0);
+        Iterable<Tuple> failingTuples = () -> new Iterator<Tuple>() {
+            int numReturned = 0;
+            
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+            
+            @Override
+            public Tuple next() {
+                if (numReturned == numTuplesBeforeFailure) {
+                    throw new IllegalStateException("upstream failure");
+                }
+                numReturned++;
+                return tuple;
+            }
+        };
+        
+        DataWriter dataWriter = relationManager.getTableDataWriter(BULK_PEOPLE_TABLE);
+        dataWriter.setNumIndexingThreads(4);
+        dataWriter.open();
+        try {
+            dataWriter.insertTuples(failingTuples);
+            Assert.fail("the failure of the iterator must be thrown");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("upstream failure", e.getMessage());
+        } finally {
+            dataWriter.close();
+        }
+        
+        Assert.assertEquals(numTuplesBeforeFailure, readAllTuples(BULK_PEOPLE_TABLE).size());
+    }
+    
+    /*
+     * The wrong tuple is in the first chunk, so the chunk is rejected before any of its tuples is inserted.
+     */
+    @Test
+    public void testBulkInsertWrongSchema() throws Exception {
+        Schema wrongSchema = new Schema(new Attribute("content", AttributeType.TEXT));
+        List<Tuple> tuples = new ArrayList<>(TestConstants.getSamplePeopleTuples());
+        tuples.add(new Tuple(wrongSchema, new TextField("not a person")));
+        
+        DataWriter dataWriter = RelationManager.getInstance().getTableDataWriter(PEOPLE_TABLE);
+        dataWriter.open();
+        try {
+            dataWriter.insertTuples(tuples);
+            Assert.fail("a tuple with a wrong schema must be rejected");
+        } catch (StorageException e) {
+        } finally {
+            dataWriter.close();
+        }
+        
+        Assert.assertTrue(TestUtils.equals(TestConstants.getSamplePeopleTuples(), readAllTuples(PEOPLE_TABLE)));
+    }
+
+    /*
+     * A projected reader only returns the _id and the projected attributes, 
+     *   and only builds the payload of the projected TEXT attributes.
+     */
+    @Test
+    public void testProjectedRead() throws Exception {
+        DataReader dataReader = RelationManager.getInstance().getTableDataReader(
+                PEOPLE_TABLE, new MatchAllDocsQuery());
+        dataReader.setPayloadAdded(true);
+        dataReader.setProjectedAttributes(Arrays.asList(TestConstants.DESCRIPTION, TestConstants.AGE.toUpperCase()));
+        
+        List<Tuple> returnedTuples = new ArrayList<>();
+        Tuple nextTuple;
+        dataReader.open();
+        while ((nextTuple = dataReader.getNextTuple()) != null) {
+            returnedTuples.add(nextTuple);
+        }
+        dataReader.close();
+        
+        Assert.assertEquals(Arrays.asList(SchemaConstants._ID, TestConstants.AGE, TestConstants.DESCRIPTION, 
+                SchemaConstants.PAYLOAD), dataReader.getOutputSchema().getAttributeNames());
+        
+        List<Tuple> expectedTuples = new ArrayList<>();
+        for (Tuple tuple : TestConstants.getSamplePeopleTuples()) {
+            expectedTuples.add(new Tuple(new Schema(TestConstants.AGE_ATTR, TestConstants.DESCRIPTION_ATTR), 
+                    tuple.getField(TestConstants.AGE), tuple.getField(TestConstants.DESCRIPTION)));
+        }
+        Assert.assertTrue(TestUtils.equals(expectedTuples, returnedTuples));
+        
+        for (Tuple tuple : returnedTuples) {
+            ListField<Span> payload = tuple.getField(SchemaConstants.PAYLOAD);
+            Assert.assertFalse(payload.getValue().isEmpty());
+            for (Span span : payload.getValue()) {
+                Assert.assertEquals(TestConstants.DESCRIPTION, span.getAttributeName());
+            }
+        }
+    }
+
+    private static List<Tuple> readAllTuplesWithPayload(String tableName) throws Exception {
+        DataReader dataReader = RelationManager.getInstance().getTableDataReader(
+                tableName, new MatchAllDocsQuery());
+        dataReader.setPayloadAdded(true);
+        
+        List<Tuple> returnedTuples = new ArrayList<>();
+        Tuple nextTuple;
+        dataReader.open();
+        while ((nextTuple = dataReader.getNextTuple()) != null) {
+            returnedTuples.add(nextTuple);
+        }
+        dataReader.close();
+        return returnedTuples;
+    }
+
+    /*
+     * The payload is only built when it's first read, from the term vectors if the index reader is open,
+     *   or by the analyzer of the table if the index reader is closed, and both are the same.
+     */
+    @Test
+    public void testLazyPayload() throws Exception {
+        DataReader dataReader = RelationManager.getInstance().getTableDataReader(
+                PEOPLE_TABLE, new MatchAllDocsQuery());
+        dataReader.setPayloadAdded(true);
+        
+        List<List<Span>> termVectorPayloads = new ArrayList<>();
+        Tuple nextTuple;
+        dataReader.open();
+        while ((nextTuple = dataReader.getNextTuple()) != null) {
+            ListField<Span> payloadField = nextTuple.getField(SchemaConstants.PAYLOAD);
+            LazyPayload payload = (LazyPayload) payloadField.getValue();
+            Assert.assertFalse(payload.isComputed());
+            Assert.assertFalse(payload.isEmpty());
+            Assert.assertTrue(payload.isComputed());
+            termVectorPayloads.add(new ArrayList<>(payload));
+        }
+        dataReader.close();
+        
+        List<Tuple> tuples = readAllTuplesWithPayload(PEOPLE_TABLE);
+        // close the reader of the table, the payloads can't be read from the term vectors anymore
+        IndexSearcherPool.getInstance().invalidate(
+                RelationManager.getInstance().getTableDataStore(PEOPLE_TABLE).getDataDirectory());
+        
+        List<List<Span>> analyzerPayloads = new ArrayList<>();
+        for (Tuple tuple : tuples) {
+            ListField<Span> payloadField = tuple.getField(SchemaConstants.PAYLOAD);
+            Assert.assertFalse(((LazyPayload) payloadField.getValue()).isComputed());
+            analyzerPayloads.add(new ArrayList<>(payloadField.getValue()));
+        }
+        Assert.assertEquals(termVectorPayloads, analyzerPayloads);
+    }
+
 }
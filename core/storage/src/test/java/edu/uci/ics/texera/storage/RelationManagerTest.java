@@ -1,26 +1,37 @@
 package edu.uci.ics.texera.storage;
 
 import java.io.File;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.TermQuery;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import edu.uci.ics.texera.api.constants.SchemaConstants;
 import edu.uci.ics.texera.api.exception.StorageException;
 import edu.uci.ics.texera.api.exception.TexeraException;
 import edu.uci.ics.texera.api.field.IDField;
+import edu.uci.ics.texera.api.field.ListField;
 import edu.uci.ics.texera.api.field.StringField;
+import edu.uci.ics.texera.api.field.TextField;
 import edu.uci.ics.texera.api.schema.Attribute;
 import edu.uci.ics.texera.api.schema.AttributeType;
 import edu.uci.ics.texera.api.schema.Schema;
+import edu.uci.ics.texera.api.span.Span;
 import edu.uci.ics.texera.api.tuple.Tuple;
 import edu.uci.ics.texera.storage.constants.LuceneAnalyzerConstants;
 
@@ -429,4 +440,234 @@ public class RelationManagerTest {
 
         relationManager.deleteTable(tableName);
     }
+    
+    /*
+     * Test that the readers of a table are shared through the index searcher pool,
+     *   and refreshed after the data writer commits.
+     */
+    @Test
+    public void test18() throws Exception {
+        String tableName = "relation_manager_test_table";
+        String tableDirectory = "./index/test_table";
+        Schema tableSchema = new Schema(
+                new Attribute("content", AttributeType.STRING));
+        
+        IndexSearcherPool indexSearcherPool = relationManager.getIndexSearcherPool();
+        
+        relationManager.deleteTable(tableName);
+        relationManager.createTable(
+                tableName, Paths.get(tableDirectory), tableSchema, LuceneAnalyzerConstants.standardAnalyzerString());
+        
+        DataWriter dataWriter = relationManager.getTableDataWriter(tableName);
+        dataWriter.open();
+        Tuple insertedTuple = new Tuple(tableSchema, new StringField("test"));
+        IDField idField = dataWriter.insertTuple(insertedTuple);
+        dataWriter.close();
+        
+        // the first lookup may open the index, the second one must reuse it
+        Assert.assertNotNull(relationManager.getTupleByID(tableName, idField));
+        long hitCount = indexSearcherPool.getHitCount();
+        long missCount = indexSearcherPool.getMissCount();
+        Assert.assertNotNull(relationManager.getTupleByID(tableName, idField));
+        Assert.assertTrue(indexSearcherPool.getHitCount() > hitCount);
+        Assert.assertEquals(missCount, indexSearcherPool.getMissCount());
+        Assert.assertEquals(0, indexSearcherPool.getNumAcquiredSearchers());
+        
+        // the shared reader must see the deletion after the writer commits
+        long refreshCount = indexSearcherPool.getRefreshCount();
+        dataWriter.open();
+        dataWriter.deleteTupleByID(idField);
+        dataWriter.close();
+        Assert.assertTrue(indexSearcherPool.getRefreshCount() > refreshCount);
+        Assert.assertNull(relationManager.getTupleByID(tableName, idField));
+        
+        int numOpenReaders = indexSearcherPool.getNumOpenReaders();
+        relationManager.deleteTable(tableName);
+        Assert.assertTrue(indexSearcherPool.getNumOpenReaders() < numOpenReaders);
+    }
+    
+    /*
+     * Test that the cached catalog information of a table is invalidated 
+     *   when the table is deleted and created again with another schema.
+     */
+    @Test
+    public void test19() throws Exception {
+        String tableName = "relation_manager_test_table";
+        String tableDirectory = "./index/test_table";
+        Schema tableSchema1 = new Schema(new Attribute("content", AttributeType.STRING));
+        Schema tableSchema2 = new Schema(new Attribute("text", AttributeType.TEXT));
+        
+        relationManager.deleteTable(tableName);
+        relationManager.createTable(
+                tableName, Paths.get(tableDirectory), tableSchema1, LuceneAnalyzerConstants.standardAnalyzerString());
+        Assert.assertTrue(relationManager.getTableSchema(tableName).containsAttribute("content"));
+        Assert.assertSame(relationManager.getTableAnalyzer(tableName), relationManager.getTableAnalyzer(tableName));
+        
+        relationManager.deleteTable(tableName);
+        Assert.assertFalse(relationManager.checkTableExistence(tableName));
+        
+        relationManager.createTable(
+                tableName, Paths.get(tableDirectory), tableSchema2, LuceneAnalyzerConstants.chineseAnalyzerString());
+        Schema cachedSchema = relationManager.getTableSchema(tableName);
+        Assert.assertTrue(cachedSchema.containsAttribute("text"));
+        Assert.assertFalse(cachedSchema.containsAttribute("content"));
+        Assert.assertEquals(LuceneAnalyzerConstants.chineseAnalyzerString(), 
+                relationManager.getTableAnalyzerString(tableName));
+        
+        relationManager.deleteTable(tableName);
+    }
+    
+    /*
+     * Test that the secondary n-gram index of a TEXT attribute is recorded in the catalog 
+     *   and can be queried by the lower-case grams of its values.
+     */
+    @Test
+    public void test20() throws Exception {
+        String tableName = "relation_manager_test_table";
+        String tableDirectory = "./index/test_table";
+        Schema tableSchema = new Schema(
+                new Attribute("city", AttributeType.STRING), new Attribute("description", AttributeType.TEXT));
+        
+        relationManager.deleteTable(tableName);
+        relationManager.createTable(tableName, Paths.get(tableDirectory), tableSchema, 
+                LuceneAnalyzerConstants.standardAnalyzerString(), Arrays.asList("description"));
+        Assert.assertEquals(Arrays.asList("description"), relationManager.getTableGramIndexAttributes(tableName));
+        
+        DataWriter dataWriter = relationManager.getTableDataWriter(tableName);
+        dataWriter.open();
+        dataWriter.insertTuple(new Tuple(tableSchema, new StringField("irvine"), new TextField("Zebras Running")));
+        dataWriter.insertTuple(new Tuple(tableSchema, new StringField("tustin"), new TextField("lions sleeping")));
+        dataWriter.close();
+        
+        String gramIndexField = LuceneAnalyzerConstants.getGramIndexFieldName("description");
+        Query gramQuery = new TermQuery(new Term(gramIndexField, "bra"));
+        Assert.assertEquals(0.5, relationManager.estimateSelectivity(tableName, gramQuery), 0.0);
+        Assert.assertEquals(0.0, relationManager.estimateSelectivity(tableName, 
+                new TermQuery(new Term(gramIndexField, "Zeb"))), 0.0);
+        
+        // the n-gram index field isn't part of the tuples
+        DataReader dataReader = relationManager.getTableDataReader(tableName, gramQuery);
+        dataReader.open();
+        Tuple tuple = dataReader.getNextTuple();
+        Assert.assertEquals(Schema.Builder.getSchemaWithID(tableSchema), tuple.getSchema());
+        Assert.assertEquals("irvine", tuple.getField("city").getValue());
+        Assert.assertNull(dataReader.getNextTuple());
+        dataReader.close();
+        
+        relationManager.deleteTable(tableName);
+    }
+    
+    /*
+     * Only TEXT attributes can have a secondary n-gram index.
+     */
+    @Test(expected = StorageException.class)
+    public void test21() throws Exception {
+        String tableName = "relation_manager_test_table";
+        String tableDirectory = "./index/test_table";
+        Schema tableSchema = new Schema(new Attribute("city", AttributeType.STRING));
+        
+        relationManager.deleteTable(tableName);
+        relationManager.createTable(tableName, Paths.get(tableDirectory), tableSchema, 
+                LuceneAnalyzerConstants.standardAnalyzerString(), Arrays.asList("city"));
+    }
+
+    /*
+     * Test that the storage profile of a table is recorded in the catalog and decides how TEXT attributes are indexed,
+     *   while the keyword queries and the payloads are the same for all the profiles.
+     */
+    @Test
+    public void test22() throws Exception {
+        String tableName = "relation_manager_test_table";
+        String tableDirectory = "./index/test_table";
+        Schema tableSchema = new Schema(
+                new Attribute("city", AttributeType.STRING), new Attribute("description", AttributeType.TEXT));
+        List<Tuple> tuples = Arrays.asList(
+                new Tuple(tableSchema, new StringField("irvine"), new TextField("Zebras running, zebras sleeping")),
+                new Tuple(tableSchema, new StringField("tustin"), new TextField("the lions are sleeping")));
+        
+        List<List<List<Span>>> payloads = new ArrayList<>();
+        for (StorageProfile storageProfile : StorageProfile.values()) {
+            relationManager.deleteTable(tableName);
+            relationManager.createTable(tableName, Paths.get(tableDirectory), tableSchema, 
+                    LuceneAnalyzerConstants.standardAnalyzerString(), new ArrayList<>(), storageProfile);
+            Assert.assertEquals(storageProfile, relationManager.getTableStorageProfile(tableName));
+            
+            DataWriter dataWriter = relationManager.getTableDataWriter(tableName);
+            dataWriter.open();
+            dataWriter.insertTuples(tuples);
+            dataWriter.close();
+            
+            Path indexDirectory = Paths.get(relationManager.getTableDirectory(tableName));
+            IndexSearcher indexSearcher = relationManager.getIndexSearcherPool().acquire(indexDirectory);
+            FieldInfo fieldInfo = indexSearcher.getIndexReader().leaves().get(0).reader()
+                    .getFieldInfos().fieldInfo("description");
+            Assert.assertEquals(storageProfile.isTermVectorsStored(), fieldInfo.hasVectors());
+            Assert.assertEquals(storageProfile.isOffsetsIndexed() ? IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS 
+                    : IndexOptions.DOCS_AND_FREQS_AND_POSITIONS, fieldInfo.getIndexOptions());
+            relationManager.getIndexSearcherPool().release(indexDirectory, indexSearcher);
+            
+            Assert.assertEquals(0.5, relationManager.estimateSelectivity(tableName, 
+                    new TermQuery(new Term("description", "zebras"))), 0.0);
+            
+            DataReader dataReader = relationManager.getTableDataReader(tableName, new MatchAllDocsQuery());
+            dataReader.setPayloadAdded(true);
+            List<List<Span>> tablePayloads = new ArrayList<>();
+            dataReader.open();
+            Tuple tuple;
+            while ((tuple = dataReader.getNextTuple()) != null) {
+                ListField<Span> payloadField = tuple.getField(SchemaConstants.PAYLOAD);
+                tablePayloads.add(new ArrayList<>(payloadField.getValue()));
+            }
+            dataReader.close();
+            payloads.add(tablePayloads);
+        }
+        relationManager.deleteTable(tableName);
+        
+        Assert.assertFalse(payloads.get(0).get(0).isEmpty());
+        for (List<List<Span>> tablePayloads : payloads) {
+            Assert.assertEquals(payloads.get(0), tablePayloads);
+        }
+    }
+    
+    /*
+     * Test that a searcher acquired before its table is deleted is still valid, 
+     *   and it's released through the pool after the table is deleted and created again.
+     */
+    @Test
+    public void test23() throws Exception {
+        String tableName = "relation_manager_test_table";
+        Path tableDirectory = Paths.get("./index/test_table");
+        Schema tableSchema = new Schema(new Attribute("content", AttributeType.STRING));
+        IndexSearcherPool indexSearcherPool = relationManager.getIndexSearcherPool();
+        
+        relationManager.deleteTable(tableName);
+        relationManager.createTable(
+                tableName, tableDirectory, tableSchema, LuceneAnalyzerConstants.standardAnalyzerString());
+        DataWriter dataWriter = relationManager.getTableDataWriter(tableName);
+        dataWriter.open();
+        dataWriter.insertTuple(new Tuple(tableSchema, new StringField("test")));
+        dataWriter.close();
+        
+        int numAcquiredSearchers = indexSearcherPool.getNumAcquiredSearchers();
+        IndexSearcher indexSearcher = indexSearcherPool.acquire(tableDirectory);
+        relationManager.deleteTable(tableName);
+        relationManager.createTable(
+                tableName, tableDirectory, tableSchema, LuceneAnalyzerConstants.standardAnalyzerString());
+        IndexSearcher newIndexSearcher = indexSearcherPool.acquire(tableDirectory);
+        
+        Assert.assertEquals(1, indexSearcher.getIndexReader().numDocs());
+        Assert.assertEquals(0, newIndexSearcher.getIndexReader().numDocs());
+        indexSearcherPool.release(tableDirectory, indexSearcher);
+        indexSearcherPool.release(tableDirectory, newIndexSearcher);
+        Assert.assertEquals(numAcquiredSearchers, indexSearcherPool.getNumAcquiredSearchers());
+        
+        // a searcher can't be released more times than it's acquired
+        try {
+            indexSearcherPool.release(tableDirectory, indexSearcher);
+            Assert.fail("a released searcher must not be released again");
+        } catch (StorageException e) {
+        }
+        
+        relationManager.deleteTable(tableName);
+    }
 }